@@ -73,6 +73,7 @@ public class ArrowPlot2D extends Plot2D {
    */
   public void setHeadType(ArrowHead type) {
     mHeadType = type;
+    changed();
   }
 
   /**
@@ -91,6 +92,7 @@ public class ArrowPlot2D extends Plot2D {
    */
   public void setDirection(ArrowDirection dir) {
     mDirection = dir;
+    changed();
   }
 
   /**
@@ -112,6 +114,7 @@ public class ArrowPlot2D extends Plot2D {
       throw new IllegalArgumentException("Invalid arrow head width: " + w);
     }
     mHeadWidth = w;
+    changed();
   }
 
   /**
@@ -133,6 +136,7 @@ public class ArrowPlot2D extends Plot2D {
       throw new IllegalArgumentException("Invalid arrow head height: " + h);
     }
     mHeadHeight = h;
+    changed();
   }
 
   /**
@@ -52,6 +52,7 @@ public class BWPlot2D extends Plot2D {
    */
   public void setType(BoxWhiskerStyle style) {
     mStyle = style;
+    changed();
   }
 
 
@@ -75,6 +76,7 @@ public class BWPlot2D extends Plot2D {
       throw new IllegalArgumentException("width must be >= 1: " + pixels);
     }
     mWidth = pixels;
+    changed();
   }
 
 
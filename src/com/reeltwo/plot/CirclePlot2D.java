@@ -7,6 +7,8 @@ package com.reeltwo.plot;
  */
 
 public class CirclePlot2D extends FillablePlot2D {
+  /** largest circle diameter in the data */
+  private float mMaxDiameter = 0.0f;
 
   /**
    * Default constructor setting the default axes used to the bottom
@@ -38,5 +40,21 @@ public class CirclePlot2D extends FillablePlot2D {
       throw new UnsupportedOperationException("Cannot set " + data.getClass().getName() + " in Circle2D.");
     }
     super.setData(data);
+    float max = 0.0f;
+    for (final Datum2D d : data) {
+      max = Math.max(max, ((Circle2D) d).getDiameter());
+    }
+    mMaxDiameter = max;
+  }
+
+
+  /**
+   * Returns the diameter of the largest circle in the data, as it was
+   * when the data was set.
+   *
+   * @return largest diameter
+   */
+  public float getMaxDiameter() {
+    return mMaxDiameter;
   }
 }
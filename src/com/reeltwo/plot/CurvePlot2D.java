@@ -49,6 +49,7 @@ public class CurvePlot2D extends FillablePlot2D {
       throw new IllegalArgumentException("Invalid curve type: " + type);
     }
     mType = type;
+    changed();
   }
 
 
@@ -74,4 +75,15 @@ public class CurvePlot2D extends FillablePlot2D {
     }
     super.setData(data);
   }
+
+
+  /**
+   * Sets the data used in this plot to a series of points held as
+   * columns of co-ordinates.
+   *
+   * @param series a series of points
+   */
+  public void setData(Series2D series) {
+    setSeries(series);
+  }
 }
@@ -0,0 +1,131 @@
+package com.reeltwo.plot;
+
+/**
+ * Point data held as two columns of <code>float</code> co-ordinates.
+ * The arrays are not copied, so changes made to them after the series
+ * is given to a plot will only be seen once the plot's data is set
+ * again.
+ *
+ * @author Richard Littin
+ */
+public class FloatSeries2D implements Series2D {
+  /** co-ordinates */
+  private final float[] mXs, mYs;
+  /** log10 of co-ordinates, made when first wanted */
+  private volatile float[] mLogXs, mLogYs;
+
+
+  /**
+   * Creates a series from matching arrays of x and y co-ordinates.
+   *
+   * @param xs x co-ordinates
+   * @param ys y co-ordinates
+   * @exception IllegalArgumentException if the arrays differ in length
+   */
+  public FloatSeries2D(float[] xs, float[] ys) {
+    if (xs == null || ys == null) {
+      throw new NullPointerException("null co-ordinates given");
+    }
+    if (xs.length != ys.length) {
+      throw new IllegalArgumentException("Co-ordinate arrays differ in length: " + xs.length + " != " + ys.length);
+    }
+    mXs = xs;
+    mYs = ys;
+  }
+
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return mXs.length;
+  }
+
+
+  /** {@inheritDoc} */
+  @Override
+  public float getX(int index) {
+    return mXs[index];
+  }
+
+
+  /** {@inheritDoc} */
+  @Override
+  public float getY(int index) {
+    return mYs[index];
+  }
+
+
+  /**
+   * Returns the x co-ordinate column.
+   *
+   * @return x co-ordinates
+   */
+  public float[] getXs() {
+    return mXs;
+  }
+
+
+  /**
+   * Returns the y co-ordinate column.
+   *
+   * @return y co-ordinates
+   */
+  public float[] getYs() {
+    return mYs;
+  }
+
+
+  /**
+   * Returns the {@code log}<sub>10</sub> of the x co-ordinates, for
+   * drawing on log scale axes.  These are worked out the first time
+   * they are asked for and kept until the series is next given to a
+   * plot.
+   *
+   * @return logged x co-ordinates
+   */
+  public float[] getLog10Xs() {
+    float[] logs = mLogXs;
+    if (logs == null) {
+      logs = log10(mXs);
+      mLogXs = logs;
+    }
+    return logs;
+  }
+
+
+  /**
+   * Returns the {@code log}<sub>10</sub> of the y co-ordinates, for
+   * drawing on log scale axes.  These are worked out the first time
+   * they are asked for and kept until the series is next given to a
+   * plot.
+   *
+   * @return logged y co-ordinates
+   */
+  public float[] getLog10Ys() {
+    float[] logs = mLogYs;
+    if (logs == null) {
+      logs = log10(mYs);
+      mLogYs = logs;
+    }
+    return logs;
+  }
+
+
+  /**
+   * Forgets the logged co-ordinates, for when the arrays may have
+   * been changed.
+   */
+  void clearLogs() {
+    mLogXs = null;
+    mLogYs = null;
+  }
+
+
+  private static float[] log10(float[] values) {
+    final float[] logs = new float[values.length];
+    for (int i = 0; i < values.length; i++) {
+      logs[i] = (float) PlotUtils.log10(values[i]);
+    }
+    return logs;
+  }
+}
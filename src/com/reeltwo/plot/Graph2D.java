@@ -38,6 +38,9 @@ public class Graph2D implements Cloneable {
   /** list of plots in graph */
   private ArrayList<Plot2D> mPlots = new ArrayList<Plot2D>();
 
+  /** count of changes made to the graph's own attributes */
+  private long mVersion = 0;
+
   /** Default constructor. */
   public Graph2D() {
     for (Edge a : Edge.values()) {
@@ -54,6 +57,7 @@ public class Graph2D implements Cloneable {
    */
   public void setTitle(String title) {
     mTitle = (title == null) ? "" : title;
+    mVersion++;
   }
 
   /**
@@ -72,6 +76,7 @@ public class Graph2D implements Cloneable {
    */
   public void setKeyTitle(String title) {
     mKeyTitle = (title == null) ? "" : title;
+    mVersion++;
   }
 
   /**
@@ -90,6 +95,7 @@ public class Graph2D implements Cloneable {
    */
   public void setShowKey(boolean flag) {
     mShowKey = flag;
+    mVersion++;
   }
 
   /**
@@ -109,6 +115,7 @@ public class Graph2D implements Cloneable {
    */
   public void setColoredKey(final boolean flag) {
     mColoredKey = flag;
+    mVersion++;
   }
 
   /**
@@ -140,6 +147,7 @@ public class Graph2D implements Cloneable {
     default:
       throw new IllegalArgumentException("Invalid horizontal position: " + position);
     }
+    mVersion++;
   }
 
   /**
@@ -171,6 +179,7 @@ public class Graph2D implements Cloneable {
     default:
       throw new IllegalArgumentException("Invalid vertical position: " + position);
     }
+    mVersion++;
   }
 
   /**
@@ -195,6 +204,7 @@ public class Graph2D implements Cloneable {
    */
   public void setLabel(Axis axis, Edge side, String label) {
     getAxis(axis, side).setTitle(label);
+    mVersion++;
   }
 
   /**
@@ -205,6 +215,7 @@ public class Graph2D implements Cloneable {
    */
   public void setLabel(Axis axis, String label) {
     setLabel(axis, ONE, label);
+    mVersion++;
   }
 
   /**
@@ -230,6 +241,7 @@ public class Graph2D implements Cloneable {
         setGrid(axis, side, flag);
       }
     }
+    mVersion++;
   }
 
   /**
@@ -241,6 +253,7 @@ public class Graph2D implements Cloneable {
    */
   public void setGrid(Axis axis, Edge side, boolean flag) {
     getAxis(axis, side).setShowGrid(flag);
+    mVersion++;
   }
 
   /**
@@ -262,6 +275,7 @@ public class Graph2D implements Cloneable {
    */
   public void setBorder(boolean flag) {
     mDisplayBorder = flag;
+    mVersion++;
   }
 
   /**
@@ -285,6 +299,7 @@ public class Graph2D implements Cloneable {
     ga.setLoAuto(true);
     ga.setHiAuto(true);
     setRanges();
+    mVersion++;
   }
 
   /**
@@ -300,6 +315,7 @@ public class Graph2D implements Cloneable {
   public void setRange(Axis axis, Edge side, float lo, float hi) {
     getAxis(axis, side).setRange(lo, hi);
     setRanges();
+    mVersion++;
   }
 
   /**
@@ -311,6 +327,7 @@ public class Graph2D implements Cloneable {
    */
   public void setRange(Axis axis, float lo, float hi) {
     setRange(axis, ONE, lo, hi);
+    mVersion++;
   }
 
   /**
@@ -323,6 +340,7 @@ public class Graph2D implements Cloneable {
   public void setLo(Axis axis, Edge side, float x) {
     getAxis(axis, side).setLo(x);
     setRanges();
+    mVersion++;
   }
 
   /**
@@ -346,6 +364,7 @@ public class Graph2D implements Cloneable {
   public void setHi(Axis axis, Edge side, float x) {
     getAxis(axis, side).setHi(x);
     setRanges();
+    mVersion++;
   }
 
   /**
@@ -368,6 +387,7 @@ public class Graph2D implements Cloneable {
   public void setAutoScaleTic(Axis axis, Edge side) {
     getAxis(axis, side).setTicAuto(true);
     setRanges();
+    mVersion++;
   }
 
   /**
@@ -381,6 +401,7 @@ public class Graph2D implements Cloneable {
    */
   public void setTic(Axis axis, Edge side, float tic) {
     getAxis(axis, side).setTic(tic);
+    mVersion++;
   }
 
   /**
@@ -409,6 +430,7 @@ public class Graph2D implements Cloneable {
    */
   public void setMinorTic(Axis axis, Edge side, float tic) {
     getAxis(axis, side).setMinorTic(tic);
+    mVersion++;
   }
 
   /**
@@ -434,6 +456,7 @@ public class Graph2D implements Cloneable {
    */
   public void setShowTics(Axis axis, Edge side, boolean flag) {
     getAxis(axis, side).setShowTics(flag);
+    mVersion++;
   }
 
   /**
@@ -458,6 +481,7 @@ public class Graph2D implements Cloneable {
    */
   public void setTicLabelFormatter(Axis axis, Edge side, LabelFormatter lf) {
     getAxis(axis, side).setLabelFormatter(lf);
+    mVersion++;
   }
 
   /**
@@ -482,6 +506,7 @@ public class Graph2D implements Cloneable {
   public void setLogScale(Axis axis, Edge side, boolean flag) {
     getAxis(axis, side).setLogScale(flag);
     setRanges();
+    mVersion++;
   }
 
   /**
@@ -505,6 +530,7 @@ public class Graph2D implements Cloneable {
       mPlots.add(plot);
       setRanges();
     }
+    mVersion++;
   }
   
   /**
@@ -517,6 +543,22 @@ public class Graph2D implements Cloneable {
   }
 
 
+  /**
+   * Returns a number that increases whenever this graph or any of its
+   * plots is changed, so a drawing of the graph is out of date when
+   * the version differs from the one drawn.
+   *
+   * @return version of the graph
+   */
+  public long getVersion() {
+    long version = mVersion;
+    for (final Plot2D plot : mPlots) {
+      version += plot.getVersion();
+    }
+    return version;
+  }
+
+
   /**
    * Returns whether any plot in this graph uses the given axis and side.
    *
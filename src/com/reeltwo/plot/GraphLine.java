@@ -76,6 +76,7 @@ public class GraphLine extends Plot2D {
    */
   public void setStyle(LineStyle type) {
     mStyle = type;
+    changed();
   }
 
   /**
@@ -0,0 +1,133 @@
+package com.reeltwo.plot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Point data read directly from a flat binary file of interleaved x
+ * and y <code>float</code> co-ordinates.  The file is memory mapped so
+ * the data stays off the heap whatever its size, and co-ordinates are
+ * read from the mapping without copying.
+ *
+ * @author Richard Littin
+ */
+public final class MappedSeries2D implements Series2D {
+  /** bytes used by one x/y pair */
+  private static final int POINT_BYTES = 8;
+  /** log2 of the points in each mapped segment of a file (1GB segments) */
+  private static final int SEGMENT_SHIFT = 27;
+  /** log2 of the most points a single float buffer can hold */
+  private static final int BUFFER_SHIFT = 30;
+
+  private final FloatBuffer[] mSegments;
+  private final int mShift;
+  private final int mMask;
+  private final int mSize;
+
+
+  /**
+   * Creates a series over a buffer of interleaved x and y
+   * co-ordinates, starting at the buffer's position.
+   *
+   * @param buffer a buffer of x/y pairs
+   * @exception IllegalArgumentException if the buffer holds an odd
+   * number of values
+   */
+  public MappedSeries2D(FloatBuffer buffer) {
+    this(new FloatBuffer[] {buffer.slice()}, BUFFER_SHIFT, checkPairs(buffer.remaining()) / 2);
+  }
+
+  private MappedSeries2D(FloatBuffer[] segments, int shift, int size) {
+    mSegments = segments;
+    mShift = shift;
+    mMask = (1 << shift) - 1;
+    mSize = size;
+  }
+
+  private static int checkPairs(int values) {
+    if (values % 2 != 0) {
+      throw new IllegalArgumentException("Buffer does not hold whole x/y pairs: " + values);
+    }
+    return values;
+  }
+
+
+  /**
+   * Maps a file of big-endian x/y pairs, as written by a
+   * <code>DataOutputStream</code>.
+   *
+   * @param file file to map
+   * @return a series over the file
+   * @exception IOException if the file cannot be mapped
+   */
+  public static MappedSeries2D map(File file) throws IOException {
+    return map(file, ByteOrder.BIG_ENDIAN);
+  }
+
+
+  /**
+   * Maps a file of x/y pairs stored in the given byte order.
+   *
+   * @param file file to map
+   * @param order byte order of the floats in the file
+   * @return a series over the file
+   * @exception IOException if the file cannot be mapped or does not
+   * hold a whole number of x/y pairs
+   */
+  public static MappedSeries2D map(File file, ByteOrder order) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("null file given");
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      final long length = channel.size();
+      if (length % POINT_BYTES != 0) {
+        throw new IOException("File does not hold whole x/y pairs: " + file);
+      }
+      final long points = length / POINT_BYTES;
+      if (points > Integer.MAX_VALUE) {
+        throw new IOException("File holds too many points: " + file);
+      }
+      final long segmentBytes = (long) POINT_BYTES << SEGMENT_SHIFT;
+      final int count = (int) ((length + segmentBytes - 1) / segmentBytes);
+      final FloatBuffer[] segments = new FloatBuffer[count];
+      for (int i = 0; i < count; i++) {
+        final long start = i * segmentBytes;
+        final long size = Math.min(segmentBytes, length - start);
+        // the mapping remains valid after the channel is closed
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, size).order(order).asFloatBuffer();
+      }
+      return new MappedSeries2D(segments, SEGMENT_SHIFT, (int) points);
+    }
+  }
+
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+
+  /** {@inheritDoc} */
+  @Override
+  public float getX(int index) {
+    if (index < 0 || index >= mSize) {
+      throw new IndexOutOfBoundsException("Index out of range: " + index);
+    }
+    return mSegments[index >>> mShift].get((index & mMask) << 1);
+  }
+
+
+  /** {@inheritDoc} */
+  @Override
+  public float getY(int index) {
+    if (index < 0 || index >= mSize) {
+      throw new IndexOutOfBoundsException("Index out of range: " + index);
+    }
+    return mSegments[index >>> mShift].get(((index & mMask) << 1) + 1);
+  }
+}
@@ -28,6 +28,12 @@ public abstract class Plot2D {
 
   /** data points in plot */
   private Datum2D[] mData = null;
+  /** point data in plot as a series of co-ordinates */
+  private Series2D mSeries = null;
+  /** whether the data is ordered by x co-ordinate */
+  private boolean mSortedX = true;
+  /** count of changes made to this plot */
+  private long mVersion = 0;
 
 
   /**
@@ -70,6 +76,7 @@ public abstract class Plot2D {
     if (title != null) {
       mTitle = title;
     }
+    changed();
   }
 
 
@@ -90,6 +97,7 @@ public abstract class Plot2D {
    */
   public void setColor(int color) {
     mColor = color;
+    changed();
   }
 
 
@@ -114,6 +122,7 @@ public abstract class Plot2D {
       throw new IllegalArgumentException("Line width must be greater than or equal to 1: " + width);
     }
     mLineWidth = width;
+    changed();
   }
 
 
@@ -134,6 +143,7 @@ public abstract class Plot2D {
    * @param data an array of Datum2D's
    */
   public void setData(Datum2D[] data) {
+    boolean sorted = true;
     if (data == null || data.length == 0) {
       mXLo = mXHi = 0.0f;
       mYLo = mYHi = 0.0f;
@@ -143,8 +153,13 @@ public abstract class Plot2D {
       float xHi = d.getXHi();
       float yLo = d.getYLo();
       float yHi = d.getYHi();
+      sorted = xLo <= xHi;
       for (int i = 1; i < data.length; i++) {
+        final Datum2D prev = d;
         d = data[i];
+        if (sorted && !(d.getXLo() >= prev.getXLo() && d.getXHi() >= prev.getXHi() && d.getXLo() <= d.getXHi())) {
+          sorted = false;
+        }
         if (d.getXLo() < xLo) {
           xLo = d.getXLo();
         }
@@ -169,6 +184,92 @@ public abstract class Plot2D {
       mYHi = yHi;
     }
     mData = data;
+    mSeries = data instanceof Point2D[] ? new PointArraySeries2D((Point2D[]) data) : null;
+    mSortedX = sorted;
+    changed();
+  }
+
+  /**
+   * Sets the data used in this plot to a series of co-ordinates.
+   * Subclasses that can draw point data expose this through their own
+   * <code>setData</code> method.
+   *
+   * @param series a series of points
+   */
+  protected void setSeries(Series2D series) {
+    if (series == null) {
+      throw new NullPointerException("null series given");
+    }
+    if (series instanceof FloatSeries2D) {
+      // the arrays may have changed since the logs were taken
+      ((FloatSeries2D) series).clearLogs();
+    }
+    final int size = series.size();
+    boolean sorted = true;
+    if (size == 0) {
+      mXLo = mXHi = 0.0f;
+      mYLo = mYHi = 0.0f;
+    } else {
+      float xLo, xHi, yLo, yHi;
+      if (series instanceof FloatSeries2D) {
+        final float[] xs = ((FloatSeries2D) series).getXs();
+        final float[] ys = ((FloatSeries2D) series).getYs();
+        xLo = xHi = xs[0];
+        yLo = yHi = ys[0];
+        for (int i = 1; i < size; i++) {
+          final float x = xs[i];
+          final float y = ys[i];
+          if (!(x >= xs[i - 1])) {
+            sorted = false;
+          }
+          if (x < xLo) {
+            xLo = x;
+          } else if (x > xHi) {
+            xHi = x;
+          }
+          if (y < yLo) {
+            yLo = y;
+          } else if (y > yHi) {
+            yHi = y;
+          }
+        }
+      } else {
+        xLo = xHi = series.getX(0);
+        yLo = yHi = series.getY(0);
+        float prev = xLo;
+        for (int i = 1; i < size; i++) {
+          final float x = series.getX(i);
+          final float y = series.getY(i);
+          if (!(x >= prev)) {
+            sorted = false;
+          }
+          prev = x;
+          if (x < xLo) {
+            xLo = x;
+          } else if (x > xHi) {
+            xHi = x;
+          }
+          if (y < yLo) {
+            yLo = y;
+          } else if (y > yHi) {
+            yHi = y;
+          }
+        }
+      }
+      checkValid(xLo);
+      checkValid(yLo);
+      checkValid(xHi);
+      checkValid(yHi);
+
+      mXLo = xLo;
+      mXHi = xHi;
+      mYLo = yLo;
+      mYHi = yHi;
+    }
+    mData = null;
+    mSeries = series;
+    mSortedX = sorted;
+    changed();
   }
 
   /**
@@ -199,6 +300,60 @@ public abstract class Plot2D {
     return mData;
   }
 
+  /**
+   * Returns the point data used in this plot as a series of
+   * co-ordinates.  This is available both when a series has been set
+   * and when the data is an array of <code>Point2D</code>s, otherwise
+   * null is returned.
+   *
+   * @return a series of points
+   */
+  public Series2D getSeries() {
+    return mSeries;
+  }
+
+  /**
+   * Returns whether the plot's data is ordered by x co-ordinate, so
+   * that neither the low nor the high x value of a datum is less than
+   * that of the datum before it.  This is worked out when the data is
+   * set, and lets renderers find the data in view by binary search.
+   *
+   * @return true if the data is sorted by x
+   */
+  public boolean isSortedX() {
+    return mSortedX;
+  }
+
+  /**
+   * Returns whether this plot has any data to draw.
+   *
+   * @return true if there is some data
+   */
+  public boolean hasData() {
+    return (mData != null && mData.length != 0) || (mSeries != null && mSeries.size() != 0);
+  }
+
+
+  /**
+   * Returns a number that increases whenever this plot is changed.
+   * Renderers compare versions to tell whether anything they have kept
+   * from drawing the plot before is out of date.
+   *
+   * @return version of the plot
+   */
+  public long getVersion() {
+    return mVersion;
+  }
+
+  /**
+   * Notes that this plot has changed.  The setters call this, so it
+   * need only be called after changing data the plot was given in
+   * place, such as the values of a series.
+   */
+  public void changed() {
+    mVersion++;
+  }
+
 
   private void checkValid(float f) {
     if (!isValid(f)) {
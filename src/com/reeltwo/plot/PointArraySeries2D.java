@@ -0,0 +1,30 @@
+package com.reeltwo.plot;
+
+/**
+ * Presents an array of <code>Point2D</code>s as a series so renderers
+ * can treat object and columnar point data the same way.
+ *
+ * @author Richard Littin
+ */
+final class PointArraySeries2D implements Series2D {
+  private final Point2D[] mPoints;
+
+  PointArraySeries2D(Point2D[] points) {
+    mPoints = points;
+  }
+
+  @Override
+  public int size() {
+    return mPoints.length;
+  }
+
+  @Override
+  public float getX(int index) {
+    return mPoints[index].getX();
+  }
+
+  @Override
+  public float getY(int index) {
+    return mPoints[index].getY();
+  }
+}
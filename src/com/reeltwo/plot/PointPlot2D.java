@@ -13,6 +13,12 @@ public class PointPlot2D extends FillablePlot2D {
   private boolean mLines = false;
   /** whether to draw dots */
   private boolean mDots = false;
+  /** whether lines through sorted data may be decimated */
+  private boolean mDecimate = true;
+  /** whether to keep a level of detail summary of the data */
+  private boolean mLevelOfDetail = false;
+  /** level of detail summary of the data */
+  private SeriesPyramid mPyramid = null;
 
   /**
    * Default constructor setting the default axes used to the bottom
@@ -42,6 +48,7 @@ public class PointPlot2D extends FillablePlot2D {
    */
   public void setDots(boolean flag) {
     mDots = flag;
+    changed();
   }
 
 
@@ -63,6 +70,7 @@ public class PointPlot2D extends FillablePlot2D {
    */
   public void setPoints(boolean flag) {
     mPoints = flag;
+    changed();
   }
 
 
@@ -84,6 +92,7 @@ public class PointPlot2D extends FillablePlot2D {
    */
   public void setLines(boolean flag) {
     mLines = flag;
+    changed();
   }
 
 
@@ -97,6 +106,75 @@ public class PointPlot2D extends FillablePlot2D {
   }
 
 
+  /**
+   * Sets whether lines and fills through data sorted by x may be
+   * reduced to the first, last, lowest and highest point in each
+   * pixel column before being drawn.  This gives the same picture
+   * much faster for large data sets.  Default is to decimate.
+   *
+   * @param flag whether to decimate.
+   */
+  public void setDecimate(boolean flag) {
+    mDecimate = flag;
+    changed();
+  }
+
+
+  /**
+   * Returns whether lines and fills through sorted data may be
+   * decimated.
+   *
+   * @return whether to decimate.
+   */
+  public boolean isDecimate() {
+    return mDecimate;
+  }
+
+
+  /**
+   * Sets whether to keep a summary of the lowest and highest points
+   * at successively coarser resolutions, so that decimated lines
+   * through a very large series sorted by x can be drawn from the
+   * summary rather than every point.  The summary is built when the
+   * data is set and takes about as much memory again as the data.
+   * Default is not to keep a summary.
+   *
+   * @param flag whether to keep a summary.
+   */
+  public void setLevelOfDetail(boolean flag) {
+    mLevelOfDetail = flag;
+    updatePyramid();
+    changed();
+  }
+
+
+  /**
+   * Returns whether to keep a level of detail summary of the data.
+   *
+   * @return whether to keep a summary.
+   */
+  public boolean isLevelOfDetail() {
+    return mLevelOfDetail;
+  }
+
+
+  /**
+   * Returns the level of detail summary of the data, or null if there
+   * is none.  A summary is only kept for data sorted by x.
+   *
+   * @return a summary
+   */
+  public SeriesPyramid getPyramid() {
+    return mPyramid;
+  }
+
+
+  private void updatePyramid() {
+    final Series2D series = getSeries();
+    mPyramid = mLevelOfDetail && isSortedX() && series != null && series.size() > 1 ? new SeriesPyramid(series) : null;
+  }
+
+
   /**
    * Sets the data used in this plot.
    *
@@ -108,5 +186,18 @@ public class PointPlot2D extends FillablePlot2D {
       throw new UnsupportedOperationException("Cannot set " + data.getClass().getName() + " in PointPlot2D.");
     }
     super.setData(data);
+    updatePyramid();
+  }
+
+
+  /**
+   * Sets the data used in this plot to a series of points held as
+   * columns of co-ordinates.
+   *
+   * @param series a series of points
+   */
+  public void setData(Series2D series) {
+    setSeries(series);
+    updatePyramid();
   }
 }
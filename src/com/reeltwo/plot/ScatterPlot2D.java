@@ -38,6 +38,7 @@ public class ScatterPlot2D extends Plot2D {
    */
   public void setScatterFactor(float sf) {
     mScatterFactor = Math.abs(sf);
+    changed();
   }
 
 
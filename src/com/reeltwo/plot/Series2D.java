@@ -0,0 +1,35 @@
+package com.reeltwo.plot;
+
+/**
+ * Methods that point data held as columns of co-ordinates must
+ * implement.  A series allows large numbers of points to be plotted
+ * without creating a <code>Point2D</code> object for each of them.
+ *
+ * @author Richard Littin
+ */
+public interface Series2D {
+  /**
+   * Returns the number of points in the series.
+   *
+   * @return number of points
+   */
+  int size();
+
+
+  /**
+   * Returns the x co-ordinate of the point at <code>index</code>.
+   *
+   * @param index point index
+   * @return x co-ordinate
+   */
+  float getX(int index);
+
+
+  /**
+   * Returns the y co-ordinate of the point at <code>index</code>.
+   *
+   * @param index point index
+   * @return y co-ordinate
+   */
+  float getY(int index);
+}
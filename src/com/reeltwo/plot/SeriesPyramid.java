@@ -0,0 +1,143 @@
+package com.reeltwo.plot;
+
+/**
+ * A multi-resolution summary of a series sorted by x.  Level
+ * <code>L</code> splits the series into buckets of
+ * <code>2<sup>L</sup></code> consecutive points and holds the lowest
+ * and highest y co-ordinate in each, so a renderer can draw a view of
+ * a very large series from about as many buckets as there are pixels.
+ * The first and last point of a bucket are read from the series
+ * itself.  The summary takes about as much memory as the co-ordinates
+ * it summarises.
+ *
+ * @author Richard Littin
+ */
+public final class SeriesPyramid {
+  private final Series2D mSeries;
+  /** lowest and highest y in each bucket, indexed by level - 1 */
+  private final float[][] mMins;
+  private final float[][] mMaxs;
+
+
+  /**
+   * Builds a summary of the given series.
+   *
+   * @param series series to summarise
+   */
+  public SeriesPyramid(Series2D series) {
+    if (series == null) {
+      throw new NullPointerException("null series given");
+    }
+    mSeries = series;
+    final int size = series.size();
+    int levels = 0;
+    while ((size - 1) >> levels > 0) {
+      levels++;
+    }
+    mMins = new float[levels][];
+    mMaxs = new float[levels][];
+    if (levels == 0) {
+      return;
+    }
+    final int buckets = (size + 1) >> 1;
+    final float[] mins = new float[buckets];
+    final float[] maxs = new float[buckets];
+    if (series instanceof FloatSeries2D) {
+      final float[] ys = ((FloatSeries2D) series).getYs();
+      for (int k = 0; k < buckets; k++) {
+        final float a = ys[2 * k];
+        final float b = 2 * k + 1 < size ? ys[2 * k + 1] : a;
+        mins[k] = Math.min(a, b);
+        maxs[k] = Math.max(a, b);
+      }
+    } else {
+      for (int k = 0; k < buckets; k++) {
+        final float a = series.getY(2 * k);
+        final float b = 2 * k + 1 < size ? series.getY(2 * k + 1) : a;
+        mins[k] = Math.min(a, b);
+        maxs[k] = Math.max(a, b);
+      }
+    }
+    mMins[0] = mins;
+    mMaxs[0] = maxs;
+    for (int level = 1; level < levels; level++) {
+      final float[] lowerMins = mMins[level - 1];
+      final float[] lowerMaxs = mMaxs[level - 1];
+      final int count = (lowerMins.length + 1) >> 1;
+      final float[] levelMins = new float[count];
+      final float[] levelMaxs = new float[count];
+      for (int k = 0; k < count; k++) {
+        final int j = 2 * k + 1 < lowerMins.length ? 2 * k + 1 : 2 * k;
+        levelMins[k] = Math.min(lowerMins[2 * k], lowerMins[j]);
+        levelMaxs[k] = Math.max(lowerMaxs[2 * k], lowerMaxs[j]);
+      }
+      mMins[level] = levelMins;
+      mMaxs[level] = levelMaxs;
+    }
+  }
+
+
+  /**
+   * Returns the series summarised.
+   *
+   * @return a series
+   */
+  public Series2D getSeries() {
+    return mSeries;
+  }
+
+
+  /**
+   * Returns the number of summary levels.  Level 1 has buckets of two
+   * points and the highest level has a single bucket.
+   *
+   * @return number of levels
+   */
+  public int getLevels() {
+    return mMins.length;
+  }
+
+
+  /**
+   * Returns the coarsest level with at least <code>buckets</code>
+   * buckets covering the points from <code>start</code> up to
+   * <code>end</code>, or 0 if the points themselves should be used.
+   *
+   * @param start index of first point
+   * @param end index after last point
+   * @param buckets number of buckets wanted
+   * @return a level
+   */
+  public int chooseLevel(int start, int end, int buckets) {
+    final int points = end - start;
+    int level = 0;
+    while (level < getLevels() && points >> (level + 1) >= Math.max(buckets, 1)) {
+      level++;
+    }
+    return level;
+  }
+
+
+  /**
+   * Returns the lowest y co-ordinate in a bucket.
+   *
+   * @param level summary level, from 1
+   * @param bucket bucket index in the level
+   * @return lowest y
+   */
+  public float getMin(int level, int bucket) {
+    return mMins[level - 1][bucket];
+  }
+
+
+  /**
+   * Returns the highest y co-ordinate in a bucket.
+   *
+   * @param level summary level, from 1
+   * @param bucket bucket index in the level
+   * @return highest y
+   */
+  public float getMax(int level, int bucket) {
+    return mMaxs[level - 1][bucket];
+  }
+}
@@ -51,6 +51,7 @@ public class TextPlot2D extends Plot2D {
    */
   public void setVertical(boolean v) {
     mVertical = v;
+    changed();
   }
 
   /**
@@ -92,6 +93,7 @@ public class TextPlot2D extends Plot2D {
     default:
       throw new IllegalArgumentException("Bad horizontal alignment value: " + alignment);
     }
+    changed();
   }
 
 
@@ -125,6 +127,7 @@ public class TextPlot2D extends Plot2D {
     default:
       throw new IllegalArgumentException("Bad vertical alignment value: " + alignment);
     }
+    changed();
   }
 
 
@@ -145,6 +148,7 @@ public class TextPlot2D extends Plot2D {
    */
   public void setInvert(boolean flag) {
     mInvert = flag;
+    changed();
   }
 
 
@@ -165,6 +169,7 @@ public class TextPlot2D extends Plot2D {
    */
   public void setUseFGColor(boolean flag) {
     mUseFGColor = flag;
+    changed();
   }
 
 
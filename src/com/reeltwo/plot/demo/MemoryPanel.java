@@ -15,6 +15,7 @@ import javax.swing.JTextField;
 import com.reeltwo.plot.Axis;
 import com.reeltwo.plot.Edge;
 import com.reeltwo.plot.FillablePlot2D.FillStyle;
+import com.reeltwo.plot.FloatSeries2D;
 import com.reeltwo.plot.Graph2D;
 import com.reeltwo.plot.Point2D;
 import com.reeltwo.plot.PointPlot2D;
@@ -128,16 +129,12 @@ public class MemoryPanel extends JPanel {
       public void run() {
         final float max = mMonitor.getMaxMemory() / 1024.0f;
 
-        final Point2D[] totalPoints = new Point2D[mNumberOfSamples + 2];
-        final Point2D[] usedPoints = new Point2D[mNumberOfSamples + 2];
-        totalPoints[0] = new Point2D(0, 0);
-        usedPoints[0] = new Point2D(0, 0);
-        for (int i = 0; i < mNumberOfSamples; i++) {
-          totalPoints[i + 1] = new Point2D(i, 0);
-          usedPoints[i + 1] = new Point2D(i, 0);
-        }
-        totalPoints[mNumberOfSamples + 1] = new Point2D(mNumberOfSamples - 1, 0);
-        usedPoints[mNumberOfSamples + 1] = new Point2D(mNumberOfSamples - 1, 0);
+        // both plots share x co-ordinates, the first and last y stay at 0 to close the fill
+        final float[] xs = new float[mNumberOfSamples + 2];
+        final float[] totalYs = new float[mNumberOfSamples + 2];
+        final float[] usedYs = new float[mNumberOfSamples + 2];
+        final FloatSeries2D totalPoints = new FloatSeries2D(xs, totalYs);
+        final FloatSeries2D usedPoints = new FloatSeries2D(xs, usedYs);
 
         final Point2D[] maxPoints = new Point2D[] {
             new Point2D(0, max),
@@ -174,15 +171,12 @@ public class MemoryPanel extends JPanel {
           int index;
           for (int i = 1; i <= mNumberOfSamples; i++) {
             index = Math.abs((mSampleIndex + i) % mNumberOfSamples);
-            totalPoints[i].setY(mTotals[index]);
-            totalPoints[i].setX(mSampleIndex2 + i);
-            usedPoints[i].setY(mUsed[index]);
-            usedPoints[i].setX(mSampleIndex2 + i);
+            xs[i] = mSampleIndex2 + i;
+            totalYs[i] = mTotals[index];
+            usedYs[i] = mUsed[index];
           }
-          totalPoints[0].setX(mSampleIndex2 + 1);
-          usedPoints[0].setX(mSampleIndex2 + 1);
-          totalPoints[mNumberOfSamples + 1].setX(mSampleIndex2 + mNumberOfSamples);
-          usedPoints[mNumberOfSamples + 1].setX(mSampleIndex2 + mNumberOfSamples);
+          xs[0] = mSampleIndex2 + 1;
+          xs[mNumberOfSamples + 1] = mSampleIndex2 + mNumberOfSamples;
 
           tplot.setData(totalPoints);
           uplot.setData(usedPoints);
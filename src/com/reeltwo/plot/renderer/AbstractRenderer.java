@@ -1,6 +1,7 @@
 package com.reeltwo.plot.renderer;
 
-import java.util.ArrayList;
+import java.awt.Rectangle;
+import java.util.Arrays;
 import java.util.Random;
 
 import com.reeltwo.plot.Arrow2D;
@@ -20,6 +21,7 @@ import com.reeltwo.plot.Datum2D;
 import com.reeltwo.plot.DefaultFormatter;
 import com.reeltwo.plot.Edge;
 import com.reeltwo.plot.FillablePlot2D.FillStyle;
+import com.reeltwo.plot.FloatSeries2D;
 import com.reeltwo.plot.Graph2D;
 import com.reeltwo.plot.GraphLine;
 import com.reeltwo.plot.GraphLine.LineOrientation;
@@ -31,6 +33,8 @@ import com.reeltwo.plot.Point2D;
 import com.reeltwo.plot.PointPlot2D;
 import com.reeltwo.plot.ScatterPlot2D;
 import com.reeltwo.plot.ScatterPoint2D;
+import com.reeltwo.plot.Series2D;
+import com.reeltwo.plot.SeriesPyramid;
 import com.reeltwo.plot.TextPlot2D;
 import com.reeltwo.plot.TextPoint2D;
 
@@ -43,11 +47,22 @@ import com.reeltwo.plot.TextPoint2D;
 public abstract class AbstractRenderer {
   protected static final int FOREGROUND_COLOR_INDEX = -1;
   protected static final int BACKGROUND_COLOR_INDEX = -2;
-
-  private int mColorIndex = 0;
-  private int mPointIndex = 0;
-  private int mLineWidth = 1;
-  private Mapping[] mMappings = null;
+  /** screen units around a point that its marker may cover */
+  protected static final int POINT_MARGIN = 4;
+  /** number of points converted to screen co-ordinates at a time */
+  private static final int CHUNK = 4096;
+  /** seed for the offsets of scatter plot points */
+  private static final long SCATTER_SEED = 0x5ca77e4L;
+  /** line segments in each span of a curve drawn in full detail */
+  protected static final int CURVE_SEGMENTS = 50;
+
+  /** state of the render in progress on each thread */
+  private final ThreadLocal<RenderContext> mContext = new ThreadLocal<RenderContext>() {
+    @Override
+    protected RenderContext initialValue() {
+      return new RenderContext();
+    }
+  };
 
   /** A small class to hold information about tick spacing. */
   protected static class TicInfo {
@@ -60,6 +75,10 @@ public abstract class AbstractRenderer {
     int mMaxWidth;
     int mMaxHeight;
     LabelFormatter mLabelFormatter;
+    /** formatted label lines of each major tic from <code>mStart</code>, or null */
+    String[][] mLabels;
+    /** canvas width of each label line */
+    int[][] mLabelWidths;
 
     void setNumDecimalDigits(float ticSize) {
       if (mLabelFormatter != null && mLabelFormatter instanceof DefaultFormatter) {
@@ -68,19 +87,62 @@ public abstract class AbstractRenderer {
     }
   }
 
+  /** Tic layout reused while the axes and text metrics stay the same. */
+  private static final class TicLayout {
+    final Object mMetrics;
+    final float[] mAxes;
+    final LabelFormatter[] mFormatters;
+    final TicInfo[] mTicInfos;
+
+    TicLayout(Object metrics, float[] axes, LabelFormatter[] formatters, TicInfo[] ticInfos) {
+      mMetrics = metrics;
+      mAxes = axes;
+      mFormatters = formatters;
+      mTicInfos = ticInfos;
+    }
+
+    boolean matches(Object metrics, float[] axes, LabelFormatter[] formatters) {
+      if (!mMetrics.equals(metrics) || !Arrays.equals(mAxes, axes)) {
+        return false;
+      }
+      for (int i = 0; i < formatters.length; i++) {
+        if (mFormatters[i] != formatters[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** tic layout of the last graph drawn */
+  private volatile TicLayout mTicLayout = null;
+
   /**
    * Returns an array of screen to world mappings, one for each of the
-   * 4 axes.  Mappings can be null if there is no mapping for an
-   * axis.  The axis order {@code x0, y0, x1, y1}.
+   * 4 axes, for the graph last drawn by the calling thread.  Mappings
+   * can be null if there is no mapping for an axis.  The axis order
+   * {@code x0, y0, x1, y1}.  The mappings are also returned by the
+   * renderer's <code>drawGraph</code> methods, which is to be
+   * preferred.
    *
    * @return an array of axis <code>Mapping</code>s
    */
   public Mapping[] getMappings() {
-    return mMappings; // an array of Mapping[ x0, y0, x1, y1 ]
+    return mContext.get().mMappings; // an array of Mapping[ x0, y0, x1, y1 ]
   }
 
   protected void setMappings(Mapping[] mappings) {
-    mMappings = mappings;
+    mContext.get().mMappings = mappings;
+  }
+
+  // render state of the calling thread
+  final RenderContext context() {
+    return mContext.get();
+  }
+
+  // working arrays of the calling thread
+  private ScratchBuffers scratch() {
+    return mContext.get().mScratch;
   }
 
   /**
@@ -113,6 +175,18 @@ public abstract class AbstractRenderer {
    */
   abstract int getTextDescent(Object canvas, String text);
 
+  /**
+   * Returns a value which is equal for any two canvases on which text
+   * has the same size, or null if text sizes should not be reused
+   * between draws.
+   *
+   * @param canvas drawing canvas
+   * @return text metrics key, or null
+   */
+  Object getMetricsKey(Object canvas) {
+    return null;
+  }
+
   /**
    * Sets the current drawing color.
    *
@@ -120,7 +194,7 @@ public abstract class AbstractRenderer {
    * @param colorIndex color index
    */
   protected void setColor(Object canvas, int colorIndex) {
-    mColorIndex = colorIndex;
+    mContext.get().mColorIndex = colorIndex;
   }
 
   /**
@@ -130,7 +204,7 @@ public abstract class AbstractRenderer {
    * @return color index
    */
   protected int getColor(Object canvas) {
-    return mColorIndex;
+    return mContext.get().mColorIndex;
   }
 
   /**
@@ -144,20 +218,20 @@ public abstract class AbstractRenderer {
   }
 
   protected void setPointIndex(int pointIndex) {
-    mPointIndex = pointIndex;
+    mContext.get().mPointIndex = pointIndex;
   }
 
   protected int getPointIndex() {
-    return mPointIndex;
+    return mContext.get().mPointIndex;
   }
 
   // drawing primitives - protected
   protected void setLineWidth(Object canvas, int width) {
-    mLineWidth = width;
+    mContext.get().mLineWidth = width;
   }
 
   protected int getLineWidth() {
-    return mLineWidth;
+    return mContext.get().mLineWidth;
   }
 
   protected abstract void setClip(Object canvas, int x, int y, int w, int h);
@@ -182,6 +256,48 @@ public abstract class AbstractRenderer {
   protected abstract void fillPolygon(Object canvas, int[] xs, int[] ys);
   protected abstract void drawPolyline(Object canvas, int[] xs, int[] ys);
 
+  /**
+   * Draws the polygon through the first <code>n</code> points of the
+   * given arrays.  Renderers that can draw from part of an array should
+   * override this to avoid the copy made here.
+   *
+   * @param canvas canvas to draw on
+   * @param xs x co-ordinates
+   * @param ys y co-ordinates
+   * @param n number of points
+   */
+  protected void drawPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    drawPolygon(canvas, n == xs.length ? xs : Arrays.copyOf(xs, n), n == ys.length ? ys : Arrays.copyOf(ys, n));
+  }
+
+  /**
+   * Fills the polygon through the first <code>n</code> points of the
+   * given arrays.  Renderers that can draw from part of an array should
+   * override this to avoid the copy made here.
+   *
+   * @param canvas canvas to draw on
+   * @param xs x co-ordinates
+   * @param ys y co-ordinates
+   * @param n number of points
+   */
+  protected void fillPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    fillPolygon(canvas, n == xs.length ? xs : Arrays.copyOf(xs, n), n == ys.length ? ys : Arrays.copyOf(ys, n));
+  }
+
+  /**
+   * Draws lines joining the first <code>n</code> points of the given
+   * arrays.  Renderers that can draw from part of an array should
+   * override this to avoid the copy made here.
+   *
+   * @param canvas canvas to draw on
+   * @param xs x co-ordinates
+   * @param ys y co-ordinates
+   * @param n number of points
+   */
+  protected void drawPolyline(Object canvas, int[] xs, int[] ys, int n) {
+    drawPolyline(canvas, n == xs.length ? xs : Arrays.copyOf(xs, n), n == ys.length ? ys : Arrays.copyOf(ys, n));
+  }
+
   // methods to help when drawing curves
   private Point2D tangent(int x1, int y1, int x2, int y2) {
     final float m = distance(x1, y1, x2, y2);
@@ -205,13 +321,13 @@ public abstract class AbstractRenderer {
     return Math.abs(x2 - x1);
   }
 
-  private Point2D bezier(int[] xs, int[] ys, double mu) {
+  private Point2D bezier(int[] xs, int[] ys, int n, double mu) {
     float x = 0, y = 0;
     double muk = 1;
-    double munk = Math.pow(1 - mu, (double) xs.length - 1);
+    double munk = Math.pow(1 - mu, (double) n - 1);
 
-    for (int k = 0; k < xs.length; k++) {
-      int nn = xs.length - 1;
+    for (int k = 0; k < n; k++) {
+      int nn = n - 1;
       int kn = k;
       int nkn = nn - k;
       double blend = muk * munk;
@@ -248,17 +364,18 @@ public abstract class AbstractRenderer {
   }
 
 
-  private void doCurve(Object canvas, int[] xs, int[] ys, int type, boolean filled) {
+  private void doCurve(Object canvas, int[] xs, int[] ys, int n, int type, boolean filled) {
     assert xs != null;
     assert ys != null;
-    assert xs.length == ys.length;
+    assert xs.length >= n && ys.length >= n;
 
-    final Poly polygon = new Poly();
+    final Poly polygon = scratch().polygon();
 
+    final int segments = getCurveSegments();
     if (type == CurvePlot2D.BSPLINE) {
-      final int m = 50;
+      final int m = segments;
       int x = 0, y = 0;
-      for (int i = 1; i < xs.length - 2; i++) {
+      for (int i = 1; i < n - 2; i++) {
         final float xA = xs[i - 1];
         final float xB = xs[i];
         final float xC = xs[i + 1];
@@ -285,21 +402,21 @@ public abstract class AbstractRenderer {
         }
       }
     } else if (type == CurvePlot2D.BEZIER) {
-      final int m = 50;
+      final int m = segments;
       int x = 0;
       int y = 0;
       for (int j = 0; j < m; j++) {
-        final Point2D p = bezier(xs, ys, j / (double) m);
+        final Point2D p = bezier(xs, ys, n, j / (double) m);
         x = (int) p.getX();
         y = (int) p.getY();
         polygon.addPoint(x, y);
       }
 
-      polygon.addPoint(xs[xs.length - 1], ys[ys.length - 1]);
+      polygon.addPoint(xs[n - 1], ys[n - 1]);
     } else if (type == CurvePlot2D.CUBIC_BEZIER) {
       int x = 0;
       int y = 0;
-      for (int i = 1; i < xs.length - 2; i++) {
+      for (int i = 1; i < n - 2; i++) {
         final int xim1 = xs[i - 1];
         final int xi = xs[i];
         final int xip1 = xs[i + 1];
@@ -337,7 +454,7 @@ public abstract class AbstractRenderer {
         final float y2 = yip1 + minMag * tangent.getY();
         final Point2D p2 = new Point2D(x2, y2);
 
-        final int m2 = Math.max(10, (int) (distance(p1, p2) / 5.0f));
+        final int m2 = Math.max(10 * segments / CURVE_SEGMENTS, (int) (distance(p1, p2) / (5.0f * CURVE_SEGMENTS / segments)));
         for (int j = 0; j <= m2; j++) {
           final Point2D p = cubicBezier(pi, p1, p2, pip1, j / (double) m2);
           x = (int) p.getX();
@@ -347,18 +464,48 @@ public abstract class AbstractRenderer {
       }
     }
     if (filled) {
-      fillPolygon(canvas, polygon.getXs(), polygon.getYs());
+      fillPolygon(canvas, polygon.mXs, polygon.mYs, polygon.mSize);
     } else {
-      drawPolyline(canvas, polygon.getXs(), polygon.getYs());
+      drawPolyline(canvas, polygon.mXs, polygon.mYs, polygon.mSize);
     }
   }
 
+  /**
+   * Returns the number of line segments each span of a curve is drawn
+   * with.  Fewer segments draw faster but less smoothly.
+   *
+   * @return number of segments
+   */
+  protected int getCurveSegments() {
+    return CURVE_SEGMENTS;
+  }
+
+  /**
+   * Returns whether lines through points sorted by x are decimated
+   * even for plots that have asked not to be, and points drawn at the
+   * same place as the point before them are skipped.  Both are exact
+   * without antialiasing.
+   *
+   * @return true to decimate all plots
+   */
+  protected boolean isDecimateAll() {
+    return false;
+  }
+
   protected void drawCurve(Object canvas, int[] xs, int[] ys, int type) {
-    doCurve(canvas, xs, ys, type, false);
+    drawCurve(canvas, xs, ys, xs.length, type);
   }
 
   protected void fillCurve(Object canvas, int[] xs, int[] ys, int type) {
-    doCurve(canvas, xs, ys, type, true);
+    fillCurve(canvas, xs, ys, xs.length, type);
+  }
+
+  protected void drawCurve(Object canvas, int[] xs, int[] ys, int n, int type) {
+    doCurve(canvas, xs, ys, n, type, false);
+  }
+
+  protected void fillCurve(Object canvas, int[] xs, int[] ys, int n, int type) {
+    doCurve(canvas, xs, ys, n, type, true);
   }
 
   protected abstract int calculateKeyWidth(Object canvas, Graph2D graph);
@@ -379,7 +526,6 @@ public abstract class AbstractRenderer {
       final TicInfo ticInfo = new TicInfo();
       ticInfo.mTic = graph.getTic(Axis.X, whichTic);
       ticInfo.mMinorTic = graph.getMinorTic(Axis.X, whichTic);
-      ticInfo.setNumDecimalDigits(ticInfo.mTic);
       ticInfo.mStart = (int) (graph.getLo(Axis.X, whichTic) / ticInfo.mTic);
       ticInfo.mEnd = (int) (graph.getHi(Axis.X, whichTic) / ticInfo.mTic);
       if (ticInfo.mMinorTic > 0.0f) {
@@ -388,19 +534,26 @@ public abstract class AbstractRenderer {
       }
 
       ticInfo.mLabelFormatter = graph.getTicLabelFormatter(Axis.X, whichTic);
+      ticInfo.setNumDecimalDigits(ticInfo.mTic);
 
       ticInfo.mMaxWidth = 0;
       ticInfo.mMaxHeight = 0;
+      ticInfo.mLabels = new String[Math.max(0, ticInfo.mEnd - ticInfo.mStart + 1)][];
+      ticInfo.mLabelWidths = new int[ticInfo.mLabels.length][];
       for (int k = ticInfo.mStart; k <= ticInfo.mEnd; k++) {
         final float num = ticInfo.mTic * k;
         final String snum = ticInfo.mLabelFormatter.format(num);
         final String[] nums = snum.split("\n");
+        final int[] widths = new int[nums.length];
         for (int i = 0; i < nums.length; i++) {
-          final int width = getTextWidth(canvas, nums[i]) + 2;
+          widths[i] = getTextWidth(canvas, nums[i]);
+          final int width = widths[i] + 2;
           if (width > ticInfo.mMaxWidth) {
             ticInfo.mMaxWidth = width;
           }
         }
+        ticInfo.mLabels[k - ticInfo.mStart] = nums;
+        ticInfo.mLabelWidths[k - ticInfo.mStart] = widths;
         final int height = nums.length * getTextHeight(canvas, snum);
         if (height > ticInfo.mMaxHeight) {
           ticInfo.mMaxHeight = height;
@@ -415,18 +568,23 @@ public abstract class AbstractRenderer {
     if (graph.uses(Axis.Y, whichTic) && graph.isShowTics(Axis.Y, whichTic)) {
       final TicInfo ticInfo = new TicInfo();
       ticInfo.mTic = graph.getTic(Axis.Y, whichTic);
-      ticInfo.setNumDecimalDigits(ticInfo.mTic);
       ticInfo.mStart = (int) (graph.getLo(Axis.Y, whichTic) / ticInfo.mTic);
       ticInfo.mEnd = (int) (graph.getHi(Axis.Y, whichTic) / ticInfo.mTic);
 
-      ticInfo.mLabelFormatter =  graph.getTicLabelFormatter(Axis.Y, whichTic);
+      ticInfo.mLabelFormatter = graph.getTicLabelFormatter(Axis.Y, whichTic);
+      ticInfo.setNumDecimalDigits(ticInfo.mTic);
 
       ticInfo.mMaxWidth = 0;
       ticInfo.mMaxHeight = 0;
+      ticInfo.mLabels = new String[Math.max(0, ticInfo.mEnd - ticInfo.mStart + 1)][];
+      ticInfo.mLabelWidths = new int[ticInfo.mLabels.length][];
       for (int k = ticInfo.mStart; k <= ticInfo.mEnd; k++) {
         final float num = ticInfo.mTic * k;
         final String snum = ticInfo.mLabelFormatter.format(num);
-        final int width = getTextWidth(canvas, snum) + 2;
+        final int textWidth = getTextWidth(canvas, snum);
+        ticInfo.mLabels[k - ticInfo.mStart] = new String[] {snum};
+        ticInfo.mLabelWidths[k - ticInfo.mStart] = new int[] {textWidth};
+        final int width = textWidth + 2;
         if (width > ticInfo.mMaxWidth) {
           ticInfo.mMaxWidth = width;
         }
@@ -440,7 +598,49 @@ public abstract class AbstractRenderer {
     return null;
   }
 
+  /**
+   * Returns the tic spacing and label sizes for each of the 4 axes, in
+   * the order {@code x0, y0, x1, y1}, with null for axes without tics.
+   * The layout of the previous graph is returned again when the axis
+   * ranges, tic sizes, label formatters and text metrics have not
+   * changed, so the returned infos are shared and must not be
+   * altered.  A formatter whose output changes must be set on the
+   * graph again for its labels to be remeasured.
+   *
+   * @param canvas drawing canvas
+   * @param graph graph being drawn
+   * @return tic infos
+   */
   protected TicInfo[] createTicInfos(Object canvas, Graph2D graph) {
+    final Object metrics = getMetricsKey(canvas);
+    if (metrics == null) {
+      return calcTicInfos(canvas, graph);
+    }
+    final float[] axes = new float[16];
+    final LabelFormatter[] formatters = new LabelFormatter[4];
+    for (int i = 0; i < 4; i++) {
+      final Axis axis = i % 2 == 0 ? Axis.X : Axis.Y;
+      final Edge edge = i < 2 ? Edge.MAIN : Edge.ALTERNATE;
+      if (graph.uses(axis, edge) && graph.isShowTics(axis, edge)) {
+        axes[4 * i] = graph.getLo(axis, edge);
+        axes[4 * i + 1] = graph.getHi(axis, edge);
+        axes[4 * i + 2] = graph.getTic(axis, edge);
+        axes[4 * i + 3] = graph.getMinorTic(axis, edge);
+        formatters[i] = graph.getTicLabelFormatter(axis, edge);
+      } else {
+        Arrays.fill(axes, 4 * i, 4 * i + 4, Float.NaN);
+      }
+    }
+    final TicLayout layout = mTicLayout;
+    if (layout != null && layout.matches(metrics, axes, formatters)) {
+      return layout.mTicInfos;
+    }
+    final TicInfo[] ticInfos = calcTicInfos(canvas, graph);
+    mTicLayout = new TicLayout(metrics, axes, formatters, ticInfos);
+    return ticInfos;
+  }
+
+  private TicInfo[] calcTicInfos(Object canvas, Graph2D graph) {
     final TicInfo[] ticInfos = new TicInfo[4]; // x1, y1, x2, y2
     ticInfos[0] = calcXTicInfo(canvas, graph, Edge.MAIN);
     ticInfos[1] = calcYTicInfo(canvas, graph, Edge.MAIN);
@@ -449,7 +649,46 @@ public abstract class AbstractRenderer {
     return ticInfos;
   }
 
+  /**
+   * Returns whether the render on the calling thread has been asked to
+   * stop, by interrupting the thread.  Drawing of the data stops early,
+   * leaving a picture that should be thrown away.
+   *
+   * @return true if the render should stop
+   */
+  protected static boolean isCancelled() {
+    return Thread.currentThread().isInterrupted();
+  }
+
   protected void drawData(Object canvas, Plot2D[] plots, Mapping[] mapping) {
+    assignColors(plots);
+    for (int j = 0; j < plots.length && !isCancelled(); j++) {
+      drawPlot(canvas, plots[j], j, mapping);
+    }
+    setLineWidth(canvas, 1);
+  }
+
+  /**
+   * Gives each plot of a graph without a color the color drawing it
+   * would give.  Drawing sets the colors of the plots, so a graph drawn
+   * on another thread should have its colors given first on the thread
+   * that changes it.
+   *
+   * @param graph graph to be drawn, may be null
+   */
+  public void assignColors(Graph2D graph) {
+    if (graph != null) {
+      assignColors(graph.getPlots());
+    }
+  }
+
+  /**
+   * Gives each plot without a color the next color not used by the
+   * plots before it.
+   *
+   * @param plots plots to be drawn
+   */
+  protected void assignColors(Plot2D[] plots) {
     int colorIndex = 0;
 
     for (int j = 0; j < plots.length; j++) {
@@ -464,44 +703,50 @@ public abstract class AbstractRenderer {
         }
       }
     }
+  }
 
-    for (int j = 0; j < plots.length; j++) {
-      final Plot2D plot = plots[j];
-      final Mapping convertX = mapping[2 * (plot.uses(Axis.X, Edge.MAIN) ? 0 : 1)];
-      final Mapping convertY = mapping[2 * (plot.uses(Axis.Y, Edge.MAIN) ? 0 : 1) + 1];
+  /**
+   * Draws a single plot of a graph.
+   *
+   * @param canvas drawing canvas
+   * @param plot plot to draw
+   * @param index position of the plot in the graph, which picks its point marker
+   * @param mapping axis mappings of the graph
+   */
+  protected void drawPlot(Object canvas, Plot2D plot, int index, Mapping[] mapping) {
+    final Mapping convertX = mapping[2 * (plot.uses(Axis.X, Edge.MAIN) ? 0 : 1)];
+    final Mapping convertY = mapping[2 * (plot.uses(Axis.Y, Edge.MAIN) ? 0 : 1) + 1];
 
-      int lineWidth = plot.getLineWidth();
-      if (lineWidth < 1) {
-        lineWidth = 1;
-      }
-      setLineWidth(canvas, lineWidth);
+    int lineWidth = plot.getLineWidth();
+    if (lineWidth < 1) {
+      lineWidth = 1;
+    }
+    setLineWidth(canvas, lineWidth);
 
-      if (plot instanceof GraphLine) {
-        drawGraphLine(canvas, (GraphLine) plot, convertX, convertY);
-      } else {
-        setPointIndex(j);
-        if (plot instanceof PointPlot2D) {
-          drawPointPlot(canvas, (PointPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof ArrowPlot2D) {
-          drawArrowPlot(canvas, (ArrowPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof BWPlot2D) {
-          drawBWPlot(canvas, (BWPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof CurvePlot2D) {
-          drawCurvePlot(canvas, (CurvePlot2D) plot, convertX, convertY);
-        } else if (plot instanceof TextPlot2D) {
-          drawTextPlot(canvas, (TextPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof ScatterPlot2D) {
-          drawScatterPlot(canvas, (ScatterPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof BoxPlot2D) {
-          drawBoxPlot(canvas, (BoxPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof CirclePlot2D) {
-          drawCirclePlot(canvas, (CirclePlot2D) plot, convertX, convertY);
-        } else if (plot instanceof NotePlot2D) {
-          drawNotePlot(canvas, (NotePlot2D) plot, convertX, convertY);
-        }
+    if (plot instanceof GraphLine) {
+      drawGraphLine(canvas, (GraphLine) plot, convertX, convertY);
+    } else {
+      setPointIndex(index);
+      if (plot instanceof PointPlot2D) {
+        drawPointPlot(canvas, (PointPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof ArrowPlot2D) {
+        drawArrowPlot(canvas, (ArrowPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof BWPlot2D) {
+        drawBWPlot(canvas, (BWPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof CurvePlot2D) {
+        drawCurvePlot(canvas, (CurvePlot2D) plot, convertX, convertY);
+      } else if (plot instanceof TextPlot2D) {
+        drawTextPlot(canvas, (TextPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof ScatterPlot2D) {
+        drawScatterPlot(canvas, (ScatterPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof BoxPlot2D) {
+        drawBoxPlot(canvas, (BoxPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof CirclePlot2D) {
+        drawCirclePlot(canvas, (CirclePlot2D) plot, convertX, convertY);
+      } else if (plot instanceof NotePlot2D) {
+        drawNotePlot(canvas, (NotePlot2D) plot, convertX, convertY);
       }
     }
-    setLineWidth(canvas, 1);
   }
 
   protected void drawGraphLine(Object canvas, GraphLine line, Mapping convertX, Mapping convertY) {
@@ -516,8 +761,8 @@ public abstract class AbstractRenderer {
   }
 
   protected void drawPointPlot(Object canvas, PointPlot2D lplot, Mapping convertX, Mapping convertY) {
-    final Datum2D[] points = lplot.getData();
-    if (points != null && points.length != 0) {
+    final Series2D points = lplot.getSeries();
+    if (points != null && points.size() != 0) {
       final boolean doDots = lplot.isDots();
       final boolean doPoints = lplot.isPoints();
       final boolean doLines = lplot.isLines();
@@ -530,21 +775,56 @@ public abstract class AbstractRenderer {
         setColor(canvas, lplot.getColor());
       }
 
-      final Poly polygon = new Poly();
-      for (int i = 0; i < points.length; i++) {
-        final Point2D point = (Point2D) points[i];
-        final int sptX = (int) convertX.worldToScreen(point.getX());
-        final int sptY = (int) convertY.worldToScreen(point.getY());
-        polygon.addPoint(sptX, sptY);
+      final int size = points.size();
+      int start = 0;
+      int end = size;
+      if (lplot.isSortedX()) {
+        // only what can be seen, plus a neighbour either side to carry lines to the edges
+        final float[] world = visibleWorldX(convertX, POINT_MARGIN + lplot.getLineWidth());
+        start = Math.max(0, firstAtOrAbove(points, world[0]) - 1);
+        end = Math.min(size, firstAbove(points, world[1]) + 1);
+      }
+      final boolean closeFill = doFill != FillStyle.NONE;
+      final Poly polygon = scratch().polygon();
+      if (closeFill && start > 0) {
+        addScreenPoint(polygon, points, 0, convertX, convertY);
       }
-      int[] xs = polygon.getXs();
-      int[] ys = polygon.getYs();
+      if ((lplot.isDecimate() || isDecimateAll()) && lplot.isSortedX() && !doPoints && !doDots) {
+        final int columns = (int) Math.abs(convertX.getScreenMax() - convertX.getScreenMin()) + 1;
+        final SeriesPyramid pyramid = lplot.getPyramid();
+        final int level = pyramid == null ? 0 : pyramid.chooseLevel(start, end, columns);
+        if (level > 0) {
+          decimate(polygon, pyramid, level, start, end, convertX, convertY);
+        } else {
+          decimate(polygon, points, start, end, convertX, convertY);
+        }
+      } else {
+        final int chunk = Math.min(CHUNK, end - start);
+        final int[] sxs = scratch().ints(ScratchBuffers.X, chunk);
+        final int[] sys = scratch().ints(ScratchBuffers.Y, chunk);
+        final float[] read = scratch().floats(ScratchBuffers.READ, chunk);
+        for (int i = start; i < end && !isCancelled(); i += chunk) {
+          final int len = Math.min(chunk, end - i);
+          toScreen(points, Axis.X, i, len, convertX, sxs, read);
+          toScreen(points, Axis.Y, i, len, convertY, sys, read);
+          for (int j = 0; j < len; j++) {
+            polygon.addPoint(sxs[j], sys[j]);
+          }
+        }
+      }
+      if (closeFill && end < size) {
+        // a fill is closed through the end points of all the data
+        addScreenPoint(polygon, points, size - 1, convertX, convertY);
+      }
+      final int[] xs = polygon.mXs;
+      final int[] ys = polygon.mYs;
+      final int n = polygon.mSize;
       if (doFill != FillStyle.NONE) {
 
-        fillPolygon(canvas, xs, ys);
+        fillPolygon(canvas, xs, ys, n);
         if (doBorder) {
           setColor(canvas, FOREGROUND_COLOR_INDEX);
-          drawPolygon(canvas, xs, ys);
+          drawPolygon(canvas, xs, ys, n);
           if (doFill == FillStyle.PATTERN) {
             setPattern(canvas, lplot.getColor());
           } else {
@@ -553,22 +833,336 @@ public abstract class AbstractRenderer {
         }
       } else {
         if (doLines) {
-          drawPolyline(canvas, xs, ys);
+          drawPolyline(canvas, xs, ys, n);
         }
-        for (int i = 0; i < xs.length; i++) {
-          if (doPoints) {
-            drawPoint(canvas, xs[i], ys[i]);
-          }
-          if (doDots) {
-            drawLine(canvas, xs[i], ys[i], xs[i], ys[i]);
+        if (doPoints || doDots) {
+          final int margin = POINT_MARGIN + lplot.getLineWidth();
+          final boolean skipSame = isDecimateAll();
+          for (int i = 0; i < n; i++) {
+            if (skipSame && i > 0 && xs[i] == xs[i - 1] && ys[i] == ys[i - 1]) {
+              continue;
+            }
+            if (inTile(xs[i], ys[i], margin)) {
+              if (doPoints) {
+                drawPoint(canvas, xs[i], ys[i]);
+              }
+              if (doDots) {
+                drawLine(canvas, xs[i], ys[i], xs[i], ys[i]);
+              }
+            }
           }
         }
       }
     }
   }
 
+  private static void addScreenPoint(Poly polygon, Series2D points, int index, Mapping convertX, Mapping convertY) {
+    polygon.addPoint((int) convertX.worldToScreen(points.getX(index)), (int) convertY.worldToScreen(points.getY(index)));
+  }
+
+  /**
+   * Converts the points from <code>start</code> up to
+   * <code>end</code> of a series sorted by x to screen co-ordinates,
+   * keeping only the first, last, lowest and highest point in each
+   * pixel column.  A line through the kept points covers the same
+   * pixels as one through all of them.
+   *
+   * @param polygon polygon to add screen points to
+   * @param points points sorted by x
+   * @param start index of first point
+   * @param end index after last point
+   * @param convertX x axis mapping
+   * @param convertY y axis mapping
+   */
+  protected void decimate(Poly polygon, Series2D points, int start, int end, Mapping convertX, Mapping convertY) {
+    if (start >= end) {
+      return;
+    }
+    final Columns columns = scratch().columns(polygon);
+    final int chunk = Math.min(CHUNK, end - start);
+    final int[] sxs = scratch().ints(ScratchBuffers.X, chunk);
+    final int[] sys = scratch().ints(ScratchBuffers.Y, chunk);
+    final float[] read = scratch().floats(ScratchBuffers.READ, chunk);
+    for (int i = start; i < end && !isCancelled(); i += chunk) {
+      final int len = Math.min(chunk, end - i);
+      toScreen(points, Axis.X, i, len, convertX, sxs, read);
+      toScreen(points, Axis.Y, i, len, convertY, sys, read);
+      for (int j = 0; j < len; j++) {
+        columns.add(sxs[j], sys[j]);
+      }
+    }
+    columns.flush();
+  }
+
+  /**
+   * Converts <code>len</code> x or y co-ordinates of a series,
+   * starting at <code>start</code>, to screen co-ordinates in
+   * <code>dst</code>.  Columns of a <code>FloatSeries2D</code> are
+   * converted in place, using its cached logs on a log axis; other
+   * series are first read into <code>scratch</code>, which must hold
+   * <code>len</code> values.
+   *
+   * @param points a series
+   * @param axis which co-ordinate to convert
+   * @param start index of first point
+   * @param len number of points
+   * @param convert axis mapping
+   * @param dst array to receive screen co-ordinates
+   * @param scratch space for reading co-ordinates
+   */
+  protected static void toScreen(Series2D points, Axis axis, int start, int len, Mapping convert, int[] dst, float[] scratch) {
+    if (points instanceof FloatSeries2D) {
+      final FloatSeries2D series = (FloatSeries2D) points;
+      if (convert.isLog()) {
+        convert.logWorldToScreen(axis == Axis.X ? series.getLog10Xs() : series.getLog10Ys(), start, len, dst);
+      } else {
+        convert.worldToScreen(axis == Axis.X ? series.getXs() : series.getYs(), start, len, dst);
+      }
+    } else {
+      if (axis == Axis.X) {
+        for (int i = 0; i < len; i++) {
+          scratch[i] = points.getX(start + i);
+        }
+      } else {
+        for (int i = 0; i < len; i++) {
+          scratch[i] = points.getY(start + i);
+        }
+      }
+      convert.worldToScreen(scratch, 0, len, dst);
+    }
+  }
+
+  // converts the first n world co-ordinates to screen co-ordinates in a scratch array
+  private int[] toScreen(float[] world, int n, Mapping convert, int slot) {
+    final int[] screen = scratch().ints(slot, n);
+    convert.worldToScreen(world, 0, n, screen);
+    return screen;
+  }
+
+  /**
+   * Decimates as {@link #decimate(Poly, Series2D, int, int, Mapping,
+   * Mapping)} does, but from the buckets of a level of detail summary
+   * rather than every point.  Each bucket contributes its first and
+   * last points and its lowest and highest y.  Buckets whose points
+   * fall in more than one pixel column are split into finer buckets,
+   * so the result is the same as decimating every point.
+   *
+   * @param polygon polygon to add screen points to
+   * @param pyramid summary of points sorted by x
+   * @param level summary level to draw from
+   * @param start index of first point
+   * @param end index after last point
+   * @param convertX x axis mapping
+   * @param convertY y axis mapping
+   */
+  protected void decimate(Poly polygon, SeriesPyramid pyramid, int level, int start, int end, Mapping convertX, Mapping convertY) {
+    if (start >= end) {
+      return;
+    }
+    final Columns columns = scratch().columns(polygon);
+    final int lastBucket = (end - 1) >> level;
+    for (int k = start >> level; k <= lastBucket; k++) {
+      addBucket(columns, pyramid, level, k, convertX, convertY);
+    }
+    columns.flush();
+  }
+
+  private static void addBucket(Columns columns, SeriesPyramid pyramid, int level, int bucket, Mapping convertX, Mapping convertY) {
+    final Series2D points = pyramid.getSeries();
+    final int first = bucket << level;
+    final int tail = Math.min((bucket + 1) << level, points.size()) - 1;
+    final int sptX = (int) convertX.worldToScreen(points.getX(first));
+    if (sptX == (int) convertX.worldToScreen(points.getX(tail))) {
+      columns.add(sptX, (int) convertY.worldToScreen(points.getY(first)));
+      columns.add(sptX, (int) convertY.worldToScreen(pyramid.getMin(level, bucket)));
+      columns.add(sptX, (int) convertY.worldToScreen(pyramid.getMax(level, bucket)));
+      columns.add(sptX, (int) convertY.worldToScreen(points.getY(tail)));
+    } else if (level == 1) {
+      for (int i = first; i <= tail; i++) {
+        columns.add((int) convertX.worldToScreen(points.getX(i)), (int) convertY.worldToScreen(points.getY(i)));
+      }
+    } else {
+      addBucket(columns, pyramid, level - 1, 2 * bucket, convertX, convertY);
+      if ((2 * bucket + 1) << (level - 1) <= tail) {
+        addBucket(columns, pyramid, level - 1, 2 * bucket + 1, convertX, convertY);
+      }
+    }
+  }
+
+  // keeps the first, last, lowest and highest screen point of each pixel column
+  static final class Columns {
+    private Poly mPolygon;
+    private boolean mEmpty = true;
+    private int mColumn;
+    private int mFirst;
+    private int mMin;
+    private int mMax;
+    private int mLast;
+    private boolean mMinFirst;
+
+    void reset(Poly polygon) {
+      mPolygon = polygon;
+      mEmpty = true;
+    }
+
+    void add(int x, int y) {
+      if (mEmpty || x != mColumn) {
+        flush();
+        mEmpty = false;
+        mColumn = x;
+        mFirst = mMin = mMax = y;
+        mMinFirst = true;
+      } else if (y < mMin) {
+        mMin = y;
+        mMinFirst = false;
+      } else if (y > mMax) {
+        mMax = y;
+        mMinFirst = true;
+      }
+      mLast = y;
+    }
+
+    void flush() {
+      if (!mEmpty) {
+        mPolygon.addPoint(mColumn, mFirst);
+        if (mMinFirst) {
+          mPolygon.addPoint(mColumn, mMin);
+          mPolygon.addPoint(mColumn, mMax);
+        } else {
+          mPolygon.addPoint(mColumn, mMax);
+          mPolygon.addPoint(mColumn, mMin);
+        }
+        mPolygon.addPoint(mColumn, mLast);
+        mEmpty = true;
+      }
+    }
+  }
+
+  /**
+   * Returns the world range seen through a mapping, widened by
+   * <code>margin</code> screen units on each side so that anything
+   * drawn around a point just out of view is still drawn.
+   *
+   * @param convert axis mapping
+   * @param margin screen units to widen the range by
+   * @param world array of two to receive the range
+   * @return the lowest and highest visible world values
+   */
+  protected static float[] visibleWorld(Mapping convert, float margin, float[] world) {
+    final float sLo = Math.min(convert.getScreenMin(), convert.getScreenMax()) - margin;
+    final float sHi = Math.max(convert.getScreenMin(), convert.getScreenMax()) + margin;
+    final float a = convert.screenToWorld(sLo);
+    final float b = convert.screenToWorld(sHi);
+    world[0] = Math.min(a, b);
+    world[1] = Math.max(a, b);
+    return world;
+  }
+  // visible world x range, narrowed to the tile being drawn by the calling thread
+  private float[] visibleWorldX(Mapping convertX, float margin) {
+    final float[] world = visibleWorld(convertX, margin, scratch().mWorld);
+    final Rectangle tile = mContext.get().mTile;
+    if (tile != null) {
+      final float a = convertX.screenToWorld(tile.x - margin);
+      final float b = convertX.screenToWorld(tile.x + tile.width - 1 + margin);
+      world[0] = Math.max(world[0], Math.min(a, b));
+      world[1] = Math.min(world[1], Math.max(a, b));
+    }
+    return world;
+  }
+
+  /**
+   * Returns whether something drawn around a screen point could be
+   * seen in the tile being drawn by the calling thread.  Always true
+   * when the whole graph is being drawn.
+   *
+   * @param x screen x co-ordinate
+   * @param y screen y co-ordinate
+   * @param margin screen units drawn around the point
+   * @return whether the point may be seen
+   */
+  protected boolean inTile(int x, int y, int margin) {
+    final Rectangle tile = mContext.get().mTile;
+    return tile == null || (x >= tile.x - margin && x < tile.x + tile.width + margin
+                            && y >= tile.y - margin && y < tile.y + tile.height + margin);
+  }
+
+  /**
+   * Sets the area of the graph being drawn by the calling thread when
+   * the data area is drawn in tiles, so that data outside it can be
+   * skipped.
+   *
+   * @param tile tile area, or null when drawing the whole graph
+   */
+  void setTile(Rectangle tile) {
+    mContext.get().mTile = tile;
+  }
+
+
+  // index of the first point with x at or above lo
+  private static int firstAtOrAbove(Series2D points, float lo) {
+    int low = 0;
+    int high = points.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (points.getX(mid) < lo) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  // index of the first point with x above hi
+  private static int firstAbove(Series2D points, float hi) {
+    int low = 0;
+    int high = points.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (points.getX(mid) <= hi) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  // index of the first datum whose high x is at or above lo
+  private static int firstAtOrAbove(Datum2D[] data, float lo) {
+    int low = 0;
+    int high = data.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (data[mid].getXHi() < lo) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  // index of the first datum whose low x is above hi
+  private static int firstAbove(Datum2D[] data, float hi) {
+    int low = 0;
+    int high = data.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (data[mid].getXLo() <= hi) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
   protected Poly arrowHead(int x1, int y1, int x2, int y2, float w, float h, ArrowHead type) {
-    final Poly poly = new Poly();
+    return arrowHead(new Poly(), x1, y1, x2, y2, w, h, type);
+  }
+
+  private Poly arrowHead(Poly poly, int x1, int y1, int x2, int y2, float w, float h, ArrowHead type) {
 
     if (x1 == x2 && y1 == y2) { // just do a diamond
       final int t = (int) ((w + h) / 4.0f);
@@ -613,28 +1207,35 @@ public abstract class AbstractRenderer {
 
       setColor(canvas, aplot.getColor());
 
+      final float[] wxs = scratch().floats(ScratchBuffers.X, 2 * points.length);
+      final float[] wys = scratch().floats(ScratchBuffers.Y, 2 * points.length);
       for (int i = 0; i < points.length; i++) {
         final Arrow2D arrow = (Arrow2D) points[i];
-        final int sptX1 = (int) convertX.worldToScreen(arrow.getX1());
-        final int sptY1 = (int) convertY.worldToScreen(arrow.getY1());
-        final int sptX2 = (int) convertX.worldToScreen(arrow.getX2());
-        final int sptY2 = (int) convertY.worldToScreen(arrow.getY2());
+        wxs[2 * i] = arrow.getX1();
+        wxs[2 * i + 1] = arrow.getX2();
+        wys[2 * i] = arrow.getY1();
+        wys[2 * i + 1] = arrow.getY2();
+      }
+      final int[] sxs = toScreen(wxs, 2 * points.length, convertX, ScratchBuffers.X);
+      final int[] sys = toScreen(wys, 2 * points.length, convertY, ScratchBuffers.Y);
+
+      for (int i = 0; i < points.length; i++) {
+        final int sptX1 = sxs[2 * i];
+        final int sptY1 = sys[2 * i];
+        final int sptX2 = sxs[2 * i + 1];
+        final int sptY2 = sys[2 * i + 1];
 
         drawLine(canvas, sptX1, sptY1, sptX2, sptY2);
 
         if (direction == ArrowDirection.FORWARD || direction == ArrowDirection.BOTH) {
-          final Poly polygon = arrowHead(sptX1, sptY1, sptX2, sptY2, width, height, head);
-          final int[] xs = polygon.getXs();
-          final int[] ys = polygon.getYs();
-          fillPolygon(canvas, xs, ys);
-          drawPolygon(canvas, xs, ys);
+          final Poly polygon = arrowHead(scratch().head(), sptX1, sptY1, sptX2, sptY2, width, height, head);
+          fillPolygon(canvas, polygon.mXs, polygon.mYs, polygon.mSize);
+          drawPolygon(canvas, polygon.mXs, polygon.mYs, polygon.mSize);
         }
         if (direction == ArrowDirection.REVERSE || direction == ArrowDirection.BOTH) {
-          final Poly polygon = arrowHead(sptX2, sptY2, sptX1, sptY1, width, height, head);
-          final int[] xs = polygon.getXs();
-          final int[] ys = polygon.getYs();
-          fillPolygon(canvas, xs, ys);
-          drawPolygon(canvas, xs, ys);
+          final Poly polygon = arrowHead(scratch().head(), sptX2, sptY2, sptX1, sptY1, width, height, head);
+          fillPolygon(canvas, polygon.mXs, polygon.mYs, polygon.mSize);
+          drawPolygon(canvas, polygon.mXs, polygon.mYs, polygon.mSize);
         }
       }
     }
@@ -644,37 +1245,46 @@ public abstract class AbstractRenderer {
     final Datum2D[] points = bwplot.getData();
     if (points != null && points.length != 0) {
       setColor(canvas, bwplot.getColor());
+      final float[] wxs = scratch().floats(ScratchBuffers.X, points.length);
+      final float[] wys = scratch().floats(ScratchBuffers.Y, 5 * points.length);
+      for (int i = 0; i < points.length; i++) {
+        final BWPoint2D point = (BWPoint2D) points[i];
+        wxs[i] = point.getX();
+        for (int j = 0; j < 5; j++) {
+          wys[5 * i + j] = point.getY(j);
+        }
+      }
+      final int[] sxs = toScreen(wxs, points.length, convertX, ScratchBuffers.X);
+      final int[] sys = toScreen(wys, 5 * points.length, convertY, ScratchBuffers.Y);
       if (bwplot.getStyle() == BoxWhiskerStyle.STANDARD) {
         final int width = bwplot.getWidth();
         for (int i = 0; i < points.length; i++) {
-          final BWPoint2D point = (BWPoint2D) points[i];
-          final int sptX = (int) convertX.worldToScreen(point.getX());
-          int sptY1 = (int) convertY.worldToScreen(point.getY(0));
-          int sptY2 = (int) convertY.worldToScreen(point.getY(1));
+          final int sptX = sxs[i];
+          int sptY1 = sys[5 * i];
+          int sptY2 = sys[5 * i + 1];
           drawLine(canvas, sptX, sptY1, sptX, sptY2);
 
-          sptY1 = (int) convertY.worldToScreen(point.getY(3));
+          sptY1 = sys[5 * i + 3];
           drawRectangle(canvas, sptX - width / 2, sptY1, width, sptY2 - sptY1);
 
-          sptY2 = (int) convertY.worldToScreen(point.getY(4));
+          sptY2 = sys[5 * i + 4];
           drawLine(canvas, sptX, sptY1, sptX, sptY2);
 
-          sptY1 = (int) convertY.worldToScreen(point.getY(2));
+          sptY1 = sys[5 * i + 2];
           drawLine(canvas, sptX - width / 2, sptY1, sptX + width / 2, sptY1);
         }
       } else if (bwplot.getStyle() == BoxWhiskerStyle.MINIMAL) {
         for (int i = 0; i < points.length; i++) {
-          final BWPoint2D point = (BWPoint2D) points[i];
-          final int sptX = (int) convertX.worldToScreen(point.getX());
-          int sptY1 = (int) convertY.worldToScreen(point.getY(0));
-          int sptY2 = (int) convertY.worldToScreen(point.getY(1));
+          final int sptX = sxs[i];
+          int sptY1 = sys[5 * i];
+          int sptY2 = sys[5 * i + 1];
           drawLine(canvas, sptX, sptY1, sptX, sptY2);
 
-          sptY1 = (int) convertY.worldToScreen(point.getY(3));
-          sptY2 = (int) convertY.worldToScreen(point.getY(4));
+          sptY1 = sys[5 * i + 3];
+          sptY2 = sys[5 * i + 4];
           drawLine(canvas, sptX, sptY1, sptX, sptY2);
 
-          sptY1 = (int) convertY.worldToScreen(point.getY(2));
+          sptY1 = sys[5 * i + 2];
           drawPoint(canvas, sptX, sptY1);
         }
         // } else if (bwplot.getType() == BWPlot2D.JOINED) {
@@ -711,11 +1321,19 @@ public abstract class AbstractRenderer {
     setColor(canvas, color);
 
     if (points != null && points.length != 0) {
+      final float[] wxs = scratch().floats(ScratchBuffers.X, points.length);
+      final float[] wys = scratch().floats(ScratchBuffers.Y, points.length);
+      for (int i = 0; i < points.length; i++) {
+        wxs[i] = ((Point2D) points[i]).getX();
+        wys[i] = ((Point2D) points[i]).getY();
+      }
+      final int[] sxs = toScreen(wxs, points.length, convertX, ScratchBuffers.X);
+      final int[] sys = toScreen(wys, points.length, convertY, ScratchBuffers.Y);
       for (int i = 0; i < points.length; i++) {
         final TextPoint2D point = (TextPoint2D) points[i];
         final String text = point.getText();
-        final int sptX = (int) convertX.worldToScreen(point.getX());
-        final int sptY = (int) convertY.worldToScreen(point.getY());
+        final int sptX = sxs[i];
+        final int sptY = sys[i];
         final int sw = getTextWidth(canvas, text);
 
         if (tplot.isInvert()) {
@@ -737,12 +1355,22 @@ public abstract class AbstractRenderer {
     if (points != null && points.length != 0) {
       setColor(canvas, splot.getColor());
       final float scatterFactor = Math.abs(splot.getScatterFactor()) + 1;
-      final Random random = new Random();
+      // the same scatter each time the plot is drawn, and in every tile
+      final Random random = mContext.get().mRandom;
+      random.setSeed(SCATTER_SEED);
+      final float[] sxs = scratch().floats(ScratchBuffers.X, points.length);
+      final float[] sys = scratch().floats(ScratchBuffers.Y, points.length);
+      for (int i = 0; i < points.length; i++) {
+        sxs[i] = ((Point2D) points[i]).getX();
+        sys[i] = ((Point2D) points[i]).getY();
+      }
+      convertX.worldToScreen(sxs, 0, points.length, sxs);
+      convertY.worldToScreen(sys, 0, points.length, sys);
       for (int i = 0; i < points.length; i++) {
         final ScatterPoint2D point = (ScatterPoint2D) points[i];
 
-        final float sptX = convertX.worldToScreen(point.getX());
-        final float sptY = convertY.worldToScreen(point.getY());
+        final float sptX = sxs[i];
+        final float sptY = sys[i];
 
         if (point.getNumberOfPoints() > 0) {
           final float sf = (float) (scatterFactor * Math.log(point.getNumberOfPoints()));
@@ -751,7 +1379,11 @@ public abstract class AbstractRenderer {
             final double angle = random.nextFloat() * (2 * Math.PI);
             final float xx = (float) (radius * Math.sin(angle));
             final float yy = (float) (radius * Math.cos(angle));
-            drawRectangle(canvas, (int) (sptX + xx), (int) (sptY + yy), 1, 1);
+            final int x = (int) (sptX + xx);
+            final int y = (int) (sptY + yy);
+            if (inTile(x, y, POINT_MARGIN + splot.getLineWidth())) {
+              drawRectangle(canvas, x, y, 1, 1);
+            }
           }
         }
       }
@@ -769,13 +1401,30 @@ public abstract class AbstractRenderer {
       } else {
         setColor(canvas, bplot.getColor());
       }
-      for (int i = 0; i < points.length; i++) {
-        final Box2D box = (Box2D) points[i];
-
-        final int x = (int) convertX.worldToScreen(box.getLeft());
-        final int y = (int) convertY.worldToScreen(box.getTop());
-        final int width = (int) convertX.worldToScreen(box.getRight()) - x;
-        final int height = (int) convertY.worldToScreen(box.getBottom()) - y;
+      int start = 0;
+      int end = points.length;
+      if (bplot.isSortedX()) {
+        final float[] world = visibleWorldX(convertX, bplot.getLineWidth() + 1);
+        start = firstAtOrAbove(points, world[0]);
+        end = firstAbove(points, world[1]);
+      }
+      final int count = Math.max(end - start, 0);
+      final float[] wxs = scratch().floats(ScratchBuffers.X, 2 * count);
+      final float[] wys = scratch().floats(ScratchBuffers.Y, 2 * count);
+      for (int i = 0; i < count; i++) {
+        final Box2D box = (Box2D) points[start + i];
+        wxs[2 * i] = box.getLeft();
+        wxs[2 * i + 1] = box.getRight();
+        wys[2 * i] = box.getTop();
+        wys[2 * i + 1] = box.getBottom();
+      }
+      final int[] sxs = toScreen(wxs, 2 * count, convertX, ScratchBuffers.X);
+      final int[] sys = toScreen(wys, 2 * count, convertY, ScratchBuffers.Y);
+      for (int i = 0; i < count; i++) {
+        final int x = sxs[2 * i];
+        final int y = sys[2 * i];
+        final int width = sxs[2 * i + 1] - x;
+        final int height = sys[2 * i + 1] - y;
 
         if (doFill != FillStyle.NONE) {
           fillRectangle(canvas, x, y, width, height);
@@ -808,12 +1457,28 @@ public abstract class AbstractRenderer {
         setColor(canvas, cplot.getColor());
       }
 
-      for (int i = 0; i < points.length; i++) {
-        final Circle2D circle = (Circle2D) points[i];
+      int start = 0;
+      int end = points.length;
+      if (cplot.isSortedX()) {
+        final float[] world = visibleWorldX(convertX, cplot.getMaxDiameter() / 2.0f + cplot.getLineWidth() + 1);
+        start = firstAtOrAbove(points, world[0]);
+        end = firstAbove(points, world[1]);
+      }
+      final int count = Math.max(end - start, 0);
+      final float[] wxs = scratch().floats(ScratchBuffers.X, count);
+      final float[] wys = scratch().floats(ScratchBuffers.Y, count);
+      for (int i = 0; i < count; i++) {
+        wxs[i] = ((Point2D) points[start + i]).getX();
+        wys[i] = ((Point2D) points[start + i]).getY();
+      }
+      final int[] sxs = toScreen(wxs, count, convertX, ScratchBuffers.X);
+      final int[] sys = toScreen(wys, count, convertY, ScratchBuffers.Y);
+      for (int i = 0; i < count; i++) {
+        final Circle2D circle = (Circle2D) points[start + i];
         final float diameter = circle.getDiameter();
 
-        final int x = (int) convertX.worldToScreen(circle.getX());
-        final int y = (int) convertY.worldToScreen(circle.getY());
+        final int x = sxs[i];
+        final int y = sys[i];
 
         final int idiameter = (int) diameter + 1;
 
@@ -836,9 +1501,9 @@ public abstract class AbstractRenderer {
   }
 
   protected void drawCurvePlot(Object canvas, CurvePlot2D cplot, Mapping convertX, Mapping convertY) {
-    final Point2D[] points = (Point2D[]) cplot.getData();
+    final Series2D points = cplot.getSeries();
 
-    if (points != null && points.length != 0) {
+    if (points != null && points.size() != 0) {
       final int type = cplot.getType();
       final FillStyle doFill = cplot.getFill();
       final boolean doBorder = cplot.isBorder();
@@ -849,18 +1514,18 @@ public abstract class AbstractRenderer {
         setColor(canvas, cplot.getColor());
       }
 
-      final int[] xs = new int[points.length];
-      final int[] ys = new int[points.length];
-      for (int i = 0; i < points.length; i++) {
-        xs[i] = (int) convertX.worldToScreen(points[i].getX());
-        ys[i] = (int) convertY.worldToScreen(points[i].getY());
-      }
+      final int size = points.size();
+      final int[] xs = scratch().ints(ScratchBuffers.X, size);
+      final int[] ys = scratch().ints(ScratchBuffers.Y, size);
+      final float[] read = points instanceof FloatSeries2D ? null : scratch().floats(ScratchBuffers.READ, size);
+      toScreen(points, Axis.X, 0, size, convertX, xs, read);
+      toScreen(points, Axis.Y, 0, size, convertY, ys, read);
 
       if (doFill != FillStyle.NONE) {
-        fillCurve(canvas, xs, ys, type);
+        fillCurve(canvas, xs, ys, size, type);
         if (doBorder) {
           setColor(canvas, FOREGROUND_COLOR_INDEX);
-          drawCurve(canvas, xs, ys, type);
+          drawCurve(canvas, xs, ys, size, type);
           if (doFill == FillStyle.PATTERN) {
             setPattern(canvas, cplot.getColor());
           } else {
@@ -868,7 +1533,7 @@ public abstract class AbstractRenderer {
           }
         }
       } else {
-        drawCurve(canvas, xs, ys, type);
+        drawCurve(canvas, xs, ys, size, type);
       }
     }
   }
@@ -885,6 +1550,18 @@ public abstract class AbstractRenderer {
 
       setColor(canvas, FOREGROUND_COLOR_INDEX);
 
+      final float[] wxs = scratch().floats(ScratchBuffers.X, 2 * points.length);
+      final float[] wys = scratch().floats(ScratchBuffers.Y, 2 * points.length);
+      for (int i = 0; i < points.length; i++) {
+        final Note2D note = (Note2D) points[i];
+        wxs[2 * i] = note.getLeft();
+        wxs[2 * i + 1] = note.getRight();
+        wys[2 * i] = note.getTop();
+        wys[2 * i + 1] = note.getBottom();
+      }
+      final int[] sxs = toScreen(wxs, 2 * points.length, convertX, ScratchBuffers.X);
+      final int[] sys = toScreen(wys, 2 * points.length, convertY, ScratchBuffers.Y);
+
       for (int i = 0; i < points.length; i++) {
         final Note2D note = (Note2D) points[i];
         final String[] lines = note.getText().split("\n");
@@ -894,10 +1571,10 @@ public abstract class AbstractRenderer {
           maxWidth = Math.max(maxWidth, getTextWidth(canvas, lines[j]));
         }
 
-        final int x = (int) convertX.worldToScreen(note.getLeft());
-        final int y = (int) convertY.worldToScreen(note.getTop());
-        final int width = (int) convertX.worldToScreen(note.getRight()) - x;
-        final int height = (int) convertY.worldToScreen(note.getBottom()) - y;
+        final int x = sxs[2 * i];
+        final int y = sys[2 * i];
+        final int width = sxs[2 * i + 1] - x;
+        final int height = sys[2 * i + 1] - y;
 
         final int xOffset = x + (width - maxWidth) / 2;
         final int yOffset = y + (height - tHeight * lines.length) / 2 + tHeight - descent;
@@ -911,33 +1588,46 @@ public abstract class AbstractRenderer {
 
   // our own special polygon class
   protected static class Poly {
-    final ArrayList<Point2D> mPoints = new ArrayList<Point2D>();
-    int mLastX = 0;
-    int mLastY = 0;
+    int[] mXs;
+    int[] mYs;
+    int mSize = 0;
+
+    public Poly() {
+      this(16);
+    }
+
+    public Poly(int capacity) {
+      mXs = new int[Math.max(capacity, 1)];
+      mYs = new int[mXs.length];
+    }
 
     public void addPoint(int x, int y) {
-      if (mPoints.size() > 0 && mLastX == x && mLastY == y) { // Don't add redundant points.
+      if (mSize > 0 && mXs[mSize - 1] == x && mYs[mSize - 1] == y) { // Don't add redundant points.
         return;
       }
-      mPoints.add(new Point2D(x, y));
-      mLastX = x;
-      mLastY = y;
+      if (mSize == mXs.length) {
+        mXs = Arrays.copyOf(mXs, mSize * 2);
+        mYs = Arrays.copyOf(mYs, mSize * 2);
+      }
+      mXs[mSize] = x;
+      mYs[mSize] = y;
+      mSize++;
+    }
+
+    public int size() {
+      return mSize;
+    }
+
+    public void clear() {
+      mSize = 0;
     }
 
     public int[] getXs() {
-      final int[] xs = new int[mPoints.size()];
-      for (int i = 0; i < mPoints.size(); i++) {
-        xs[i] = (int) mPoints.get(i).getX();
-      }
-      return xs;
+      return Arrays.copyOf(mXs, mSize);
     }
 
     public int[] getYs() {
-      final int[] ys = new int[mPoints.size()];
-      for (int i = 0; i < mPoints.size(); i++) {
-        ys[i] = (int) mPoints.get(i).getY();
-      }
-      return ys;
+      return Arrays.copyOf(mYs, mSize);
     }
   }
 }
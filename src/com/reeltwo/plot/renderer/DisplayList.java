@@ -0,0 +1,457 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Stroke;
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.reeltwo.plot.Graph2D;
+
+/**
+ * The drawing operations of a laid out graph, recorded so they can be
+ * drawn again without repeating the layout or the transformation of
+ * any data.  A list is recorded once from a graph and may then be
+ * drawn any number of times, at any offset, onto a
+ * <code>Graphics</code> or by the SVG and PDF renderers.  The graph
+ * is not referenced by the list, so later changes to it are not seen.
+ * A recorded list is not changed by drawing it, so may be drawn on
+ * several threads at once.
+ *
+ * @author Richard Littin
+ */
+public final class DisplayList {
+  private static final int CLIP = 0;
+  private static final int STRING = 1;
+  private static final int VERTICAL_STRING = 2;
+  private static final int POINT = 3;
+  private static final int LINE = 4;
+  private static final int RECTANGLE = 5;
+  private static final int FILL_RECTANGLE = 6;
+  private static final int CIRCLE = 7;
+  private static final int FILL_CIRCLE = 8;
+  private static final int POLYGON = 9;
+  private static final int FILL_POLYGON = 10;
+  private static final int POLYLINE = 11;
+  private static final int ARC = 12;
+  private static final int FILL_ARC = 13;
+  private static final int PAINT = 14;
+  private static final int STROKE = 15;
+  private static final int FONT = 16;
+
+  /** operations, each an op code followed by its arguments */
+  private int[] mOps = new int[1024];
+  private int mSize = 0;
+  /** strings and drawing state referred to by operations */
+  private final List<Object> mObjects = new ArrayList<>();
+  private int mCount = 0;
+
+  private final int mWidth;
+  private final int mHeight;
+  private Mapping[] mMappings = null;
+  private final Recorder mRenderer;
+
+  private Paint mPaint = null;
+  private Stroke mStroke = null;
+  private Font mFont = null;
+
+  private DisplayList(Recorder renderer, int width, int height) {
+    mRenderer = renderer;
+    mWidth = width;
+    mHeight = height;
+  }
+
+  /**
+   * Lays out a graph exactly as the given renderer would draw it in
+   * a region of the given size at the origin, and records the
+   * drawing.  The background of the region is not drawn.
+   *
+   * @param renderer renderer whose configuration is used
+   * @param graph the Graph2D to record
+   * @param width width of drawing region
+   * @param height height of drawing region
+   * @param font font to use, or null for the default font
+   * @return the recorded drawing
+   */
+  public static DisplayList record(GraphicsRenderer renderer, Graph2D graph, int width, int height, Font font) {
+    if (renderer == null) {
+      throw new NullPointerException("null renderer given.");
+    }
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("dimensions must be greater than 0");
+    }
+    final Recorder recorder = new Recorder();
+    recorder.setRendererConfig(renderer);
+    final DisplayList list = new DisplayList(recorder, width, height);
+    // metrics and state are kept on a graphics that is never drawn on
+    final Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+    if (font != null) {
+      g.setFont(font);
+    }
+    try {
+      list.mMappings = recorder.drawTo(list.new Recording(), graph, g, width, height);
+    } finally {
+      g.dispose();
+    }
+    list.mOps = Arrays.copyOf(list.mOps, list.mSize);
+    list.mPaint = null;
+    list.mStroke = null;
+    list.mFont = null;
+    return list;
+  }
+
+  /**
+   * Returns the width of the recorded region.
+   *
+   * @return width
+   */
+  public int getWidth() {
+    return mWidth;
+  }
+
+  /**
+   * Returns the height of the recorded region.
+   *
+   * @return height
+   */
+  public int getHeight() {
+    return mHeight;
+  }
+
+  /**
+   * Returns the number of drawing operations recorded.
+   *
+   * @return number of operations
+   */
+  public int size() {
+    return mCount;
+  }
+
+  /**
+   * Returns the mappings from world to screen data points for each
+   * axis pair when drawn at the given offset (in order
+   * {@code x1,y1,x2,y2},...).
+   *
+   * @param x horizontal offset
+   * @param y vertical offset
+   * @return the axis mappings, or null if no graph was recorded
+   */
+  public Mapping[] getMappings(int x, int y) {
+    if (mMappings == null) {
+      return null;
+    }
+    final Mapping[] mappings = new Mapping[mMappings.length];
+    for (int i = 0; i < mappings.length; i++) {
+      final Mapping m = mMappings[i];
+      if (m != null) {
+        final int offset = i % 2 == 0 ? x : y;
+        mappings[i] = offset == 0 ? m : new Mapping(m.getWorldMin(), m.getWorldMax(), m.getScreenMin() + offset, m.getScreenMax() + offset, m.isLog());
+      }
+    }
+    return mappings;
+  }
+
+  /**
+   * Draws the recorded graph on the given Graphics with its top left
+   * corner at the given offset.  The mappings from world to screen
+   * data points for each axis pair is returned (in order
+   * {@code x1,y1,x2,y2},...).
+   *
+   * @param g a Graphics to draw on
+   * @param x horizontal offset
+   * @param y vertical offset
+   * @return the axis mappings, or null if no graph was recorded
+   */
+  public Mapping[] draw(Graphics g, int x, int y) {
+    mRenderer.setupAntialiasing(g);
+    replay(mRenderer, g, x, y);
+    return getMappings(x, y);
+  }
+
+  /**
+   * Draws the recorded operations with the primitives of the given
+   * renderer.
+   *
+   * @param renderer renderer to draw with
+   * @param g canvas of the renderer
+   * @param dx horizontal offset
+   * @param dy vertical offset
+   */
+  void replay(GraphicsRenderer renderer, Graphics g, int dx, int dy) {
+    final Graphics2D g2 = (Graphics2D) g;
+    final int[] ops = mOps;
+    int[] xs = new int[0];
+    int[] ys = new int[0];
+    int i = 0;
+    while (i < mSize) {
+      switch (ops[i]) {
+      case CLIP:
+        renderer.setClip(g, ops[i + 1] + dx, ops[i + 2] + dy, ops[i + 3], ops[i + 4]);
+        i += 5;
+        break;
+      case STRING:
+      case VERTICAL_STRING:
+        renderer.drawString(g, ops[i + 1] + dx, ops[i + 2] + dy, (String) mObjects.get(ops[i + 3]), ops[i] == VERTICAL_STRING);
+        i += 4;
+        break;
+      case POINT:
+        renderer.setPointIndex(ops[i + 3]);
+        renderer.drawPoint(g, ops[i + 1] + dx, ops[i + 2] + dy);
+        i += 4;
+        break;
+      case LINE:
+        renderer.drawLine(g, ops[i + 1] + dx, ops[i + 2] + dy, ops[i + 3] + dx, ops[i + 4] + dy);
+        i += 5;
+        break;
+      case RECTANGLE:
+        renderer.drawRectangle(g, ops[i + 1] + dx, ops[i + 2] + dy, ops[i + 3], ops[i + 4]);
+        i += 5;
+        break;
+      case FILL_RECTANGLE:
+        renderer.fillRectangle(g, ops[i + 1] + dx, ops[i + 2] + dy, ops[i + 3], ops[i + 4]);
+        i += 5;
+        break;
+      case CIRCLE:
+        renderer.drawCircle(g, ops[i + 1] + dx, ops[i + 2] + dy, ops[i + 3]);
+        i += 4;
+        break;
+      case FILL_CIRCLE:
+        renderer.fillCircle(g, ops[i + 1] + dx, ops[i + 2] + dy, ops[i + 3]);
+        i += 4;
+        break;
+      case POLYGON:
+      case FILL_POLYGON:
+      case POLYLINE:
+        final int n = ops[i + 1];
+        if (xs.length < n) {
+          xs = new int[n];
+          ys = new int[n];
+        }
+        for (int j = 0, k = i + 2; j < n; j++, k += 2) {
+          xs[j] = ops[k] + dx;
+          ys[j] = ops[k + 1] + dy;
+        }
+        if (ops[i] == POLYGON) {
+          renderer.drawPolygon(g, xs, ys, n);
+        } else if (ops[i] == FILL_POLYGON) {
+          renderer.fillPolygon(g, xs, ys, n);
+        } else {
+          renderer.drawPolyline(g, xs, ys, n);
+        }
+        i += 2 + 2 * n;
+        break;
+      case ARC:
+        renderer.drawArc(g, ops[i + 1] + dx, ops[i + 2] + dy, ops[i + 3], ops[i + 4], ops[i + 5], ops[i + 6]);
+        i += 7;
+        break;
+      case FILL_ARC:
+        renderer.fillArc(g, ops[i + 1] + dx, ops[i + 2] + dy, ops[i + 3], ops[i + 4], ops[i + 5], ops[i + 6]);
+        i += 7;
+        break;
+      case PAINT:
+        Paint paint = (Paint) mObjects.get(ops[i + 1]);
+        if (paint instanceof GradientPaint && (dx != 0 || dy != 0)) {
+          // gradients are laid out with the graph, unlike textures which are fixed to the canvas
+          final GradientPaint gp = (GradientPaint) paint;
+          paint = new GradientPaint((float) gp.getPoint1().getX() + dx, (float) gp.getPoint1().getY() + dy, gp.getColor1(),
+                                    (float) gp.getPoint2().getX() + dx, (float) gp.getPoint2().getY() + dy, gp.getColor2(), gp.isCyclic());
+        }
+        g2.setPaint(paint);
+        i += 2;
+        break;
+      case STROKE:
+        g2.setStroke((Stroke) mObjects.get(ops[i + 1]));
+        i += 2;
+        break;
+      case FONT:
+        g2.setFont((Font) mObjects.get(ops[i + 1]));
+        i += 2;
+        break;
+      default:
+        throw new RuntimeException("Programmer error");
+      }
+    }
+  }
+
+  private void ensure(int n) {
+    if (mSize + n > mOps.length) {
+      mOps = Arrays.copyOf(mOps, Math.max(mOps.length * 2, mSize + n));
+    }
+  }
+
+  private int object(Object o) {
+    mObjects.add(o);
+    return mObjects.size() - 1;
+  }
+
+  /** Records any change to the graphics state since the last operation. */
+  private void state(Graphics g) {
+    final Graphics2D g2 = (Graphics2D) g;
+    ensure(6);
+    if (g2.getPaint() != mPaint) {
+      mPaint = g2.getPaint();
+      mOps[mSize++] = PAINT;
+      mOps[mSize++] = object(mPaint);
+    }
+    if (g2.getStroke() != mStroke) {
+      mStroke = g2.getStroke();
+      mOps[mSize++] = STROKE;
+      mOps[mSize++] = object(mStroke);
+    }
+    if (g2.getFont() != mFont) {
+      mFont = g2.getFont();
+      mOps[mSize++] = FONT;
+      mOps[mSize++] = object(mFont);
+    }
+  }
+
+  private void add(int op, int a, int b, int c) {
+    ensure(4);
+    mOps[mSize++] = op;
+    mOps[mSize++] = a;
+    mOps[mSize++] = b;
+    mOps[mSize++] = c;
+    mCount++;
+  }
+
+  private void add(int op, int a, int b, int c, int d) {
+    ensure(5);
+    mOps[mSize++] = op;
+    mOps[mSize++] = a;
+    mOps[mSize++] = b;
+    mOps[mSize++] = c;
+    mOps[mSize++] = d;
+    mCount++;
+  }
+
+  private void add(int op, int a, int b, int c, int d, int e, int f) {
+    ensure(7);
+    mOps[mSize++] = op;
+    mOps[mSize++] = a;
+    mOps[mSize++] = b;
+    mOps[mSize++] = c;
+    mOps[mSize++] = d;
+    mOps[mSize++] = e;
+    mOps[mSize++] = f;
+    mCount++;
+  }
+
+  private void add(int op, int[] xs, int[] ys, int n) {
+    ensure(2 + 2 * n);
+    mOps[mSize++] = op;
+    mOps[mSize++] = n;
+    for (int i = 0; i < n; i++) {
+      mOps[mSize++] = xs[i];
+      mOps[mSize++] = ys[i];
+    }
+    mCount++;
+  }
+
+
+  /**
+   * Lays out graphs like <code>GraphicsRenderer</code>, passing what it
+   * draws to a recording.  Replayed lists are drawn on a Graphics as
+   * <code>GraphicsRenderer</code> draws.
+   */
+  private static final class Recorder extends StreamingRenderer {
+    @Override
+    Output open(OutputStream os, int width, int height) {
+      // lists are recorded with drawTo, never written to a stream
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** Adds each drawing call to the list. */
+  private final class Recording implements StreamingRenderer.Output {
+    @Override
+    public void begin(int width, int height) {
+    }
+
+    @Override
+    public void end() {
+    }
+
+    @Override
+    public void clip(int x, int y, int w, int h) {
+      add(CLIP, x, y, w, h);
+    }
+
+    @Override
+    public void drawString(Graphics2D g, int x, int y, String text, boolean isVertical) {
+      state(g);
+      add(isVertical ? VERTICAL_STRING : STRING, x, y, object(text));
+    }
+
+    @Override
+    public void drawLine(Graphics2D g, int x1, int y1, int x2, int y2) {
+      state(g);
+      add(LINE, x1, y1, x2, y2);
+    }
+
+    @Override
+    public void drawPoint(Graphics2D g, int marker, int x, int y) {
+      state(g);
+      add(POINT, x, y, marker);
+    }
+
+    @Override
+    public void drawRectangle(Graphics2D g, int x, int y, int w, int h) {
+      state(g);
+      add(RECTANGLE, x, y, w, h);
+    }
+
+    @Override
+    public void fillRectangle(Graphics2D g, int x, int y, int w, int h) {
+      state(g);
+      add(FILL_RECTANGLE, x, y, w, h);
+    }
+
+    @Override
+    public void drawCircle(Graphics2D g, int x, int y, int diameter) {
+      state(g);
+      add(CIRCLE, x, y, diameter);
+    }
+
+    @Override
+    public void fillCircle(Graphics2D g, int x, int y, int diameter) {
+      state(g);
+      add(FILL_CIRCLE, x, y, diameter);
+    }
+
+    @Override
+    public void drawPolygon(Graphics2D g, int[] xs, int[] ys, int n) {
+      state(g);
+      add(POLYGON, xs, ys, n);
+    }
+
+    @Override
+    public void fillPolygon(Graphics2D g, int[] xs, int[] ys, int n) {
+      state(g);
+      add(FILL_POLYGON, xs, ys, n);
+    }
+
+    @Override
+    public void drawPolyline(Graphics2D g, int[] xs, int[] ys, int n) {
+      state(g);
+      add(POLYLINE, xs, ys, n);
+    }
+
+    @Override
+    public void drawArc(Graphics2D g, int x, int y, int w, int h, int start, int extent) {
+      state(g);
+      add(ARC, x, y, w, h, start, extent);
+    }
+
+    @Override
+    public void fillArc(Graphics2D g, int x, int y, int w, int h, int start, int extent) {
+      state(g);
+      add(FILL_ARC, x, y, w, h, start, extent);
+    }
+  }
+}
@@ -6,11 +6,18 @@ import java.awt.FontMetrics;
 import java.awt.GradientPaint;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
 import java.awt.Paint;
-import java.awt.Polygon;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import com.reeltwo.plot.ArrowPlot2D;
 import com.reeltwo.plot.Axis;
@@ -36,17 +43,35 @@ import com.reeltwo.plot.TextPlot2D;
 import com.reeltwo.plot.patterns.DefaultColorGroup;
 
 /**
- * Code to render a Graph2D object onto a Graphics.
+ * Code to render a Graph2D object onto a Graphics.  Once configured, a
+ * renderer can draw graphs on several threads at once, provided its
+ * configuration is not changed while it is drawing.
  *
  * @author Richard Littin
  */
 public class GraphicsRenderer extends AbstractRenderer {
+  private static final BasicStroke THIN_STROKE = new BasicStroke();
+  private static final Color TRANSPARENT = new Color(255, 255, 255, 0);
+
+  /**
+   * How much detail to draw graphs with, trading looks for speed.
+   */
+  public enum Quality {
+    /** no antialiasing, all lines decimated, coarse curves and plain point markers */
+    DRAFT,
+    /** no antialiasing of shapes, all lines decimated and smoother curves */
+    INTERACTIVE,
+    /** antialiasing as configured and full detail */
+    PUBLICATION
+  }
+
   private Color mGraphTopColor = null;
   private Color mGraphBottomColor = null;
   private int mGraphShadowWidth = 0;
 
   private boolean mTextAntialiasing = false;
   private boolean mAllAntialiasing = false;
+  private volatile Quality mQuality = Quality.PUBLICATION;
 
   private Color[] mColors = null;
   private Paint[] mPatterns = null;
@@ -54,6 +79,53 @@ public class GraphicsRenderer extends AbstractRenderer {
   private Color mBackgroundColor = Color.WHITE;
   private Color mForegroundColor = Color.BLACK;
   private Color mGridColor = Color.LIGHT_GRAY;
+  /** stroke last used for lines wider than one unit, shared by all threads */
+  private volatile BasicStroke mWideStroke = null;
+  /** count of changes to settings that affect how plots are drawn */
+  private volatile int mConfigVersion = 0;
+  /** images of plots kept between draws, or null */
+  private volatile LayerCache mLayerCache = null;
+  /** threads the data area is drawn on in strips, or null */
+  private volatile ForkJoinPool mTilePool = null;
+  /** images of strips drawn on the tile pool, kept between draws */
+  private final Tiles mTiles = new Tiles();
+  /** images of vertical text drawn by this renderer */
+  private final TextCache mTextCache = new TextCache(64);
+
+  /** Key width reused while the key titles and text metrics stay the same. */
+  private static final class KeyLayout {
+    final Object mMetrics;
+    final String mKeyTitle;
+    final String[] mTitles;
+    final int mWidth;
+
+    KeyLayout(Object metrics, String keyTitle, String[] titles, int width) {
+      mMetrics = metrics;
+      mKeyTitle = keyTitle;
+      mTitles = titles;
+      mWidth = width;
+    }
+
+    boolean matches(Object metrics, Graph2D graph) {
+      final String keyTitle = graph.getKeyTitle();
+      if (!mMetrics.equals(metrics) || (keyTitle == null ? mKeyTitle != null : !keyTitle.equals(mKeyTitle))) {
+        return false;
+      }
+      int i = 0;
+      for (final Plot2D plot : graph.getPlots()) {
+        final String dtitle = plot.getTitle();
+        if (dtitle != null && dtitle.length() != 0 && plot.hasData()) {
+          if (i == mTitles.length || !dtitle.equals(mTitles[i++])) {
+            return false;
+          }
+        }
+      }
+      return i == mTitles.length;
+    }
+  }
+
+  /** key width of the last graph drawn */
+  private volatile KeyLayout mKeyLayout = null;
 
   private static class Screen {
     final int mXLo;
@@ -124,6 +196,7 @@ public class GraphicsRenderer extends AbstractRenderer {
     setGridColor(graphicsRenderer.mGridColor);
     setAntialiasing(graphicsRenderer.mAllAntialiasing);
     setTextAntialiasing(graphicsRenderer.mTextAntialiasing);
+    setQuality(graphicsRenderer.mQuality);
     setGraphShadowWidth(graphicsRenderer.mGraphShadowWidth);
   }
 
@@ -146,6 +219,7 @@ public class GraphicsRenderer extends AbstractRenderer {
       mPatterns = colors;
     }
     mColors = colors;
+    mConfigVersion++;
   }
 
   /**
@@ -164,6 +238,7 @@ public class GraphicsRenderer extends AbstractRenderer {
       }
       mPatterns = patterns;
     }
+    mConfigVersion++;
   }
 
   /**
@@ -204,6 +279,15 @@ public class GraphicsRenderer extends AbstractRenderer {
     return fm.getMaxDescent();
   }
 
+  @Override
+  Object getMetricsKey(Object canvas) {
+    if (canvas instanceof Graphics2D) {
+      final Graphics2D g = (Graphics2D) canvas;
+      return Arrays.asList(g.getFont(), g.getFontRenderContext());
+    }
+    return null;
+  }
+
   @Override
   protected void setColor(Object canvas, int colorIndex) {
     switch (colorIndex) {
@@ -225,9 +309,14 @@ public class GraphicsRenderer extends AbstractRenderer {
   protected void setLineWidth(Object canvas, int width) {
     super.setLineWidth(canvas, width);
     if (width > 1) {
-      ((Graphics2D) canvas).setStroke(new BasicStroke(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+      BasicStroke stroke = mWideStroke;
+      if (stroke == null || stroke.getLineWidth() != width) {
+        stroke = new BasicStroke(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+        mWideStroke = stroke;
+      }
+      ((Graphics2D) canvas).setStroke(stroke);
     } else {
-      ((Graphics2D) canvas).setStroke(new BasicStroke());
+      ((Graphics2D) canvas).setStroke(THIN_STROKE);
     }
   }
 
@@ -247,35 +336,38 @@ public class GraphicsRenderer extends AbstractRenderer {
 
   @Override
   protected void drawPoint(Object canvas, int x, int y) {
-    final Graphics g = (Graphics) canvas;
+    if (getDrawQuality() == Quality.DRAFT) {
+      fillRectangle(canvas, x - 1, y - 1, 3, 3);
+      return;
+    }
     switch (getPointIndex() % 6) {
     case 0:
-      g.drawLine(x, y - 2, x + 2, y);
-      g.drawLine(x + 2, y, x, y + 2);
-      g.drawLine(x, y + 2, x - 2, y);
-      g.drawLine(x - 2, y, x, y - 2);
+      drawLine(canvas, x, y - 2, x + 2, y);
+      drawLine(canvas, x + 2, y, x, y + 2);
+      drawLine(canvas, x, y + 2, x - 2, y);
+      drawLine(canvas, x - 2, y, x, y - 2);
       break;
     case 1:
-      g.drawLine(x - 2, y, x + 2, y);
-      g.drawLine(x, y - 2, x, y + 2);
+      drawLine(canvas, x - 2, y, x + 2, y);
+      drawLine(canvas, x, y - 2, x, y + 2);
       break;
     case 2:
-      g.drawRect(x - 2, y - 2, 4, 4);
+      drawRectangle(canvas, x - 2, y - 2, 4, 4);
       break;
     case 3:
-      g.drawLine(x - 2, y - 2, x + 2, y + 2);
-      g.drawLine(x + 2, y - 2, x - 2, y + 2);
+      drawLine(canvas, x - 2, y - 2, x + 2, y + 2);
+      drawLine(canvas, x + 2, y - 2, x - 2, y + 2);
       break;
     case 4:
-      g.drawLine(x, y - 2, x + 2, y + 2);
-      g.drawLine(x + 2, y + 2, x - 2, y + 2);
-      g.drawLine(x - 2, y + 2, x, y - 2);
+      drawLine(canvas, x, y - 2, x + 2, y + 2);
+      drawLine(canvas, x + 2, y + 2, x - 2, y + 2);
+      drawLine(canvas, x - 2, y + 2, x, y - 2);
       break;
     case 5:
-      g.drawLine(x - 2, y, x + 2, y);
-      g.drawLine(x, y - 2, x, y + 2);
-      g.drawLine(x - 2, y - 2, x + 2, y + 2);
-      g.drawLine(x + 2, y - 2, x - 2, y + 2);
+      drawLine(canvas, x - 2, y, x + 2, y);
+      drawLine(canvas, x, y - 2, x, y + 2);
+      drawLine(canvas, x - 2, y - 2, x + 2, y + 2);
+      drawLine(canvas, x + 2, y - 2, x - 2, y + 2);
       break;
     default:
       throw new RuntimeException("Programmer error");
@@ -307,31 +399,68 @@ public class GraphicsRenderer extends AbstractRenderer {
     ((Graphics) canvas).fillOval((int) (x - diameter / 2.0f), (int) (y - diameter / 2.0f), diameter, diameter);
   }
 
-  private Polygon createPolygon(int[] xs, int[] ys) {
-    assert xs != null;
-    assert ys != null;
-    assert xs.length == ys.length;
-    final Polygon polygon = new Polygon();
-    for (int i = 0; i < xs.length; i++) {
-      polygon.addPoint(xs[i], ys[i]);
-    }
-    return polygon;
-  }
-
   @Override
   protected void drawPolygon(Object canvas, int[] xs, int[] ys) {
-    ((Graphics) canvas).drawPolygon(createPolygon(xs, ys));
+    drawPolygon(canvas, xs, ys, xs.length);
   }
 
   @Override
   protected void fillPolygon(Object canvas, int[] xs, int[] ys) {
-    ((Graphics) canvas).fillPolygon(createPolygon(xs, ys));
+    fillPolygon(canvas, xs, ys, xs.length);
   }
 
   @Override
   protected void drawPolyline(Object canvas, int[] xs, int[] ys) {
     assert xs.length == ys.length;
-    ((Graphics) canvas).drawPolyline(xs, ys, xs.length);
+    drawPolyline(canvas, xs, ys, xs.length);
+  }
+
+  @Override
+  protected void drawPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    ((Graphics) canvas).drawPolygon(xs, ys, n);
+  }
+
+  @Override
+  protected void fillPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    ((Graphics) canvas).fillPolygon(xs, ys, n);
+  }
+
+  @Override
+  protected void drawPolyline(Object canvas, int[] xs, int[] ys, int n) {
+    ((Graphics) canvas).drawPolyline(xs, ys, n);
+  }
+
+  /**
+   * Draws the outline of an arc covering part of the ellipse that fits
+   * the given rectangle.  Angles are in degrees, counter-clockwise from
+   * three o'clock.
+   *
+   * @param canvas canvas to draw on
+   * @param x x co-ordinate of the ellipse bounds
+   * @param y y co-ordinate of the ellipse bounds
+   * @param w width of the ellipse bounds
+   * @param h height of the ellipse bounds
+   * @param start angle at which the arc starts
+   * @param extent angle the arc covers
+   */
+  protected void drawArc(Object canvas, int x, int y, int w, int h, int start, int extent) {
+    ((Graphics) canvas).drawArc(x, y, w, h, start, extent);
+  }
+
+  /**
+   * Fills the pie shaped region bounded by an arc of the ellipse that
+   * fits the given rectangle.
+   *
+   * @param canvas canvas to draw on
+   * @param x x co-ordinate of the ellipse bounds
+   * @param y y co-ordinate of the ellipse bounds
+   * @param w width of the ellipse bounds
+   * @param h height of the ellipse bounds
+   * @param start angle at which the arc starts
+   * @param extent angle the arc covers
+   */
+  protected void fillArc(Object canvas, int x, int y, int w, int h, int start, int extent) {
+    ((Graphics) canvas).fillArc(x, y, w, h, start, extent);
   }
 
   // render specific
@@ -342,6 +471,7 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setTextAntialiasing(boolean flag) {
     mTextAntialiasing = flag;
+    mConfigVersion++;
   }
 
   /**
@@ -351,6 +481,58 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setAntialiasing(boolean flag) {
     mAllAntialiasing = flag;
+    mConfigVersion++;
+  }
+
+  /**
+   * Sets the quality graphs are drawn with.  Lower qualities draw
+   * quicker, for use while the user is changing the graph.
+   *
+   * @param quality a <code>Quality</code>
+   */
+  public void setQuality(Quality quality) {
+    if (quality == null) {
+      throw new NullPointerException("null quality given.");
+    }
+    mQuality = quality;
+    mConfigVersion++;
+  }
+
+  /**
+   * Returns the quality graphs are drawn with.
+   *
+   * @return a <code>Quality</code>
+   */
+  public Quality getQuality() {
+    return mQuality;
+  }
+
+  // quality of the graph being drawn on the calling thread
+  Quality getDrawQuality() {
+    final Quality quality = context().mQuality;
+    return quality == null ? mQuality : quality;
+  }
+
+  // sets the quality for the calling thread, null for the renderer's own
+  void setDrawQuality(Quality quality) {
+    context().mQuality = quality;
+  }
+
+  @Override
+  protected int getCurveSegments() {
+    switch (getDrawQuality()) {
+    case DRAFT:
+      return CURVE_SEGMENTS / 6;
+    case INTERACTIVE:
+      return CURVE_SEGMENTS / 2;
+    default:
+      return CURVE_SEGMENTS;
+    }
+  }
+
+  @Override
+  protected boolean isDecimateAll() {
+    return getDrawQuality() != Quality.PUBLICATION;
   }
 
   /**
@@ -364,6 +546,7 @@ public class GraphicsRenderer extends AbstractRenderer {
   public void setGraphBGColor(Color topColor, Color bottomColor) {
     mGraphTopColor = topColor;
     mGraphBottomColor = bottomColor;
+    mConfigVersion++;
   }
 
   /**
@@ -373,6 +556,7 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setBackground(Color color) {
     mBackgroundColor = color;
+    mConfigVersion++;
   }
 
   /**
@@ -383,6 +567,7 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setForeground(Color color) {
     mForegroundColor = color;
+    mConfigVersion++;
   }
 
   /**
@@ -392,6 +577,7 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setGridColor(Color color) {
     mGridColor = color;
+    mConfigVersion++;
   }
 
   /**
@@ -401,6 +587,157 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setGraphShadowWidth(int width) {
     mGraphShadowWidth = width;
+    mConfigVersion++;
+  }
+
+  /**
+   * Sets whether to keep an image of each plot between draws, so that
+   * when a graph is drawn again only the plots that have changed are
+   * drawn again.  This speeds up redrawing graphs with many plots,
+   * at the cost of an image the size of the data area for each plot.
+   * The images are those of the last graph drawn, so this is meant
+   * for a renderer drawing a single display.
+   *
+   * @param flag whether to keep plot images
+   */
+  public void setLayerCaching(boolean flag) {
+    if (!flag) {
+      mLayerCache = null;
+    } else if (mLayerCache == null) {
+      mLayerCache = new LayerCache();
+    }
+  }
+
+  /**
+   * Returns whether an image of each plot is kept between draws.
+   *
+   * @return whether plot images are kept
+   */
+  public boolean isLayerCaching() {
+    return mLayerCache != null;
+  }
+
+  /**
+   * Sets a pool of threads on which to draw the data area of each
+   * graph, split into vertical strips.  Each strip only draws the data
+   * that falls in it, so graphs with many points, boxes or circles are
+   * drawn in a fraction of the time.  The picture is the same, pixel
+   * for pixel, as when drawn on one thread.
+   *
+   * @param pool threads to draw on, or null to draw on the calling thread
+   */
+  public void setTilePool(ForkJoinPool pool) {
+    mTilePool = pool;
+  }
+
+  /**
+   * Returns the pool of threads the data area is drawn on.
+   *
+   * @return threads drawn on, or null if drawn on the calling thread
+   */
+  public ForkJoinPool getTilePool() {
+    return mTilePool;
+  }
+
+  /**
+   * Returns a count of the changes to the settings that affect how
+   * graphs are drawn, so that pictures drawn by this renderer can be
+   * kept until the count changes.
+   *
+   * @return settings version
+   */
+  public int getConfigVersion() {
+    return mConfigVersion;
+  }
+
+  /**
+   * Returns the clip of a graphics if it has one and the graphics
+   * draws whole pixels, that is it is only translated by whole pixels
+   * and the clip is at or after its origin.  Images drawn over the clip
+   * will then line up with the pixels.  The clip is cut to the clip the
+   * graph was drawn within on an image, so that a graph drawn on an
+   * image a band at a time only needs images the size of a band.
+   *
+   * @param g a graphics
+   * @return the clip bounds, or null
+   */
+  Rectangle getPixelClip(Graphics2D g) {
+    final AffineTransform t = g.getTransform();
+    if ((t.getType() & ~AffineTransform.TYPE_TRANSLATION) != 0 || t.getTranslateX() != Math.rint(t.getTranslateX()) || t.getTranslateY() != Math.rint(t.getTranslateY())) {
+      return null;
+    }
+    Rectangle bounds = g.getClipBounds();
+    if (bounds == null) {
+      return null;
+    }
+    final Rectangle within = context().mBounds;
+    if (within != null) {
+      bounds = bounds.intersection(within);
+    }
+    if (bounds.isEmpty() || bounds.x + t.getTranslateX() < 0 || bounds.y + t.getTranslateY() < 0) {
+      return null;
+    }
+    return bounds;
+  }
+
+  // the clip of a graphics drawing on an image, or null
+  private static Rectangle getImageClip(Graphics g) {
+    if (g instanceof Graphics2D) {
+      // the clip of a screen is where it needs painting, not the extent of the device
+      final GraphicsConfiguration config = ((Graphics2D) g).getDeviceConfiguration();
+      if (config != null && config.getDevice().getType() == GraphicsDevice.TYPE_IMAGE_BUFFER) {
+        return g.getClipBounds();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a graphics drawing on an image exactly as <code>dest</code>
+   * would draw, with the same transform, font and hints, clipped to
+   * <code>area</code>.  Java2D does not always draw a shape moved by
+   * whole pixels on the same pixels moved, so the image has the same
+   * origin as the pixels of <code>dest</code> and must reach at least
+   * to the far corner of <code>area</code>.
+   *
+   * @param image image to draw on
+   * @param dest graphics to draw like
+   * @param area area of <code>dest</code> to draw
+   * @return a graphics for the image
+   */
+  static Graphics2D createAligned(BufferedImage image, Graphics2D dest, Rectangle area) {
+    final Graphics2D g = image.createGraphics();
+    g.setRenderingHints(dest.getRenderingHints());
+    g.setTransform(dest.getTransform());
+    g.setClip(area);
+    g.setFont(dest.getFont());
+    return g;
+  }
+
+  /**
+   * Returns whether the calling thread is drawing pixels, rather than
+   * writing drawing operations elsewhere, so that plots may be drawn
+   * from images.
+   *
+   * @return true if drawing pixels
+   */
+  boolean isRaster() {
+    return true;
+  }
+
+  @Override
+  protected void drawData(Object canvas, Plot2D[] plots, Mapping[] mapping) {
+    if (isRaster()) {
+      final LayerCache cache = mLayerCache;
+      if (cache != null && cache.draw(this, (Graphics2D) canvas, plots, mapping)) {
+        return;
+      }
+      final ForkJoinPool pool = mTilePool;
+      if (pool != null && mTiles.draw(this, pool, (Graphics2D) canvas, plots, mapping)) {
+        return;
+      }
+    }
+    super.drawData(canvas, plots, mapping);
   }
 
   private static int getKeyLineWidth(Graphics g) {
@@ -418,9 +755,35 @@ public class GraphicsRenderer extends AbstractRenderer {
    * @param g a Graphics to draw on
    * @param screenWidth width of drawing region
    * @param screenHeight height of drawing region
+   * @return the axis mappings, or null if there is no graph
    */
-  public void drawGraph(Graph2D graph, Graphics g, int screenWidth, int screenHeight) {
-    drawGraph(graph, g, 0, 0, screenWidth, screenHeight);
+  public Mapping[] drawGraph(Graph2D graph, Graphics g, int screenWidth, int screenHeight) {
+    return drawGraph(graph, g, 0, 0, screenWidth, screenHeight);
+  }
+
+  /**
+   * Draws the graph as {@link #drawGraph(Graph2D, Graphics, int, int,
+   * int, int)} does, but with the given quality rather than the
+   * renderer's own.
+   *
+   * @param graph the Graph2D to draw
+   * @param g a Graphics to draw on
+   * @param offsetX the horizontal offset
+   * @param offsetY the vertical offset
+   * @param screenWidth width of drawing region
+   * @param screenHeight height of drawing region
+   * @param quality quality to draw with
+   * @return the axis mappings, or null if there is no graph
+   */
+  public Mapping[] drawGraph(Graph2D graph, Graphics g, int offsetX, int offsetY, int screenWidth, int screenHeight, Quality quality) {
+    final RenderContext context = context();
+    final Quality previous = context.mQuality;
+    context.mQuality = quality;
+    try {
+      return drawGraph(graph, g, offsetX, offsetY, screenWidth, screenHeight);
+    } finally {
+      context.mQuality = previous;
+    }
   }
 
   /**
@@ -435,10 +798,12 @@ public class GraphicsRenderer extends AbstractRenderer {
    * @param offsetY the vertical offset
    * @param screenWidth width of drawing region
    * @param screenHeight height of drawing region
+   * @return the axis mappings, or null if there is no graph
    */
-  public void drawGraph(Graph2D graph, Graphics g, int offsetX, int offsetY, int screenWidth, int screenHeight) {
+  public Mapping[] drawGraph(Graph2D graph, Graphics g, int offsetX, int offsetY, int screenWidth, int screenHeight) {
     Mapping[] mapping = null;
     setMappings(null);
+    context().mBounds = getImageClip(g);
     if (graph != null) {
       setupAntialiasing(g);
       int sxlo = offsetX;
@@ -471,11 +836,11 @@ public class GraphicsRenderer extends AbstractRenderer {
           // draw x label later when border width is known
         }
         if (graph.uses(Axis.Y, Edge.MAIN) && graph.getLabel(Axis.Y, Edge.MAIN).length() > 0) {
-          g.drawString(graph.getLabel(Axis.Y, Edge.MAIN), sxlo, offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)));
+          drawString(g, sxlo, offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)), graph.getLabel(Axis.Y, Edge.MAIN));
         }
         if (graph.uses(Axis.Y, Edge.ALTERNATE) && graph.getLabel(Axis.Y, Edge.ALTERNATE).length() > 0) {
           final String yLabel = graph.getLabel(Axis.Y, Edge.ALTERNATE);
-          g.drawString(yLabel, sxhi - getTextWidth(g, yLabel), offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)));
+          drawString(g, sxhi - getTextWidth(g, yLabel), offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)), yLabel);
         }
         if ((graph.uses(Axis.X, Edge.ALTERNATE) && graph.getLabel(Axis.X, Edge.ALTERNATE).length() > 0)
             || (graph.uses(Axis.Y, Edge.MAIN) && graph.getLabel(Axis.Y, Edge.MAIN).length() > 0)
@@ -529,14 +894,14 @@ public class GraphicsRenderer extends AbstractRenderer {
         String xLabel;
         if (graph.uses(Axis.X, Edge.MAIN) && (xLabel = graph.getLabel(Axis.X, Edge.MAIN)).length() > 0) {
           final int extra = tHeight + ((graph.uses(Axis.X, Edge.MAIN) && graph.isShowTics(Axis.X, Edge.MAIN)) ? xTicInfo.mMaxHeight : 0);
-          g.drawString(xLabel, (sxhi + sxlo) / 2 - getTextWidth(g, xLabel) / 2, sylo + extra);
+          drawString(g, (sxhi + sxlo) / 2 - getTextWidth(g, xLabel) / 2, sylo + extra, xLabel);
         }
         if (graph.uses(Axis.X, Edge.ALTERNATE) && (xLabel = graph.getLabel(Axis.X, Edge.ALTERNATE)).length() > 0) {
-          g.drawString(xLabel, (sxhi + sxlo) / 2 - getTextWidth(g, xLabel) / 2, offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)));
+          drawString(g, (sxhi + sxlo) / 2 - getTextWidth(g, xLabel) / 2, offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)), xLabel);
         }
         // draw border
         setColor(g, FOREGROUND_COLOR_INDEX);
-        g.drawRect(sxlo, syhi, sxhi - sxlo, sylo - syhi);
+        drawRectangle(g, sxlo, syhi, sxhi - sxlo, sylo - syhi);
       } else {
         drawGraphArea(g, sxlo, sylo, sxhi, syhi);
         mapping = createMappings(graph, sxlo, sylo, sxhi, syhi);
@@ -544,7 +909,7 @@ public class GraphicsRenderer extends AbstractRenderer {
       setColor(g, FOREGROUND_COLOR_INDEX);
       // draw title
       if (title.length() > 0) {
-        g.drawString(title, (sxhi + sxlo) / 2 - g.getFontMetrics().stringWidth(title) / 2, offsetY + tHeight);
+        drawString(g, (sxhi + sxlo) / 2 - g.getFontMetrics().stringWidth(title) / 2, offsetY + tHeight, title);
       }
       // set clip so nothing appears outside border
       setClip(g, sxlo, syhi, sxhi - sxlo + 1, sylo - syhi + 1);
@@ -559,15 +924,17 @@ public class GraphicsRenderer extends AbstractRenderer {
       drawKey(graph, g, offsetX, offsetY, screenWidth, screenHeight, sxlo, sylo, sxhi, syhi);
     }
     setMappings(mapping);
+    return mapping;
   }
 
-  private void setupAntialiasing(Graphics g) {
+  void setupAntialiasing(Graphics g) {
     final Graphics2D g2 = (Graphics2D) g;
-    if (mTextAntialiasing) {
+    final Quality quality = getDrawQuality();
+    if (mTextAntialiasing && quality != Quality.DRAFT) {
       g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
       g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
     }
-    if (mAllAntialiasing) {
+    if (mAllAntialiasing && quality == Quality.PUBLICATION) {
       g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
       g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
       g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
@@ -576,6 +943,11 @@ public class GraphicsRenderer extends AbstractRenderer {
 
   @Override
   protected int calculateKeyWidth(Object canvas, Graph2D graph) {
+    final Object metrics = getMetricsKey(canvas);
+    final KeyLayout layout = mKeyLayout;
+    if (metrics != null && layout != null && layout.matches(metrics, graph)) {
+      return layout.mWidth;
+    }
     int keyWidth = 0;
     final String keyTitle = graph.getKeyTitle();
     if (keyTitle != null) {
@@ -585,18 +957,23 @@ public class GraphicsRenderer extends AbstractRenderer {
       }
     }
     final int keyLineWidth = getKeyLineWidth((Graphics) canvas);
+    final List<String> titles = new ArrayList<>();
     final Plot2D[] plots = graph.getPlots();
     for (int j = 0; j < plots.length; j++) {
       final Plot2D plot = plots[j];
       final String dtitle = plot.getTitle();
       if (dtitle != null && dtitle.length() != 0
-          && plot.getData() != null && plot.getData().length != 0) {
+          && plot.hasData()) {
+        titles.add(dtitle);
         final int sw = getTextWidth(canvas, dtitle) + keyLineWidth + 10;
         if (sw > keyWidth) {
           keyWidth = sw;
         }
       }
     }
+    if (metrics != null) {
+      mKeyLayout = new KeyLayout(metrics, keyTitle, titles.toArray(new String[titles.size()]), keyWidth);
+    }
     return keyWidth;
   }
 
@@ -611,7 +988,7 @@ public class GraphicsRenderer extends AbstractRenderer {
       final Plot2D plot = plots[j];
       final String dtitle = plot.getTitle();
       if (dtitle != null && dtitle.length() != 0
-          && plot.getData() != null && plot.getData().length != 0) {
+          && plot.hasData()) {
         keyHeight++;
       }
     }
@@ -631,14 +1008,14 @@ public class GraphicsRenderer extends AbstractRenderer {
     if (mGraphTopColor != null) {
       if (mGraphBottomColor == null || mGraphBottomColor.equals(mGraphTopColor)) {
         g.setColor(mGraphTopColor);
-        g.fillRect(sxlo, syhi, sxhi - sxlo, sylo - syhi);
+        fillRectangle(g, sxlo, syhi, sxhi - sxlo, sylo - syhi);
       } else {
         try {
           final Graphics2D g2d = (Graphics2D) g;
           final Paint paint = g2d.getPaint();
           final GradientPaint gpaint = new GradientPaint(sxlo, sylo, mGraphBottomColor, sxlo, syhi, mGraphTopColor);
           g2d.setPaint(gpaint);
-          g.fillRect(sxlo, syhi, sxhi - sxlo, sylo - syhi);
+          fillRectangle(g, sxlo, syhi, sxhi - sxlo, sylo - syhi);
           g2d.setPaint(paint);
         } catch (final ClassCastException cce) {
           System.err.println("Graphics rendering problem: " + cce.getMessage());
@@ -651,8 +1028,8 @@ public class GraphicsRenderer extends AbstractRenderer {
     for (int d = 1; d <= mGraphShadowWidth; d++) {
       final float fraction = base + multiplier * d;
       g.setColor(new Color(fraction, fraction, fraction));
-      g.drawLine(sxlo + d, sylo + d, sxhi + d, sylo + d);
-      g.drawLine(sxhi + d, sylo + d, sxhi + d, syhi + d);
+      drawLine(g, sxlo + d, sylo + d, sxhi + d, sylo + d);
+      drawLine(g, sxhi + d, sylo + d, sxhi + d, syhi + d);
     }
   }
 
@@ -681,10 +1058,10 @@ public class GraphicsRenderer extends AbstractRenderer {
             final int y = (int) mapping.worldToScreen(num);
             if (y >= syhi && y <= sylo) {
               if ((whichTic == Edge.ALTERNATE) || !graph.uses(Axis.Y, Edge.ALTERNATE)) {
-                g.drawLine(sxhi, y, sxhi - (j == 1 ? 4 : 2), y);
+                drawLine(g, sxhi, y, sxhi - (j == 1 ? 4 : 2), y);
               }
               if ((whichTic == Edge.MAIN) || !graph.uses(Axis.Y, Edge.MAIN)) {
-                g.drawLine(sxlo, y, sxlo + (j == 1 ? 4 : 2), y);
+                drawLine(g, sxlo, y, sxlo + (j == 1 ? 4 : 2), y);
               }
             }
           }
@@ -693,12 +1070,12 @@ public class GraphicsRenderer extends AbstractRenderer {
           if (y >= syhi && y <= sylo) {
             if (graph.isGrid(Axis.Y, whichTic)) {
               g.setColor(mGridColor);
-              g.drawLine(gridlo, y, gridhi, y);
+              drawLine(g, gridlo, y, gridhi, y);
               setColor(g, FOREGROUND_COLOR_INDEX);
             }
             final String snum = num >= 1 ? yTicInfo.mLabelFormatter.format(num) : "" + num;
             //System.err.println("Y: " + num + " -> " + snum);
-            g.drawString(snum, (whichTic == Edge.ALTERNATE) ? (sxhi + 4) : (sxlo - getTextWidth(g, snum) - 2), y + tHeight / 2 - 2);
+            drawString(g, (whichTic == Edge.ALTERNATE) ? (sxhi + 4) : (sxlo - getTextWidth(g, snum) - 2), y + tHeight / 2 - 2, snum);
           }
         }
       } else {
@@ -709,19 +1086,20 @@ public class GraphicsRenderer extends AbstractRenderer {
 
           if (y >= syhi && y <= sylo) {
             if ((whichTic == Edge.ALTERNATE) || !graph.uses(Axis.Y, Edge.ALTERNATE)) {
-              g.drawLine(sxhi, y, sxhi - 4, y);
+              drawLine(g, sxhi, y, sxhi - 4, y);
             }
             if ((whichTic == Edge.MAIN) || !graph.uses(Axis.Y, Edge.MAIN)) {
-              g.drawLine(sxlo, y, sxlo + 4, y);
+              drawLine(g, sxlo, y, sxlo + 4, y);
             }
             if (graph.isGrid(Axis.Y, whichTic)) {
               g.setColor(mGridColor);
-              g.drawLine(gridlo, y, gridhi, y);
+              drawLine(g, gridlo, y, gridhi, y);
               setColor(g, FOREGROUND_COLOR_INDEX);
             }
 
-            final String snum = yTicInfo.mLabelFormatter.format(num);
-            g.drawString(snum, (whichTic == Edge.ALTERNATE) ? (sxhi + 4) : (sxlo - getTextWidth(g, snum) - 2), y + tHeight / 2 - 2);
+            final String snum = yTicInfo.mLabels[k - yTicInfo.mStart][0];
+            final int width = yTicInfo.mLabelWidths[k - yTicInfo.mStart][0];
+            drawString(g, (whichTic == Edge.ALTERNATE) ? (sxhi + 4) : (sxlo - width - 2), y + tHeight / 2 - 2, snum);
           }
         }
 
@@ -731,10 +1109,10 @@ public class GraphicsRenderer extends AbstractRenderer {
             final int y = (int) mapping.worldToScreen(num);
             if (y >= syhi && y <= sylo) {
               if ((whichTic == Edge.ALTERNATE) || !graph.uses(Axis.Y, Edge.ALTERNATE)) {
-                g.drawLine(sxhi, y, sxhi - 2, y);
+                drawLine(g, sxhi, y, sxhi - 2, y);
               }
               if ((whichTic == Edge.MAIN) || !graph.uses(Axis.Y, Edge.MAIN)) {
-                g.drawLine(sxlo, y, sxlo + 2, y);
+                drawLine(g, sxlo, y, sxlo + 2, y);
               }
             }
           }
@@ -768,10 +1146,10 @@ public class GraphicsRenderer extends AbstractRenderer {
             final int x = (int) mapping.worldToScreen(num);
             if (x >= sxlo && x <= sxhi) {
               if ((whichTic == Edge.MAIN) || !graph.uses(Axis.X, Edge.MAIN)) {
-                g.drawLine(x, sylo, x, sylo - (j == 1 ? 4 : 2));
+                drawLine(g, x, sylo, x, sylo - (j == 1 ? 4 : 2));
               }
               if ((whichTic == Edge.ALTERNATE) || !graph.uses(Axis.X, Edge.ALTERNATE)) {
-                g.drawLine(x, syhi, x, syhi + (j == 1 ? 4 : 2));
+                drawLine(g, x, syhi, x, syhi + (j == 1 ? 4 : 2));
               }
             }
           }
@@ -780,12 +1158,12 @@ public class GraphicsRenderer extends AbstractRenderer {
           if (x >= sxlo && x <= sxhi) {
             if (graph.isGrid(Axis.X, whichTic)) {
               g.setColor(mGridColor);
-              g.drawLine(x, gridlo, x, gridhi);
+              drawLine(g, x, gridlo, x, gridhi);
               setColor(g, FOREGROUND_COLOR_INDEX);
             }
             final String snum = num >= 1 ? xTicInfo.mLabelFormatter.format(num) : "" + num;
             //System.err.println("X: " + num + " -> " + snum);
-            g.drawString(snum, x - getTextWidth(g, snum) / 2, (whichTic == Edge.MAIN) ? (sylo + tHeight) : (syhi - tHeight / 2));
+            drawString(g, x - getTextWidth(g, snum) / 2, (whichTic == Edge.MAIN) ? (sylo + tHeight) : (syhi - tHeight / 2), snum);
           }
         }
       } else {
@@ -795,22 +1173,22 @@ public class GraphicsRenderer extends AbstractRenderer {
 
           if (x >= sxlo && x <= sxhi) {
             if ((whichTic == Edge.MAIN) || !graph.uses(Axis.X, Edge.MAIN)) {
-              g.drawLine(x, sylo, x, sylo - 4);
+              drawLine(g, x, sylo, x, sylo - 4);
             }
             if ((whichTic == Edge.ALTERNATE) || !graph.uses(Axis.X, Edge.ALTERNATE)) {
-              g.drawLine(x, syhi, x, syhi + 4);
+              drawLine(g, x, syhi, x, syhi + 4);
             }
             if (graph.isGrid(Axis.X, whichTic)) {
               g.setColor(mGridColor);
-              g.drawLine(x, gridlo, x, gridhi);
+              drawLine(g, x, gridlo, x, gridhi);
               setColor(g, FOREGROUND_COLOR_INDEX);
             }
 
-            final String snum = xTicInfo.mLabelFormatter.format(num);
-            final String[] nums = snum.split("\n");
+            final String[] nums = xTicInfo.mLabels[k - xTicInfo.mStart];
+            final int[] widths = xTicInfo.mLabelWidths[k - xTicInfo.mStart];
             for (int i = 0; i < nums.length; i++) {
               final String snum2 = nums[i];
-              g.drawString(snum2, x - getTextWidth(g, snum2) / 2, (whichTic == Edge.MAIN) ? (sylo + tHeight + i * tHeight) : (syhi - tHeight / 2 - i * tHeight));
+              drawString(g, x - widths[i] / 2, (whichTic == Edge.MAIN) ? (sylo + tHeight + i * tHeight) : (syhi - tHeight / 2 - i * tHeight), snum2);
             }
           }
         }
@@ -822,10 +1200,10 @@ public class GraphicsRenderer extends AbstractRenderer {
 
             if (x >= sxlo && x <= sxhi) {
               if ((whichTic == Edge.MAIN) || !graph.uses(Axis.X, Edge.MAIN)) {
-                g.drawLine(x, sylo, x, sylo - 2);
+                drawLine(g, x, sylo, x, sylo - 2);
               }
               if ((whichTic == Edge.ALTERNATE) || !graph.uses(Axis.X, Edge.ALTERNATE)) {
-                g.drawLine(x, syhi, x, syhi + 2);
+                drawLine(g, x, syhi, x, syhi + 2);
               }
             }
           }
@@ -892,7 +1270,7 @@ public class GraphicsRenderer extends AbstractRenderer {
       if (keyTitle != null && keyTitle.length() != 0) {
         setColor(g, FOREGROUND_COLOR_INDEX);
         final int yy = keyY + tHeight;
-        g.drawString(keyTitle, keyX + 5, yy);
+        drawString(g, keyX + 5, yy, keyTitle);
       }
       final int cols = keyWidth == 0 ? 0 : Math.max(1, screenWidth / keyWidth);
       final int rows = keyHeight / tHeight;
@@ -908,7 +1286,7 @@ public class GraphicsRenderer extends AbstractRenderer {
             setPointIndex(j);
             plot = plots[j++];
             dtitle = plot.getTitle();
-            if (dtitle == null || dtitle.length() == 0 || plot.getData() == null || plot.getData().length == 0) {
+            if (dtitle == null || dtitle.length() == 0 || !plot.hasData()) {
               dtitle = null;
             }
           }
@@ -923,7 +1301,7 @@ public class GraphicsRenderer extends AbstractRenderer {
             } else {
               setColor(g, FOREGROUND_COLOR_INDEX);
             }
-            g.drawString(dtitle, xx + keyLineWidth + 10, yy);
+            drawString(g, xx + keyLineWidth + 10, yy, dtitle);
             if (!graph.isColoredKey()) {
               setColor(g, plot.getColor());
             }
@@ -944,60 +1322,60 @@ public class GraphicsRenderer extends AbstractRenderer {
               final boolean doLines = lplot.isLines();
               final boolean doPoints = lplot.isPoints();
               if (doFill != FillStyle.NONE) {
-                final Polygon polygon = new Polygon();
+                final Poly polygon = new Poly();
                 polygon.addPoint(keyX5, yy + tHeight / 2 - 1);
                 polygon.addPoint(keyX5 + keyLineWidth / 2, yy - tHeight / 2);
                 polygon.addPoint(keyX5 + keyLineWidth, yy + tHeight / 2 - 1);
-                g.fillPolygon(polygon);
+                fillPolygon(g, polygon.mXs, polygon.mYs, polygon.mSize);
                 if (doBorder) {
                   setColor(g, FOREGROUND_COLOR_INDEX);
-                  g.drawPolygon(polygon);
+                  drawPolygon(g, polygon.mXs, polygon.mYs, polygon.mSize);
                 }
               } else {
                 if (doPoints) {
                   drawPoint(g, keyX5 + keyLineWidth / 2, yy);
                 }
                 if (doLines) {
-                  g.drawLine(keyX5, yy, keyX5 + keyLineWidth, yy);
+                  drawLine(g, keyX5, yy, keyX5 + keyLineWidth, yy);
                 }
-                //g.drawRect(keyX5 + keyLineWidth / 2, yy, 0, 0);
+                //drawRectangle(g, keyX5 + keyLineWidth / 2, yy, 0, 0);
                 if (!doPoints && !doLines) {
-                  g.drawLine(keyX5 + keyLineWidth / 2, yy, keyX5 + keyLineWidth / 2, yy);
+                  drawLine(g, keyX5 + keyLineWidth / 2, yy, keyX5 + keyLineWidth / 2, yy);
                 }
               }
             } else if (plot instanceof ArrowPlot2D) {
               final ArrowPlot2D aplot = (ArrowPlot2D) plot;
-              g.drawLine(keyX5, yy, keyX5 + keyLineWidth, yy);
+              drawLine(g, keyX5, yy, keyX5 + keyLineWidth, yy);
               final Poly p = arrowHead(keyX5, yy, keyX5 + keyLineWidth, yy, aplot.getHeadWidth(), aplot.getHeadHeight(), aplot.getHeadType());
               final int[] xs = p.getXs();
               final int[] ys = p.getYs();
               fillPolygon(g, xs, ys);
               drawPolygon(g, xs, ys);
             } else if (plot instanceof BWPlot2D) {
-              g.drawLine(keyX5, yy, keyX5 + keyLineWidth, yy);
-              g.drawRect(keyX5 + keyLineWidth / 2, yy, 0, 0);
+              drawLine(g, keyX5, yy, keyX5 + keyLineWidth, yy);
+              drawRectangle(g, keyX5 + keyLineWidth / 2, yy, 0, 0);
             } else if (plot instanceof CurvePlot2D) {
               if (doFill != FillStyle.NONE) {
-                g.fillArc(keyX5, yy - tHeight / 4, keyLineWidth, tHeight - 2, 0, 180);
+                fillArc(g, keyX5, yy - tHeight / 4, keyLineWidth, tHeight - 2, 0, 180);
                 if (doBorder) {
                   setColor(g, FOREGROUND_COLOR_INDEX);
-                  g.drawArc(keyX5, yy - tHeight / 4, keyLineWidth, tHeight - 2, 0, 180);
+                  drawArc(g, keyX5, yy - tHeight / 4, keyLineWidth, tHeight - 2, 0, 180);
                 }
               } else {
-                g.drawArc(keyX5, yy - tHeight / 4, keyLineWidth, tHeight - 2, 0, 180);
+                drawArc(g, keyX5, yy - tHeight / 4, keyLineWidth, tHeight - 2, 0, 180);
               }
             } else if (plot instanceof BoxPlot2D) {
               if (doFill != FillStyle.NONE) {
-                g.fillRect(keyX5, yy - tHeight / 2, keyLineWidth, tHeight - 2);
+                fillRectangle(g, keyX5, yy - tHeight / 2, keyLineWidth, tHeight - 2);
                 if (doBorder) {
                   setColor(g, FOREGROUND_COLOR_INDEX);
-                  g.drawRect(keyX5, yy - tHeight / 2, keyLineWidth, tHeight - 2);
+                  drawRectangle(g, keyX5, yy - tHeight / 2, keyLineWidth, tHeight - 2);
                 }
               } else {
-                g.drawRect(keyX5, yy - tHeight / 2, keyLineWidth, tHeight - 2);
+                drawRectangle(g, keyX5, yy - tHeight / 2, keyLineWidth, tHeight - 2);
               }
             } else if (plot instanceof ScatterPlot2D) {
-              g.drawRect(keyX5 + keyLineWidth / 2, yy, 1, 1);
+              drawRectangle(g, keyX5 + keyLineWidth / 2, yy, 1, 1);
             } else if (plot instanceof CirclePlot2D) {
               if (doFill != FillStyle.NONE) {
                 fillCircle(g, keyX5 + 1 + keyLineWidth / 2, yy, tHeight - 2);
@@ -1016,10 +1394,10 @@ public class GraphicsRenderer extends AbstractRenderer {
               final int color = tplot.isUseFGColor() ? FOREGROUND_COLOR_INDEX : tplot.getColor();
               setColor(g, color);
               if (tplot.isInvert()) {
-                g.fillRect(keyX5, yy - tHeight / 2 + fm.getMaxDescent() - 2, sw, tHeight);
+                fillRectangle(g, keyX5, yy - tHeight / 2 + fm.getMaxDescent() - 2, sw, tHeight);
                 setColor(g, BACKGROUND_COLOR_INDEX);
               }
-              g.drawString(text, keyX5, yy + tHeight / 2 - 2);
+              drawString(g, keyX5, yy + tHeight / 2 - 2, text);
             }
             if (s != null) { ((Graphics2D) g).setStroke(s); }
           }
@@ -1038,7 +1416,7 @@ public class GraphicsRenderer extends AbstractRenderer {
         final Graphics g = (Graphics) canvas;
         final Color old = g.getColor();
         g.setColor(new Color((old.getRed() + 255) / 2, (old.getGreen() + 255) / 2, (old.getBlue() + 255) / 2, 127));
-        Polygon polygon = new Polygon();
+        Poly polygon = new Poly();
         for (int i = 0; i < points.length; i++) {
           final BWPoint2D point = (BWPoint2D) points[i];
           final int sptX = (int) convertX.worldToScreen(point.getX());
@@ -1051,10 +1429,10 @@ public class GraphicsRenderer extends AbstractRenderer {
           final int sptY = (int) convertY.worldToScreen(point.getY(4));
           polygon.addPoint(sptX, sptY);
         }
-        g.fillPolygon(polygon);
+        fillPolygon(g, polygon.mXs, polygon.mYs, polygon.mSize);
 
         g.setColor(new Color(old.getRed(), old.getGreen(), old.getBlue(), 96));
-        polygon = new Polygon();
+        polygon = new Poly();
         for (int i = 0; i < points.length; i++) {
           final BWPoint2D point = (BWPoint2D) points[i];
           final int sptX = (int) convertX.worldToScreen(point.getX());
@@ -1067,7 +1445,7 @@ public class GraphicsRenderer extends AbstractRenderer {
           final int sptY = (int) convertY.worldToScreen(point.getY(3));
           polygon.addPoint(sptX, sptY);
         }
-        g.fillPolygon(polygon);
+        fillPolygon(g, polygon.mXs, polygon.mYs, polygon.mSize);
 
         g.setColor(old);
 
@@ -1092,39 +1470,9 @@ public class GraphicsRenderer extends AbstractRenderer {
     }
   }
 
-  private static void drawVerticalString(Graphics g, int x, int y, String text) {
-    final Color transparent = new Color(255, 255, 255, 0);
-    final FontMetrics fontMetrics = g.getFontMetrics();
-    final int width = fontMetrics.stringWidth(text);
-    final int height = fontMetrics.getHeight();
-    BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-    final Graphics g2 = img.getGraphics();
-    g2.setFont(g.getFont());
-    g2.setColor(transparent);
-    g2.fillRect(0, 0, width, height);
-    g2.setColor(g.getColor());
-    g2.drawString(text, 0, fontMetrics.getAscent());
-    img = rotate(img, width, height);
-    g.drawImage(img, x, y, transparent, null);
-  }
-
-  private static BufferedImage rotate(BufferedImage img, int width, int height) {
-    final BufferedImage img2 = new BufferedImage(height, width, BufferedImage.TYPE_INT_ARGB);
-    final int[] pixels = new int[width];
-    for (int i = 0; i < height; i++) {
-      img.getRGB(0, i, width, 1, pixels, 0, width);
-      reverse(pixels);
-      img2.setRGB(i, 0, 1, width, pixels, 0, 1);
-    }
-    return img2;
-  }
-
-  private static void reverse(int[] a) {
-    for (int i = 0; i < a.length / 2; i++) {
-      final int j = a.length - 1 - i;
-      final int temp = a[i];
-      a[i] = a[j];
-      a[j] = temp;
+  private void drawVerticalString(Graphics g, int x, int y, String text) {
+    if (text.length() > 0) {
+      g.drawImage(mTextCache.getVerticalImage(g, text), x, y, TRANSPARENT, null);
     }
   }
 }
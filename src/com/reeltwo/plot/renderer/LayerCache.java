@@ -0,0 +1,142 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.AlphaComposite;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Edge;
+import com.reeltwo.plot.Plot2D;
+
+/**
+ * Images of each plot of a graph, kept between draws so that only the
+ * plots which have changed are drawn again.  Each image reaches from
+ * the origin of the graphics to the far corner of the data area and is
+ * transparent where the plot has not drawn, so the images are
+ * composited in plot order over the background.  An image is drawn
+ * again when its plot's version, axis mappings, position in the graph,
+ * the part of the data area drawn and where it falls on the graphics,
+ * the font, the quality drawn with or the renderer's configuration
+ * change.
+ *
+ * @author Richard Littin
+ */
+final class LayerCache {
+
+  /** A plot drawn on its own image. */
+  private static final class Layer {
+    private long mVersion;
+    private int mIndex;
+    private Mapping mX;
+    private Mapping mY;
+    private final Rectangle mArea = new Rectangle();
+    private final Rectangle mBounds = new Rectangle();
+    private Font mFont;
+    private int mConfig;
+    private GraphicsRenderer.Quality mQuality;
+    private BufferedImage mImage = null;
+
+    boolean matches(Plot2D plot, int index, Mapping x, Mapping y, Rectangle area, Rectangle bounds, Font font, int config, GraphicsRenderer.Quality quality) {
+      return mImage != null && mVersion == plot.getVersion() && mIndex == index && same(mX, x) && same(mY, y)
+        && mArea.equals(area) && mBounds.equals(bounds) && mFont.equals(font) && mConfig == config && mQuality == quality;
+    }
+
+    void draw(GraphicsRenderer renderer, Graphics2D dest, Plot2D plot, int index, Mapping[] mapping, Rectangle bounds, Rectangle pixels) {
+      BufferedImage image = mImage;
+      final int width = pixels.x + pixels.width;
+      final int height = pixels.y + pixels.height;
+      if (image == null || image.getWidth() != width || image.getHeight() != height) {
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        mImage = image;
+      }
+      final Graphics2D g = GraphicsRenderer.createAligned(image, dest, bounds);
+      try {
+        g.setComposite(AlphaComposite.Clear);
+        g.fill(bounds);
+        g.setComposite(AlphaComposite.SrcOver);
+        renderer.setupAntialiasing(g);
+        renderer.drawPlot(g, plot, index, mapping);
+      } finally {
+        g.dispose();
+      }
+    }
+  }
+
+  private Map<Plot2D, Layer> mLayers = new IdentityHashMap<>();
+
+  private static boolean same(Mapping a, Mapping b) {
+    return a.getWorldMin() == b.getWorldMin() && a.getWorldMax() == b.getWorldMax()
+      && a.getScreenMin() == b.getScreenMin() && a.getScreenMax() == b.getScreenMax() && a.isLog() == b.isLog();
+  }
+
+  /**
+   * Draws the plots of a graph from their images, first drawing again
+   * any that are out of date.  Images are only used when the graphics
+   * is not scaled and has a clip around the data area, otherwise
+   * nothing is drawn.
+   *
+   * @param renderer renderer drawing the graph
+   * @param g graphics being drawn on
+   * @param plots plots of the graph
+   * @param mapping axis mappings of the graph
+   * @return true if the plots were drawn
+   */
+  synchronized boolean draw(GraphicsRenderer renderer, Graphics2D g, Plot2D[] plots, Mapping[] mapping) {
+    final Rectangle bounds = renderer.getPixelClip(g);
+    if (bounds == null) {
+      return false;
+    }
+    renderer.assignColors(plots);
+    final AffineTransform t = g.getTransform();
+    // the data area in pixels of the graphics
+    final Rectangle pixels = new Rectangle(bounds);
+    pixels.translate((int) t.getTranslateX(), (int) t.getTranslateY());
+    final Font font = g.getFont();
+    final int config = renderer.getConfigVersion();
+    final GraphicsRenderer.Quality quality = renderer.getDrawQuality();
+    final Map<Plot2D, Layer> layers = new IdentityHashMap<>();
+    for (int j = 0; j < plots.length; j++) {
+      final Plot2D plot = plots[j];
+      final Mapping x = mapping[2 * (plot.uses(Axis.X, Edge.MAIN) ? 0 : 1)];
+      final Mapping y = mapping[2 * (plot.uses(Axis.Y, Edge.MAIN) ? 0 : 1) + 1];
+      Layer layer = mLayers.get(plot);
+      if (layer == null) {
+        layer = new Layer();
+      }
+      if (!layer.matches(plot, j, x, y, bounds, pixels, font, config, quality)) {
+        layer.draw(renderer, g, plot, j, mapping, bounds, pixels);
+        if (AbstractRenderer.isCancelled()) {
+          // a partly drawn plot is not kept
+          continue;
+        }
+        layer.mVersion = plot.getVersion();
+        layer.mIndex = j;
+        layer.mX = x;
+        layer.mY = y;
+        layer.mArea.setBounds(bounds);
+        layer.mBounds.setBounds(pixels);
+        layer.mFont = font;
+        layer.mConfig = config;
+        layer.mQuality = quality;
+      }
+      layers.put(plot, layer);
+      g.drawImage(layer.mImage.getSubimage(pixels.x, pixels.y, pixels.width, pixels.height), bounds.x, bounds.y, null);
+    }
+    // plots no longer in the graph are forgotten
+    mLayers = layers;
+    renderer.setLineWidth(g, 1);
+    return true;
+  }
+
+  /**
+   * Forgets all plot images.
+   */
+  synchronized void clear() {
+    mLayers = new IdentityHashMap<>();
+  }
+}
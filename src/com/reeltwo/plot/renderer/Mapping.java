@@ -14,6 +14,9 @@ public class Mapping {
   private final float mWmin, mWmax, mSmin, mSmax;
   // whether to take logs on world values
   private boolean mLog = false;
+  // screen and world spans, multiplied and divided in that order so
+  // results truncate the same way whichever transform is used
+  private final float mSrange, mWrange;
 
 
   /**
@@ -61,6 +64,19 @@ public class Mapping {
     mWmax = mLog ? (float) PlotUtils.log10(worldMax) : worldMax;
     mSmin = screenMin;
     mSmax = screenMax;
+    mSrange = mSmax - mSmin;
+    mWrange = mWmax - mWmin;
+  }
+
+
+  /**
+   * Returns whether a {@code log}<sub>10</sub> transformation is
+   * performed on world values.
+   *
+   * @return true if world values are logged
+   */
+  public boolean isLog() {
+    return mLog;
   }
 
 
@@ -113,7 +129,85 @@ public class Mapping {
    */
   public float worldToScreen(float p) {
     final float p2 = mLog ? (float) PlotUtils.log10(p) : p;
-    return mSmin + (p2 - mWmin) * (mSmax - mSmin) / (mWmax - mWmin);
+    return mSmin + (p2 - mWmin) * mSrange / mWrange;
+  }
+
+
+  /**
+   * Transforms <code>len</code> world co-ordinates starting at
+   * <code>off</code> in <code>src</code> to screen co-ordinates,
+   * truncated to integers and stored from the start of
+   * <code>dst</code>.  Gives the same results as calling {@link
+   * #worldToScreen(float)} on each value.
+   *
+   * @param src world co-ordinates
+   * @param off index of first co-ordinate to transform
+   * @param len number of co-ordinates to transform
+   * @param dst array to receive screen co-ordinates
+   */
+  public void worldToScreen(float[] src, int off, int len, int[] dst) {
+    final float wmin = mWmin;
+    final float smin = mSmin;
+    final float srange = mSrange;
+    final float wrange = mWrange;
+    if (mLog) {
+      for (int i = 0; i < len; i++) {
+        dst[i] = (int) (smin + ((float) PlotUtils.log10(src[off + i]) - wmin) * srange / wrange);
+      }
+    } else {
+      for (int i = 0; i < len; i++) {
+        dst[i] = (int) (smin + (src[off + i] - wmin) * srange / wrange);
+      }
+    }
+  }
+
+
+  /**
+   * Transforms <code>len</code> world co-ordinates starting at
+   * <code>off</code> in <code>src</code> to screen co-ordinates
+   * stored from the start of <code>dst</code>.
+   *
+   * @param src world co-ordinates
+   * @param off index of first co-ordinate to transform
+   * @param len number of co-ordinates to transform
+   * @param dst array to receive screen co-ordinates
+   */
+  public void worldToScreen(float[] src, int off, int len, float[] dst) {
+    final float wmin = mWmin;
+    final float smin = mSmin;
+    final float srange = mSrange;
+    final float wrange = mWrange;
+    if (mLog) {
+      for (int i = 0; i < len; i++) {
+        dst[i] = smin + ((float) PlotUtils.log10(src[off + i]) - wmin) * srange / wrange;
+      }
+    } else {
+      for (int i = 0; i < len; i++) {
+        dst[i] = smin + (src[off + i] - wmin) * srange / wrange;
+      }
+    }
+  }
+
+
+  /**
+   * Transforms world co-ordinates that have already had the {@code
+   * log}<sub>10</sub> transformation of a log mapping applied, as
+   * {@link #worldToScreen(float[], int, int, int[])} does for
+   * untransformed values.
+   *
+   * @param src {@code log}<sub>10</sub> of world co-ordinates
+   * @param off index of first co-ordinate to transform
+   * @param len number of co-ordinates to transform
+   * @param dst array to receive screen co-ordinates
+   */
+  public void logWorldToScreen(float[] src, int off, int len, int[] dst) {
+    final float wmin = mWmin;
+    final float smin = mSmin;
+    final float srange = mSrange;
+    final float wrange = mWrange;
+    for (int i = 0; i < len; i++) {
+      dst[i] = (int) (smin + (src[off + i] - wmin) * srange / wrange);
+    }
   }
 
 
@@ -0,0 +1,833 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Stroke;
+import java.awt.TexturePaint;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import com.reeltwo.plot.Graph2D;
+
+/**
+ * Code to render a Graph2D object straight to a single page PDF
+ * document.  The layout is exactly that of
+ * <code>GraphicsRenderer</code>, with one point per pixel.  Drawing
+ * operators are compressed and written to the output as they are
+ * issued, so the memory used does not grow with the amount of data
+ * plotted.  Point markers, fonts and patterns are each defined once
+ * and shared by every use.  Like <code>GraphicsRenderer</code>, a
+ * configured renderer can write graphs on several threads at once.
+ *
+ * @author Richard Littin
+ */
+public class PdfRenderer extends StreamingRenderer {
+  /** the point markers of GraphicsRenderer, centred on the origin */
+  private static final String[] MARKERS = {
+    "0 -2 m 2 0 l 0 2 l -2 0 l h S",                                              // diamond
+    "-2 0 m 2 0 l 0 -2 m 0 2 l S",                                               // plus
+    "-2 -2 4 4 re S",                                                             // square
+    "-2 -2 m 2 2 l 2 -2 m -2 2 l S",                                              // cross
+    "0 -2 m 2 2 l -2 2 l h S",                                                    // triangle
+    "-2 0 m 2 0 l 0 -2 m 0 2 l -2 -2 m 2 2 l 2 -2 m -2 2 l S",                    // star
+  };
+
+  /**
+   * Creates a new <code>PdfRenderer</code>.
+   */
+  public PdfRenderer() {
+    super();
+  }
+
+  /**
+   * Creates a new <code>PdfRenderer</code> setting the
+   * <code>colors</code> to use.
+   *
+   * @param colors an array of <code>Color</code>s
+   */
+  public PdfRenderer(Color[] colors) {
+    super(colors);
+  }
+
+  /**
+   * Creates a new <code>PdfRenderer</code> setting the
+   * <code>colors</code> and <code>patterns</code> to use.
+   *
+   * @param colors an array of <code>Color</code>s
+   * @param patterns an array of patterns
+   */
+  public PdfRenderer(Color[] colors, Paint[] patterns) {
+    super(colors, patterns);
+  }
+
+  /**
+   * Writes the given graph to a stream as a PDF document with a single
+   * page of the given dimensions, in points.  The graph is drawn
+   * <code>inset</code> units in from each edge of the page.  The
+   * stream is flushed but not closed.  The mappings from world to
+   * screen data points for each axis pair is returned (in order
+   * {@code x1,y1,x2,y2},...).
+   *
+   * @param graph the Graph2D to draw
+   * @param os stream to write to
+   * @param width width of the page
+   * @param height height of the page
+   * @param inset space to leave around the graph
+   * @param font font to use, or null for the default font
+   * @return the axis mappings, or null if there is no graph
+   * @exception IOException if an error occurs writing to the stream
+   */
+  public Mapping[] drawGraph(Graph2D graph, OutputStream os, int width, int height, int inset, Font font) throws IOException {
+    return write(graph, null, os, width, height, inset, font);
+  }
+
+  /**
+   * Writes a recorded graph to a stream as a single page PDF document.  The
+   * recording is drawn <code>inset</code> units in from each edge of
+   * a page of its size plus the insets.  The stream is flushed but
+   * not closed.  The mappings from world to screen data points for
+   * each axis pair is returned (in order {@code x1,y1,x2,y2},...).
+   *
+   * @param list the recorded graph
+   * @param os stream to write to
+   * @param inset space to leave around the graph
+   * @return the axis mappings, or null if no graph was recorded
+   * @exception IOException if an error occurs writing to the stream
+   */
+  public Mapping[] drawGraph(DisplayList list, OutputStream os, int inset) throws IOException {
+    if (list == null) {
+      throw new NullPointerException("null display list given.");
+    }
+    return write(null, list, os, list.getWidth() + 2 * inset, list.getHeight() + 2 * inset, inset, null);
+  }
+
+  @Override
+  Output open(OutputStream os, int width, int height) {
+    return new PdfOutput(os, width, height);
+  }
+
+
+  /** Counts the bytes written, for the cross reference table. */
+  private static final class CountingStream extends FilterOutputStream {
+    private long mCount = 0;
+
+    CountingStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      mCount++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      mCount += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+      // the caller's stream is left open
+      flush();
+    }
+  }
+
+
+  /**
+   * A PDF document being written.  The page content is a single
+   * compressed stream written as drawing proceeds.  Fonts, markers,
+   * patterns and transparency settings are given names as they are
+   * first used and defined after the content, together with the
+   * objects describing the page.
+   */
+  private static final class PdfOutput implements Output {
+    static final int NONE = 0;
+    static final int STROKE = 1;
+    static final int FILL = 2;
+    static final int TEXT = 3;
+
+    private static final int BUFFER_SIZE = 8192;
+    /** control point distance for a quarter circle of unit radius */
+    private static final double KAPPA = 0.5522847498;
+
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int PAGE = 3;
+    private static final int CONTENT = 4;
+    private static final int CONTENT_LENGTH = 5;
+
+    private final CountingStream mOut;
+    private final int mWidth;
+    private final int mHeight;
+    private final Deflater mDeflater = new Deflater(Deflater.BEST_SPEED);
+    private OutputStream mContent = null;
+    /** first error writing content, reported when the page is finished */
+    private IOException mError = null;
+    private long mContentStart;
+    private final StringBuilder mBuffer = new StringBuilder(BUFFER_SIZE + 256);
+    private final byte[] mBytes = new byte[BUFFER_SIZE + 256];
+    private final List<Long> mOffsets = new ArrayList<>();
+
+    /** resource name to object number, by resource type */
+    private final Map<String, Integer> mFonts = new LinkedHashMap<>();
+    private final Map<Integer, String> mFontNames = new HashMap<>();
+    private final Map<String, Integer> mMarkers = new LinkedHashMap<>();
+    private final Map<String, Integer> mStates = new LinkedHashMap<>();
+    private final Map<Integer, String> mStateNames = new HashMap<>();
+    private final Map<Paint, String> mPatternNames = new IdentityHashMap<>();
+    private final Map<String, Paint> mPatterns = new LinkedHashMap<>();
+
+    private boolean mClipped = false;
+    private int mClipX;
+    private int mClipY;
+    private int mClipW;
+    private int mClipH;
+
+    /** style of the open group */
+    private int mKind = NONE;
+    private Paint mPaint = null;
+    private Stroke mStroke = null;
+    private Font mFont = null;
+    /** whether shapes may be added to the path under construction */
+    private boolean mMerge = false;
+    private boolean mPathOpen = false;
+
+    PdfOutput(OutputStream os, int width, int height) {
+      mOut = new CountingStream(os);
+      mWidth = width;
+      mHeight = height;
+    }
+
+    @Override
+    public void begin(int width, int height) throws IOException {
+      mOffsets.add(0L);
+      for (int i = CATALOG; i <= CONTENT_LENGTH; i++) {
+        mOffsets.add(-1L);
+      }
+      // the comment of high bytes marks the file as binary
+      writeRaw("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+      beginObject(CONTENT);
+      writeRaw("<</Length " + CONTENT_LENGTH + " 0 R/Filter/FlateDecode>>\nstream\n");
+      mContentStart = mOut.mCount;
+      mContent = new DeflaterOutputStream(mOut, mDeflater, BUFFER_SIZE);
+      // work in pixels from the top left, as java.awt does
+      append("1 0 0 -1 0 ").number(height).append(" cm\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+      endGroup();
+      if (mClipped) {
+        append("Q\n");
+        mClipped = false;
+      }
+      flush();
+      if (mError != null) {
+        mDeflater.end();
+        throw mError;
+      }
+      mContent.close();
+      mDeflater.end();
+      final long length = mOut.mCount - mContentStart;
+      writeRaw("\nendstream\nendobj\n");
+      beginObject(CONTENT_LENGTH);
+      writeRaw(length + "\nendobj\n");
+
+      final StringBuilder resources = new StringBuilder("<</ProcSet[/PDF/Text/ImageC]");
+      if (!mFonts.isEmpty()) {
+        resources.append("/Font<<");
+        for (final Map.Entry<String, Integer> e : mFonts.entrySet()) {
+          resources.append('/').append(e.getKey()).append(' ').append(e.getValue()).append(" 0 R");
+          beginObject(e.getValue());
+          writeRaw("<</Type/Font/Subtype/Type1/BaseFont/" + mFontNames.get(e.getValue()) + "/Encoding/WinAnsiEncoding>>\nendobj\n");
+        }
+        resources.append(">>");
+      }
+      if (!mMarkers.isEmpty()) {
+        resources.append("/XObject<<");
+        for (final Map.Entry<String, Integer> e : mMarkers.entrySet()) {
+          resources.append('/').append(e.getKey()).append(' ').append(e.getValue()).append(" 0 R");
+          final String marker = MARKERS[Integer.parseInt(e.getKey().substring(1))];
+          beginObject(e.getValue());
+          writeRaw("<</Type/XObject/Subtype/Form/BBox[-64 -64 64 64]/Length " + marker.length() + ">>\nstream\n" + marker + "\nendstream\nendobj\n");
+        }
+        resources.append(">>");
+      }
+      if (!mStates.isEmpty()) {
+        resources.append("/ExtGState<<");
+        for (final Map.Entry<String, Integer> e : mStates.entrySet()) {
+          resources.append('/').append(e.getKey()).append(' ').append(e.getValue()).append(" 0 R");
+          beginObject(e.getValue());
+          writeRaw("<</Type/ExtGState" + mStateNames.get(e.getValue()) + ">>\nendobj\n");
+        }
+        resources.append(">>");
+      }
+      if (!mPatterns.isEmpty()) {
+        resources.append("/Pattern<<");
+        for (final Map.Entry<String, Paint> e : mPatterns.entrySet()) {
+          final int id = writePattern(e.getValue());
+          resources.append('/').append(e.getKey()).append(' ').append(id).append(" 0 R");
+        }
+        resources.append(">>");
+      }
+      resources.append(">>");
+
+      beginObject(PAGE);
+      writeRaw("<</Type/Page/Parent " + PAGES + " 0 R/MediaBox[0 0 " + mWidth + " " + mHeight + "]/Resources" + resources + "/Contents " + CONTENT + " 0 R>>\nendobj\n");
+      beginObject(PAGES);
+      writeRaw("<</Type/Pages/Kids[" + PAGE + " 0 R]/Count 1>>\nendobj\n");
+      beginObject(CATALOG);
+      writeRaw("<</Type/Catalog/Pages " + PAGES + " 0 R>>\nendobj\n");
+
+      final long xref = mOut.mCount;
+      final StringBuilder table = new StringBuilder();
+      table.append("xref\n0 ").append(mOffsets.size()).append("\n0000000000 65535 f \n");
+      for (int i = 1; i < mOffsets.size(); i++) {
+        final String offset = String.valueOf(mOffsets.get(i));
+        table.append("0000000000", offset.length(), 10).append(offset).append(" 00000 n \n");
+      }
+      table.append("trailer\n<</Size ").append(mOffsets.size()).append("/Root ").append(CATALOG).append(" 0 R>>\nstartxref\n").append(xref).append("\n%%EOF\n");
+      writeRaw(table.toString());
+      mOut.flush();
+    }
+
+    private int allocate() {
+      mOffsets.add(-1L);
+      return mOffsets.size() - 1;
+    }
+
+    private void beginObject(int id) throws IOException {
+      mOffsets.set(id, mOut.mCount);
+      writeRaw(id + " 0 obj\n");
+    }
+
+    private void writeRaw(String s) throws IOException {
+      final byte[] b = new byte[s.length()];
+      for (int i = 0; i < b.length; i++) {
+        b[i] = (byte) s.charAt(i);
+      }
+      mOut.write(b, 0, b.length);
+    }
+
+    private void writeStream(String dictionary, byte[] data) throws IOException {
+      writeRaw("<<" + dictionary + "/Length " + data.length + ">>\nstream\n");
+      mOut.write(data, 0, data.length);
+      writeRaw("\nendstream\nendobj\n");
+    }
+
+    private int writePattern(Paint paint) throws IOException {
+      // pattern space is that of the page, so each pattern is flipped to match the content
+      final int id = allocate();
+      if (paint instanceof GradientPaint) {
+        final GradientPaint gp = (GradientPaint) paint;
+        beginObject(id);
+        writeRaw("<</Type/Pattern/PatternType 2/Matrix[1 0 0 -1 0 " + mHeight + "]/Shading<</ShadingType 2/ColorSpace/DeviceRGB/Coords["
+                 + format(gp.getPoint1().getX()) + " " + format(gp.getPoint1().getY()) + " " + format(gp.getPoint2().getX()) + " " + format(gp.getPoint2().getY())
+                 + "]/Function<</FunctionType 2/Domain[0 1]/C0[" + rgb(gp.getColor1()) + "]/C1[" + rgb(gp.getColor2()) + "]/N 1>>/Extend[true true]>>>>\nendobj\n");
+      } else {
+        final TexturePaint tp = (TexturePaint) paint;
+        final Rectangle2D r = tp.getAnchorRect();
+        final BufferedImage image = tp.getImage();
+        final int iw = image.getWidth();
+        final int ih = image.getHeight();
+        final byte[] pixels = new byte[iw * ih * 3];
+        for (int y = 0, k = 0; y < ih; y++) {
+          for (int x = 0; x < iw; x++) {
+            final int rgb = image.getRGB(x, y);
+            pixels[k++] = (byte) (rgb >> 16);
+            pixels[k++] = (byte) (rgb >> 8);
+            pixels[k++] = (byte) rgb;
+          }
+        }
+        final int imageId = allocate();
+        final String w = format(r.getWidth());
+        final String h = format(r.getHeight());
+        final String content = "q " + w + " 0 0 -" + h + " 0 " + h + " cm/I0 Do Q";
+        beginObject(id);
+        writeStream("/Type/Pattern/PatternType 1/PaintType 1/TilingType 1/BBox[0 0 " + w + " " + h + "]/XStep " + w + "/YStep " + h
+                    + "/Matrix[1 0 0 -1 " + format(r.getX()) + " " + format(mHeight - r.getY()) + "]/Resources<</XObject<</I0 " + imageId + " 0 R>>>>",
+                    content.getBytes("US-ASCII"));
+        beginObject(imageId);
+        writeStream("/Type/XObject/Subtype/Image/Width " + iw + "/Height " + ih + "/ColorSpace/DeviceRGB/BitsPerComponent 8/Filter/FlateDecode", deflate(pixels));
+      }
+      return id;
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+      final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      try (DeflaterOutputStream dos = new DeflaterOutputStream(bos)) {
+        dos.write(data);
+      }
+      return bos.toByteArray();
+    }
+
+    @Override
+    public void clip(int x, int y, int w, int h) {
+      if (mClipped && x == mClipX && y == mClipY && w == mClipW && h == mClipH) {
+        return;
+      }
+      endGroup();
+      if (mClipped) {
+        append("Q\n");
+      }
+      append("q ").number(x).append(' ').number(y).append(' ').number(w).append(' ').number(h).append(" re W n\n");
+      mClipped = true;
+      mClipX = x;
+      mClipY = y;
+      mClipW = w;
+      mClipH = h;
+    }
+
+    @Override
+    public void drawString(Graphics2D g, int x, int y, String text, boolean isVertical) {
+      style(g, TEXT);
+      // the page is flipped, so text is flipped back
+      if (isVertical) {
+        // match GraphicsRenderer, whose rotated text has its top left corner at x, y
+        final FontMetrics fm = g.getFontMetrics();
+        append("BT 0 -1 -1 0 ").number(x + fm.getAscent()).append(' ').number(y + fm.stringWidth(text));
+      } else {
+        append("BT 1 0 0 -1 ").number(x).append(' ').number(y);
+      }
+      append(" Tm").string(text).append("Tj ET\n");
+    }
+
+    @Override
+    public void drawLine(Graphics2D g, int x1, int y1, int x2, int y2) {
+      path(g, STROKE);
+      line(x1, y1, x2, y2);
+      endPath();
+    }
+
+    @Override
+    public void drawPoint(Graphics2D g, int index, int x, int y) {
+      style(g, STROKE);
+      marker(index % MARKERS.length, x, y);
+    }
+
+    @Override
+    public void drawRectangle(Graphics2D g, int x, int y, int w, int h) {
+      path(g, STROKE);
+      if (w > 0 && h > 0) {
+        rectangle(x, y, w, h);
+      } else {
+        line(x, y, x + w, y + h);
+      }
+      endPath();
+    }
+
+    @Override
+    public void fillRectangle(Graphics2D g, int x, int y, int w, int h) {
+      path(g, FILL);
+      rectangle(x, y, w, h);
+      endPath();
+    }
+
+    @Override
+    public void drawCircle(Graphics2D g, int x, int y, int diameter) {
+      path(g, STROKE);
+      ellipse((int) (x - diameter / 2.0f), (int) (y - diameter / 2.0f), diameter, diameter, 0, 360, false);
+      endPath();
+    }
+
+    @Override
+    public void fillCircle(Graphics2D g, int x, int y, int diameter) {
+      path(g, FILL);
+      ellipse((int) (x - diameter / 2.0f), (int) (y - diameter / 2.0f), diameter, diameter, 0, 360, false);
+      endPath();
+    }
+
+    @Override
+    public void drawPolygon(Graphics2D g, int[] xs, int[] ys, int n) {
+      path(g, STROKE);
+      poly(xs, ys, n, true);
+      endPath();
+    }
+
+    @Override
+    public void fillPolygon(Graphics2D g, int[] xs, int[] ys, int n) {
+      path(g, FILL);
+      poly(xs, ys, n, true);
+      endPath();
+    }
+
+    @Override
+    public void drawPolyline(Graphics2D g, int[] xs, int[] ys, int n) {
+      path(g, STROKE);
+      poly(xs, ys, n, false);
+      endPath();
+    }
+
+    @Override
+    public void drawArc(Graphics2D g, int x, int y, int w, int h, int start, int extent) {
+      path(g, STROKE);
+      ellipse(x, y, w, h, start, extent, false);
+      endPath();
+    }
+
+    @Override
+    public void fillArc(Graphics2D g, int x, int y, int w, int h, int start, int extent) {
+      path(g, FILL);
+      ellipse(x, y, w, h, start, extent, true);
+      endPath();
+    }
+
+    /**
+     * Makes sure the open group matches the current state of the
+     * graphics for the given kind of drawing, starting a new group if
+     * it does not.
+     */
+    void style(Graphics2D g, int kind) {
+      closePath();
+      if (matches(g, kind)) {
+        return;
+      }
+      endGroup();
+      final Paint paint = g.getPaint();
+      final Stroke stroke = g.getStroke();
+      final Font font = g.getFont();
+      append('q');
+      if (kind == STROKE) {
+        // centre lines on pixels as java.awt does
+        append(" 1 0 0 1 .5 .5 cm");
+      }
+      final boolean stroking = kind == STROKE;
+      if (paint instanceof Color || !(paint instanceof GradientPaint || paint instanceof TexturePaint)) {
+        final Color color = paint instanceof Color ? (Color) paint : g.getColor();
+        append(' ').append(rgb(color)).append(stroking ? " RG" : " rg");
+        if (color.getAlpha() != 255) {
+          final String alpha = format(color.getAlpha() / 255.0);
+          final String state = "/CA " + alpha + "/ca " + alpha;
+          String name = null;
+          for (final Map.Entry<String, Integer> e : mStates.entrySet()) {
+            if (mStateNames.get(e.getValue()).equals(state)) {
+              name = e.getKey();
+            }
+          }
+          if (name == null) {
+            name = "G" + mStates.size();
+            final int id = allocate();
+            mStates.put(name, id);
+            mStateNames.put(id, state);
+          }
+          append(" /").append(name).append(" gs");
+        }
+      } else {
+        String name = mPatternNames.get(paint);
+        if (name == null) {
+          name = "P" + mPatterns.size();
+          mPatternNames.put(paint, name);
+          mPatterns.put(name, paint);
+        }
+        append(stroking ? " /Pattern CS /" : " /Pattern cs /").append(name).append(stroking ? " SCN" : " scn");
+      }
+      if (kind == STROKE) {
+        strokeStyle(stroke);
+      } else if (kind == TEXT) {
+        append(" /").append(font(font)).append(' ').number(font.getSize2D()).append(" Tf");
+      }
+      append('\n');
+      mKind = kind;
+      mPaint = paint;
+      mStroke = stroke;
+      mFont = font;
+      // overlapping translucent lines must stay separate to blend as they do on screen
+      mMerge = kind == STROKE && (!(paint instanceof Color) || ((Color) paint).getAlpha() == 255);
+    }
+
+    private boolean matches(Graphics2D g, int kind) {
+      return kind == mKind && g.getPaint().equals(mPaint)
+        && (kind != STROKE || g.getStroke().equals(mStroke))
+        && (kind != TEXT || g.getFont().equals(mFont));
+    }
+
+    private void endGroup() {
+      closePath();
+      if (mKind != NONE) {
+        append("Q\n");
+        mKind = NONE;
+      }
+    }
+
+    private void strokeStyle(Stroke stroke) {
+      if (stroke instanceof BasicStroke) {
+        final BasicStroke bs = (BasicStroke) stroke;
+        if (bs.getLineWidth() != 1.0f) {
+          append(' ').number(bs.getLineWidth()).append(" w");
+        }
+        // java.awt and PDF number caps and joins differently
+        switch (bs.getEndCap()) {
+        case BasicStroke.CAP_ROUND:
+          append(" 1 J");
+          break;
+        case BasicStroke.CAP_SQUARE:
+          append(" 2 J");
+          break;
+        default:
+          break;
+        }
+        switch (bs.getLineJoin()) {
+        case BasicStroke.JOIN_ROUND:
+          append(" 1 j");
+          break;
+        case BasicStroke.JOIN_BEVEL:
+          append(" 2 j");
+          break;
+        default:
+          break;
+        }
+        final float[] dashes = bs.getDashArray();
+        if (dashes != null) {
+          append(" [");
+          for (int i = 0; i < dashes.length; i++) {
+            if (i > 0) {
+              append(' ');
+            }
+            number(dashes[i]);
+          }
+          append("] ").number(bs.getDashPhase()).append(" d");
+        }
+      }
+    }
+
+    /** Returns the resource name of the standard font closest to the given font. */
+    private String font(Font font) {
+      final String family;
+      switch (font.getFamily()) {
+      case Font.SERIF:
+        family = font.isBold() ? font.isItalic() ? "Times-BoldItalic" : "Times-Bold" : font.isItalic() ? "Times-Italic" : "Times-Roman";
+        break;
+      case Font.MONOSPACED:
+      case Font.DIALOG_INPUT:
+        family = "Courier" + (font.isBold() ? font.isItalic() ? "-BoldOblique" : "-Bold" : font.isItalic() ? "-Oblique" : "");
+        break;
+      default:
+        family = "Helvetica" + (font.isBold() ? font.isItalic() ? "-BoldOblique" : "-Bold" : font.isItalic() ? "-Oblique" : "");
+        break;
+      }
+      for (final Map.Entry<Integer, String> e : mFontNames.entrySet()) {
+        if (e.getValue().equals(family)) {
+          for (final Map.Entry<String, Integer> f : mFonts.entrySet()) {
+            if (f.getValue().equals(e.getKey())) {
+              return f.getKey();
+            }
+          }
+        }
+      }
+      final String name = "F" + mFonts.size();
+      final int id = allocate();
+      mFonts.put(name, id);
+      mFontNames.put(id, family);
+      return name;
+    }
+
+    private static String rgb(Color c) {
+      return format(c.getRed() / 255.0, 1000) + " " + format(c.getGreen() / 255.0, 1000) + " " + format(c.getBlue() / 255.0, 1000);
+    }
+
+    /**
+     * Starts a shape of the given kind.  Stroked shapes of the same
+     * style are added to a single path, which is painted when
+     * something else is drawn.
+     */
+    void path(Graphics2D g, int kind) {
+      if (!(mPathOpen && matches(g, kind))) {
+        style(g, kind);
+        mPathOpen = true;
+      }
+    }
+
+    void endPath() {
+      if (!mMerge) {
+        closePath();
+      }
+    }
+
+    private void closePath() {
+      if (mPathOpen) {
+        append(mKind == STROKE ? " S\n" : " f*\n");
+        mPathOpen = false;
+      }
+    }
+
+    void marker(int marker, int x, int y) {
+      final String name = "M" + marker;
+      if (!mMarkers.containsKey(name)) {
+        mMarkers.put(name, allocate());
+      }
+      append("q 1 0 0 1 ").number(x).append(' ').number(y).append(" cm/").append(name).append(" Do Q\n");
+    }
+
+    void line(int x1, int y1, int x2, int y2) {
+      append(' ').number(x1).append(' ').number(y1).append(" m ");
+      if (x1 == x2 && y1 == y2) {
+        // PDF paints no square cap on a line of no length, java.awt paints a point
+        number(x2 + 0.01);
+      } else {
+        number(x2);
+      }
+      append(' ').number(y2).append(" l");
+    }
+
+    void rectangle(int x, int y, int w, int h) {
+      append(' ').number(x).append(' ').number(y).append(' ').number(w).append(' ').number(h).append(" re");
+    }
+
+    void poly(int[] xs, int[] ys, int n, boolean closed) {
+      append(' ').number(xs[0]).append(' ').number(ys[0]).append(" m");
+      boolean moved = false;
+      for (int i = 1; i < n; i++) {
+        if (xs[i] != xs[i - 1] || ys[i] != ys[i - 1]) {
+          append(' ').number(xs[i]).append(' ').number(ys[i]).append(" l");
+          moved = true;
+        }
+      }
+      if (closed) {
+        append(" h");
+      } else if (!moved) {
+        append(' ').number(xs[0] + 0.01).append(' ').number(ys[0]).append(" l");
+      }
+    }
+
+    /**
+     * Adds part of the ellipse in the given bounds as Bezier curves of
+     * at most a quarter turn each.  Angles are in degrees
+     * counter-clockwise on the screen.
+     */
+    void ellipse(int x, int y, int w, int h, int start, int extent, boolean pie) {
+      final double rx = w / 2.0;
+      final double ry = h / 2.0;
+      final double cx = x + rx;
+      final double cy = y + ry;
+      final double sweep = Math.toRadians(Math.max(-360, Math.min(360, extent)));
+      final int segments = Math.max(1, (int) Math.ceil(Math.abs(sweep) / (Math.PI / 2) - 1e-9));
+      final double step = sweep / segments;
+      final double k = 4.0 / 3.0 * Math.tan(step / 4);
+      double a = Math.toRadians(start);
+      if (pie) {
+        append(' ').number(cx).append(' ').number(cy).append(" m ").number(cx + rx * Math.cos(a)).append(' ').number(cy - ry * Math.sin(a)).append(" l");
+      } else {
+        append(' ').number(cx + rx * Math.cos(a)).append(' ').number(cy - ry * Math.sin(a)).append(" m");
+      }
+      for (int i = 0; i < segments; i++) {
+        final double b = a + step;
+        append(' ').number(cx + rx * (Math.cos(a) - k * Math.sin(a))).append(' ').number(cy - ry * (Math.sin(a) + k * Math.cos(a)));
+        append(' ').number(cx + rx * (Math.cos(b) + k * Math.sin(b))).append(' ').number(cy - ry * (Math.sin(b) - k * Math.cos(b)));
+        append(' ').number(cx + rx * Math.cos(b)).append(' ').number(cy - ry * Math.sin(b)).append(" c");
+        a = b;
+      }
+      if (pie || Math.abs(extent) >= 360) {
+        append(" h");
+      }
+    }
+
+    PdfOutput append(String s) {
+      mBuffer.append(s);
+      return flushIfFull();
+    }
+
+    PdfOutput append(char c) {
+      mBuffer.append(c);
+      return flushIfFull();
+    }
+
+    PdfOutput number(int v) {
+      mBuffer.append(v);
+      return flushIfFull();
+    }
+
+    PdfOutput number(double v) {
+      mBuffer.append(format(v));
+      return flushIfFull();
+    }
+
+    private static String format(double v) {
+      return format(v, 100);
+    }
+
+    /** Formats a number to the given fraction of a unit, without trailing zeros. */
+    private static String format(double v, int scale) {
+      final long units = Math.round(v * scale);
+      if (units % scale == 0) {
+        return String.valueOf(units / scale);
+      }
+      final StringBuilder sb = new StringBuilder();
+      if (units < 0) {
+        sb.append('-');
+      }
+      final long abs = Math.abs(units);
+      final String frac = String.valueOf(scale + abs % scale).substring(1);
+      int end = frac.length();
+      while (frac.charAt(end - 1) == '0') {
+        end--;
+      }
+      return sb.append(abs / scale).append('.').append(frac, 0, end).toString();
+    }
+
+    /** Appends a string in the standard font encoding, with special characters escaped. */
+    PdfOutput string(String s) {
+      mBuffer.append('(');
+      for (int i = 0; i < s.length(); i++) {
+        final char c = s.charAt(i);
+        if (c == '(' || c == ')' || c == '\\') {
+          mBuffer.append('\\').append(c);
+        } else if (c >= ' ' && c < 127) {
+          mBuffer.append(c);
+        } else if (c >= 160 && c <= 255) {
+          mBuffer.append('\\').append(Integer.toOctalString(c));
+        } else {
+          mBuffer.append('?');
+        }
+      }
+      mBuffer.append(')');
+      return flushIfFull();
+    }
+
+    private PdfOutput flushIfFull() {
+      if (mBuffer.length() >= BUFFER_SIZE) {
+        flush();
+      }
+      return this;
+    }
+
+    /** Passes buffered content to the compressor. */
+    private void flush() {
+      int pos = 0;
+      final int length = mBuffer.length();
+      if (mError == null) {
+        try {
+          while (pos < length) {
+            final int n = Math.min(mBytes.length, length - pos);
+            for (int i = 0; i < n; i++) {
+              mBytes[i] = (byte) mBuffer.charAt(pos + i);
+            }
+            mContent.write(mBytes, 0, n);
+            pos += n;
+          }
+        } catch (final IOException e) {
+          mError = e;
+        }
+      }
+      mBuffer.setLength(0);
+    }
+  }
+}
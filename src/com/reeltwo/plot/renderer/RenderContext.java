@@ -0,0 +1,34 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+/**
+ * State of a render in progress.  Renderers keep their configuration
+ * (colors, patterns and the like) in their own fields and everything
+ * that changes while a graph is drawn here, with one context for each
+ * thread, so that a configured renderer can draw graphs on several
+ * threads at once.
+ *
+ * @author Richard Littin
+ */
+final class RenderContext {
+  /** current color or pattern index */
+  int mColorIndex = 0;
+  /** current point style index */
+  int mPointIndex = 0;
+  /** current line width */
+  int mLineWidth = 1;
+  /** mappings of the graph being or last drawn */
+  Mapping[] mMappings = null;
+  /** working arrays for plot data */
+  final ScratchBuffers mScratch = new ScratchBuffers();
+  /** source of scatter plot offsets */
+  final Random mRandom = new Random();
+  /** area of the tile being drawn, or null when drawing the whole graph */
+  Rectangle mTile = null;
+  /** clip the graph is drawn within on an image, or null */
+  Rectangle mBounds = null;
+  /** quality of the graph being drawn, or null for the renderer's own */
+  GraphicsRenderer.Quality mQuality = null;
+}
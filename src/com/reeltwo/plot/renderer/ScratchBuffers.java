@@ -0,0 +1,108 @@
+package com.reeltwo.plot.renderer;
+
+import com.reeltwo.plot.renderer.AbstractRenderer.Columns;
+import com.reeltwo.plot.renderer.AbstractRenderer.Poly;
+
+/**
+ * Working arrays used while drawing plot data.  They are kept between
+ * renders and only grown when a larger one is needed, so repainting an
+ * unchanged graph does not allocate on the data path.  Arrays longer
+ * than {@link #KEPT_LENGTH} are made for each use and not kept, so one
+ * large plot does not hold its memory for the life of the thread.
+ * Arrays handed out may be longer than asked for, and their contents
+ * are left over from earlier use.
+ *
+ * @author Richard Littin
+ */
+final class ScratchBuffers {
+  /** slot for x screen co-ordinates */
+  static final int X = 0;
+  /** slot for y screen co-ordinates */
+  static final int Y = 1;
+  /** slot for values read from a series */
+  static final int READ = 2;
+  /** longest array kept between uses */
+  static final int KEPT_LENGTH = 1 << 16;
+
+  private final int[][] mInts = new int[2][];
+  private final float[][] mFloats = new float[3][];
+  private final Poly mPolygon = new Poly();
+  private final Poly mHead = new Poly();
+  private final Columns mColumns = new Columns();
+  /** visible world range, low then high */
+  final float[] mWorld = new float[2];
+
+
+  /**
+   * Returns an int array of at least <code>length</code> values.
+   *
+   * @param slot which array
+   * @param length number of values needed
+   * @return an array
+   */
+  int[] ints(int slot, int length) {
+    final int[] ints = mInts[slot];
+    if (ints != null && ints.length >= length) {
+      return ints;
+    }
+    if (length > KEPT_LENGTH) {
+      return new int[length];
+    }
+    mInts[slot] = new int[Math.max(length, 16)];
+    return mInts[slot];
+  }
+
+
+  /**
+   * Returns a float array of at least <code>length</code> values.
+   *
+   * @param slot which array
+   * @param length number of values needed
+   * @return an array
+   */
+  float[] floats(int slot, int length) {
+    final float[] floats = mFloats[slot];
+    if (floats != null && floats.length >= length) {
+      return floats;
+    }
+    if (length > KEPT_LENGTH) {
+      return new float[length];
+    }
+    mFloats[slot] = new float[Math.max(length, 16)];
+    return mFloats[slot];
+  }
+
+
+  /**
+   * Returns an empty polygon for plot data.
+   *
+   * @return a polygon
+   */
+  Poly polygon() {
+    mPolygon.clear();
+    return mPolygon;
+  }
+
+
+  /**
+   * Returns an empty polygon for arrow heads.
+   *
+   * @return a polygon
+   */
+  Poly head() {
+    mHead.clear();
+    return mHead;
+  }
+
+
+  /**
+   * Returns a column decimator adding to <code>polygon</code>.
+   *
+   * @param polygon polygon to add to
+   * @return a column decimator
+   */
+  Columns columns(Poly polygon) {
+    mColumns.reset(polygon);
+    return mColumns;
+  }
+}
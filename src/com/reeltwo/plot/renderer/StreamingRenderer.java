@@ -0,0 +1,426 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.reeltwo.plot.Graph2D;
+
+/**
+ * Base of renderers that write a graph straight to a document.  The
+ * layout is worked out by <code>GraphicsRenderer</code> on a graphics
+ * that is never drawn on, and each drawing call is passed to the
+ * document being written on the calling thread.  When no document is
+ * being written the renderer draws on a graphics as
+ * <code>GraphicsRenderer</code> does.
+ *
+ * @author Richard Littin
+ */
+abstract class StreamingRenderer extends GraphicsRenderer {
+  private static final Font DEFAULT_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 10);
+
+  /**
+   * A document being written.  Each drawing call is given the
+   * graphics holding the current paint, stroke and font, which the
+   * document should draw with; the graphics itself is never drawn on.
+   * Co-ordinates are in pixels from the top left of the document.
+   */
+  interface Output {
+    /**
+     * Starts the document.
+     *
+     * @param width width of the document
+     * @param height height of the document
+     * @exception IOException if an error occurs writing the document
+     */
+    void begin(int width, int height) throws IOException;
+
+    /**
+     * Finishes the document and flushes it, reporting any error met
+     * while it was drawn.
+     *
+     * @exception IOException if an error occurs writing the document
+     */
+    void end() throws IOException;
+
+    /**
+     * Clips all later drawing to a rectangle, replacing any earlier
+     * clip.
+     *
+     * @param x left edge
+     * @param y top edge
+     * @param w width
+     * @param h height
+     */
+    void clip(int x, int y, int w, int h);
+
+    /**
+     * Draws text.  Horizontal text has its baseline starting at the
+     * point.  Vertical text reads upwards, with the top left corner of
+     * the turned text at the point.  The text is never null or empty.
+     *
+     * @param g graphics holding the current paint and font
+     * @param x x co-ordinate of the text
+     * @param y y co-ordinate of the text
+     * @param text text to draw
+     * @param isVertical whether the text reads upwards
+     */
+    void drawString(Graphics2D g, int x, int y, String text, boolean isVertical);
+
+    /**
+     * Draws a line between two points.
+     *
+     * @param g graphics holding the current paint and stroke
+     * @param x1 x co-ordinate of the first point
+     * @param y1 y co-ordinate of the first point
+     * @param x2 x co-ordinate of the second point
+     * @param y2 y co-ordinate of the second point
+     */
+    void drawLine(Graphics2D g, int x1, int y1, int x2, int y2);
+
+    /**
+     * Draws a point marker centred on a point.
+     *
+     * @param g graphics holding the current paint and stroke
+     * @param marker index of the marker shape, as given to
+     * <code>setPointIndex</code>
+     * @param x x co-ordinate of the point
+     * @param y y co-ordinate of the point
+     */
+    void drawPoint(Graphics2D g, int marker, int x, int y);
+
+    /**
+     * Draws the outline of a rectangle.  The width and height are
+     * never negative.
+     *
+     * @param g graphics holding the current paint and stroke
+     * @param x left edge
+     * @param y top edge
+     * @param w width
+     * @param h height
+     */
+    void drawRectangle(Graphics2D g, int x, int y, int w, int h);
+
+    /**
+     * Fills a rectangle.  The width and height are always positive.
+     *
+     * @param g graphics holding the current paint
+     * @param x left edge
+     * @param y top edge
+     * @param w width
+     * @param h height
+     */
+    void fillRectangle(Graphics2D g, int x, int y, int w, int h);
+
+    /**
+     * Draws the outline of a circle centred on a point.
+     *
+     * @param g graphics holding the current paint and stroke
+     * @param x x co-ordinate of the centre
+     * @param y y co-ordinate of the centre
+     * @param diameter diameter of the circle
+     */
+    void drawCircle(Graphics2D g, int x, int y, int diameter);
+
+    /**
+     * Fills a circle centred on a point.
+     *
+     * @param g graphics holding the current paint
+     * @param x x co-ordinate of the centre
+     * @param y y co-ordinate of the centre
+     * @param diameter diameter of the circle
+     */
+    void fillCircle(Graphics2D g, int x, int y, int diameter);
+
+    /**
+     * Draws the outline of a closed polygon through the first
+     * <code>n</code> points, of which there is at least one.
+     *
+     * @param g graphics holding the current paint and stroke
+     * @param xs x co-ordinates of the points
+     * @param ys y co-ordinates of the points
+     * @param n number of points
+     */
+    void drawPolygon(Graphics2D g, int[] xs, int[] ys, int n);
+
+    /**
+     * Fills a polygon through the first <code>n</code> points, of
+     * which there are at least three.
+     *
+     * @param g graphics holding the current paint
+     * @param xs x co-ordinates of the points
+     * @param ys y co-ordinates of the points
+     * @param n number of points
+     */
+    void fillPolygon(Graphics2D g, int[] xs, int[] ys, int n);
+
+    /**
+     * Draws connected lines through the first <code>n</code> points,
+     * of which there are at least two.
+     *
+     * @param g graphics holding the current paint and stroke
+     * @param xs x co-ordinates of the points
+     * @param ys y co-ordinates of the points
+     * @param n number of points
+     */
+    void drawPolyline(Graphics2D g, int[] xs, int[] ys, int n);
+
+    /**
+     * Draws part of the outline of the ellipse that fits a rectangle.
+     * Angles are in degrees, counter-clockwise from three o'clock, and
+     * the extent is never zero.
+     *
+     * @param g graphics holding the current paint and stroke
+     * @param x left edge of the rectangle
+     * @param y top edge of the rectangle
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @param start angle the arc starts at
+     * @param extent angle the arc covers
+     */
+    void drawArc(Graphics2D g, int x, int y, int w, int h, int start, int extent);
+
+    /**
+     * Fills a pie slice of the ellipse that fits a rectangle.  Angles
+     * are in degrees, counter-clockwise from three o'clock, and the
+     * extent is never zero.
+     *
+     * @param g graphics holding the current paint
+     * @param x left edge of the rectangle
+     * @param y top edge of the rectangle
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @param start angle the slice starts at
+     * @param extent angle the slice covers
+     */
+    void fillArc(Graphics2D g, int x, int y, int w, int h, int start, int extent);
+  }
+
+  /** document being written on each thread */
+  private final ThreadLocal<Output> mOutput = new ThreadLocal<>();
+
+  StreamingRenderer() {
+    super();
+  }
+
+  StreamingRenderer(Color[] colors) {
+    super(colors);
+  }
+
+  StreamingRenderer(Color[] colors, Paint[] patterns) {
+    super(colors, patterns);
+  }
+
+  /**
+   * Returns a new document writing to a stream.
+   *
+   * @param os stream to write to
+   * @param width width of the document
+   * @param height height of the document
+   * @return a document
+   */
+  abstract Output open(OutputStream os, int width, int height);
+
+  /**
+   * Writes a graph, or a recorded graph, to a stream as a document.
+   *
+   * @param graph graph to write, used if <code>list</code> is null
+   * @param list recorded graph to write, or null
+   * @param os stream to write to
+   * @param width width of the document
+   * @param height height of the document
+   * @param inset space to leave around the graph
+   * @param font font to use, or null for the default font
+   * @return the axis mappings, or null if there is no graph
+   * @exception IOException if an error occurs writing to the stream
+   */
+  Mapping[] write(Graph2D graph, DisplayList list, OutputStream os, int width, int height, int inset, Font font) throws IOException {
+    if (os == null) {
+      throw new NullPointerException("null output stream given.");
+    }
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("dimensions must be greater than 0");
+    }
+    // metrics, color, stroke and font are kept on a graphics that is never drawn on
+    final Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+    g.setFont(font != null ? font : DEFAULT_FONT);
+    final Output out = open(os, width, height);
+    mOutput.set(out);
+    try {
+      out.begin(width, height);
+      setColor(g, BACKGROUND_COLOR_INDEX);
+      fillRectangle(g, 0, 0, width, height);
+      final Mapping[] mapping;
+      if (list != null) {
+        list.replay(this, g, inset, inset);
+        mapping = list.getMappings(inset, inset);
+      } else {
+        mapping = drawGraph(graph, g, inset, inset, width - 2 * inset, height - 2 * inset);
+      }
+      out.end();
+      return mapping;
+    } finally {
+      mOutput.remove();
+      g.dispose();
+    }
+  }
+
+  /**
+   * Lays out a graph in a region at the origin, passing each drawing
+   * call to a document.  The document is not begun or ended and the
+   * background of the region is not drawn.
+   *
+   * @param out document to draw to
+   * @param graph graph to draw
+   * @param g graphics holding the metrics, color, stroke and font
+   * @param width width of the region
+   * @param height height of the region
+   * @return the axis mappings, or null if there is no graph
+   */
+  Mapping[] drawTo(Output out, Graph2D graph, Graphics2D g, int width, int height) {
+    mOutput.set(out);
+    try {
+      return drawGraph(graph, g, 0, 0, width, height);
+    } finally {
+      mOutput.remove();
+    }
+  }
+
+  @Override
+  boolean isRaster() {
+    return mOutput.get() == null;
+  }
+
+  @Override
+  protected void setClip(Object canvas, int x, int y, int w, int h) {
+    super.setClip(canvas, x, y, w, h);
+    final Output out = mOutput.get();
+    if (out != null) {
+      out.clip(x, y, w, h);
+    }
+  }
+
+  @Override
+  protected void drawString(Object canvas, int x, int y, String text, boolean isVertical) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.drawString(canvas, x, y, text, isVertical);
+    } else if (text != null && text.length() > 0) {
+      out.drawString((Graphics2D) canvas, x, y, text, isVertical);
+    }
+  }
+
+  @Override
+  protected void drawLine(Object canvas, int x1, int y1, int x2, int y2) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.drawLine(canvas, x1, y1, x2, y2);
+    } else {
+      out.drawLine((Graphics2D) canvas, x1, y1, x2, y2);
+    }
+  }
+
+  @Override
+  protected void drawPoint(Object canvas, int x, int y) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.drawPoint(canvas, x, y);
+    } else {
+      out.drawPoint((Graphics2D) canvas, getPointIndex(), x, y);
+    }
+  }
+
+  @Override
+  protected void drawRectangle(Object canvas, int x, int y, int w, int h) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.drawRectangle(canvas, x, y, w, h);
+    } else if (w >= 0 && h >= 0) {
+      out.drawRectangle((Graphics2D) canvas, x, y, w, h);
+    }
+  }
+
+  @Override
+  protected void fillRectangle(Object canvas, int x, int y, int w, int h) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.fillRectangle(canvas, x, y, w, h);
+    } else if (w > 0 && h > 0) {
+      out.fillRectangle((Graphics2D) canvas, x, y, w, h);
+    }
+  }
+
+  @Override
+  protected void drawCircle(Object canvas, int x, int y, int diameter) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.drawCircle(canvas, x, y, diameter);
+    } else {
+      out.drawCircle((Graphics2D) canvas, x, y, diameter);
+    }
+  }
+
+  @Override
+  protected void fillCircle(Object canvas, int x, int y, int diameter) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.fillCircle(canvas, x, y, diameter);
+    } else {
+      out.fillCircle((Graphics2D) canvas, x, y, diameter);
+    }
+  }
+
+  @Override
+  protected void drawPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.drawPolygon(canvas, xs, ys, n);
+    } else if (n > 0) {
+      out.drawPolygon((Graphics2D) canvas, xs, ys, n);
+    }
+  }
+
+  @Override
+  protected void fillPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.fillPolygon(canvas, xs, ys, n);
+    } else if (n > 2) {
+      out.fillPolygon((Graphics2D) canvas, xs, ys, n);
+    }
+  }
+
+  @Override
+  protected void drawPolyline(Object canvas, int[] xs, int[] ys, int n) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.drawPolyline(canvas, xs, ys, n);
+    } else if (n > 1) {
+      out.drawPolyline((Graphics2D) canvas, xs, ys, n);
+    }
+  }
+
+  @Override
+  protected void drawArc(Object canvas, int x, int y, int w, int h, int start, int extent) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.drawArc(canvas, x, y, w, h, start, extent);
+    } else if (extent != 0) {
+      out.drawArc((Graphics2D) canvas, x, y, w, h, start, extent);
+    }
+  }
+
+  @Override
+  protected void fillArc(Object canvas, int x, int y, int w, int h, int start, int extent) {
+    final Output out = mOutput.get();
+    if (out == null) {
+      super.fillArc(canvas, x, y, w, h, start, extent);
+    } else if (extent != 0) {
+      out.fillArc((Graphics2D) canvas, x, y, w, h, start, extent);
+    }
+  }
+}
@@ -0,0 +1,689 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Stroke;
+import java.awt.TexturePaint;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import com.reeltwo.plot.Graph2D;
+
+/**
+ * Code to render a Graph2D object straight to an SVG document.  The
+ * layout is exactly that of <code>GraphicsRenderer</code>, but each
+ * line, shape and string is written to the output as it is drawn
+ * rather than being collected first, so the memory used does not grow
+ * with the amount of data plotted.  Paths are written with relative
+ * co-ordinates, consecutive shapes of the same style share a single
+ * group, and consecutive lines and point markers of the same style
+ * share a single path.  Like <code>GraphicsRenderer</code>, a configured
+ * renderer can write graphs on several threads at once.
+ *
+ * @author Richard Littin
+ */
+public class SvgRenderer extends StreamingRenderer {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  /** the point markers of GraphicsRenderer as path data following a move to the start offset below */
+  private static final String[] MARKERS = {
+    "l2 2-2 2-2-2z",                 // diamond
+    "h4m-2-2v4",                     // plus
+    "h4v4h-4z",                      // square
+    "l4 4m0-4l-4 4",                 // cross
+    "l2 4h-4z",                      // triangle
+    "h4m-2-2v4m-2-4l4 4m0-4l-4 4",   // star
+  };
+  private static final int[] MARKER_X = {0, -2, -2, -2, 0, -2};
+  private static final int[] MARKER_Y = {-2, 0, -2, -2, -2, 0};
+
+  /**
+   * Creates a new <code>SvgRenderer</code>.
+   */
+  public SvgRenderer() {
+    super();
+  }
+
+  /**
+   * Creates a new <code>SvgRenderer</code> setting the
+   * <code>colors</code> to use.
+   *
+   * @param colors an array of <code>Color</code>s
+   */
+  public SvgRenderer(Color[] colors) {
+    super(colors);
+  }
+
+  /**
+   * Creates a new <code>SvgRenderer</code> setting the
+   * <code>colors</code> and <code>patterns</code> to use.
+   *
+   * @param colors an array of <code>Color</code>s
+   * @param patterns an array of patterns
+   */
+  public SvgRenderer(Color[] colors, Paint[] patterns) {
+    super(colors, patterns);
+  }
+
+  /**
+   * Writes the given graph to a stream as an SVG document of the given
+   * dimensions.  The graph is drawn <code>inset</code> units in from
+   * each edge of the document.  The stream is flushed but not closed.
+   * The mappings from world to screen data points for each axis pair
+   * is returned (in order {@code x1,y1,x2,y2},...).
+   *
+   * @param graph the Graph2D to draw
+   * @param os stream to write to
+   * @param width width of the document
+   * @param height height of the document
+   * @param inset space to leave around the graph
+   * @param font font to use, or null for the default font
+   * @return the axis mappings, or null if there is no graph
+   * @exception IOException if an error occurs writing to the stream
+   */
+  public Mapping[] drawGraph(Graph2D graph, OutputStream os, int width, int height, int inset, Font font) throws IOException {
+    return write(graph, null, os, width, height, inset, font);
+  }
+
+  /**
+   * Writes a recorded graph to a stream as an SVG document.  The
+   * recording is drawn <code>inset</code> units in from each edge of
+   * a document of its size plus the insets.  The stream is flushed but
+   * not closed.  The mappings from world to screen data points for
+   * each axis pair is returned (in order {@code x1,y1,x2,y2},...).
+   *
+   * @param list the recorded graph
+   * @param os stream to write to
+   * @param inset space to leave around the graph
+   * @return the axis mappings, or null if no graph was recorded
+   * @exception IOException if an error occurs writing to the stream
+   */
+  public Mapping[] drawGraph(DisplayList list, OutputStream os, int inset) throws IOException {
+    if (list == null) {
+      throw new NullPointerException("null display list given.");
+    }
+    return write(null, list, os, list.getWidth() + 2 * inset, list.getHeight() + 2 * inset, inset, null);
+  }
+
+  @Override
+  Output open(OutputStream os, int width, int height) {
+    return new SvgOutput(new OutputStreamWriter(os, UTF8));
+  }
+
+
+  /**
+   * An SVG document being written.  Text is collected in a small
+   * buffer that is passed on to the writer whenever it fills.  The
+   * first error from the writer is kept and reported when the
+   * document is finished, as the drawing methods cannot throw it.
+   */
+  private static final class SvgOutput implements Output {
+    static final int NONE = 0;
+    static final int STROKE = 1;
+    static final int FILL = 2;
+    static final int TEXT = 3;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private final Writer mWriter;
+    private final StringBuilder mBuffer = new StringBuilder(BUFFER_SIZE + 256);
+    private final char[] mChars = new char[BUFFER_SIZE + 256];
+    private IOException mError = null;
+
+    /** ids of gradients and textures already defined */
+    private final Map<Paint, String> mPaintIds = new IdentityHashMap<>();
+    private int mNextId = 0;
+
+    private boolean mClipped = false;
+    private int mClipX;
+    private int mClipY;
+    private int mClipW;
+    private int mClipH;
+
+    /** style of the open group */
+    private int mKind = NONE;
+    private Paint mPaint = null;
+    private Stroke mStroke = null;
+    private Font mFont = null;
+    /** whether shapes may be added to the open path */
+    private boolean mMerge = false;
+    private boolean mPathOpen = false;
+
+    SvgOutput(Writer writer) {
+      mWriter = writer;
+    }
+
+    @Override
+    public void begin(int width, int height) {
+      append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      append("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\"");
+      append(" width=\"").number(width).append("\" height=\"").number(height);
+      append("\" viewBox=\"0 0 ").number(width).append(' ').number(height);
+      append("\" fill-rule=\"evenodd\" xml:space=\"preserve\">\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+      endGroup();
+      if (mClipped) {
+        append("</g>\n");
+        mClipped = false;
+      }
+      append("</svg>\n");
+      flush();
+      if (mError != null) {
+        throw mError;
+      }
+      mWriter.flush();
+    }
+
+    @Override
+    public void clip(int x, int y, int w, int h) {
+      if (mClipped && x == mClipX && y == mClipY && w == mClipW && h == mClipH) {
+        return;
+      }
+      endGroup();
+      if (mClipped) {
+        append("</g>\n");
+      }
+      final String id = "c" + mNextId++;
+      append("<clipPath id=\"").append(id).append("\"><rect x=\"").number(x).append("\" y=\"").number(y);
+      append("\" width=\"").number(w).append("\" height=\"").number(h).append("\"/></clipPath>\n");
+      append("<g clip-path=\"url(#").append(id).append(")\">\n");
+      mClipped = true;
+      mClipX = x;
+      mClipY = y;
+      mClipW = w;
+      mClipH = h;
+    }
+
+    @Override
+    public void drawString(Graphics2D g, int x, int y, String text, boolean isVertical) {
+      style(g, TEXT);
+      if (isVertical) {
+        // match GraphicsRenderer, whose rotated text has its top left corner at x, y
+        final FontMetrics fm = g.getFontMetrics();
+        append("<text transform=\"translate(").number(x + fm.getAscent()).append(' ').number(y + fm.stringWidth(text)).append(")rotate(-90)\">");
+      } else {
+        append("<text x=\"").number(x).append("\" y=\"").number(y).append("\">");
+      }
+      text(text).append("</text>\n");
+    }
+
+    @Override
+    public void drawLine(Graphics2D g, int x1, int y1, int x2, int y2) {
+      path(g, STROKE, x1, y1).lineTo(x2 - x1, y2 - y1).endPath();
+    }
+
+    @Override
+    public void drawPoint(Graphics2D g, int index, int x, int y) {
+      final int marker = index % MARKERS.length;
+      path(g, STROKE, x + MARKER_X[marker], y + MARKER_Y[marker]).append(MARKERS[marker]).endPath();
+    }
+
+    @Override
+    public void drawRectangle(Graphics2D g, int x, int y, int w, int h) {
+      path(g, STROKE, x, y).lineTo(w, 0).lineTo(0, h);
+      if (w > 0 && h > 0) {
+        lineTo(-w, 0).append('z');
+      }
+      endPath();
+    }
+
+    @Override
+    public void fillRectangle(Graphics2D g, int x, int y, int w, int h) {
+      path(g, FILL, x, y).lineTo(w, 0).lineTo(0, h).lineTo(-w, 0).append('z').endPath();
+    }
+
+    @Override
+    public void drawCircle(Graphics2D g, int x, int y, int diameter) {
+      style(g, STROKE);
+      circle((int) (x - diameter / 2.0f), (int) (y - diameter / 2.0f), diameter);
+    }
+
+    @Override
+    public void fillCircle(Graphics2D g, int x, int y, int diameter) {
+      style(g, FILL);
+      circle((int) (x - diameter / 2.0f), (int) (y - diameter / 2.0f), diameter);
+    }
+
+    @Override
+    public void drawPolygon(Graphics2D g, int[] xs, int[] ys, int n) {
+      poly(g, STROKE, xs, ys, n, true);
+    }
+
+    @Override
+    public void fillPolygon(Graphics2D g, int[] xs, int[] ys, int n) {
+      poly(g, FILL, xs, ys, n, true);
+    }
+
+    @Override
+    public void drawPolyline(Graphics2D g, int[] xs, int[] ys, int n) {
+      poly(g, STROKE, xs, ys, n, false);
+    }
+
+    @Override
+    public void drawArc(Graphics2D g, int x, int y, int w, int h, int start, int extent) {
+      style(g, STROKE);
+      arc(x, y, w, h, start, extent, false);
+    }
+
+    @Override
+    public void fillArc(Graphics2D g, int x, int y, int w, int h, int start, int extent) {
+      style(g, FILL);
+      arc(x, y, w, h, start, extent, true);
+    }
+
+    /**
+     * Makes sure the open group matches the current state of the
+     * graphics for the given kind of drawing, starting a new group if
+     * it does not.
+     */
+    void style(Graphics2D g, int kind) {
+      closePath();
+      if (matches(g, kind)) {
+        return;
+      }
+      endGroup();
+      final Paint paint = g.getPaint();
+      final Stroke stroke = g.getStroke();
+      final Font font = g.getFont();
+      final String ref = paint(paint, g.getColor());
+      final int alpha = paint instanceof Color ? ((Color) paint).getAlpha() : 255;
+      if (kind == STROKE) {
+        append("<g fill=\"none\" stroke=\"").append(ref).append('"');
+        if (alpha != 255) {
+          append(" stroke-opacity=\"").number(alpha / 255.0).append('"');
+        }
+        strokeStyle(stroke);
+        // centre lines on pixels as java.awt does
+        append(" transform=\"translate(.5 .5)\">\n");
+      } else {
+        append("<g fill=\"").append(ref).append('"');
+        if (alpha != 255) {
+          append(" fill-opacity=\"").number(alpha / 255.0).append('"');
+        }
+        if (kind == TEXT) {
+          append(" font-family=\"").text(family(font)).append("\" font-size=\"").number(font.getSize2D()).append('"');
+          if (font.isBold()) {
+            append(" font-weight=\"bold\"");
+          }
+          if (font.isItalic()) {
+            append(" font-style=\"italic\"");
+          }
+        }
+        append(">\n");
+      }
+      mKind = kind;
+      mPaint = paint;
+      mStroke = stroke;
+      mFont = font;
+      // overlapping translucent lines must stay separate to blend as they do on screen
+      mMerge = kind == STROKE && alpha == 255;
+    }
+
+    private boolean matches(Graphics2D g, int kind) {
+      return kind == mKind && g.getPaint().equals(mPaint)
+        && (kind != STROKE || g.getStroke().equals(mStroke))
+        && (kind != TEXT || g.getFont().equals(mFont));
+    }
+
+    private void endGroup() {
+      closePath();
+      if (mKind != NONE) {
+        append("</g>\n");
+        mKind = NONE;
+      }
+    }
+
+    private void strokeStyle(Stroke stroke) {
+      if (stroke instanceof BasicStroke) {
+        final BasicStroke bs = (BasicStroke) stroke;
+        if (bs.getLineWidth() != 1.0f) {
+          append(" stroke-width=\"").number(bs.getLineWidth()).append('"');
+        }
+        switch (bs.getEndCap()) {
+        case BasicStroke.CAP_ROUND:
+          append(" stroke-linecap=\"round\"");
+          break;
+        case BasicStroke.CAP_SQUARE:
+          append(" stroke-linecap=\"square\"");
+          break;
+        default:
+          break;
+        }
+        switch (bs.getLineJoin()) {
+        case BasicStroke.JOIN_ROUND:
+          append(" stroke-linejoin=\"round\"");
+          break;
+        case BasicStroke.JOIN_BEVEL:
+          append(" stroke-linejoin=\"bevel\"");
+          break;
+        default:
+          break;
+        }
+        final float[] dashes = bs.getDashArray();
+        if (dashes != null) {
+          append(" stroke-dasharray=\"");
+          for (int i = 0; i < dashes.length; i++) {
+            if (i > 0) {
+              append(' ');
+            }
+            number(dashes[i]);
+          }
+          append('"');
+          if (bs.getDashPhase() != 0.0f) {
+            append(" stroke-dashoffset=\"").number(bs.getDashPhase()).append('"');
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns the attribute value that paints with the given paint,
+     * writing a definition of it first if it is a gradient or texture
+     * not seen before.
+     */
+    private String paint(Paint paint, Color color) {
+      if (paint instanceof Color) {
+        return color((Color) paint);
+      }
+      String id = mPaintIds.get(paint);
+      if (id == null) {
+        if (paint instanceof GradientPaint) {
+          final GradientPaint gp = (GradientPaint) paint;
+          id = "p" + mNextId++;
+          append("<defs><linearGradient id=\"").append(id).append("\" gradientUnits=\"userSpaceOnUse\" x1=\"").number(gp.getPoint1().getX());
+          append("\" y1=\"").number(gp.getPoint1().getY()).append("\" x2=\"").number(gp.getPoint2().getX());
+          append("\" y2=\"").number(gp.getPoint2().getY()).append('"');
+          if (gp.isCyclic()) {
+            append(" spreadMethod=\"reflect\"");
+          }
+          append("><stop offset=\"0\" stop-color=\"").append(color(gp.getColor1())).append("\"/>");
+          append("<stop offset=\"1\" stop-color=\"").append(color(gp.getColor2())).append("\"/></linearGradient></defs>\n");
+        } else if (paint instanceof TexturePaint) {
+          final TexturePaint tp = (TexturePaint) paint;
+          final Rectangle2D r = tp.getAnchorRect();
+          final BufferedImage image = tp.getImage();
+          final byte[] png;
+          try {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", bos);
+            png = bos.toByteArray();
+          } catch (final IOException e) {
+            return color(color);
+          }
+          id = "p" + mNextId++;
+          append("<defs><pattern id=\"").append(id).append("\" patternUnits=\"userSpaceOnUse\" x=\"").number(r.getX());
+          append("\" y=\"").number(r.getY()).append("\" width=\"").number(r.getWidth()).append("\" height=\"").number(r.getHeight());
+          append("\"><image width=\"").number(r.getWidth()).append("\" height=\"").number(r.getHeight());
+          append("\" preserveAspectRatio=\"none\" xlink:href=\"data:image/png;base64,");
+          base64(png);
+          append("\"/></pattern></defs>\n");
+        } else {
+          return color(color);
+        }
+        mPaintIds.put(paint, id);
+      }
+      return "url(#" + id + ")";
+    }
+
+    private static String color(Color c) {
+      final String hex = Integer.toHexString(c.getRGB() & 0xFFFFFF);
+      return "#000000".substring(0, 7 - hex.length()) + hex;
+    }
+
+    private static String family(Font font) {
+      final String family = font.getFamily();
+      switch (family) {
+      case Font.SANS_SERIF:
+      case Font.DIALOG:
+        return "sans-serif";
+      case Font.SERIF:
+        return "serif";
+      case Font.MONOSPACED:
+      case Font.DIALOG_INPUT:
+        return "monospace";
+      default:
+        return family;
+      }
+    }
+
+    private void base64(byte[] data) {
+      for (int i = 0; i < data.length; i += 3) {
+        final int b = (data[i] & 0xFF) << 16 | (i + 1 < data.length ? (data[i + 1] & 0xFF) << 8 : 0) | (i + 2 < data.length ? data[i + 2] & 0xFF : 0);
+        append(BASE64[b >>> 18]).append(BASE64[(b >>> 12) & 0x3F]);
+        append(i + 1 < data.length ? BASE64[(b >>> 6) & 0x3F] : '=').append(i + 2 < data.length ? BASE64[b & 0x3F] : '=');
+      }
+    }
+
+    /**
+     * Starts a shape at the given point.  Stroked shapes of the same
+     * style are added to a single path, which is left open until
+     * something else is drawn.
+     */
+    SvgOutput path(Graphics2D g, int kind, int x, int y) {
+      if (!(mPathOpen && matches(g, kind))) {
+        style(g, kind);
+        append("<path d=\"");
+        mPathOpen = true;
+      }
+      return append('M').number(x).coord(y);
+    }
+
+    /** Adds a relative line, using the horizontal or vertical form where possible. */
+    SvgOutput lineTo(int dx, int dy) {
+      if (dy == 0) {
+        return append('h').number(dx);
+      } else if (dx == 0) {
+        return append('v').number(dy);
+      }
+      return append('l').number(dx).coord(dy);
+    }
+
+    void endPath() {
+      if (!mMerge) {
+        closePath();
+      }
+    }
+
+    private void closePath() {
+      if (mPathOpen) {
+        append("\"/>\n");
+        mPathOpen = false;
+      }
+    }
+
+    void poly(Graphics2D g, int kind, int[] xs, int[] ys, int n, boolean closed) {
+      path(g, kind, xs[0], ys[0]);
+      int lastCommand = 0;
+      for (int i = 1; i < n; i++) {
+        final int dx = xs[i] - xs[i - 1];
+        final int dy = ys[i] - ys[i - 1];
+        if (dx == 0 && dy == 0) {
+          continue;
+        }
+        // repeated commands need not be repeated
+        final int command = dy == 0 ? 'h' : dx == 0 ? 'v' : 'l';
+        if (command != lastCommand) {
+          append((char) command);
+          lastCommand = command;
+          if (command == 'h') {
+            number(dx);
+          } else if (command == 'v') {
+            number(dy);
+          } else {
+            number(dx).coord(dy);
+          }
+        } else if (command == 'h') {
+          coord(dx);
+        } else if (command == 'v') {
+          coord(dy);
+        } else {
+          coord(dx).coord(dy);
+        }
+      }
+      if (closed) {
+        append('z');
+      } else if (lastCommand == 0) {
+        // a polyline that does not move is still drawn as a point
+        append("h0");
+      }
+      endPath();
+    }
+
+    void circle(int x, int y, int diameter) {
+      final double r = diameter / 2.0;
+      append("<circle cx=\"").number(x + r).append("\" cy=\"").number(y + r).append("\" r=\"").number(r).append("\"/>\n");
+    }
+
+    void arc(int x, int y, int w, int h, int start, int extent, boolean pie) {
+      final double rx = w / 2.0;
+      final double ry = h / 2.0;
+      final double cx = x + rx;
+      final double cy = y + ry;
+      final double end = Math.toRadians(start + Math.max(-360, Math.min(360, extent)));
+      final double a0 = Math.toRadians(start);
+      append("<path d=\"M");
+      mPathOpen = true;
+      if (pie) {
+        number(cx).coord(cy).append('L');
+      }
+      number(cx + rx * Math.cos(a0)).coord(cy - ry * Math.sin(a0));
+      // angles run counter-clockwise on screen, so positive extents sweep the negative direction
+      final char sweep = extent > 0 ? '0' : '1';
+      if (Math.abs(extent) >= 360) {
+        final double mid = a0 + Math.PI;
+        append('A').number(rx).coord(ry).append(" 0 0 ").append(sweep).append(' ');
+        number(cx + rx * Math.cos(mid)).coord(cy - ry * Math.sin(mid));
+      }
+      append('A').number(rx).coord(ry).append(" 0 ").append(Math.abs(extent) > 180 && Math.abs(extent) < 360 ? '1' : '0').append(' ').append(sweep).append(' ');
+      number(cx + rx * Math.cos(end)).coord(cy - ry * Math.sin(end));
+      if (pie) {
+        append('z');
+      }
+      endPath();
+    }
+
+    SvgOutput append(String s) {
+      mBuffer.append(s);
+      return flushIfFull();
+    }
+
+    SvgOutput append(char c) {
+      mBuffer.append(c);
+      return flushIfFull();
+    }
+
+    /** Appends a number, separated from a preceding number if needed. */
+    private SvgOutput coord(int v) {
+      if (v >= 0) {
+        mBuffer.append(' ');
+      }
+      return number(v);
+    }
+
+    private SvgOutput coord(double v) {
+      if (Math.round(v * 100) >= 0) {
+        mBuffer.append(' ');
+      }
+      return number(v);
+    }
+
+    SvgOutput number(int v) {
+      mBuffer.append(v);
+      return flushIfFull();
+    }
+
+    /** Appends a number to two decimal places, without trailing zeros. */
+    SvgOutput number(double v) {
+      final long hundredths = Math.round(v * 100);
+      if (hundredths % 100 == 0) {
+        mBuffer.append(hundredths / 100);
+      } else {
+        if (hundredths < 0) {
+          mBuffer.append('-');
+        }
+        final long abs = Math.abs(hundredths);
+        mBuffer.append(abs / 100).append('.');
+        final long frac = abs % 100;
+        if (frac % 10 == 0) {
+          mBuffer.append(frac / 10);
+        } else {
+          if (frac < 10) {
+            mBuffer.append('0');
+          }
+          mBuffer.append(frac);
+        }
+      }
+      return flushIfFull();
+    }
+
+    /** Appends text with XML special characters escaped. */
+    SvgOutput text(String s) {
+      for (int i = 0; i < s.length(); i++) {
+        final char c = s.charAt(i);
+        switch (c) {
+        case '&':
+          mBuffer.append("&amp;");
+          break;
+        case '<':
+          mBuffer.append("&lt;");
+          break;
+        case '>':
+          mBuffer.append("&gt;");
+          break;
+        case '"':
+          mBuffer.append("&quot;");
+          break;
+        default:
+          // characters XML does not allow are dropped
+          if (c >= ' ' || c == '\t') {
+            mBuffer.append(c);
+          }
+        }
+      }
+      return flushIfFull();
+    }
+
+    private SvgOutput flushIfFull() {
+      if (mBuffer.length() >= BUFFER_SIZE) {
+        flush();
+      }
+      return this;
+    }
+
+    private void flush() {
+      if (mError == null) {
+        int pos = 0;
+        final int length = mBuffer.length();
+        try {
+          while (pos < length) {
+            final int n = Math.min(mChars.length, length - pos);
+            mBuffer.getChars(pos, pos + n, mChars, 0);
+            mWriter.write(mChars, 0, n);
+            pos += n;
+          }
+        } catch (final IOException e) {
+          mError = e;
+        }
+      }
+      mBuffer.setLength(0);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Images of vertical text, kept so that labels drawn again and again
+ * are only drawn and rotated once.  The number of images is bounded,
+ * with the least recently used text dropped first.
+ *
+ * @author Richard Littin
+ */
+final class TextCache {
+
+  /** Text in a particular style. */
+  private static final class Key {
+    private final Object mStyle;
+    private final String mText;
+
+    Key(Object style, String text) {
+      mStyle = style;
+      mText = text;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key k = (Key) o;
+      return mText.equals(k.mText) && mStyle.equals(k.mStyle);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * mStyle.hashCode() + mText.hashCode();
+    }
+  }
+
+  private final Map<Key, BufferedImage> mImages;
+
+  /**
+   * Creates a cache holding up to the given number of images.
+   *
+   * @param size maximum number of images
+   */
+  TextCache(final int size) {
+    mImages = new LinkedHashMap<Key, BufferedImage>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, BufferedImage> eldest) {
+        return size() > size;
+      }
+    };
+  }
+
+  /**
+   * Returns an image of text drawn in the font and color of a
+   * graphics, turned to read from bottom to top.  The image is
+   * transparent where there is no text and must not be changed.
+   *
+   * @param g graphics text is drawn on
+   * @param text text to draw
+   * @return image of the text
+   */
+  BufferedImage getVerticalImage(Graphics g, String text) {
+    final Key key = new Key(Arrays.asList(g.getFont(), g.getColor()), text);
+    synchronized (this) {
+      final BufferedImage image = mImages.get(key);
+      if (image != null) {
+        return image;
+      }
+    }
+    final BufferedImage image = createVerticalImage(g, text);
+    synchronized (this) {
+      mImages.put(key, image);
+    }
+    return image;
+  }
+
+  private static BufferedImage createVerticalImage(Graphics g, String text) {
+    final Color transparent = new Color(255, 255, 255, 0);
+    final FontMetrics fontMetrics = g.getFontMetrics();
+    final int width = fontMetrics.stringWidth(text);
+    final int height = fontMetrics.getHeight();
+    final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    final Graphics g2 = img.getGraphics();
+    try {
+      g2.setFont(g.getFont());
+      g2.setColor(transparent);
+      g2.fillRect(0, 0, width, height);
+      g2.setColor(g.getColor());
+      g2.drawString(text, 0, fontMetrics.getAscent());
+    } finally {
+      g2.dispose();
+    }
+    return rotate(img, width, height);
+  }
+
+  private static BufferedImage rotate(BufferedImage img, int width, int height) {
+    final BufferedImage img2 = new BufferedImage(height, width, BufferedImage.TYPE_INT_ARGB);
+    final int[] pixels = new int[width];
+    for (int i = 0; i < height; i++) {
+      img.getRGB(0, i, width, 1, pixels, 0, width);
+      reverse(pixels);
+      img2.setRGB(i, 0, 1, width, pixels, 0, 1);
+    }
+    return img2;
+  }
+
+  private static void reverse(int[] a) {
+    for (int i = 0; i < a.length / 2; i++) {
+      final int j = a.length - 1 - i;
+      final int temp = a[i];
+      a[i] = a[j];
+      a[j] = temp;
+    }
+  }
+}
@@ -299,7 +299,7 @@ public class TextRenderer extends AbstractRenderer {
       final Plot2D plot = plots[j];
       final String dtitle = plot.getTitle();
       if (dtitle != null && dtitle.length() != 0
-          && plot.getData() != null && plot.getData().length != 0) {
+          && plot.hasData()) {
         final int sw = getTextWidth(canvas, dtitle) + 4; // + point and spaces and comma
         keyWidth += sw;
       }
@@ -0,0 +1,136 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.reeltwo.plot.Plot2D;
+
+/**
+ * Draws the plots of a graph in vertical strips on the threads of a
+ * pool.  Each strip is drawn with the same mappings onto its own image,
+ * clipped to a little more than the strip, skipping data that falls
+ * outside it.  The images are then drawn over the graph in order.  As
+ * the images share the origin of the graphics being drawn on, each
+ * strip's image reaches back to the left of the graph, so that it is
+ * drawn on exactly the pixels drawing on the graphics would.  The
+ * images are kept to be drawn on again by later graphs.
+ *
+ * @author Richard Littin
+ */
+final class Tiles {
+
+  /** narrowest strip worth drawing on its own */
+  private static final int MIN_WIDTH = 32;
+  /** strips for each thread of the pool, to even out uneven data */
+  private static final int PER_THREAD = 2;
+  /**
+   * pixels each strip is drawn beyond its edges, as lines cut by a clip
+   * may differ in the pixels next to it
+   */
+  private static final int OVERLAP = 8;
+
+  /** images not being drawn on, shared by all threads */
+  private final Queue<BufferedImage> mFree = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Draws the plots of a graph in strips.  Strips are only used when
+   * the graphics is not scaled and has a clip around the data area,
+   * otherwise nothing is drawn.
+   *
+   * @param renderer renderer drawing the graph
+   * @param pool threads to draw on
+   * @param g graphics being drawn on
+   * @param plots plots of the graph
+   * @param mapping axis mappings of the graph
+   * @return true if the plots were drawn
+   */
+  boolean draw(final GraphicsRenderer renderer, ForkJoinPool pool, final Graphics2D g, final Plot2D[] plots, final Mapping[] mapping) {
+    final Rectangle bounds = renderer.getPixelClip(g);
+    if (bounds == null) {
+      return false;
+    }
+    final int count = Math.min(pool.getParallelism() * PER_THREAD, Math.max(1, bounds.width / MIN_WIDTH));
+    if (count < 2) {
+      return false;
+    }
+    // colors are given out before any strip is drawn
+    renderer.assignColors(plots);
+    final AffineTransform t = g.getTransform();
+    final int dx = (int) t.getTranslateX();
+    final int dy = (int) t.getTranslateY();
+    final GraphicsRenderer.Quality quality = renderer.getDrawQuality();
+    final List<ForkJoinTask<BufferedImage>> tasks = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final int x0 = bounds.x + (int) ((long) bounds.width * i / count);
+      final int x1 = bounds.x + (int) ((long) bounds.width * (i + 1) / count);
+      final Rectangle area = new Rectangle(x0 - OVERLAP, bounds.y, x1 - x0 + 2 * OVERLAP, bounds.height).intersection(bounds);
+      tasks.add(pool.submit(new Callable<BufferedImage>() {
+          @Override
+          public BufferedImage call() {
+            return drawStrip(renderer, quality, g, area, plots, mapping);
+          }
+        }));
+    }
+    final List<BufferedImage> images = new ArrayList<>();
+    try {
+      for (int i = 0; i < count; i++) {
+        final int x0 = bounds.x + (int) ((long) bounds.width * i / count);
+        final int x1 = bounds.x + (int) ((long) bounds.width * (i + 1) / count);
+        final BufferedImage image = tasks.get(i).join();
+        images.add(image);
+        g.drawImage(image.getSubimage(dx + x0, dy + bounds.y, x1 - x0, bounds.height), x0, bounds.y, null);
+      }
+    } finally {
+      mFree.addAll(images);
+    }
+    renderer.setLineWidth(g, 1);
+    return true;
+  }
+
+  // an image reaching at least to the far corner of pixels, cleared over pixels
+  private BufferedImage take(Rectangle pixels) {
+    BufferedImage image;
+    while ((image = mFree.poll()) != null) {
+      // images too small, after the graph grows, are let go
+      if (image.getWidth() >= pixels.x + pixels.width && image.getHeight() >= pixels.y + pixels.height) {
+        final Graphics2D g = image.createGraphics();
+        try {
+          g.setComposite(AlphaComposite.Clear);
+          g.fill(pixels);
+        } finally {
+          g.dispose();
+        }
+        return image;
+      }
+    }
+    return new BufferedImage(pixels.x + pixels.width, pixels.y + pixels.height, BufferedImage.TYPE_INT_ARGB_PRE);
+  }
+
+  private BufferedImage drawStrip(GraphicsRenderer renderer, GraphicsRenderer.Quality quality, Graphics2D dest, Rectangle area, Plot2D[] plots, Mapping[] mapping) {
+    final AffineTransform t = dest.getTransform();
+    final BufferedImage image = take(new Rectangle((int) t.getTranslateX() + area.x, (int) t.getTranslateY() + area.y, area.width, area.height));
+    final Graphics2D g = GraphicsRenderer.createAligned(image, dest, area);
+    renderer.setTile(area);
+    renderer.setDrawQuality(quality);
+    try {
+      for (int j = 0; j < plots.length; j++) {
+        renderer.drawPlot(g, plots[j], j, mapping);
+      }
+    } finally {
+      renderer.setTile(null);
+      renderer.setDrawQuality(null);
+      g.dispose();
+    }
+    return image;
+  }
+}
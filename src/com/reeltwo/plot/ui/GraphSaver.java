@@ -20,6 +20,7 @@ import com.reeltwo.plot.renderer.GraphicsRenderer;
 public class GraphSaver {
   private static final String PNG = "png";
   private static final String SVG = "svg";
+  private static final String PDF = "pdf";
 
   private int mFontSize = -1; // use default font size
   private int mWidth = 800;
@@ -38,6 +39,7 @@ public class GraphSaver {
     final FileExtensionFilter svg = new FileExtensionFilter(SVG);
     mChooser.addChoosableFileFilter(pff);
     mChooser.addChoosableFileFilter(svg);
+    mChooser.addChoosableFileFilter(new FileExtensionFilter(PDF));
     mChooser.setFileFilter(pff);
     mGraphicsRenderer = new GraphicsRenderer();
     mImageWriter = new ImageWriter(mGraphicsRenderer);
@@ -158,7 +160,15 @@ public class GraphSaver {
 
   private void writeImage(File file, Graph2D graph, String extension) {
     try {
-      mImageWriter.toImage(extension.equals(SVG) ? ImageWriter.ImageFormat.SVG : ImageWriter.ImageFormat.PNG, file, graph, mWidth, mHeight, null);
+      final ImageWriter.ImageFormat format;
+      if (extension.equals(SVG)) {
+        format = ImageWriter.ImageFormat.SVG;
+      } else if (extension.equals(PDF)) {
+        format = ImageWriter.ImageFormat.PDF;
+      } else {
+        format = ImageWriter.ImageFormat.PNG;
+      }
+      mImageWriter.toImage(format, file, graph, mWidth, mHeight, null);
     } catch (final Exception ioe) {
       System.err.println("Failed to write file " + ioe.getMessage());
     }
@@ -5,6 +5,8 @@ import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.GraphicsEnvironment;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -15,27 +17,29 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Deflater;
 
-import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
-import javax.imageio.ImageTypeSpecifier;
-import javax.imageio.ImageWriteParam;
 import javax.imageio.metadata.IIOMetadata;
-import javax.imageio.metadata.IIOMetadataNode;
-import javax.imageio.stream.ImageOutputStream;
 
 import org.w3c.dom.Node;
 
 import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.renderer.DisplayList;
 import com.reeltwo.plot.renderer.GraphicsRenderer;
 import com.reeltwo.plot.renderer.Mapping;
-
-import de.erichseifert.vectorgraphics2d.Document;
-import de.erichseifert.vectorgraphics2d.VectorGraphics2D;
-import de.erichseifert.vectorgraphics2d.svg.SVGProcessor;
-import de.erichseifert.vectorgraphics2d.util.PageSize;
+import com.reeltwo.plot.renderer.PdfRenderer;
+import com.reeltwo.plot.renderer.SvgRenderer;
 
 /**
  * Routines to write Graph2D's to graphics files of various formats.
@@ -47,9 +51,7 @@ public class ImageWriter {
   // Java ImageWriter format name for PNG
   private static final String IW_NAME_PNG = "png";
 
-  // Constants used in image metadata text insertion
-  private static final String META_FORMAT_NAME = "javax_imageio_png_1.0";
-  private static final String META_TEXT = "tEXt";
+  // Constants used in image metadata text extraction
   private static final String META_TEXTENTRY = "tEXtEntry";
   private static final String META_KEYWORD = "keyword";
   private static final String META_VALUE = "value";
@@ -59,6 +61,11 @@ public class ImageWriter {
 
   private final Map<String, String> mMetaData = new TreeMap<>();
 
+  private int mCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+  private PngFilter mPngFilter = PngFilter.ADAPTIVE;
+  private int mEncoderThreads = Runtime.getRuntime().availableProcessors();
+  private boolean mIndexedColor = false;
+
   /**
    * Supported image formats.
    */
@@ -66,7 +73,27 @@ public class ImageWriter {
     /** SVG file type Scalable vector graphics */
     SVG,
     /** Portable network graphics */
-    PNG
+    PNG,
+    /** Portable document format */
+    PDF
+  }
+
+  /**
+   * How rows of a PNG image are filtered before compression.
+   */
+  public enum PngFilter {
+    /** rows are not filtered */
+    NONE,
+    /** each byte less the byte to its left */
+    SUB,
+    /** each byte less the byte above */
+    UP,
+    /** each byte less the average of the bytes to the left and above */
+    AVERAGE,
+    /** each byte less the Paeth predictor */
+    PAETH,
+    /** whichever of the others suits each row best */
+    ADAPTIVE
   }
 
   /**
@@ -87,6 +114,60 @@ public class ImageWriter {
     mMetaData.put(key, value);
   }
 
+  /**
+   * Sets the compression level used for PNG output, from 0 (none) to
+   * 9 (best). Default is the zlib default level.
+   *
+   * @param level compression level, or -1 for the default.
+   */
+  public void setCompressionLevel(int level) {
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    }
+    mCompressionLevel = level;
+  }
+
+  /**
+   * Sets how rows of PNG output are filtered before compression.
+   * Default is to choose the best filter for each row.
+   *
+   * @param filter row filter.
+   */
+  public void setPngFilter(PngFilter filter) {
+    if (filter == null) {
+      throw new NullPointerException("null filter given.");
+    }
+    mPngFilter = filter;
+  }
+
+  /**
+   * Sets whether PNG images using no more than 256 colours are written
+   * as palette images, which are much smaller and quicker to write.
+   * The colours of each image are found after it has been drawn, so
+   * images with more colours, such as those with antialiasing, are
+   * still written in full colour. Images written a band at a time are
+   * always written in full colour. Default is full colour.
+   *
+   * @param flag whether to write palette images.
+   */
+  public void setIndexedColor(boolean flag) {
+    mIndexedColor = flag;
+  }
+
+  /**
+   * Sets the number of threads used to compress each PNG image.
+   * Default is one per available processor. Batches of images are
+   * compressed one thread per image.
+   *
+   * @param threads number of threads.
+   */
+  public void setEncoderThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be greater than 0");
+    }
+    mEncoderThreads = threads;
+  }
+
   /**
    * Writes the given graph out to a formatted file of the specified
    * <tt>type</tt> . The width and height parameters determine the
@@ -134,6 +215,78 @@ public class ImageWriter {
         return toPNG(os, graph, width, height, font);
       case SVG:
         return toSVG(os, graph, width, height, font);
+      case PDF:
+        return toPDF(os, graph, width, height, font);
+      default:
+        throw new IllegalArgumentException("Illegal image type '" + type + "' given.");
+    }
+  }
+
+
+  /**
+   * Lays out the given graph for an image of the given dimensions and
+   * records the drawing, so the graph can be written in several
+   * formats without laying it out again. A null font gives the
+   * default font of PNG images in every format.
+   *
+   * @param graph graph to record.
+   * @param width width of image.
+   * @param height height of image.
+   * @param font font to use in graph.
+   * @return the recorded graph.
+   */
+  public DisplayList record(Graph2D graph, int width, int height, Font font) {
+    if (graph == null) {
+      throw new NullPointerException("null graph given.");
+    }
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("dimensions must be greater than 0");
+    }
+    return DisplayList.record(mGraphicsRenderer, graph, Math.max(0, width - 10), Math.max(0, height - 10), font);
+  }
+
+
+  /**
+   * Writes a graph recorded by <code>record</code> out to a formatted
+   * output stream of the specified <tt>type</tt>, with the dimensions
+   * it was recorded for. The mappings from world to screen data
+   * points for each axis pair is returned.
+   *
+   * @param type type of image to produce.
+   * @param os stream to write to.
+   * @param list recorded graph to save.
+   * @return an array of world to screen mappings.
+   * @exception IOException if a file writing error occurs.
+   */
+  public Mapping[] toImage(ImageFormat type, OutputStream os, DisplayList list) throws IOException {
+    if (os == null) {
+      throw new NullPointerException("null output stream given.");
+    }
+    if (list == null) {
+      throw new NullPointerException("null display list given.");
+    }
+    switch (type) {
+      case PNG:
+        final BufferedImage bi = new BufferedImage(list.getWidth() + 10, list.getHeight() + 10, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = bi.createGraphics();
+        final Mapping[] mapping;
+        try {
+          g.setColor(Color.WHITE);
+          g.fillRect(0, 0, bi.getWidth(), bi.getHeight());
+          mapping = list.draw(g, 5, 5);
+        } finally {
+          g.dispose();
+        }
+        writePNG(os, bi, mEncoderThreads);
+        return mapping;
+      case SVG:
+        final SvgRenderer svg = new SvgRenderer();
+        svg.setRendererConfig(mGraphicsRenderer);
+        return svg.drawGraph(list, os, 5);
+      case PDF:
+        final PdfRenderer pdf = new PdfRenderer();
+        pdf.setRendererConfig(mGraphicsRenderer);
+        return pdf.drawGraph(list, os, 5);
       default:
         throw new IllegalArgumentException("Illegal image type '" + type + "' given.");
     }
@@ -166,44 +319,256 @@ public class ImageWriter {
     }
 
     final BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final Mapping[] mapping = drawPNG(bi, graph, font);
+    writePNG(os, bi, mEncoderThreads);
+    return mapping;
+  }
+
+  /**
+   * Writes the given graph out to a PNG formatted output stream one
+   * horizontal band at a time. Each band is drawn from the whole
+   * graph and its rows are compressed as soon as they are drawn, so
+   * only a single band of the image is ever held in memory. Use this
+   * for images too large to fit in memory as a whole. The mappings
+   * from world to screen data points for each axis pair is returned.
+   *
+   * @param os stream to write to.
+   * @param graph graph to save.
+   * @param width width of image.
+   * @param height height of image.
+   * @param font font to use in graph.
+   * @param bandHeight number of rows drawn at a time.
+   * @return an array of world to screen mappings.
+   * @exception IOException if a file writing error occurs.
+   */
+  public Mapping[] toPNG(OutputStream os, Graph2D graph, int width, int height, Font font, int bandHeight) throws IOException {
+    if (os == null) {
+      throw new NullPointerException("null output stream given.");
+    }
+    if (graph == null) {
+      throw new NullPointerException("null graph given.");
+    }
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("dimensions must be greater than 0");
+    }
+    if (bandHeight < 1) {
+      throw new IllegalArgumentException("band height must be greater than 0");
+    }
+
+    final BufferedImage band = new BufferedImage(width, Math.min(bandHeight, height), BufferedImage.TYPE_INT_RGB);
+    final int[] pixels = ((DataBufferInt) band.getRaster().getDataBuffer()).getData();
+    Mapping[] mapping = null;
+    try (PngEncoder encoder = new PngEncoder(os, width, height, mMetaData, mCompressionLevel, mPngFilter, mEncoderThreads)) {
+      for (int y = 0; y < height; y += band.getHeight()) {
+        final Graphics2D g = band.createGraphics();
+        try {
+          // the band image clips everything drawn outside it, and the
+          // clip keeps the renderer's own images to the band
+          g.translate(0, -y);
+          g.clipRect(0, y, width, band.getHeight());
+          if (font != null) {
+            g.setFont(font);
+          }
+          g.setColor(Color.WHITE);
+          g.fillRect(0, y, width, band.getHeight());
+          mapping = mGraphicsRenderer.drawGraph(graph, g, 5, 5, width - 10, height - 10);
+        } finally {
+          g.dispose();
+        }
+        encoder.writeRows(pixels, 0, width, Math.min(band.getHeight(), height - y));
+      }
+      encoder.finish();
+    }
+    return mapping;
+  }
+
+  private Mapping[] drawPNG(BufferedImage bi, Graph2D graph, Font font) {
+    final int width = bi.getWidth();
+    final int height = bi.getHeight();
     final Graphics2D g = bi.createGraphics();
-    if (font != null) {
-      g.setFont(font);
+    try {
+      if (font != null) {
+        g.setFont(font);
+      }
+      g.setColor(Color.WHITE);
+      g.fillRect(0, 0, width, height);
+      return mGraphicsRenderer.drawGraph(graph, g, 5, 5, width - 10, height - 10);
+    } finally {
+      g.dispose();
+    }
+  }
+
+  private void writePNG(OutputStream os, BufferedImage bi, int threads) throws IOException {
+    final int[] pixels = ((DataBufferInt) bi.getRaster().getDataBuffer()).getData();
+    final int[] palette = mIndexedColor ? PngEncoder.palette(pixels, 0, bi.getWidth(), bi.getWidth(), bi.getHeight()) : null;
+    try (PngEncoder encoder = new PngEncoder(os, bi.getWidth(), bi.getHeight(), palette, mMetaData, mCompressionLevel, mPngFilter, threads)) {
+      encoder.writeRows(pixels, 0, bi.getWidth(), bi.getHeight());
+      encoder.finish();
     }
-    g.setColor(Color.WHITE);
-    g.fillRect(0, 0, width, height);
+  }
 
-    mGraphicsRenderer.drawGraph(graph, g, 5, 5, width - 10, height - 10);
-    final Mapping[] mapping = mGraphicsRenderer.getMappings();
 
-    final javax.imageio.ImageWriter writer = ImageIO.getImageWritersByFormatName(IW_NAME_PNG).next();
-    final ImageWriteParam writeParam = writer.getDefaultWriteParam();
-    final ImageTypeSpecifier typeSpecifier = ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_RGB);
-    final IIOMetadata metadata = writer.getDefaultImageMetadata(typeSpecifier, writeParam);
+  /**
+   * A graph to be written to a PNG file as part of a batch.
+   */
+  public static final class Job {
+    private final Graph2D mGraph;
+    private final int mWidth;
+    private final int mHeight;
+    private final File mFile;
 
-    for (Map.Entry<String, String> e : mMetaData.entrySet()) {
-      final IIOMetadataNode root = new IIOMetadataNode(META_FORMAT_NAME);
-      final IIOMetadataNode text = new IIOMetadataNode(META_TEXT);
-      final IIOMetadataNode textEntry = new IIOMetadataNode(META_TEXTENTRY);
-      textEntry.setAttribute(META_KEYWORD, e.getKey());
-      textEntry.setAttribute(META_VALUE, e.getValue());
-      text.appendChild(textEntry);
-      root.appendChild(text);
-      metadata.mergeTree(META_FORMAT_NAME, root);
+    /**
+     * Creates a job writing a graph to a file.
+     *
+     * @param graph graph to save.
+     * @param width width of image.
+     * @param height height of image.
+     * @param file File to save graph to.
+     */
+    public Job(Graph2D graph, int width, int height, File file) {
+      if (graph == null) {
+        throw new NullPointerException("null graph given.");
+      }
+      if (file == null) {
+        throw new NullPointerException("null file given.");
+      }
+      if (width < 0 || height < 0) {
+        throw new IllegalArgumentException("dimensions must be greater than 0");
+      }
+      mGraph = graph;
+      mWidth = width;
+      mHeight = height;
+      mFile = file;
     }
 
-    try (ImageOutputStream stream = ImageIO.createImageOutputStream(os)) {
-      writer.setOutput(stream);
-      writer.write(metadata, new IIOImage(bi, null, metadata), writeParam);
+    /** @return graph to save */
+    public Graph2D getGraph() {
+      return mGraph;
+    }
+
+    /** @return width of image */
+    public int getWidth() {
+      return mWidth;
+    }
+
+    /** @return height of image */
+    public int getHeight() {
+      return mHeight;
+    }
+
+    /** @return file to save graph to */
+    public File getFile() {
+      return mFile;
+    }
+  }
+
+
+  /**
+   * Writes each of the given jobs out to a PNG file, using one
+   * worker thread per available processor.
+   *
+   * @param jobs graphs to save.
+   * @param font font to use in graphs.
+   * @return the mappings for each job, in the same order as the jobs.
+   * @see #toPNG(List, Font, int)
+   */
+  public List<Future<Mapping[]>> toPNG(List<Job> jobs, Font font) {
+    return toPNG(jobs, font, Runtime.getRuntime().availableProcessors());
+  }
+
+
+  /**
+   * Writes each of the given jobs out to a PNG file. Jobs are drawn
+   * and encoded concurrently on at most <code>threads</code> worker
+   * threads, and images of the same size are reused between jobs.
+   * This method returns as soon as the jobs are queued; each future
+   * completes with the world to screen mappings of its graph, or
+   * fails with the <code>IOException</code> that stopped it being
+   * written. The graphs and the metadata of this writer must not be
+   * changed until the batch has finished.
+   *
+   * @param jobs graphs to save.
+   * @param font font to use in graphs.
+   * @param threads maximum number of worker threads.
+   * @return the mappings for each job, in the same order as the jobs.
+   */
+  public List<Future<Mapping[]>> toPNG(List<Job> jobs, final Font font, int threads) {
+    if (jobs == null) {
+      throw new NullPointerException("null jobs given.");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be greater than 0");
+    }
+    final ImagePool pool = new ImagePool();
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, jobs.size())), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          final Thread t = new Thread(r, "ImageWriter");
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    try {
+      final List<Future<Mapping[]>> futures = new ArrayList<>(jobs.size());
+      for (final Job job : jobs) {
+        futures.add(executor.submit(new Callable<Mapping[]>() {
+            @Override
+            public Mapping[] call() throws IOException {
+              final BufferedImage bi = pool.take(job.getWidth(), job.getHeight());
+              try {
+                final Mapping[] mapping = drawPNG(bi, job.getGraph(), font);
+                // the batch already keeps every worker busy, so compress on this one
+                try (OutputStream os = new BufferedOutputStream(new FileOutputStream(job.getFile()))) {
+                  writePNG(os, bi, 1);
+                }
+                return mapping;
+              } finally {
+                pool.give(bi);
+              }
+            }
+          }));
+      }
+      return futures;
+    } finally {
+      // workers exit once the queued jobs are done
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Images free for reuse, by size. No more images are made than
+   * there are workers drawing at once.
+   */
+  private static final class ImagePool {
+    private final ConcurrentHashMap<Long, Queue<BufferedImage>> mFree = new ConcurrentHashMap<>();
+
+    private static Long key(int width, int height) {
+      return ((long) width << 32) | height;
+    }
+
+    BufferedImage take(int width, int height) {
+      final Queue<BufferedImage> free = mFree.get(key(width, height));
+      final BufferedImage bi = free == null ? null : free.poll();
+      return bi != null ? bi : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    void give(BufferedImage bi) {
+      final Long key = key(bi.getWidth(), bi.getHeight());
+      Queue<BufferedImage> free = mFree.get(key);
+      if (free == null) {
+        mFree.putIfAbsent(key, new ConcurrentLinkedQueue<BufferedImage>());
+        free = mFree.get(key);
+      }
+      free.offer(bi);
     }
-    return mapping;
   }
 
   /**
    * Writes the given graph out to a SVG formatted output stream. The
    * width and height parameters determine the dimension of the image
-   * (in pixels). The mappings from world to screen data points for
-   * each axis pair is returned.
+   * (in pixels). The document is written as the graph is drawn, so
+   * large plots need no more memory than small ones. The mappings
+   * from world to screen data points for each axis pair is returned.
    *
    * @param os stream to write to.
    * @param graph graph to save.
@@ -224,21 +589,40 @@ public class ImageWriter {
       throw new IllegalArgumentException("dimensions must be greater than 0");
     }
 
-    final VectorGraphics2D g = new VectorGraphics2D();
-    if (font != null) {
-      g.setFont(font);
-    } else {
-      g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 10));
-    }
-    g.setColor(Color.WHITE);
-    g.fillRect(0, 0, width, height);
-    final int inset = 5;
-    mGraphicsRenderer.drawGraph(graph, g, inset, inset, width - 2 * inset, height - 2 * inset);
-    final Mapping[] mapping = mGraphicsRenderer.getMappings();
-    final SVGProcessor proc = new SVGProcessor();
-    final Document document = proc.getDocument(g.getCommands(), new PageSize(width, height));
-    document.writeTo(os);
-    return mapping;
+    final SvgRenderer renderer = new SvgRenderer();
+    renderer.setRendererConfig(mGraphicsRenderer);
+    return renderer.drawGraph(graph, os, width, height, 5, font);
+  }
+
+  /**
+   * Writes the given graph out to a single page PDF formatted output
+   * stream. The width and height parameters determine the dimension
+   * of the page (in points, one per pixel). As with SVG, the document
+   * is written as the graph is drawn. The mappings from world to
+   * screen data points for each axis pair is returned.
+   *
+   * @param os stream to write to.
+   * @param graph graph to save.
+   * @param width width of page.
+   * @param height height of page.
+   * @param font font to use in graph.
+   * @return an array of world to screen mappings.
+   * @exception IOException if a file writing error occurs.
+   */
+  public Mapping[] toPDF(OutputStream os, Graph2D graph, int width, int height, Font font) throws IOException {
+    if (os == null) {
+      throw new NullPointerException("null output stream given.");
+    }
+    if (graph == null) {
+      throw new NullPointerException("null graph given.");
+    }
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("dimensions must be greater than 0");
+    }
+
+    final PdfRenderer renderer = new PdfRenderer();
+    renderer.setRendererConfig(mGraphicsRenderer);
+    return renderer.drawGraph(graph, os, width, height, 5, font);
   }
 
   /**
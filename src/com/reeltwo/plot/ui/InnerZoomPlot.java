@@ -6,14 +6,18 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.InputEvent;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.util.Stack;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.MouseInputAdapter;
 
 import com.reeltwo.plot.Axis;
@@ -25,7 +29,15 @@ import com.reeltwo.plot.renderer.Mapping;
 
 /**
  * A zoomable version of plot panel that doesn't try to control the whole world and allows
- * user to select and zoom in on arbitrary regions of the plot.
+ * user to select and zoom in on arbitrary regions of the plot.  The
+ * mouse wheel zooms about the mouse and dragging with the middle
+ * button, or with shift held, pans.
+ *
+ * The zoom box, crosshair and picture in picture are drawn over a kept
+ * image of the graph, which is only drawn again for them when the
+ * graph's version changes.  Data changed in place should be followed by
+ * a call to the plot's <code>changed</code> method, although any other
+ * call to <code>repaint</code> draws the graph again.
  *
  * Pnp is untested.
  *
@@ -37,6 +49,11 @@ public class InnerZoomPlot extends PlotPanel {
   /** an id */
   private static final long serialVersionUID = -209546782221560829L;
 
+  /** how much one click of the mouse wheel zooms by */
+  private static final double WHEEL_ZOOM = 1.25;
+  /** milliseconds the view must stay still before the graph is drawn again */
+  private static final int NAVIGATE_DELAY = 250;
+
   private Point mPtOne = null;
   private Point mPtTwo = null;
   private Point mPtPNP = new Point(0, 0);
@@ -48,9 +65,21 @@ public class InnerZoomPlot extends PlotPanel {
 
   private boolean mPicNPic = false;
 
+  /** last mouse position while dragging to pan, or null */
+  private Point mPanFrom = null;
+  /** ends a run of wheel zooms once the wheel stays still */
+  private final Timer mWheelEnd;
+
+  private boolean mCrosshair = false;
+  /** mouse position for the crosshair, or null when outside the panel */
+  private Point mCursor = null;
+
   private Graph2D mWholeGraph;
 
   private final GraphicsRenderer mPnPGraphicsRenderer;
+  private final Refiner mPnPRefiner = new Refiner(this);
+  /** picture of the whole graph, kept between paints */
+  private final Overview mOverview = new Overview();
   private final AbstractAction mDefaultZoomAction;
   private final AbstractAction mUndoZoomAction;
 
@@ -106,14 +135,37 @@ public class InnerZoomPlot extends PlotPanel {
     @Override
     public void mouseDragged(MouseEvent e) {
       //System.err.println("Mouse Dragged");
-      if ((e.getModifiers() & InputEvent.BUTTON1_MASK) == InputEvent.BUTTON1_MASK) {
+      if (mPanFrom != null) {
+        final Point p = e.getPoint();
+        pan(p.x - mPanFrom.x, p.y - mPanFrom.y);
+        mPanFrom = p;
+      } else if ((e.getModifiers() & InputEvent.BUTTON1_MASK) == InputEvent.BUTTON1_MASK) {
         final Point p = e.getPoint();
 //        if (InnerZoomPlot.this == SwingUtilities.getDeepestComponentAt(InnerZoomPlot.this, p.x, p.y)) {
+          final Rectangle before = getBandBounds();
           InnerZoomPlot.this.setPointTwo(p);
-          InnerZoomPlot.this.repaint();
+          if (mPtPNP1 != null || mCrosshair) {
+            repaintOverlays();
+          } else {
+            // only the zoom box has moved
+            repaintBand(before, getBandBounds());
+          }
          // System.err.println("Mouse dragged in panel");
 //        }
       }
+      moveCursor(e.getPoint());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void mouseMoved(MouseEvent e) {
+      moveCursor(e.getPoint());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void mouseExited(MouseEvent e) {
+      moveCursor(null);
     }
 
 
@@ -121,13 +173,16 @@ public class InnerZoomPlot extends PlotPanel {
     @Override
     public void mousePressed(MouseEvent e) {
       //System.err.println("Mouse Pressed");
-      if ((e.getModifiers() & InputEvent.BUTTON1_MASK) == InputEvent.BUTTON1_MASK) {
+      endWheel();
+      if (isPan(e)) {
+        mPanFrom = e.getPoint();
+      } else if ((e.getModifiers() & InputEvent.BUTTON1_MASK) == InputEvent.BUTTON1_MASK) {
         final Point p = e.getPoint();
         final Component deepestComponentAt = SwingUtilities.getDeepestComponentAt(InnerZoomPlot.this, p.x, p.y);
         if (InnerZoomPlot.this == deepestComponentAt) {
           InnerZoomPlot.this.setPointOne(p);
           InnerZoomPlot.this.setPointTwo(p);
-          InnerZoomPlot.this.repaint();
+          repaintOverlays();
         }
       }
     }
@@ -137,13 +192,36 @@ public class InnerZoomPlot extends PlotPanel {
     @Override
     public void mouseReleased(MouseEvent e) {
       //System.err.println("Mouse Released");
-      if ((e.getModifiers() & InputEvent.BUTTON1_MASK) == InputEvent.BUTTON1_MASK) {
+      if (mPanFrom != null) {
+        mPanFrom = null;
+        endGesture();
+      } else if ((e.getModifiers() & InputEvent.BUTTON1_MASK) == InputEvent.BUTTON1_MASK) {
         final Point p = e.getPoint();
         InnerZoomPlot.this.setPointTwo(p);
         InnerZoomPlot.this.zoomIn();
         InnerZoomPlot.this.repaint();
       }
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+      zoom(e.getPoint(), Math.pow(WHEEL_ZOOM, e.getPreciseWheelRotation()));
+      mWheelEnd.restart();
+    }
+
+    // middle button, or left button with shift, drags the view
+    private boolean isPan(MouseEvent e) {
+      return SwingUtilities.isMiddleMouseButton(e) || (SwingUtilities.isLeftMouseButton(e) && e.isShiftDown());
+    }
+  }
+
+  /** Draws the zoom box, picture in picture and crosshair. */
+  private class InteractionOverlay implements Overlay {
+    @Override
+    public void paintOverlay(Graphics g, Mapping[] mapping) {
+      paintInteraction(g, mapping);
+    }
   }
 
   /**
@@ -155,10 +233,20 @@ public class InnerZoomPlot extends PlotPanel {
     final MouseInputAdapter listener = new ZoomListener();
     addMouseListener(listener);
     addMouseMotionListener(listener);
+    addMouseWheelListener(listener);
+    addOverlay(new InteractionOverlay());
     mPnPGraphicsRenderer = new GraphicsRenderer();
+    mWheelEnd = new Timer(NAVIGATE_DELAY, new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+          endGesture();
+        }
+      });
+    mWheelEnd.setRepeats(false);
     mUndoZoomAction = new AbstractAction("Undo Zoom", null) {
       @Override
       public void actionPerformed(ActionEvent e) {
+        endWheel();
         final Graph2D graph = InnerZoomPlot.super.getGraph();
         if (graph != null && !mZoom.mStack.isEmpty()) {
           mZoom.mStack.pop(); // Discard current zoom level
@@ -174,6 +262,7 @@ public class InnerZoomPlot extends PlotPanel {
       @Override
       public void actionPerformed(ActionEvent e) {
         final Graph2D graph = InnerZoomPlot.super.getGraph();
+        mWheelEnd.stop();
         if (graph != null) {
           mZoom.mDefault.toGraph(graph);
           InnerZoomPlot.super.setGraph(graph);
@@ -192,6 +281,13 @@ public class InnerZoomPlot extends PlotPanel {
     mOriginIsMin = flag;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public void setProgressiveRendering(GraphicsRenderer.Quality draft, int delay) {
+    mPnPRefiner.set(draft, delay);
+    super.setProgressiveRendering(draft, delay);
+  }
+
   /**
    * Returns an action that resets the zoom.
    *
@@ -225,6 +321,7 @@ public class InnerZoomPlot extends PlotPanel {
     return mZoom;
   }
   public void setZoomConfiguration(ZoomConfiguration config) {
+    mWheelEnd.stop();
     mZoom = config;
     ZoomBounds bounds = mZoom.mStack.isEmpty() ? mZoom.mDefault : mZoom.mStack.peek();
     getUndoZoomAction().setEnabled(!mZoom.mStack.isEmpty());
@@ -250,8 +347,9 @@ public class InnerZoomPlot extends PlotPanel {
       public void actionPerformed(ActionEvent e) {
         mPicNPic = !mPicNPic;
         mPnPGraphicsRenderer.setRendererConfig(mGraphicsRenderer); // No live updates
+        mOverview.clear();
         putValue("Name", "Pic In Pic " + (mPicNPic ? "Off" : "On"));
-        InnerZoomPlot.this.repaint();
+        repaintOverlays();
       }
     };
   }
@@ -284,17 +382,64 @@ public class InnerZoomPlot extends PlotPanel {
     }
   }
 
-  /** {@inheritDoc} */
-  @Override
-  public void paintComponent(Graphics g) {
-    super.paintComponent(g);
+  /**
+   * Sets whether to draw a crosshair through the mouse position over
+   * the data area of the graph.
+   *
+   * @param flag whether to draw a crosshair
+   */
+  public void setCrosshair(boolean flag) {
+    mCrosshair = flag;
+    repaintOverlays();
+  }
+
+  /**
+   * Returns whether a crosshair is drawn through the mouse position.
+   *
+   * @return true if a crosshair is drawn
+   */
+  public boolean isCrosshair() {
+    return mCrosshair;
+  }
+
+  private void moveCursor(Point p) {
+    mCursor = p;
+    if (mCrosshair) {
+      repaintOverlays();
+    }
+  }
+
+  // area covered by the zoom box, or null if there is none
+  private Rectangle getBandBounds() {
     if (mPtOne != null && mPtTwo != null && !mPtOne.equals(mPtTwo)) {
-      g.setColor(Color.BLACK);
       final int x = (int) Math.min(mPtOne.getX(), mPtTwo.getX());
       final int y = (int) Math.min(mPtOne.getY(), mPtTwo.getY());
       final int width = (int) Math.abs(mPtOne.getX() - mPtTwo.getX());
       final int height = (int) Math.abs(mPtOne.getY() - mPtTwo.getY());
-      g.drawRect(x, y, width, height);
+      return new Rectangle(x, y, width, height);
+    }
+    return null;
+  }
+
+  private void repaintBand(Rectangle before, Rectangle after) {
+    Rectangle area = null;
+    for (final Rectangle r : new Rectangle[] {before, after}) {
+      if (r != null) {
+        // the outline covers one pixel more than the box
+        final Rectangle outline = new Rectangle(r.x, r.y, r.width + 1, r.height + 1);
+        area = area == null ? outline : area.union(outline);
+      }
+    }
+    if (area != null) {
+      repaintOverlays(area);
+    }
+  }
+
+  private void paintInteraction(Graphics g, Mapping[] mapping) {
+    final Rectangle band = getBandBounds();
+    if (band != null) {
+      g.setColor(Color.BLACK);
+      g.drawRect(band.x, band.y, band.width, band.height);
     }
 
     if (mPicNPic) {
@@ -316,12 +461,21 @@ public class InnerZoomPlot extends PlotPanel {
 
         final int pnpX = (int) mPtPNP.getX();
         final int pnpY = (int) mPtPNP.getY();
-        g.setColor(Color.WHITE);
-        g.fillRect(pnpX, pnpY, mPNPWidth, mPNPHeight);
-        g.setColor(Color.BLACK);
-        g.drawRect(pnpX, pnpY, mPNPWidth, mPNPHeight);
-        final Graphics g2 = g.create(pnpX, pnpY, mPNPWidth, mPNPHeight);
-        mPnPGraphicsRenderer.drawGraph(mWholeGraph, g2, mPNPWidth, mPNPHeight);
+        final GraphicsRenderer.Quality quality = mPnPRefiner.getQuality(mWholeGraph, mWholeGraph.getVersion(), mPNPWidth, mPNPHeight, mPnPGraphicsRenderer.getQuality());
+        mOverview.draw(mPnPGraphicsRenderer, g, mWholeGraph, InnerZoomPlot.super.getGraph(), pnpX, pnpY, mPNPWidth, mPNPHeight, quality);
+      }
+    }
+
+    final Point cursor = mCursor;
+    if (mCrosshair && cursor != null && mapping != null && mapping[0] != null && mapping[1] != null) {
+      final int xlo = (int) Math.min(mapping[0].getScreenMin(), mapping[0].getScreenMax());
+      final int xhi = (int) Math.max(mapping[0].getScreenMin(), mapping[0].getScreenMax());
+      final int ylo = (int) Math.min(mapping[1].getScreenMin(), mapping[1].getScreenMax());
+      final int yhi = (int) Math.max(mapping[1].getScreenMin(), mapping[1].getScreenMax());
+      if (cursor.x >= xlo && cursor.x <= xhi && cursor.y >= ylo && cursor.y <= yhi) {
+        g.setColor(Color.GRAY);
+        g.drawLine(cursor.x, ylo, cursor.x, yhi);
+        g.drawLine(xlo, cursor.y, xhi, cursor.y);
       }
     }
   }
@@ -369,6 +523,103 @@ public class InnerZoomPlot extends PlotPanel {
     mPtPNP1 = mPtPNP2 = null;
   }
 
+  /**
+   * Zooms the graph about a point, keeping the point at the same place
+   * on the screen.  The picture of the graph is moved straight away and
+   * the graph is drawn again once the view stays still.
+   *
+   * @param p point to zoom about
+   * @param factor how much to scale the axis ranges by, less than one
+   * zooms in
+   */
+  protected void zoom(Point p, double factor) {
+    final Mapping[] mapping = getMapping();
+    final Graph2D graph = super.getGraph();
+    if (mapping != null && graph != null && !mPicNPic && factor > 0) {
+      for (int i = 0; i < mapping.length; i++) {
+        final Mapping map = mapping[i];
+        final float centre = i % 2 == 0 ? p.x : p.y;
+        final float lo = map == null ? 0 : map.screenToWorld((float) (centre + (map.getScreenMin() - centre) * factor));
+        final float hi = map == null ? 0 : map.screenToWorld((float) (centre + (map.getScreenMax() - centre) * factor));
+        setRange(graph, i, map, lo, hi);
+      }
+      previewRanges(NAVIGATE_DELAY);
+    }
+  }
+
+  /**
+   * Moves the graph by a distance on the screen.  The picture of the
+   * graph is moved straight away and the graph is drawn again once the
+   * view stays still.
+   *
+   * @param dx pixels to move right
+   * @param dy pixels to move down
+   */
+  protected void pan(int dx, int dy) {
+    final Mapping[] mapping = getMapping();
+    final Graph2D graph = super.getGraph();
+    if (mapping != null && graph != null && !mPicNPic && (dx != 0 || dy != 0)) {
+      for (int i = 0; i < mapping.length; i++) {
+        final Mapping map = mapping[i];
+        final int d = i % 2 == 0 ? dx : dy;
+        float lo = map == null ? 0 : map.screenToWorld(map.getScreenMin() - d);
+        float hi = map == null ? 0 : map.screenToWorld(map.getScreenMax() - d);
+        if (mOriginIsMin && Math.min(lo, hi) < 0 && map != null && !map.isLog()) {
+          // stop at the origin without changing the span
+          final float shift = Math.min(lo, hi);
+          lo -= shift;
+          hi -= shift;
+        }
+        setRange(graph, i, map, lo, hi);
+      }
+      previewRanges(NAVIGATE_DELAY);
+    }
+  }
+
+  // sets the range of the axis of a mapping if the graph uses it
+  private void setRange(Graph2D graph, int i, Mapping map, float lo, float hi) {
+    final Axis axis = i % 2 == 0 ? Axis.X : Axis.Y;
+    final Edge edge = i < 2 ? Edge.MAIN : Edge.ALTERNATE;
+    if (map != null && graph.uses(axis, edge) && (Math.abs(map.getWorldMax() - map.getWorldMin()) > 0.01f)) {
+      final float rangeMin = rangeMin(lo, hi);
+      final float rangeMax = rangeMax(lo, hi);
+      if (rangeMin != rangeMax && !Float.isNaN(rangeMin) && !Float.isNaN(rangeMax)
+          && !Float.isInfinite(rangeMin) && !Float.isInfinite(rangeMax)) {
+        graph.setRange(axis, edge, rangeMin, rangeMax);
+      }
+    }
+  }
+
+  /**
+   * Ends a run of wheel zooms and a preview of moved axis ranges now,
+   * as their timers do when they fire.
+   */
+  @Override
+  void settle() {
+    endWheel();
+    super.settle();
+  }
+
+  // ends a run of wheel zooms still waiting for the wheel to stop
+  private void endWheel() {
+    if (mWheelEnd.isRunning()) {
+      mWheelEnd.stop();
+      endGesture();
+    }
+  }
+
+  // keeps the view left by a wheel or drag gesture as a zoom level, so
+  // that it can be undone
+  private void endGesture() {
+    final Graph2D graph = super.getGraph();
+    if (graph != null) {
+      final ZoomBounds last = mZoom.mStack.isEmpty() ? mZoom.mDefault : mZoom.mStack.peek();
+      if (!last.hasSameBounds(graph)) {
+        addZoomLevel(graph);
+      }
+    }
+  }
+
   protected void addZoomLevel(Graph2D graph) {
     ZoomBounds zoom = new ZoomBounds();
     zoom.fromGraph(graph);
@@ -422,6 +673,7 @@ public class InnerZoomPlot extends PlotPanel {
    * @param retainZoom whether to reset zoom
    */
   public void setGraph(Graph2D graph, boolean retainZoom) {
+    endWheel();
     if (graph == null) {
       return;
     } else {
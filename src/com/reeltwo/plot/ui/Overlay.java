@@ -0,0 +1,25 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.Graphics;
+
+import com.reeltwo.plot.renderer.Mapping;
+
+/**
+ * Implement this interface to draw interaction graphics, such as a
+ * zoom box, a cursor or highlights, over the graph in a PlotPanel.
+ * Overlays are drawn over a kept image of the graph, so they can be
+ * repainted as often as the mouse moves without drawing the graph
+ * again.
+ *
+ * @author Richard Littin
+ */
+public interface Overlay {
+  /**
+   * Implement this to draw over the graph.
+   *
+   * @param g graphics of the panel
+   * @param mapping axis mappings of the graph shown, or null if there
+   * is no graph
+   */
+  void paintOverlay(Graphics g, Mapping[] mapping);
+}
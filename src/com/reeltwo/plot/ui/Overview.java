@@ -0,0 +1,94 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Edge;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.renderer.GraphicsRenderer;
+import com.reeltwo.plot.renderer.GraphicsRenderer.Quality;
+import com.reeltwo.plot.renderer.Mapping;
+
+/**
+ * A small picture of a whole graph shown over a zoomed view of it.
+ * The picture is kept between paints, so that dragging the zoom box
+ * only costs drawing the picture and the boxes over it.  It is drawn
+ * again when the graph's version, the size, the font or the quality
+ * changes, or when it is cleared.
+ *
+ * @author Richard Littin
+ */
+final class Overview {
+
+  private static final Color VIEW_COLOR = Color.RED;
+
+  private BufferedImage mImage = null;
+  private Graph2D mGraph = null;
+  private long mVersion = -1;
+  private Font mFont = null;
+  private Quality mQuality = null;
+  private Mapping[] mMapping = null;
+
+  /**
+   * Forgets the picture, for when the renderer's configuration changes.
+   */
+  void clear() {
+    mImage = null;
+  }
+
+  /**
+   * Draws the picture of a graph with a border, and a box around the
+   * part of it being viewed.
+   *
+   * @param renderer renderer to draw the graph with
+   * @param g graphics to draw on
+   * @param graph whole graph
+   * @param view graph of the zoomed view, or null
+   * @param x left of the picture
+   * @param y top of the picture
+   * @param width width of the picture
+   * @param height height of the picture
+   * @param quality quality to draw the graph with
+   */
+  void draw(GraphicsRenderer renderer, Graphics g, Graph2D graph, Graph2D view, int x, int y, int width, int height, Quality quality) {
+    BufferedImage image = mImage;
+    final Font font = g.getFont();
+    if (image == null || image.getWidth() != width || image.getHeight() != height || graph != mGraph
+        || graph.getVersion() != mVersion || !font.equals(mFont) || quality != mQuality) {
+      image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      final Graphics g2 = image.createGraphics();
+      try {
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, width, height);
+        g2.setFont(font);
+        mMapping = renderer.drawGraph(graph, g2, 0, 0, width, height, quality);
+      } finally {
+        g2.dispose();
+      }
+      mImage = image;
+      mGraph = graph;
+      // drawing may give plots their colors
+      mVersion = graph.getVersion();
+      mFont = font;
+      mQuality = quality;
+    }
+    g.drawImage(image, x, y, null);
+    g.setColor(Color.BLACK);
+    g.drawRect(x, y, width, height);
+    if (view != null && mMapping != null && mMapping[0] != null && mMapping[1] != null) {
+      final int x1 = clamp((int) mMapping[0].worldToScreen(view.getLo(Axis.X, Edge.MAIN)), width);
+      final int x2 = clamp((int) mMapping[0].worldToScreen(view.getHi(Axis.X, Edge.MAIN)), width);
+      final int y1 = clamp((int) mMapping[1].worldToScreen(view.getLo(Axis.Y, Edge.MAIN)), height);
+      final int y2 = clamp((int) mMapping[1].worldToScreen(view.getHi(Axis.Y, Edge.MAIN)), height);
+      g.setColor(VIEW_COLOR);
+      g.drawRect(x + Math.min(x1, x2), y + Math.min(y1, y2), Math.abs(x2 - x1), Math.abs(y2 - y1));
+    }
+  }
+
+  private static int clamp(int v, int max) {
+    return Math.max(0, Math.min(v, max));
+  }
+}
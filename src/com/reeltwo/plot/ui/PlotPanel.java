@@ -2,18 +2,32 @@ package com.reeltwo.plot.ui;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Insets;
 import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
 
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Edge;
 import com.reeltwo.plot.Graph2D;
 import com.reeltwo.plot.renderer.GraphicsRenderer;
 import com.reeltwo.plot.renderer.Mapping;
@@ -35,8 +49,71 @@ public class PlotPanel extends JPanel {
 
   private boolean mBufferGraphs = false;
   private BufferedImage mBI = null;
+  /** version of the graph in the buffered image */
+  private long mBIVersion = -1;
+  /** quality of the buffered image */
+  private GraphicsRenderer.Quality mBIQuality = null;
+  /** renderer settings the buffered image was drawn with */
+  private int mBIConfig = -1;
+  /** background the buffered image was drawn on */
+  private Color mBIBackground = null;
+  /** whether overlays have asked to be painted again since the last paint */
+  private boolean mOverlayRepaint = false;
+  /** whether anything else has asked to be painted again since the last paint */
+  private boolean mGraphRepaint = false;
+  /** picks draft or full quality for each paint */
+  final Refiner mRefiner = new Refiner(this);
+
+  /** A picture of a graph and the mappings it was drawn with. */
+  private static final class Frame {
+    final Graph2D mGraph;
+    final long mVersion;
+    final int mWidth;
+    final int mHeight;
+    final GraphicsRenderer.Quality mQuality;
+    final int mConfig;
+    final Color mBackground;
+    final BufferedImage mImage;
+    final Mapping[] mMapping;
+
+    Frame(Graph2D graph, long version, int width, int height, GraphicsRenderer.Quality quality, int config, Color background, BufferedImage image, Mapping[] mapping) {
+      mGraph = graph;
+      mVersion = version;
+      mWidth = width;
+      mHeight = height;
+      mQuality = quality;
+      mConfig = config;
+      mBackground = background;
+      mImage = image;
+      mMapping = mapping;
+    }
+
+    boolean isOf(Graph2D graph, long version, int width, int height, GraphicsRenderer.Quality quality, int config, Color background) {
+      return mGraph == graph && mVersion == version && mWidth == width && mHeight == height && mQuality == quality
+        && mConfig == config && Objects.equals(mBackground, background);
+    }
+  }
+
+  /** executor drawing graphs in the background, or null */
+  private ExecutorService mRenderExecutor = null;
+  /** last picture finished in the background */
+  private volatile Frame mFrame = null;
+  /** picture being drawn in the background, without its image */
+  private Frame mPendingFrame = null;
+  private Future<?> mPending = null;
 
   private ToolTipProvider mToolTipProvider = null;
+  /** interaction graphics drawn over the graph */
+  private final List<Overlay> mOverlays = new ArrayList<>();
+
+  /** picture moved to the current axis ranges while the user navigates, or null */
+  private BufferedImage mPreviewImage = null;
+  /** mappings the preview picture was drawn with */
+  private Mapping[] mPreviewBase = null;
+  /** mappings of the current axis ranges over the preview picture */
+  private Mapping[] mPreviewMapping = null;
+  /** ends the preview once the axis ranges stay the same */
+  private final Timer mPreviewTimer;
 
   protected GraphPrinter mGraphPrinter = new GraphPrinter();
   protected GraphSaver mGraphSaver = new GraphSaver();
@@ -57,6 +134,14 @@ public class PlotPanel extends JPanel {
     setBufferGraphs(bufferGraphs);
     setBorder(new EmptyBorder(5, 5, 5, 5));
     mGraphicsRenderer = new GraphicsRenderer();
+    mPreviewTimer = new Timer(0, new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+          endPreview();
+          repaint();
+        }
+      });
+    mPreviewTimer.setRepeats(false);
   }
 
   /**
@@ -108,6 +193,70 @@ public class PlotPanel extends JPanel {
     setToolTipText(mToolTipProvider == null ? null : "");
   }
 
+  /**
+   * Adds an overlay to be drawn over the graph, after any added
+   * before it.  While there are overlays an image of the graph is kept,
+   * so that painting asked for with <code>repaintOverlays</code> does
+   * not draw the graph again unless its version has changed.
+   *
+   * @param overlay an <code>Overlay</code>
+   */
+  public void addOverlay(Overlay overlay) {
+    if (overlay == null) {
+      throw new NullPointerException("null overlay given.");
+    }
+    mOverlays.add(overlay);
+    repaint();
+  }
+
+  /**
+   * Asks for the panel to be painted again because only its overlays
+   * have changed, so that the kept image of the graph may be drawn
+   * rather than the graph.
+   */
+  protected void repaintOverlays() {
+    repaintOverlays(new Rectangle(0, 0, getWidth(), getHeight()));
+  }
+
+  /**
+   * Asks for an area of the panel to be painted again because only its
+   * overlays have changed there, so that the kept image of the graph
+   * may be drawn rather than the graph.
+   *
+   * @param area area to paint
+   */
+  protected void repaintOverlays(Rectangle area) {
+    mOverlayRepaint = true;
+    super.repaint(0, area.x, area.y, area.width, area.height);
+  }
+
+  /**
+   * Notes that the graph is to be drawn again, as anything may have
+   * changed, before asking for the area to be painted.
+   *
+   * @param tm maximum time in milliseconds before the update
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param width the width
+   * @param height the height
+   */
+  @Override
+  public void repaint(long tm, int x, int y, int width, int height) {
+    mGraphRepaint = true;
+    super.repaint(tm, x, y, width, height);
+  }
+
+  /**
+   * Removes an overlay.
+   *
+   * @param overlay an <code>Overlay</code>
+   */
+  public void removeOverlay(Overlay overlay) {
+    if (mOverlays.remove(overlay)) {
+      repaint();
+    }
+  }
+
   /**
    * Returns an action allowing the graph to be printed.
    *
@@ -257,6 +406,7 @@ public class PlotPanel extends JPanel {
    * @param graph the graph to render
    */
   public void setGraph(Graph2D graph) {
+    endPreview();
     mBI = null;
     mGraph = graph;
     updateUI();
@@ -274,11 +424,21 @@ public class PlotPanel extends JPanel {
 
 
   /**
-   * Returns the mapping of graph elements to screen co-ords.
+   * Returns the mapping of graph elements to screen co-ords.  When
+   * drawing in the background these are the mappings of the last
+   * finished picture, and during a preview those of the picture as
+   * moved.
    *
    * @return an array <code>Mapping</code>s
    */
   public Mapping[] getMapping() {
+    if (mPreviewMapping != null) {
+      return mPreviewMapping;
+    }
+    if (mRenderExecutor != null) {
+      final Frame frame = mFrame;
+      return frame == null ? null : frame.mMapping;
+    }
     return mMapping;
   }
 
@@ -304,7 +464,9 @@ public class PlotPanel extends JPanel {
   /**
    * Sets whether to buffer graph images.  Speeds things up when it
    * comes to redrawing the same graph, at the tradeoff of extra
-   * memory use.
+   * memory use.  A buffered graph is only drawn again when its version
+   * changes, so data changed in place must be followed by a call to the
+   * plot's <code>changed</code> method.
    *
    * @param flag whether to buffer graphs
    */
@@ -312,6 +474,163 @@ public class PlotPanel extends JPanel {
     mBufferGraphs = flag;
   }
 
+  /**
+   * Sets an executor to draw graphs on, away from the event thread, so
+   * that large graphs do not hold up the user interface.  Until a new
+   * picture is finished the last one is shown, stretched to the size of
+   * the panel.  A picture still being drawn when the graph or size
+   * changes again is cancelled by interrupting its thread.  Setting
+   * null draws on the event thread again.
+   *
+   * @param executor executor to draw on, or null
+   */
+  public void setAsyncRendering(ExecutorService executor) {
+    if (mPending != null) {
+      mPending.cancel(true);
+      mPending = null;
+      mPendingFrame = null;
+    }
+    mFrame = null;
+    mRenderExecutor = executor;
+    repaint();
+  }
+
+  /**
+   * Returns the executor graphs are drawn on, or null if they are
+   * drawn on the event thread.
+   *
+   * @return an executor
+   */
+  public ExecutorService getAsyncRendering() {
+    return mRenderExecutor;
+  }
+
+  /**
+   * Sets graphs to be drawn quickly at a lower quality as soon as they
+   * change, and drawn again at the renderer's quality once they have
+   * stayed the same for <code>delay</code> milliseconds.  Keeps the
+   * panel responsive while the user is zooming or resizing large
+   * graphs.  A null quality always draws at the renderer's quality.
+   *
+   * @param draft quality to draw changed graphs with, or null
+   * @param delay milliseconds to wait before drawing in full
+   */
+  public void setProgressiveRendering(GraphicsRenderer.Quality draft, int delay) {
+    mRefiner.set(draft, delay);
+    repaint();
+  }
+
+  /**
+   * Shows the last picture of the graph moved and scaled to the
+   * graph's current axis ranges, rather than drawing the graph, until
+   * the ranges have stayed the same for <code>delay</code>
+   * milliseconds.  Call after each change of range while the user pans
+   * or zooms, so that each step only costs moving an image.  Axis
+   * labels are those of the last picture and newly exposed parts of
+   * the data area are left empty until the graph is drawn.  Nothing is
+   * moved unless a picture of the graph is kept, by buffering, an
+   * overlay or drawing in the background.
+   *
+   * @param delay milliseconds to wait before drawing the graph
+   */
+  protected void previewRanges(int delay) {
+    if (mPreviewImage == null) {
+      final Frame frame = mFrame;
+      if (mRenderExecutor != null && frame != null && frame.mGraph == mGraph) {
+        mPreviewImage = frame.mImage;
+        mPreviewBase = frame.mMapping;
+      } else if (mRenderExecutor == null && mBI != null && mMapping != null) {
+        mPreviewImage = mBI;
+        mPreviewBase = mMapping;
+      }
+    }
+    if (mPreviewImage != null && mGraph != null) {
+      mPreviewMapping = moved(mPreviewBase, mGraph);
+      mPreviewTimer.setInitialDelay(Math.max(0, delay));
+      mPreviewTimer.restart();
+    }
+    repaint();
+  }
+
+  /**
+   * Ends a preview of moved axis ranges now, as its timer does when it
+   * fires.
+   */
+  void settle() {
+    if (mPreviewTimer.isRunning()) {
+      endPreview();
+      repaint();
+    }
+  }
+
+  private void endPreview() {
+    mPreviewTimer.stop();
+    mPreviewImage = null;
+    mPreviewBase = null;
+    mPreviewMapping = null;
+  }
+
+  // mappings over the same screen area for the current ranges of a graph
+  private static Mapping[] moved(Mapping[] base, Graph2D graph) {
+    final Mapping[] mapping = new Mapping[base.length];
+    for (int i = 0; i < base.length; i++) {
+      final Mapping m = base[i];
+      if (m != null) {
+        final Axis axis = i % 2 == 0 ? Axis.X : Axis.Y;
+        final Edge edge = i < 2 ? Edge.MAIN : Edge.ALTERNATE;
+        mapping[i] = new Mapping(graph.getLo(axis, edge), graph.getHi(axis, edge), m.getScreenMin(), m.getScreenMax(), m.isLog());
+      }
+    }
+    return mapping;
+  }
+
+  /**
+   * Draws a picture of the graph with its data area moved from where
+   * one set of mappings put it to where another does.  The rest of the
+   * picture is drawn as it is.
+   */
+  private void drawMoved(Graphics g, BufferedImage image, Mapping[] from, Mapping[] to) {
+    g.drawImage(image, 0, 0, null);
+    final Mapping fx = from[0];
+    final Mapping fy = from[1];
+    final int xlo = (int) Math.min(fx.getScreenMin(), fx.getScreenMax());
+    final int xhi = (int) Math.max(fx.getScreenMin(), fx.getScreenMax());
+    final int ylo = (int) Math.min(fy.getScreenMin(), fy.getScreenMax());
+    final int yhi = (int) Math.max(fy.getScreenMin(), fy.getScreenMax());
+    // where the edges of the data area move to
+    final float dxlo = to[0].worldToScreen(fx.screenToWorld(xlo));
+    final float dxhi = to[0].worldToScreen(fx.screenToWorld(xhi + 1));
+    final float dylo = to[1].worldToScreen(fy.screenToWorld(ylo));
+    final float dyhi = to[1].worldToScreen(fy.screenToWorld(yhi + 1));
+    final Graphics g2 = g.create();
+    try {
+      g2.clipRect(xlo, ylo, xhi - xlo + 1, yhi - ylo + 1);
+      g2.setColor(getBackground());
+      g2.fillRect(xlo, ylo, xhi - xlo + 1, yhi - ylo + 1);
+      if (isFinite(dxlo) && isFinite(dxhi) && isFinite(dylo) && isFinite(dyhi)) {
+        g2.drawImage(image, Math.round(dxlo), Math.round(dylo), Math.round(dxhi), Math.round(dyhi), xlo, ylo, xhi + 1, yhi + 1, null);
+      }
+    } finally {
+      g2.dispose();
+    }
+  }
+
+  private static boolean isFinite(float f) {
+    return !Float.isNaN(f) && !Float.isInfinite(f);
+  }
+
+  /**
+   * Sets whether to keep an image of each plot between paints, so
+   * that only plots which have changed are drawn again.  Speeds up
+   * redrawing graphs with many plots when only a few of them change,
+   * at the tradeoff of an image of the graph area for every plot.
+   *
+   * @param flag whether to keep plot images
+   */
+  public void setLayerCaching(boolean flag) {
+    mGraphicsRenderer.setLayerCaching(flag);
+  }
+
   /**
    * Overrides {@code JPanel.paintComponent} and actually renders the graph in
    * the given Graphics object.
@@ -328,29 +647,137 @@ public class PlotPanel extends JPanel {
     final int screenWidth = d.width - i.left - i.right;
     final int screenHeight = d.height - i.top - i.bottom;
 
-    if (mBufferGraphs) {
+    if (mRenderExecutor != null) {
+      // drawing gives plots their colors, which must happen on this thread
+      mGraphicsRenderer.assignColors(mGraph);
+    }
+    final long version = mGraph == null ? 0 : mGraph.getVersion();
+    final GraphicsRenderer.Quality quality = mRefiner.getQuality(mGraph, version, d.width, d.height, mGraphicsRenderer.getQuality());
+    // pictures are kept until the renderer's settings or the background change
+    final int config = mGraphicsRenderer.getConfigVersion();
+    final Color background = getBackground();
+    Mapping[] mapping;
+    final BufferedImage preview = mPreviewImage;
+    if (preview != null && preview.getWidth() == d.width && preview.getHeight() == d.height) {
+      drawMoved(g, preview, mPreviewBase, mPreviewMapping);
+      mapping = mPreviewMapping;
+    } else if (mRenderExecutor != null) {
+      final Frame frame = mFrame;
+      g.setColor(background);
+      g.fillRect(0, 0, d.width, d.height);
+      if (frame != null && frame.isOf(mGraph, version, d.width, d.height, quality, config, background)) {
+        g.drawImage(frame.mImage, 0, 0, null);
+      } else {
+        drawLater(g.getFont(), d, i, version, quality, config, background);
+        if (frame != null && frame.mGraph == mGraph && mGraph != null && frame.mWidth == d.width && frame.mHeight == d.height) {
+          // the last picture moved to the new ranges
+          drawMoved(g, frame.mImage, frame.mMapping, moved(frame.mMapping, mGraph));
+        } else if (frame != null) {
+          final Graphics2D g2 = (Graphics2D) g.create();
+          try {
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2.drawImage(frame.mImage, 0, 0, d.width, d.height, null);
+          } finally {
+            g2.dispose();
+          }
+        }
+      }
+      mapping = frame == null ? null : frame.mMapping;
+    } else if (mBufferGraphs || !mOverlays.isEmpty()) {
       BufferedImage bi = mBI;
+      // without buffering the image is only kept for painting overlays
+      final boolean keep = mBufferGraphs || (mOverlayRepaint && !mGraphRepaint);
       if (bi == null || bi.getWidth() != d.width || bi.getHeight() != d.height) {
         bi = new BufferedImage(d.width, d.height, BufferedImage.TYPE_INT_RGB);
         mBI = bi;
+        mBIVersion = -1;
+      }
+      if (!keep || version != mBIVersion || quality != mBIQuality || config != mBIConfig || !Objects.equals(background, mBIBackground)) {
         final Graphics g2 = bi.createGraphics();
-        g2.setColor(getBackground());
+        g2.setColor(background);
         g2.fillRect(0, 0, d.width, d.height);
         g2.setFont(g.getFont());
-        mGraphicsRenderer.drawGraph(mGraph, g2, i.left, i.top, screenWidth, screenHeight);
-        mMapping = mGraphicsRenderer.getMappings();
+        mMapping = mGraphicsRenderer.drawGraph(mGraph, g2, i.left, i.top, screenWidth, screenHeight, quality);
+        // drawing may give plots their colors
+        mBIVersion = mGraph == null ? 0 : mGraph.getVersion();
+        mBIQuality = quality;
+        mBIConfig = config;
+        mBIBackground = background;
       }
       g.drawImage(bi, 0, 0, null);
+      mapping = mMapping;
     } else {
       g.setColor(getBackground());
       g.fillRect(0, 0, d.width, d.height);
       g.setFont(g.getFont());
-      mGraphicsRenderer.drawGraph(mGraph, g, i.left, i.top, screenWidth, screenHeight);
-      mMapping = mGraphicsRenderer.getMappings();
+      mMapping = mGraphicsRenderer.drawGraph(mGraph, g, i.left, i.top, screenWidth, screenHeight, quality);
+      mapping = mMapping;
     }
     //System.err.println("Set mapping:" + mMapping);
-    if (mMapping != null && mToolTipProvider != null) {
-      mToolTipProvider.setMaps(mMapping[0], mMapping[1]);
+    if (mapping != null && mToolTipProvider != null) {
+      mToolTipProvider.setMaps(mapping[0], mapping[1]);
+    }
+    for (final Overlay overlay : mOverlays) {
+      overlay.paintOverlay(g, mapping);
+    }
+    mOverlayRepaint = false;
+    mGraphRepaint = false;
+  }
+
+  /**
+   * Starts drawing the current graph in the background, unless it is
+   * already being drawn at this size, cancelling any other picture in
+   * progress.  The plots must already have their colors, so that the
+   * graph is not changed off the event thread.  The finished picture
+   * is published with its mappings on the event thread.
+   */
+  private void drawLater(final Font font, Dimension d, Insets i, final long version, final GraphicsRenderer.Quality quality, final int config, final Color background) {
+    final Graph2D graph = mGraph;
+    final int width = d.width;
+    final int height = d.height;
+    final int left = i.left;
+    final int top = i.top;
+    final int screenWidth = width - i.left - i.right;
+    final int screenHeight = height - i.top - i.bottom;
+    if (mPending != null) {
+      if (mPendingFrame.isOf(graph, version, width, height, quality, config, background)) {
+        return;
+      }
+      mPending.cancel(true);
     }
+    final Frame request = new Frame(graph, version, width, height, quality, config, background, null, null);
+    mPendingFrame = request;
+    mPending = mRenderExecutor.submit(new Runnable() {
+        @Override
+        public void run() {
+          final BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+          final Graphics g = bi.createGraphics();
+          final Mapping[] mapping;
+          try {
+            g.setColor(background);
+            g.fillRect(0, 0, width, height);
+            g.setFont(font);
+            mapping = mGraphicsRenderer.drawGraph(graph, g, left, top, screenWidth, screenHeight, quality);
+          } finally {
+            g.dispose();
+          }
+          if (Thread.currentThread().isInterrupted()) {
+            // superseded, and perhaps only partly drawn
+            return;
+          }
+          final Frame frame = new Frame(graph, version, width, height, quality, config, background, bi, mapping);
+          SwingUtilities.invokeLater(new Runnable() {
+              @Override
+              public void run() {
+                if (mPendingFrame == request) {
+                  mPending = null;
+                  mPendingFrame = null;
+                  mFrame = frame;
+                  repaint();
+                }
+              }
+            });
+        }
+      });
   }
 }
@@ -0,0 +1,681 @@
+package com.reeltwo.plot.ui;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.reeltwo.plot.ui.ImageWriter.PngFilter;
+
+/**
+ * Writes an RGB or palette PNG image a few rows at a time, so the whole image
+ * never needs to be held in memory. Rows are gathered into pieces of
+ * about 128KB which are filtered and compressed independently, on
+ * several threads if asked. As in pigz, each piece is compressed with
+ * the last 32KB of the piece before it as a preset dictionary and
+ * ends on a byte boundary, so the pieces join into a single zlib
+ * stream that compresses almost as well as a sequential one.  The
+ * pieces of all encoders are compressed on one pool of daemon threads,
+ * one per processor, made when first needed.  An image that fits in a
+ * single piece is compressed on the calling thread.
+ *
+ * @author Richard Littin
+ */
+final class PngEncoder implements Closeable {
+
+  private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+  /** largest IDAT chunk written */
+  private static final int CHUNK_SIZE = 1 << 16;
+  /** filtered bytes compressed as one piece of work */
+  private static final int PIECE_SIZE = 1 << 17;
+  /** size of the deflate window, and so of the preset dictionary */
+  private static final int WINDOW_SIZE = 1 << 15;
+  /** most colours in a palette */
+  static final int MAX_PALETTE = 256;
+  private static final int FILTERS = 5;
+  private static final int ADLER_BASE = 65521;
+
+  /** threads shared by all parallel encoders, made when first needed */
+  private static ExecutorService sPool = null;
+
+  private final DataOutputStream mOut;
+  private final int mHeight;
+  private final int mRowBytes;
+  /** bytes per pixel */
+  private final int mBpp;
+  /** palette indices of each colour, or null for an RGB image */
+  private final ColorIndex mColors;
+  private final int mLevel;
+  private final PngFilter mFilter;
+  private final CRC32 mCrc = new CRC32();
+  private final IdatOutputStream mIdat = new IdatOutputStream();
+
+  /** workers for a parallel encoder, or null to encode on the calling thread */
+  private final ExecutorService mExecutor;
+  /** most pieces left waiting to be written after each is submitted */
+  private final int mMaxPending;
+  private final ArrayDeque<Future<Piece>> mPending = new ArrayDeque<>();
+  /** single continuous compressor when encoding on the calling thread */
+  private final Deflater mDeflater;
+
+  /** rows waiting to be encoded, preceded by rows carried from the last piece */
+  private final byte[] mRaw;
+  private final int mPieceRows;
+  private final int mCarryRows;
+  private int mRawRows = 0;
+  private int mCarried = 0;
+  /** whether the first row held is the first row of the image */
+  private boolean mTop = true;
+  private int mRows = 0;
+  private long mAdler = 1;
+
+  /**
+   * Starts a PNG image, writing its header and any text metadata.
+   *
+   * @param os stream to write to, which is not closed when the image
+   * is finished
+   * @param width width of image
+   * @param height height of image
+   * @param text keyword and value pairs to include as text chunks
+   * @param level compression level, from 0 to 9 or -1 for the default
+   * @param filter how to filter rows before compression
+   * @param threads number of threads to compress with, at most one
+   * per processor
+   * @exception IOException if an I/O error occurs
+   */
+  PngEncoder(OutputStream os, int width, int height, Map<String, String> text, int level, PngFilter filter, int threads) throws IOException {
+    this(os, width, height, null, text, level, filter, threads);
+  }
+
+  /**
+   * Starts a PNG image, writing its header and any text metadata.
+   * When given a palette the image is written as a palette image and
+   * every pixel added must be one of the palette's colours.
+   *
+   * @param os stream to write to, which is not closed when the image
+   * is finished
+   * @param width width of image
+   * @param height height of image
+   * @param palette RGB colours of a palette image, or null for an RGB
+   * image
+   * @param text keyword and value pairs to include as text chunks
+   * @param level compression level, from 0 to 9 or -1 for the default
+   * @param filter how to filter rows before compression
+   * @param threads number of threads to compress with, at most one
+   * per processor
+   * @exception IOException if an I/O error occurs
+   */
+  PngEncoder(OutputStream os, int width, int height, int[] palette, Map<String, String> text, int level, PngFilter filter, int threads) throws IOException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("dimensions must be greater than 0");
+    }
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    }
+    if (filter == null) {
+      throw new NullPointerException("null filter given.");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be greater than 0");
+    }
+    if (palette != null && (palette.length == 0 || palette.length > MAX_PALETTE)) {
+      throw new IllegalArgumentException("Invalid palette size: " + palette.length);
+    }
+    mOut = new DataOutputStream(os);
+    mHeight = height;
+    mBpp = palette == null ? 3 : 1;
+    mRowBytes = width * mBpp;
+    mLevel = level;
+    mFilter = filter;
+    if (palette != null) {
+      mColors = new ColorIndex();
+      for (final int rgb : palette) {
+        mColors.add(rgb);
+      }
+    } else {
+      mColors = null;
+    }
+    mPieceRows = Math.max(1, PIECE_SIZE / (mRowBytes + 1));
+    if (threads > 1 && height > mPieceRows) {
+      // enough filtered rows before each piece to fill the dictionary, plus the row above them
+      mCarryRows = (WINDOW_SIZE + mRowBytes) / (mRowBytes + 1) + 1;
+      mExecutor = pool();
+      mMaxPending = 2 * threads;
+      mDeflater = null;
+    } else {
+      mCarryRows = 1;
+      mExecutor = null;
+      mMaxPending = 0;
+      mDeflater = new Deflater(level, true);
+    }
+    mRaw = new byte[(mCarryRows + mPieceRows) * mRowBytes];
+
+    mOut.write(SIGNATURE);
+    final byte[] header = new byte[13];
+    putInt(header, 0, width);
+    putInt(header, 4, height);
+    header[8] = 8; // bit depth
+    header[9] = (byte) (palette == null ? 2 : 3); // truecolour or palette
+    writeChunk("IHDR", header, 0, header.length);
+    if (palette != null) {
+      final byte[] plte = new byte[3 * palette.length];
+      for (int i = 0; i < palette.length; i++) {
+        plte[3 * i] = (byte) (palette[i] >> 16);
+        plte[3 * i + 1] = (byte) (palette[i] >> 8);
+        plte[3 * i + 2] = (byte) palette[i];
+      }
+      writeChunk("PLTE", plte, 0, plte.length);
+    }
+    for (final Map.Entry<String, String> e : text.entrySet()) {
+      final byte[] keyword = e.getKey().getBytes(StandardCharsets.ISO_8859_1);
+      final byte[] value = e.getValue().getBytes(StandardCharsets.ISO_8859_1);
+      final byte[] data = new byte[keyword.length + 1 + value.length];
+      System.arraycopy(keyword, 0, data, 0, keyword.length);
+      System.arraycopy(value, 0, data, keyword.length + 1, value.length);
+      writeChunk("tEXt", data, 0, data.length);
+    }
+    mIdat.write(zlibHeader(level));
+  }
+
+  private static synchronized ExecutorService pool() {
+    if (sPool == null) {
+      sPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r, "PngEncoder");
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    }
+    return sPool;
+  }
+
+  private static byte[] zlibHeader(int level) {
+    final int cmf = 0x78; // deflate, 32K window
+    final int flevel;
+    if (level == Deflater.DEFAULT_COMPRESSION || level == 6) {
+      flevel = 2;
+    } else if (level < 2) {
+      flevel = 0;
+    } else if (level < 6) {
+      flevel = 1;
+    } else {
+      flevel = 3;
+    }
+    int flg = flevel << 6;
+    flg += 31 - (cmf * 256 + flg) % 31;
+    return new byte[] {(byte) cmf, (byte) flg};
+  }
+
+  private static void putInt(byte[] b, int off, int v) {
+    b[off] = (byte) (v >>> 24);
+    b[off + 1] = (byte) (v >>> 16);
+    b[off + 2] = (byte) (v >>> 8);
+    b[off + 3] = (byte) v;
+  }
+
+  private void writeChunk(String type, byte[] data, int off, int len) throws IOException {
+    final byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+    mCrc.reset();
+    mCrc.update(typeBytes);
+    mCrc.update(data, off, len);
+    mOut.writeInt(len);
+    mOut.write(typeBytes);
+    mOut.write(data, off, len);
+    mOut.writeInt((int) mCrc.getValue());
+  }
+
+  /**
+   * Combines the Adler-32 checksums of two pieces of data into the
+   * checksum of both, as zlib's <code>adler32_combine</code> does.
+   *
+   * @param adler1 checksum of the first piece
+   * @param adler2 checksum of the second piece
+   * @param len2 length of the second piece
+   * @return checksum of the first piece followed by the second
+   */
+  static long adler32Combine(long adler1, long adler2, long len2) {
+    final long rem = len2 % ADLER_BASE;
+    long sum1 = adler1 & 0xffff;
+    long sum2 = (rem * sum1) % ADLER_BASE;
+    sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+    sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + ADLER_BASE - rem;
+    if (sum1 >= ADLER_BASE) {
+      sum1 -= ADLER_BASE;
+    }
+    if (sum1 >= ADLER_BASE) {
+      sum1 -= ADLER_BASE;
+    }
+    if (sum2 >= (ADLER_BASE << 1)) {
+      sum2 -= ADLER_BASE << 1;
+    }
+    if (sum2 >= ADLER_BASE) {
+      sum2 -= ADLER_BASE;
+    }
+    return sum1 | (sum2 << 16);
+  }
+
+  /**
+   * Adds the next rows of the image from an array of RGB pixels.
+   *
+   * @param pixels pixels, one int per pixel
+   * @param offset index of the first pixel of the first row
+   * @param scanline distance between the starts of each row
+   * @param rows number of rows to add
+   * @exception IOException if an I/O error occurs
+   */
+  void writeRows(int[] pixels, int offset, int scanline, int rows) throws IOException {
+    if (mRows + rows > mHeight) {
+      throw new IllegalStateException("Too many rows: " + (mRows + rows));
+    }
+    for (int r = 0; r < rows; r++) {
+      int p = offset + r * scanline;
+      final int start = mRawRows * mRowBytes;
+      final int end = start + mRowBytes;
+      if (mColors != null) {
+        for (int i = start; i < end; i++, p++) {
+          final int index = mColors.get(pixels[p]);
+          if (index < 0) {
+            throw new IllegalArgumentException("Colour not in palette: " + Integer.toHexString(pixels[p] & 0xFFFFFF));
+          }
+          mRaw[i] = (byte) index;
+        }
+      } else {
+        for (int i = start; i < end; i += 3, p++) {
+          final int rgb = pixels[p];
+          mRaw[i] = (byte) (rgb >> 16);
+          mRaw[i + 1] = (byte) (rgb >> 8);
+          mRaw[i + 2] = (byte) rgb;
+        }
+      }
+      mRawRows++;
+      mRows++;
+      if (mRawRows - mCarried == mPieceRows || mRows == mHeight) {
+        submit(mRows == mHeight);
+      }
+    }
+  }
+
+  private void submit(boolean last) throws IOException {
+    final Piece piece = new Piece(Arrays.copyOf(mRaw, mRawRows * mRowBytes), mCarried, mTop, last);
+    final FutureTask<Piece> task = new FutureTask<Piece>(piece);
+    mPending.add(task);
+    if (mExecutor == null) {
+      task.run();
+    } else {
+      mExecutor.execute(task);
+    }
+    drain(last ? 0 : mMaxPending);
+
+    // carry the last rows over to give the next piece its context
+    final int keep = Math.min(mRawRows, mCarryRows);
+    mTop = mTop && keep == mRawRows;
+    System.arraycopy(mRaw, (mRawRows - keep) * mRowBytes, mRaw, 0, keep * mRowBytes);
+    mRawRows = keep;
+    mCarried = keep;
+  }
+
+  /** Writes out finished pieces, in order, until no more than <code>pending</code> remain. */
+  private void drain(int pending) throws IOException {
+    while (mPending.size() > pending) {
+      final Piece piece;
+      try {
+        piece = mPending.remove().get();
+      } catch (final InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while encoding");
+      } catch (final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IOException(cause);
+      }
+      mIdat.write(piece.mCompressed, 0, piece.mCompressedLength);
+      mAdler = adler32Combine(mAdler, piece.mChecksum, piece.mLength);
+    }
+  }
+
+  /**
+   * Finishes the image once all its rows have been added.
+   *
+   * @exception IOException if an I/O error occurs
+   */
+  void finish() throws IOException {
+    if (mRows != mHeight) {
+      throw new IllegalStateException("Expected " + mHeight + " rows but got " + mRows);
+    }
+    final byte[] adler = new byte[4];
+    putInt(adler, 0, (int) mAdler);
+    mIdat.write(adler);
+    mIdat.flush();
+    writeChunk("IEND", new byte[0], 0, 0);
+    mOut.flush();
+  }
+
+  /**
+   * Stops any pieces still being compressed and releases the
+   * compressor used by this encoder. The stream written to is not
+   * closed.
+   */
+  @Override
+  public void close() {
+    if (mExecutor != null) {
+      for (final Future<Piece> f : mPending) {
+        f.cancel(true);
+      }
+    } else {
+      mDeflater.end();
+    }
+    mPending.clear();
+  }
+
+  private static int paeth(int a, int b, int c) {
+    final int p = a + b - c;
+    final int pa = Math.abs(p - a);
+    final int pb = Math.abs(p - b);
+    final int pc = Math.abs(p - c);
+    if (pa <= pb && pa <= pc) {
+      return a;
+    }
+    return pb <= pc ? b : c;
+  }
+
+  /**
+   * Filters one row of raw data into <code>out</code>, preceded by
+   * its filter type, and returns the sum of the absolute values of
+   * the filtered bytes.
+   *
+   * @param type filter type
+   * @param bpp bytes per pixel
+   * @param raw raw rows
+   * @param prev offset of the row above, or -1 if the row is the first
+   * @param cur offset of the row to filter
+   * @param len length of a row
+   * @param out filtered data
+   * @param pos where to put the filtered row
+   * @return sum of absolute differences
+   */
+  private static long filterRow(int type, int bpp, byte[] raw, int prev, int cur, int len, byte[] out, int pos) {
+    out[pos++] = (byte) type;
+    long sum = 0;
+    switch (type) {
+      case 1:
+        for (int i = 0; i < len; i++) {
+          final int a = i >= bpp ? raw[cur + i - bpp] : 0;
+          final byte f = (byte) (raw[cur + i] - a);
+          out[pos + i] = f;
+          sum += Math.abs(f);
+        }
+        break;
+      case 2:
+        for (int i = 0; i < len; i++) {
+          final int b = prev >= 0 ? raw[prev + i] : 0;
+          final byte f = (byte) (raw[cur + i] - b);
+          out[pos + i] = f;
+          sum += Math.abs(f);
+        }
+        break;
+      case 3:
+        for (int i = 0; i < len; i++) {
+          final int a = i >= bpp ? raw[cur + i - bpp] & 0xff : 0;
+          final int b = prev >= 0 ? raw[prev + i] & 0xff : 0;
+          final byte f = (byte) (raw[cur + i] - ((a + b) >> 1));
+          out[pos + i] = f;
+          sum += Math.abs(f);
+        }
+        break;
+      case 4:
+        for (int i = 0; i < len; i++) {
+          final int a = i >= bpp ? raw[cur + i - bpp] & 0xff : 0;
+          final int b = prev >= 0 ? raw[prev + i] & 0xff : 0;
+          final int c = i >= bpp && prev >= 0 ? raw[prev + i - bpp] & 0xff : 0;
+          final byte f = (byte) (raw[cur + i] - paeth(a, b, c));
+          out[pos + i] = f;
+          sum += Math.abs(f);
+        }
+        break;
+      default:
+        for (int i = 0; i < len; i++) {
+          final byte f = raw[cur + i];
+          out[pos + i] = f;
+          sum += Math.abs(f);
+        }
+        break;
+    }
+    return sum;
+  }
+
+  /**
+   * Filters one row of raw data into <code>out</code> using the
+   * configured filter, picking the filter giving the smallest sum of
+   * absolute differences when adaptive.
+   */
+  private void filterRow(byte[] raw, int prev, int cur, byte[] out, int pos, byte[][] scratch) {
+    if (mFilter != PngFilter.ADAPTIVE) {
+      filterRow(mFilter.ordinal(), mBpp, raw, prev, cur, mRowBytes, out, pos);
+      return;
+    }
+    int best = 0;
+    long bestSum = Long.MAX_VALUE;
+    for (int t = 0; t < FILTERS; t++) {
+      final long sum = filterRow(t, mBpp, raw, prev, cur, mRowBytes, scratch[t], 0);
+      if (sum < bestSum) {
+        best = t;
+        bestSum = sum;
+      }
+    }
+    System.arraycopy(scratch[best], 0, out, pos, mRowBytes + 1);
+  }
+
+  /**
+   * Rows of the image filtered and compressed as one piece of work.
+   * The rows are preceded by rows carried over from the previous
+   * piece, which are filtered again to give the compression
+   * dictionary but not written.
+   */
+  private final class Piece implements Callable<Piece> {
+    private final byte[] mData;
+    private final int mCarry;
+    private final boolean mFromTop;
+    private final boolean mLast;
+    private byte[] mCompressed;
+    private int mCompressedLength;
+    private long mChecksum;
+    private int mLength;
+
+    Piece(byte[] data, int carry, boolean top, boolean last) {
+      mData = data;
+      mCarry = carry;
+      mFromTop = top;
+      mLast = last;
+    }
+
+    @Override
+    public Piece call() {
+      final int rows = mData.length / mRowBytes;
+      // unless at the top of the image the first carried row is only the row above
+      final int first = mFromTop ? 0 : 1;
+      final int stride = mRowBytes + 1;
+      final byte[] filtered = new byte[(rows - first) * stride];
+      final byte[][] scratch = mFilter == PngFilter.ADAPTIVE ? new byte[FILTERS][stride] : null;
+      for (int r = first; r < rows; r++) {
+        filterRow(mData, r == 0 ? -1 : (r - 1) * mRowBytes, r * mRowBytes, filtered, (r - first) * stride, scratch);
+      }
+      final int start = (mCarry - first) * stride;
+      mLength = filtered.length - start;
+      final Adler32 adler = new Adler32();
+      adler.update(filtered, start, mLength);
+      mChecksum = adler.getValue();
+
+      final Deflater deflater = mDeflater != null ? mDeflater : new Deflater(mLevel, true);
+      try {
+        if (mDeflater == null && start > 0) {
+          final int dictionary = Math.min(start, WINDOW_SIZE);
+          deflater.setDictionary(filtered, start - dictionary, dictionary);
+        }
+        deflater.setInput(filtered, start, mLength);
+        mCompressed = new byte[mLength / 2 + 64];
+        mCompressedLength = 0;
+        if (mLast) {
+          deflater.finish();
+          while (!deflater.finished()) {
+            deflate(deflater, Deflater.NO_FLUSH);
+          }
+        } else if (mDeflater != null) {
+          while (!deflater.needsInput()) {
+            deflate(deflater, Deflater.NO_FLUSH);
+          }
+        } else {
+          // end on a byte boundary so the next piece can follow on
+          do {
+            deflate(deflater, Deflater.SYNC_FLUSH);
+          } while (mCompressedLength == mCompressed.length);
+        }
+      } finally {
+        if (mDeflater == null) {
+          deflater.end();
+        }
+      }
+      return this;
+    }
+
+    private void deflate(Deflater deflater, int flush) {
+      if (mCompressedLength == mCompressed.length) {
+        mCompressed = Arrays.copyOf(mCompressed, 2 * mCompressed.length);
+      }
+      mCompressedLength += deflater.deflate(mCompressed, mCompressedLength, mCompressed.length - mCompressedLength, flush);
+    }
+  }
+
+  /**
+   * Returns the distinct colours of an image, in the order first
+   * seen, or null if there are too many for a palette.
+   *
+   * @param pixels pixels, one int per pixel
+   * @param offset index of the first pixel of the first row
+   * @param scanline distance between the starts of each row
+   * @param width width of image
+   * @param height height of image
+   * @return the colours of the image, or null
+   */
+  static int[] palette(int[] pixels, int offset, int scanline, int width, int height) {
+    final ColorIndex colors = new ColorIndex();
+    int last = -1;
+    for (int y = 0; y < height; y++) {
+      final int end = offset + y * scanline + width;
+      for (int p = end - width; p < end; p++) {
+        final int rgb = pixels[p] & 0xFFFFFF;
+        if (rgb != last) {
+          last = rgb;
+          if (colors.get(rgb) < 0) {
+            if (colors.size() == MAX_PALETTE) {
+              return null;
+            }
+            colors.add(rgb);
+          }
+        }
+      }
+    }
+    return colors.colors();
+  }
+
+  /** Palette index of each of up to 256 RGB colours. */
+  private static final class ColorIndex {
+    private static final int SLOTS = 4 * MAX_PALETTE;
+    /** colour in each slot, flagged with a top byte of one, or 0 if empty */
+    private final int[] mKeys = new int[SLOTS];
+    private final int[] mIndices = new int[SLOTS];
+    private final int[] mColors = new int[MAX_PALETTE];
+    private int mSize = 0;
+
+    private static int slot(int key) {
+      return (key * 0x9E3779B9) >>> 22;
+    }
+
+    int get(int rgb) {
+      final int key = (rgb & 0xFFFFFF) | 0x1000000;
+      for (int s = slot(key);; s = (s + 1) & (SLOTS - 1)) {
+        if (mKeys[s] == key) {
+          return mIndices[s];
+        }
+        if (mKeys[s] == 0) {
+          return -1;
+        }
+      }
+    }
+
+    void add(int rgb) {
+      final int key = (rgb & 0xFFFFFF) | 0x1000000;
+      int s = slot(key);
+      while (mKeys[s] != 0) {
+        if (mKeys[s] == key) {
+          return;
+        }
+        s = (s + 1) & (SLOTS - 1);
+      }
+      mKeys[s] = key;
+      mIndices[s] = mSize;
+      mColors[mSize++] = rgb & 0xFFFFFF;
+    }
+
+    int size() {
+      return mSize;
+    }
+
+    int[] colors() {
+      return Arrays.copyOf(mColors, mSize);
+    }
+  }
+
+  /** Writes whatever it is given as IDAT chunks. */
+  private final class IdatOutputStream extends OutputStream {
+    private final byte[] mBuffer = new byte[CHUNK_SIZE];
+    private int mLength = 0;
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        final int n = Math.min(len, mBuffer.length - mLength);
+        System.arraycopy(b, off, mBuffer, mLength, n);
+        mLength += n;
+        off += n;
+        len -= n;
+        if (mLength == mBuffer.length) {
+          flush();
+        }
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (mLength > 0) {
+        writeChunk("IDAT", mBuffer, 0, mLength);
+        mLength = 0;
+      }
+    }
+  }
+}
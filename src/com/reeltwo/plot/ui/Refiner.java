@@ -0,0 +1,125 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.renderer.GraphicsRenderer.Quality;
+
+/**
+ * Picks the quality to paint a graph with, so that a graph which has
+ * just changed is drawn quickly in draft and then drawn again in full
+ * once it has stopped changing for a while.  All methods are called on
+ * the event thread.
+ *
+ * @author Richard Littin
+ */
+final class Refiner {
+
+  private final Timer mTimer;
+  private Quality mDraft = null;
+  private boolean mDue = false;
+
+  // picture last drawn in draft
+  private Graph2D mDraftGraph = null;
+  private long mDraftVersion = -1;
+  private int mDraftWidth = -1;
+  private int mDraftHeight = -1;
+
+  // picture last drawn in full
+  private Graph2D mFullGraph = null;
+  private long mFullVersion = -1;
+  private int mFullWidth = -1;
+  private int mFullHeight = -1;
+
+  /**
+   * Creates a refiner for a component, which is repainted when a
+   * picture is due to be drawn in full.
+   *
+   * @param component component painting the graph
+   */
+  Refiner(final JComponent component) {
+    mTimer = new Timer(0, new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+          refine();
+          component.repaint();
+        }
+      });
+    mTimer.setRepeats(false);
+  }
+
+  /**
+   * Makes the next paint draw in full, as the timer does when it
+   * fires.
+   */
+  void refine() {
+    mTimer.stop();
+    mDue = true;
+  }
+
+  /**
+   * Sets the quality of the first, quick picture and how long the
+   * graph must stay the same before it is drawn in full.  A null
+   * quality always draws in full.
+   *
+   * @param draft quality of the quick picture, or null
+   * @param delay milliseconds to wait before drawing in full
+   */
+  void set(Quality draft, int delay) {
+    mTimer.stop();
+    mTimer.setInitialDelay(Math.max(0, delay));
+    mDraft = draft;
+    mDue = false;
+    mFullGraph = null;
+    mDraftGraph = null;
+  }
+
+  /**
+   * Returns the quality of the quick picture, or null if graphs are
+   * always drawn in full.
+   *
+   * @return a <code>Quality</code>
+   */
+  Quality getDraft() {
+    return mDraft;
+  }
+
+  /**
+   * Returns the quality to paint a graph with.  A picture not yet
+   * drawn in full is drawn in draft, and the timer is started again if
+   * the picture has changed since it was last drawn in draft.
+   *
+   * @param graph graph to paint
+   * @param version version of the graph
+   * @param width width of the picture
+   * @param height height of the picture
+   * @param full quality of a full picture
+   * @return quality to paint with
+   */
+  Quality getQuality(Graph2D graph, long version, int width, int height, Quality full) {
+    if (mDraft == null || graph == null
+        || (graph == mFullGraph && version == mFullVersion && width == mFullWidth && height == mFullHeight)) {
+      return full;
+    }
+    if (mDue) {
+      mDue = false;
+      mFullGraph = graph;
+      mFullVersion = version;
+      mFullWidth = width;
+      mFullHeight = height;
+      return full;
+    }
+    if (graph != mDraftGraph || version != mDraftVersion || width != mDraftWidth || height != mDraftHeight) {
+      mDraftGraph = graph;
+      mDraftVersion = version;
+      mDraftWidth = width;
+      mDraftHeight = height;
+      mTimer.restart();
+    }
+    return mDraft;
+  }
+}
@@ -50,6 +50,9 @@ public class ZoomPlotPanel extends JComponent {
   private boolean mPicNPic = false;
 
   private final GraphicsRenderer mGraphicsRenderer;
+  private final Refiner mPnPRefiner = new Refiner(this);
+  /** picture of the whole graph, kept between paints */
+  private final Overview mOverview = new Overview();
 
   private final float[] mXLo = new float[2];
   private final float[] mXHi = new float[2];
@@ -185,6 +188,21 @@ public class ZoomPlotPanel extends JComponent {
     mOriginIsMin = flag;
   }
 
+  /**
+   * Sets the graphs of this panel and its plot panel to be drawn
+   * quickly at a lower quality as soon as they change, and drawn again
+   * in full once they have stayed the same for <code>delay</code>
+   * milliseconds.
+   *
+   * @param draft quality to draw changed graphs with, or null
+   * @param delay milliseconds to wait before drawing in full
+   */
+  public void setProgressiveRendering(GraphicsRenderer.Quality draft, int delay) {
+    mPnPRefiner.set(draft, delay);
+    mPlotPanel.setProgressiveRendering(draft, delay);
+    repaint();
+  }
+
   /**
    * Sets the colors to render plots with.
    *
@@ -192,6 +210,7 @@ public class ZoomPlotPanel extends JComponent {
    */
   public void setColors(Color[] colors) {
     mGraphicsRenderer.setColors(colors);
+    mOverview.clear();
   }
 
   /**
@@ -210,6 +229,7 @@ public class ZoomPlotPanel extends JComponent {
    */
   public void setPatterns(Paint[] patterns) {
     mGraphicsRenderer.setPatterns(patterns);
+    mOverview.clear();
   }
 
   /**
@@ -328,12 +348,8 @@ public class ZoomPlotPanel extends JComponent {
 
         final int pnpX = (int) mPtPNP.getX();
         final int pnpY = (int) mPtPNP.getY();
-        g.setColor(Color.WHITE);
-        g.fillRect(pnpX, pnpY, mPNPWidth, mPNPHeight);
-        g.setColor(Color.BLACK);
-        g.drawRect(pnpX, pnpY, mPNPWidth, mPNPHeight);
-        final Graphics g2 = g.create(pnpX, pnpY, mPNPWidth, mPNPHeight);
-        mGraphicsRenderer.drawGraph(mGraph, g2, mPNPWidth, mPNPHeight);
+        final GraphicsRenderer.Quality quality = mPnPRefiner.getQuality(mGraph, mGraph.getVersion(), mPNPWidth, mPNPHeight, mGraphicsRenderer.getQuality());
+        mOverview.draw(mGraphicsRenderer, g, mGraph, mPlotPanel.getGraph(), pnpX, pnpY, mPNPWidth, mPNPHeight, quality);
       }
     }
   }
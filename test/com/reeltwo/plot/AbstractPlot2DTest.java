@@ -157,5 +157,25 @@ public abstract class AbstractPlot2DTest extends TestCase {
       i++;
     }
   }
-}
 
+
+  public void testVersion() {
+    final Plot2D plot = getPlot();
+    long version = plot.getVersion();
+    plot.setTitle("title");
+    assertTrue(plot.getVersion() > version);
+    version = plot.getVersion();
+    plot.setColor(3);
+    assertTrue(plot.getVersion() > version);
+    version = plot.getVersion();
+    plot.setData(getData());
+    assertTrue(plot.getVersion() > version);
+    version = plot.getVersion();
+    plot.changed();
+    assertTrue(plot.getVersion() > version);
+    version = plot.getVersion();
+    plot.getData();
+    plot.getTitle();
+    assertEquals(version, plot.getVersion());
+  }
+}
@@ -26,10 +26,13 @@ public class AllTests extends TestSuite {
     suite.addTest(CirclePlot2DTest.suite());
     suite.addTest(CurvePlot2DTest.suite());
     suite.addTest(DefaultFormatterTest.suite());
+    suite.addTest(FloatSeries2DTest.suite());
     suite.addTest(Graph2DTest.suite());
+    suite.addTest(MappedSeries2DTest.suite());
     suite.addTest(PlotUtilsTest.suite());
     suite.addTest(Point2DTest.suite());
     suite.addTest(PointPlot2DTest.suite());
+    suite.addTest(SeriesPyramidTest.suite());
     suite.addTest(TextPlot2DTest.suite());
     suite.addTest(TextPoint2DTest.suite());
     suite.addTest(ScatterPlot2DTest.suite());
@@ -37,6 +40,7 @@ public class AllTests extends TestSuite {
 
     suite.addTest(com.reeltwo.plot.patterns.AllTests.suite());
     suite.addTest(com.reeltwo.plot.renderer.AllTests.suite());
+    suite.addTest(com.reeltwo.plot.ui.AllTests.suite());
 
     return suite;
   }
@@ -0,0 +1,80 @@
+package com.reeltwo.plot;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the FloatSeries2D class.
+ *
+ * @author Richard Littin
+ */
+
+public class FloatSeries2DTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public FloatSeries2DTest(String name) {
+    super(name);
+  }
+
+
+  public void test1() {
+    final float[] xs = {1.0f, 2.0f, 3.0f};
+    final float[] ys = {4.0f, -5.0f, 6.5f};
+    final FloatSeries2D series = new FloatSeries2D(xs, ys);
+    assertEquals(3, series.size());
+    for (int i = 0; i < xs.length; i++) {
+      assertEquals(xs[i], series.getX(i));
+      assertEquals(ys[i], series.getY(i));
+    }
+    assertTrue(xs == series.getXs());
+    assertTrue(ys == series.getYs());
+  }
+
+
+  public void testLog10() {
+    final FloatSeries2D series = new FloatSeries2D(new float[] {1.0f, 100.0f}, new float[] {10.0f, 0.1f});
+    final float[] logXs = series.getLog10Xs();
+    assertEquals(0.0f, logXs[0], 1e-6f);
+    assertEquals(2.0f, logXs[1], 1e-6f);
+    assertTrue(logXs == series.getLog10Xs());
+    assertEquals(1.0f, series.getLog10Ys()[0], 1e-6f);
+    assertEquals(-1.0f, series.getLog10Ys()[1], 1e-6f);
+    // changed arrays are logged again once given to a plot
+    series.getXs()[1] = 1000.0f;
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(series);
+    assertEquals(3.0f, series.getLog10Xs()[1], 1e-6f);
+  }
+
+
+  public void testBadArgs() {
+    try {
+      new FloatSeries2D(null, new float[0]);
+      fail("accepted null x co-ordinates");
+    } catch (final NullPointerException npe) {
+      ; // expected
+    }
+    try {
+      new FloatSeries2D(new float[1], new float[2]);
+      fail("accepted mismatched co-ordinates");
+    } catch (final IllegalArgumentException iae) {
+      ; // expected
+    }
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(FloatSeries2DTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
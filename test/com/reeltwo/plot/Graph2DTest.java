@@ -189,6 +189,28 @@ public class Graph2DTest extends TestCase {
     assertEquals(Axis.Y, Graph2D.Y);
   }
 
+  public void testVersion() {
+    final Graph2D graph = new Graph2D();
+    long version = graph.getVersion();
+    graph.setTitle("title");
+    assertTrue(graph.getVersion() > version);
+    version = graph.getVersion();
+    graph.setRange(Axis.X, 0, 10);
+    assertTrue(graph.getVersion() > version);
+    final PointPlot2D plot = new PointPlot2D();
+    version = graph.getVersion();
+    graph.addPlot(plot);
+    assertTrue(graph.getVersion() > version);
+    // changes to plots change the graph
+    version = graph.getVersion();
+    plot.setTitle("plot");
+    assertTrue(graph.getVersion() > version);
+    version = graph.getVersion();
+    graph.getTitle();
+    graph.getPlots();
+    assertEquals(version, graph.getVersion());
+  }
+
   public static Test suite() {
     return new TestSuite(Graph2DTest.class);
   }
@@ -0,0 +1,111 @@
+package com.reeltwo.plot;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the MappedSeries2D class.
+ *
+ * @author Richard Littin
+ */
+
+public class MappedSeries2DTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public MappedSeries2DTest(String name) {
+    super(name);
+  }
+
+
+  private static File writePairs(float[] values) throws IOException {
+    final File file = File.createTempFile("series", ".bin");
+    file.deleteOnExit();
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+      for (final float value : values) {
+        out.writeFloat(value);
+      }
+    }
+    return file;
+  }
+
+
+  public void testMap() throws IOException {
+    final File file = writePairs(new float[] {1.0f, 4.0f, 2.0f, -5.0f, 3.0f, 6.5f});
+    try {
+      final MappedSeries2D series = MappedSeries2D.map(file);
+      assertEquals(3, series.size());
+      assertEquals(2.0f, series.getX(1));
+      assertEquals(-5.0f, series.getY(1));
+      assertEquals(6.5f, series.getY(2));
+      try {
+        series.getX(3);
+        fail("read past end of series");
+      } catch (final IndexOutOfBoundsException e) {
+        ; // expected
+      }
+
+      final PointPlot2D plot = new PointPlot2D();
+      plot.setData(series);
+      assertTrue(series == plot.getSeries());
+      assertEquals(1.0f, plot.getLo(Axis.X));
+      assertEquals(3.0f, plot.getHi(Axis.X));
+      assertEquals(-5.0f, plot.getLo(Axis.Y));
+      assertEquals(6.5f, plot.getHi(Axis.Y));
+    } finally {
+      file.delete();
+    }
+  }
+
+
+  public void testBuffer() {
+    final ByteBuffer bytes = ByteBuffer.allocateDirect(16).order(ByteOrder.LITTLE_ENDIAN);
+    bytes.putFloat(1.5f).putFloat(2.5f).putFloat(3.5f).putFloat(4.5f).flip();
+    final MappedSeries2D series = new MappedSeries2D(bytes.asFloatBuffer());
+    assertEquals(2, series.size());
+    assertEquals(3.5f, series.getX(1));
+    assertEquals(4.5f, series.getY(1));
+  }
+
+
+  public void testBadArgs() throws IOException {
+    try {
+      new MappedSeries2D(FloatBuffer.allocate(3));
+      fail("accepted odd number of values");
+    } catch (final IllegalArgumentException iae) {
+      ; // expected
+    }
+    final File file = writePairs(new float[] {1.0f});
+    try {
+      MappedSeries2D.map(file);
+      fail("accepted partial pair");
+    } catch (final IOException ioe) {
+      ; // expected
+    } finally {
+      file.delete();
+    }
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(MappedSeries2DTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
@@ -1,5 +1,7 @@
 package com.reeltwo.plot;
 
+import com.reeltwo.plot.FillablePlot2D.FillStyle;
+
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -100,6 +102,76 @@ public class PointPlot2DTest extends AbstractFillablePlot2DTest {
   }
 
 
+  public void testSortedX() {
+    final PointPlot2D plot = (PointPlot2D) getPlot();
+    assertTrue(plot.isDecimate());
+    plot.setDecimate(false);
+    assertFalse(plot.isDecimate());
+    plot.setData(new FloatSeries2D(new float[] {1, 2, 2, 3}, new float[] {0, 1, 2, 3}));
+    assertTrue(plot.isSortedX());
+    plot.setData(new FloatSeries2D(new float[] {1, 3, 2}, new float[] {0, 1, 2}));
+    assertFalse(plot.isSortedX());
+    plot.setData(new Point2D[] {new Point2D(1, 1), new Point2D(2, 0)});
+    assertTrue(plot.isSortedX());
+    plot.setData(new Point2D[] {new Point2D(2, 1), new Point2D(1, 0)});
+    assertFalse(plot.isSortedX());
+  }
+
+
+  public void testLevelOfDetail() {
+    final PointPlot2D plot = (PointPlot2D) getPlot();
+    assertFalse(plot.isLevelOfDetail());
+    plot.setData(new FloatSeries2D(new float[] {1, 2, 3, 4}, new float[] {0, 1, 2, 3}));
+    assertNull(plot.getPyramid());
+    plot.setLevelOfDetail(true);
+    assertTrue(plot.isLevelOfDetail());
+    assertNotNull(plot.getPyramid());
+    assertTrue(plot.getPyramid().getSeries() == plot.getSeries());
+    plot.setData(new FloatSeries2D(new float[] {1, 3, 2}, new float[] {0, 1, 2}));
+    assertNull(plot.getPyramid());
+    plot.setData(new Point2D[] {new Point2D(1, 1), new Point2D(2, 0)});
+    assertNotNull(plot.getPyramid());
+    plot.setLevelOfDetail(false);
+    assertNull(plot.getPyramid());
+  }
+
+
+  public void testSeriesData() {
+    final PointPlot2D plot = (PointPlot2D) getPlot();
+    assertFalse(plot.hasData());
+    final FloatSeries2D series = new FloatSeries2D(new float[] {3, 1, 2}, new float[] {-1, 5, 0.5f});
+    plot.setData(series);
+    assertTrue(plot.hasData());
+    assertNull(plot.getData());
+    assertTrue(plot.getSeries() == series);
+    assertEquals(1.0f, plot.getLo(Axis.X));
+    assertEquals(3.0f, plot.getHi(Axis.X));
+    assertEquals(-1.0f, plot.getLo(Axis.Y));
+    assertEquals(5.0f, plot.getHi(Axis.Y));
+
+    plot.setData(new FloatSeries2D(new float[0], new float[0]));
+    assertFalse(plot.hasData());
+    assertEquals(0.0f, plot.getLo(Axis.X));
+    assertEquals(0.0f, plot.getHi(Axis.Y));
+
+    try {
+      plot.setData(new FloatSeries2D(new float[] {0, Float.POSITIVE_INFINITY}, new float[] {0, 1}));
+      fail("accepted bad data");
+    } catch (final IllegalArgumentException iae) {
+      ; // expected
+    }
+
+    final Point2D[] points = (Point2D[]) getData();
+    plot.setData(points);
+    final Series2D view = plot.getSeries();
+    assertEquals(points.length, view.size());
+    for (int i = 0; i < points.length; i++) {
+      assertEquals(points[i].getX(), view.getX(i));
+      assertEquals(points[i].getY(), view.getY(i));
+    }
+  }
+
+
   public static Test suite() {
     return new TestSuite(PointPlot2DTest.class);
   }
@@ -109,4 +181,18 @@ public class PointPlot2DTest extends AbstractFillablePlot2DTest {
     junit.textui.TestRunner.run(suite());
   }
 
+
+
+  public void testSetterVersions() {
+    final PointPlot2D plot = new PointPlot2D();
+    long version = plot.getVersion();
+    plot.setLines(true);
+    assertTrue(plot.getVersion() > version);
+    version = plot.getVersion();
+    plot.setFill(FillStyle.COLOR);
+    assertTrue(plot.getVersion() > version);
+    version = plot.getVersion();
+    plot.setData(new FloatSeries2D(new float[] {1, 2}, new float[] {3, 4}));
+    assertTrue(plot.getVersion() > version);
+  }
 }
@@ -0,0 +1,86 @@
+package com.reeltwo.plot;
+
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the SeriesPyramid class.
+ *
+ * @author Richard Littin
+ */
+
+public class SeriesPyramidTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public SeriesPyramidTest(String name) {
+    super(name);
+  }
+
+
+  public void test1() {
+    final Random random = new Random(7);
+    final int size = 1000;
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      ys[i] = random.nextFloat();
+    }
+    final SeriesPyramid pyramid = new SeriesPyramid(new FloatSeries2D(xs, ys));
+    assertEquals(10, pyramid.getLevels());
+    for (int level = 1; level <= pyramid.getLevels(); level++) {
+      final int bucketSize = 1 << level;
+      for (int k = 0; k * bucketSize < size; k++) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = k * bucketSize; i < Math.min(size, (k + 1) * bucketSize); i++) {
+          min = Math.min(min, ys[i]);
+          max = Math.max(max, ys[i]);
+        }
+        assertEquals(min, pyramid.getMin(level, k));
+        assertEquals(max, pyramid.getMax(level, k));
+      }
+    }
+  }
+
+
+  public void testChooseLevel() {
+    final SeriesPyramid pyramid = new SeriesPyramid(new FloatSeries2D(new float[1024], new float[1024]));
+    assertEquals(10, pyramid.getLevels());
+    assertEquals(0, pyramid.chooseLevel(0, 1024, 1024));
+    assertEquals(1, pyramid.chooseLevel(0, 1024, 512));
+    assertEquals(1, pyramid.chooseLevel(0, 1024, 300));
+    assertEquals(3, pyramid.chooseLevel(0, 1024, 100));
+    assertEquals(10, pyramid.chooseLevel(0, 1024, 1));
+    assertEquals(0, pyramid.chooseLevel(0, 10, 100));
+  }
+
+
+  public void testSmall() {
+    assertEquals(0, new SeriesPyramid(new FloatSeries2D(new float[1], new float[1])).getLevels());
+    final SeriesPyramid pyramid = new SeriesPyramid(new FloatSeries2D(new float[] {0, 1, 2}, new float[] {5, -1, 3}));
+    assertEquals(2, pyramid.getLevels());
+    assertEquals(-1.0f, pyramid.getMin(1, 0));
+    assertEquals(5.0f, pyramid.getMax(1, 0));
+    assertEquals(3.0f, pyramid.getMin(1, 1));
+    assertEquals(-1.0f, pyramid.getMin(2, 0));
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(SeriesPyramidTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
@@ -0,0 +1,88 @@
+package com.reeltwo.plot;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import com.reeltwo.plot.FillablePlot2D.FillStyle;
+import com.reeltwo.plot.ui.PlotPanel;
+
+import junit.framework.Assert;
+
+/**
+ * Graphs, pictures and checks shared by the tests.
+ *
+ * @author Richard Littin
+ */
+public final class TestUtils {
+
+  private TestUtils() { }
+
+  /**
+   * Returns a graph with a title, labels, a key, a grid and a plot each
+   * of lines, boxes, circles and a filled curve.
+   *
+   * @param title title of the graph
+   * @return a graph
+   */
+  public static Graph2D sampleGraph(String title) {
+    final Graph2D graph = new Graph2D();
+    graph.setTitle(title);
+    graph.setLabel(Axis.X, Edge.MAIN, "x");
+    graph.setLabel(Axis.Y, Edge.MAIN, "y");
+    graph.setKeyTitle("key");
+    graph.setGrid(true);
+    final PointPlot2D lines = new PointPlot2D();
+    lines.setData(new Point2D[] {new Point2D(0, 0), new Point2D(1, 3), new Point2D(2, 1), new Point2D(3, 4)});
+    lines.setLines(true);
+    lines.setTitle("lines");
+    graph.addPlot(lines);
+    final BoxPlot2D boxes = new BoxPlot2D();
+    boxes.setData(new Box2D[] {new Box2D(0.5f, 0.5f, 1.5f, 2)});
+    boxes.setFill(FillStyle.COLOR);
+    boxes.setTitle("boxes");
+    graph.addPlot(boxes);
+    final CirclePlot2D circles = new CirclePlot2D();
+    circles.setData(new Circle2D[] {new Circle2D(2, 2, 5)});
+    circles.setTitle("circles");
+    graph.addPlot(circles);
+    final CurvePlot2D curve = new CurvePlot2D();
+    curve.setData(new Point2D[] {new Point2D(0, 1), new Point2D(1, 2), new Point2D(2, 2), new Point2D(3, 1)});
+    curve.setFill(FillStyle.COLOR);
+    curve.setTitle("curve");
+    graph.addPlot(curve);
+    return graph;
+  }
+
+  /**
+   * Paints a panel at its size onto a new image.
+   *
+   * @param panel a panel
+   * @return the picture
+   */
+  public static BufferedImage paint(PlotPanel panel) {
+    final BufferedImage image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+    final Graphics g = image.getGraphics();
+    try {
+      panel.paintComponent(g);
+    } finally {
+      g.dispose();
+    }
+    return image;
+  }
+
+  /**
+   * Checks that two images are the same size with the same pixels.
+   *
+   * @param expected the image expected
+   * @param actual the image to check
+   */
+  public static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+    Assert.assertEquals(expected.getWidth(), actual.getWidth());
+    Assert.assertEquals(expected.getHeight(), actual.getHeight());
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        Assert.assertEquals("pixel (" + x + ", " + y + ")", expected.getRGB(x, y), actual.getRGB(x, y));
+      }
+    }
+  }
+}
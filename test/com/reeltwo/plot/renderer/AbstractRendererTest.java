@@ -0,0 +1,265 @@
+package com.reeltwo.plot.renderer;
+
+import java.lang.management.ManagementFactory;
+
+import com.reeltwo.plot.Arrow2D;
+import com.reeltwo.plot.ArrowPlot2D;
+import com.reeltwo.plot.BWPlot2D;
+import com.reeltwo.plot.BWPoint2D;
+import com.reeltwo.plot.Box2D;
+import com.reeltwo.plot.BoxPlot2D;
+import com.reeltwo.plot.Circle2D;
+import com.reeltwo.plot.CirclePlot2D;
+import com.reeltwo.plot.CurvePlot2D;
+import com.reeltwo.plot.FillablePlot2D.FillStyle;
+import com.reeltwo.plot.FloatSeries2D;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Plot2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.ScatterPlot2D;
+import com.reeltwo.plot.ScatterPoint2D;
+import com.reeltwo.plot.TextPlot2D;
+import com.reeltwo.plot.TextPoint2D;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the AbstractRenderer class.
+ *
+ * @author Richard Littin
+ */
+
+public class AbstractRendererTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public AbstractRendererTest(String name) {
+    super(name);
+  }
+
+
+  /** A renderer whose primitives do nothing but count points drawn. */
+  static class NullRenderer extends AbstractRenderer {
+    long mPoints = 0;
+
+    @Override
+    int getTextWidth(Object canvas, String text) {
+      return 6 * text.length();
+    }
+    @Override
+    int getTextHeight(Object canvas, String text) {
+      return 10;
+    }
+    @Override
+    int getTextDescent(Object canvas, String text) {
+      return 2;
+    }
+    @Override
+    protected void setClip(Object canvas, int x, int y, int w, int h) {
+    }
+    @Override
+    protected void drawString(Object canvas, int x, int y, String text, boolean vertical) {
+    }
+    @Override
+    protected void drawPoint(Object canvas, int x, int y) {
+      mPoints++;
+    }
+    @Override
+    protected void drawLine(Object canvas, int x1, int y1, int x2, int y2) {
+      mPoints += 2;
+    }
+    @Override
+    protected void drawRectangle(Object canvas, int x, int y, int w, int h) {
+    }
+    @Override
+    protected void fillRectangle(Object canvas, int x, int y, int w, int h) {
+    }
+    @Override
+    protected void drawCircle(Object canvas, int x, int y, int diameter) {
+    }
+    @Override
+    protected void fillCircle(Object canvas, int x, int y, int diameter) {
+    }
+    @Override
+    protected void drawPolygon(Object canvas, int[] xs, int[] ys) {
+      drawPolygon(canvas, xs, ys, xs.length);
+    }
+    @Override
+    protected void fillPolygon(Object canvas, int[] xs, int[] ys) {
+      fillPolygon(canvas, xs, ys, xs.length);
+    }
+    @Override
+    protected void drawPolyline(Object canvas, int[] xs, int[] ys) {
+      drawPolyline(canvas, xs, ys, xs.length);
+    }
+    @Override
+    protected void drawPolygon(Object canvas, int[] xs, int[] ys, int n) {
+      mPoints += n;
+    }
+    @Override
+    protected void fillPolygon(Object canvas, int[] xs, int[] ys, int n) {
+      mPoints += n;
+    }
+    @Override
+    protected void drawPolyline(Object canvas, int[] xs, int[] ys, int n) {
+      mPoints += n;
+    }
+    @Override
+    protected int calculateKeyWidth(Object canvas, Graph2D graph) {
+      return 0;
+    }
+    @Override
+    protected int calculateKeyHeight(Object canvas, Graph2D graph, int screenWidth) {
+      return 0;
+    }
+  }
+
+
+  private static Plot2D[] plots() {
+    final int size = 100000;
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      ys[i] = (float) Math.sin(i / 50.0);
+    }
+    final FloatSeries2D series = new FloatSeries2D(xs, ys);
+
+    final PointPlot2D lines = new PointPlot2D();
+    lines.setData(series);
+    lines.setLines(true);
+    lines.setPoints(false);
+    final PointPlot2D pyramid = new PointPlot2D();
+    pyramid.setData(series);
+    pyramid.setLines(true);
+    pyramid.setPoints(false);
+    pyramid.setLevelOfDetail(true);
+    final PointPlot2D filled = new PointPlot2D();
+    filled.setData(series);
+    filled.setFill(FillStyle.COLOR);
+    filled.setBorder(true);
+    filled.setDecimate(false);
+    final PointPlot2D markers = new PointPlot2D();
+    markers.setData(new FloatSeries2D(new float[] {1, 5, 9, 20}, new float[] {0.5f, -0.5f, 0.25f, 0}));
+    markers.setLines(true);
+    markers.setDots(true);
+
+    final Box2D[] boxes = new Box2D[1000];
+    final Circle2D[] circles = new Circle2D[1000];
+    final BWPoint2D[] whiskers = new BWPoint2D[100];
+    final Arrow2D[] arrows = new Arrow2D[100];
+    final TextPoint2D[] texts = new TextPoint2D[100];
+    final ScatterPoint2D[] scatters = new ScatterPoint2D[100];
+    for (int i = 0; i < boxes.length; i++) {
+      boxes[i] = new Box2D(i * 100, 0, i * 100 + 50, 0.5f);
+      circles[i] = new Circle2D(i * 100, 0.25f, 4);
+    }
+    for (int i = 0; i < whiskers.length; i++) {
+      whiskers[i] = new BWPoint2D(i * 1000, -1, -0.5f, 0, 0.5f, 1);
+      arrows[i] = new Arrow2D(i * 1000, 0, i * 1000 + 500, 0.5f);
+      texts[i] = new TextPoint2D(i * 1000, 0, "x");
+      scatters[i] = new ScatterPoint2D(i * 1000, 0, 3);
+    }
+    final BoxPlot2D boxPlot = new BoxPlot2D();
+    boxPlot.setData(boxes);
+    final CirclePlot2D circlePlot = new CirclePlot2D();
+    circlePlot.setData(circles);
+    final BWPlot2D bwPlot = new BWPlot2D();
+    bwPlot.setData(whiskers);
+    final ArrowPlot2D arrowPlot = new ArrowPlot2D();
+    arrowPlot.setData(arrows);
+    final TextPlot2D textPlot = new TextPlot2D();
+    textPlot.setData(texts);
+    final ScatterPlot2D scatterPlot = new ScatterPlot2D();
+    scatterPlot.setData(scatters);
+    final CurvePlot2D curve = new CurvePlot2D();
+    curve.setData(new FloatSeries2D(new float[] {0, 100, 300, 600, 1000}, new float[] {0, 1, -1, 0.5f, 0}));
+    curve.setType(CurvePlot2D.BSPLINE);
+
+    return new Plot2D[] {lines, pyramid, filled, markers, boxPlot, circlePlot, bwPlot, arrowPlot, textPlot, scatterPlot, curve};
+  }
+
+
+  private static Mapping[] mappings() {
+    final Mapping x = new Mapping(0, 100000, 0, 799);
+    final Mapping y = new Mapping(-1.5f, 1.5f, 599, 0);
+    return new Mapping[] {x, y, x, y};
+  }
+
+
+  public void testDrawData() {
+    final NullRenderer renderer = new NullRenderer();
+    final Plot2D[] plots = plots();
+    renderer.drawData(null, new Plot2D[] {plots[0]}, mappings());
+    // decimated lines draw at most four points per pixel column, not every point
+    assertTrue(renderer.mPoints > 800);
+    assertTrue(renderer.mPoints <= 4 * 800);
+    renderer.mPoints = 0;
+    renderer.drawData(null, new Plot2D[] {plots[2]}, mappings());
+    assertTrue(renderer.mPoints > 2 * 4 * 800);
+  }
+
+
+  public void testSteadyStateAllocation() {
+    final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      return;
+    }
+    final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+      return;
+    }
+    final long id = Thread.currentThread().getId();
+    final NullRenderer renderer = new NullRenderer();
+    final Plot2D[] plots = plots();
+    final Mapping[] mappings = mappings();
+    for (int i = 0; i < 3; i++) { // grow the scratch buffers and load classes
+      renderer.drawData(null, plots, mappings);
+    }
+    final int repaints = 20;
+    threads.getThreadAllocatedBytes(id);
+    final long before = threads.getThreadAllocatedBytes(id);
+    for (int i = 0; i < repaints; i++) {
+      renderer.drawData(null, plots, mappings);
+    }
+    final long allocated = threads.getThreadAllocatedBytes(id) - before;
+    // allow for the measurement itself, but nothing that scales with the data or repaints
+    assertTrue("allocated " + allocated + " bytes over " + repaints + " repaints", allocated < 4096);
+  }
+
+
+  public void testLargeCurveNotKept() {
+    final int size = 4 * ScratchBuffers.KEPT_LENGTH;
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = i * 100000.0f / size;
+      ys[i] = (float) Math.sin(i / 500.0);
+    }
+    final CurvePlot2D curve = new CurvePlot2D();
+    curve.setData(new FloatSeries2D(xs, ys));
+    final NullRenderer renderer = new NullRenderer();
+    renderer.drawData(null, new Plot2D[] {curve}, mappings());
+    assertTrue(renderer.mPoints > 0);
+    // the arrays for the whole curve are not held by the thread
+    final ScratchBuffers scratch = renderer.context().mScratch;
+    assertTrue(scratch.ints(ScratchBuffers.X, 1).length <= ScratchBuffers.KEPT_LENGTH);
+    assertTrue(scratch.ints(ScratchBuffers.Y, 1).length <= ScratchBuffers.KEPT_LENGTH);
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(AbstractRendererTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
@@ -16,7 +16,12 @@ public class AllTests extends TestSuite {
   public static Test suite() {
     final TestSuite suite = new TestSuite();
 
+    suite.addTest(AbstractRendererTest.suite());
+    suite.addTest(DisplayListTest.suite());
+    suite.addTest(GraphicsRendererTest.suite());
     suite.addTest(MappingTest.suite());
+    suite.addTest(PdfRendererTest.suite());
+    suite.addTest(SvgRendererTest.suite());
     return suite;
   }
 
@@ -0,0 +1,154 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Edge;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.TestUtils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the DisplayList class.
+ *
+ * @author Richard Littin
+ */
+
+public class DisplayListTest extends TestCase {
+
+  private static final int WIDTH = 300;
+  private static final int HEIGHT = 200;
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public DisplayListTest(String name) {
+    super(name);
+  }
+
+
+  private static Graph2D graph() {
+    final Graph2D graph = TestUtils.sampleGraph("Title");
+    graph.setLabel(Axis.Y, Edge.ALTERNATE, "y2");
+    ((PointPlot2D) graph.getPlots()[0]).setLineWidth(3);
+    return graph;
+  }
+
+
+  private static GraphicsRenderer renderer() {
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    renderer.setGraphBGColor(Color.WHITE, Color.LIGHT_GRAY);
+    return renderer;
+  }
+
+
+  public void testReplay() {
+    final Graph2D graph = graph();
+    final GraphicsRenderer renderer = renderer();
+    final DisplayList list = DisplayList.record(renderer, graph, WIDTH, HEIGHT, null);
+    assertEquals(WIDTH, list.getWidth());
+    assertEquals(HEIGHT, list.getHeight());
+    assertTrue(list.size() > 0);
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final Graphics g = image.getGraphics();
+    try {
+      assertEquals(4, list.draw(g, 0, 0).length);
+    } finally {
+      g.dispose();
+    }
+    TestUtils.assertSameImage(GraphicsRendererTest.render(renderer, graph), image);
+    // drawing again gives the same picture
+    final BufferedImage again = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final Graphics g2 = again.getGraphics();
+    try {
+      list.draw(g2, 0, 0);
+    } finally {
+      g2.dispose();
+    }
+    TestUtils.assertSameImage(image, again);
+  }
+
+
+  public void testOffset() {
+    final Graph2D graph = graph();
+    final GraphicsRenderer renderer = renderer();
+    final BufferedImage expected = new BufferedImage(WIDTH + 40, HEIGHT + 30, BufferedImage.TYPE_INT_RGB);
+    final Graphics g = expected.getGraphics();
+    final Mapping[] mappings;
+    try {
+      mappings = renderer.drawGraph(graph, g, 25, 10, WIDTH, HEIGHT);
+    } finally {
+      g.dispose();
+    }
+    final BufferedImage actual = new BufferedImage(WIDTH + 40, HEIGHT + 30, BufferedImage.TYPE_INT_RGB);
+    final Graphics g2 = actual.getGraphics();
+    final Mapping[] replayed;
+    try {
+      replayed = DisplayList.record(renderer, graph, WIDTH, HEIGHT, null).draw(g2, 25, 10);
+    } finally {
+      g2.dispose();
+    }
+    TestUtils.assertSameImage(expected, actual);
+    assertEquals(mappings.length, replayed.length);
+    for (int i = 0; i < mappings.length; i++) {
+      assertEquals(mappings[i].worldToScreen(1.5f), replayed[i].worldToScreen(1.5f), 0.001f);
+      assertEquals(mappings[i].screenToWorld(100), replayed[i].screenToWorld(100), 0.001f);
+    }
+  }
+
+
+  public void testVector() throws Exception {
+    final Graph2D graph = graph();
+    final Font font = new Font(Font.SERIF, Font.PLAIN, 12);
+    final DisplayList list = DisplayList.record(renderer(), graph, WIDTH - 10, HEIGHT - 10, font);
+    final SvgRenderer svg = new SvgRenderer();
+    svg.setRendererConfig(renderer());
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    svg.drawGraph(graph, expected, WIDTH, HEIGHT, 5, font);
+    final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    assertEquals(4, svg.drawGraph(list, actual, 5).length);
+    assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+    final PdfRenderer pdf = new PdfRenderer();
+    pdf.setRendererConfig(renderer());
+    expected.reset();
+    actual.reset();
+    pdf.drawGraph(graph, expected, WIDTH, HEIGHT, 5, font);
+    pdf.drawGraph(list, actual, 5);
+    assertTrue(Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+  }
+
+
+  public void testDetached() {
+    final Graph2D graph = graph();
+    final DisplayList list = DisplayList.record(renderer(), graph, WIDTH, HEIGHT, null);
+    final int size = list.size();
+    graph.addPlot(new PointPlot2D());
+    graph.setTitle("changed");
+    assertEquals(size, list.size());
+    final DisplayList empty = DisplayList.record(renderer(), null, WIDTH, HEIGHT, null);
+    assertEquals(0, empty.size());
+    assertNull(empty.getMappings(0, 0));
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(DisplayListTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
@@ -0,0 +1,702 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Box2D;
+import com.reeltwo.plot.BoxPlot2D;
+import com.reeltwo.plot.Circle2D;
+import com.reeltwo.plot.CirclePlot2D;
+import com.reeltwo.plot.CurvePlot2D;
+import com.reeltwo.plot.Edge;
+import com.reeltwo.plot.FillablePlot2D.FillStyle;
+import com.reeltwo.plot.FloatSeries2D;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Plot2D;
+import com.reeltwo.plot.Point2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.ScatterPlot2D;
+import com.reeltwo.plot.ScatterPoint2D;
+import com.reeltwo.plot.Series2D;
+import com.reeltwo.plot.TestUtils;
+import com.reeltwo.plot.TextPlot2D;
+import com.reeltwo.plot.TextPoint2D;
+import com.reeltwo.plot.renderer.GraphicsRenderer.Quality;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the GraphicsRenderer class.
+ *
+ * @author Richard Littin
+ */
+
+public class GraphicsRendererTest extends TestCase {
+
+  private static final int WIDTH = 300;
+  private static final int HEIGHT = 200;
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public GraphicsRendererTest(String name) {
+    super(name);
+  }
+
+
+  private static PointPlot2D noisyPlot(int size) {
+    final Random random = new Random(42);
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      ys[i] = (float) (Math.sin(i / 1000.0) + random.nextGaussian());
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(new FloatSeries2D(xs, ys));
+    plot.setLines(true);
+    plot.setPoints(false);
+    return plot;
+  }
+
+
+  static BufferedImage render(Graph2D graph) {
+    return render(new GraphicsRenderer(), graph);
+  }
+
+
+  static BufferedImage render(GraphicsRenderer renderer, Graph2D graph) {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final Graphics g = image.getGraphics();
+    try {
+      final Mapping[] mappings = renderer.drawGraph(graph, g, WIDTH, HEIGHT);
+      assertEquals(4, mappings.length);
+    } finally {
+      g.dispose();
+    }
+    return image;
+  }
+
+
+  private void checkDecimation(FillStyle fill) {
+    final PointPlot2D plot = noisyPlot(50000);
+    plot.setFill(fill);
+    assertTrue(plot.isSortedX());
+    assertTrue(plot.isDecimate());
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    final BufferedImage decimated = render(graph);
+    plot.setDecimate(false);
+    TestUtils.assertSameImage(render(graph), decimated);
+  }
+
+
+  public void testDecimatedLines() {
+    checkDecimation(FillStyle.NONE);
+  }
+
+
+  public void testDecimatedFill() {
+    checkDecimation(FillStyle.COLOR);
+  }
+
+
+  public void testDecimateSize() {
+    final PointPlot2D plot = noisyPlot(50000);
+    final Mapping convertX = new Mapping(0, 49999, 0, 99);
+    final Mapping convertY = new Mapping(-5, 5, 99, 0);
+    final AbstractRenderer.Poly polygon = new AbstractRenderer.Poly();
+    new GraphicsRenderer().decimate(polygon, plot.getSeries(), 0, 50000, convertX, convertY);
+    assertTrue(polygon.size() <= 4 * 100);
+    assertTrue(polygon.size() >= 2 * 100);
+  }
+
+
+  private static BufferedImage renderZoomed(Plot2D plot) {
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    graph.setRange(Axis.X, 400, 420);
+    graph.setRange(Axis.Y, -4, 4);
+    return render(graph);
+  }
+
+
+  private static FloatSeries2D wave(int size, boolean shuffled) {
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      ys[i] = (float) (3 * Math.sin(i / 3.0));
+    }
+    if (shuffled) {
+      // out of order well away from the view
+      xs[0] = 1;
+      xs[1] = 0;
+    }
+    return new FloatSeries2D(xs, ys);
+  }
+
+
+  private void checkCulledPoints(FillStyle fill) {
+    final PointPlot2D sorted = new PointPlot2D();
+    sorted.setData(wave(1000, false));
+    sorted.setLines(true);
+    sorted.setFill(fill);
+    assertTrue(sorted.isSortedX());
+    final PointPlot2D unsorted = new PointPlot2D();
+    unsorted.setData(wave(1000, true));
+    unsorted.setLines(true);
+    unsorted.setFill(fill);
+    assertFalse(unsorted.isSortedX());
+    TestUtils.assertSameImage(renderZoomed(unsorted), renderZoomed(sorted));
+  }
+
+
+  public void testCulledPoints() {
+    checkCulledPoints(FillStyle.NONE);
+  }
+
+
+  public void testCulledFill() {
+    checkCulledPoints(FillStyle.COLOR);
+  }
+
+
+  public void testCulledBoxes() {
+    final Box2D[] boxes = new Box2D[1000];
+    final Box2D[] reversed = new Box2D[boxes.length];
+    for (int i = 0; i < boxes.length; i++) {
+      boxes[i] = new Box2D(i, (float) Math.sin(i), i + 0.5f, -2);
+      reversed[boxes.length - 1 - i] = boxes[i];
+    }
+    final BoxPlot2D sorted = new BoxPlot2D();
+    sorted.setData(boxes);
+    assertTrue(sorted.isSortedX());
+    final BoxPlot2D unsorted = new BoxPlot2D();
+    unsorted.setData(reversed);
+    assertFalse(unsorted.isSortedX());
+    TestUtils.assertSameImage(renderZoomed(unsorted), renderZoomed(sorted));
+  }
+
+
+  public void testCulledCircles() {
+    final Circle2D[] circles = new Circle2D[1000];
+    final Circle2D[] reversed = new Circle2D[circles.length];
+    for (int i = 0; i < circles.length; i++) {
+      circles[i] = new Circle2D(i, (float) Math.sin(i), 5 + i % 40);
+      reversed[circles.length - 1 - i] = circles[i];
+    }
+    final CirclePlot2D sorted = new CirclePlot2D();
+    sorted.setData(circles);
+    assertTrue(sorted.isSortedX());
+    assertEquals(44.0f, sorted.getMaxDiameter());
+    final CirclePlot2D unsorted = new CirclePlot2D();
+    unsorted.setData(reversed);
+    TestUtils.assertSameImage(renderZoomed(unsorted), renderZoomed(sorted));
+  }
+
+
+  public void testCulledReads() {
+    final FloatSeries2D wave = wave(100000, false);
+    final int[] reads = new int[1];
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(new Series2D() {
+        @Override
+        public int size() {
+          return wave.size();
+        }
+        @Override
+        public float getX(int index) {
+          reads[0]++;
+          return wave.getX(index);
+        }
+        @Override
+        public float getY(int index) {
+          return wave.getY(index);
+        }
+      });
+    reads[0] = 0;
+    renderZoomed(plot);
+    assertTrue("read " + reads[0] + " x values", reads[0] < 1000);
+  }
+
+
+  public void testLevelOfDetail() {
+    final PointPlot2D plot = noisyPlot(200000);
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    final BufferedImage full = render(graph);
+    plot.setLevelOfDetail(true);
+    assertNotNull(plot.getPyramid());
+    TestUtils.assertSameImage(full, render(graph));
+
+    final AbstractRenderer.Poly polygon = new AbstractRenderer.Poly();
+    final Mapping convertX = new Mapping(0, 199999, 0, 99);
+    final Mapping convertY = new Mapping(-5, 5, 99, 0);
+    final int level = plot.getPyramid().chooseLevel(0, 200000, 100);
+    assertEquals(10, level);
+    new GraphicsRenderer().decimate(polygon, plot.getPyramid(), level, 0, 200000, convertX, convertY);
+    assertTrue(polygon.size() <= 4 * 100);
+  }
+
+
+  private static BufferedImage renderLog(Plot2D plot) {
+    final Graph2D graph = new Graph2D();
+    graph.setLogScale(Axis.X, Edge.MAIN, true);
+    graph.setLogScale(Axis.Y, Edge.MAIN, true);
+    graph.addPlot(plot);
+    return render(graph);
+  }
+
+
+  public void testLogSeries() {
+    final int size = 500;
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    final Point2D[] points = new Point2D[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = i + 1;
+      ys[i] = (float) (2 + Math.sin(i / 10.0));
+      points[i] = new Point2D(xs[i], ys[i]);
+    }
+    final PointPlot2D columns = new PointPlot2D();
+    columns.setData(new FloatSeries2D(xs, ys));
+    columns.setLines(true);
+    final PointPlot2D objects = new PointPlot2D();
+    objects.setData(points);
+    objects.setLines(true);
+    TestUtils.assertSameImage(renderLog(objects), renderLog(columns));
+  }
+
+
+  public void testConcurrentRendering() throws Exception {
+    final int count = 6;
+    final Graph2D[] graphs = new Graph2D[count];
+    final BufferedImage[] expected = new BufferedImage[count];
+    for (int i = 0; i < count; i++) {
+      final Graph2D graph = new Graph2D();
+      for (int j = 0; j <= i; j++) {
+        final PointPlot2D plot = new PointPlot2D();
+        plot.setData(wave(200 + 50 * i, false));
+        plot.setLines(j % 2 == 0);
+        plot.setLineWidth(1 + j % 3);
+        graph.addPlot(plot);
+      }
+      graph.setRange(Axis.Y, -4 - i, 4);
+      graphs[i] = graph;
+      expected[i] = render(graph);
+    }
+
+    final GraphicsRenderer shared = new GraphicsRenderer();
+    final ExecutorService executor = Executors.newFixedThreadPool(count);
+    try {
+      final List<Future<BufferedImage>> results = new ArrayList<>();
+      for (int round = 0; round < 10; round++) {
+        for (int i = 0; i < count; i++) {
+          final Graph2D graph = graphs[i];
+          results.add(executor.submit(new Callable<BufferedImage>() {
+              @Override
+              public BufferedImage call() {
+                return render(shared, graph);
+              }
+            }));
+        }
+      }
+      for (int k = 0; k < results.size(); k++) {
+        TestUtils.assertSameImage(expected[k % count], results.get(k).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /** Counts the plots actually drawn. */
+  private static final class CountingRenderer extends GraphicsRenderer {
+    int mDrawn = 0;
+
+    @Override
+    protected void drawPlot(Object canvas, Plot2D plot, int index, Mapping[] mapping) {
+      mDrawn++;
+      super.drawPlot(canvas, plot, index, mapping);
+    }
+  }
+
+
+  public void testLayerCaching() {
+    final Graph2D graph = new Graph2D();
+    final PointPlot2D[] plots = new PointPlot2D[3];
+    for (int j = 0; j < plots.length; j++) {
+      plots[j] = new PointPlot2D();
+      plots[j].setData(wave(300 + 100 * j, false));
+      plots[j].setLines(j != 1);
+      plots[j].setLineWidth(1 + j);
+      graph.addPlot(plots[j]);
+    }
+    plots[2].setFill(FillStyle.COLOR);
+    final CountingRenderer renderer = new CountingRenderer();
+    renderer.setAntialiasing(false);
+    assertFalse(renderer.isLayerCaching());
+    renderer.setLayerCaching(true);
+    assertTrue(renderer.isLayerCaching());
+    final GraphicsRenderer plain = new GraphicsRenderer();
+    plain.setAntialiasing(false);
+
+    TestUtils.assertSameImage(render(plain, graph), render(renderer, graph));
+    assertEquals(3, renderer.mDrawn);
+    // nothing has changed so the images are reused
+    renderer.mDrawn = 0;
+    TestUtils.assertSameImage(render(plain, graph), render(renderer, graph));
+    assertEquals(0, renderer.mDrawn);
+    // only the changed plot is drawn again
+    plots[1].setData(wave(250, true));
+    TestUtils.assertSameImage(render(plain, graph), render(renderer, graph));
+    assertEquals(1, renderer.mDrawn);
+    // a new range moves every plot
+    renderer.mDrawn = 0;
+    graph.setRange(Axis.Y, -5, 5);
+    TestUtils.assertSameImage(render(plain, graph), render(renderer, graph));
+    assertEquals(3, renderer.mDrawn);
+    // as does a change to the renderer
+    renderer.mDrawn = 0;
+    renderer.setForeground(Color.BLUE);
+    render(renderer, graph);
+    assertEquals(3, renderer.mDrawn);
+    renderer.mDrawn = 0;
+    renderer.setBackground(Color.YELLOW);
+    render(renderer, graph);
+    assertEquals(3, renderer.mDrawn);
+    renderer.mDrawn = 0;
+    renderer.setGridColor(Color.GREEN);
+    renderer.setGraphShadowWidth(3);
+    renderer.setGraphBGColor(Color.WHITE, Color.GRAY);
+    render(renderer, graph);
+    assertEquals(3, renderer.mDrawn);
+    // an inverted text plot draws with the background color in its layer
+    final TextPlot2D text = new TextPlot2D();
+    text.setData(new TextPoint2D[] {new TextPoint2D(50, 0, "inverted")});
+    text.setInvert(true);
+    graph.addPlot(text);
+    plain.setForeground(Color.BLUE);
+    plain.setBackground(Color.YELLOW);
+    plain.setGridColor(Color.GREEN);
+    plain.setGraphShadowWidth(3);
+    plain.setGraphBGColor(Color.WHITE, Color.GRAY);
+    TestUtils.assertSameImage(render(plain, graph), render(renderer, graph));
+    renderer.setBackground(Color.PINK);
+    plain.setBackground(Color.PINK);
+    TestUtils.assertSameImage(render(plain, graph), render(renderer, graph));
+    renderer.setLayerCaching(false);
+    renderer.mDrawn = 0;
+    render(renderer, graph);
+    assertEquals(4, renderer.mDrawn);
+  }
+
+
+  public void testCancelled() {
+    final Graph2D graph = new Graph2D();
+    final PointPlot2D[] plots = new PointPlot2D[3];
+    for (int j = 0; j < plots.length; j++) {
+      plots[j] = new PointPlot2D();
+      plots[j].setData(wave(300 + 100 * j, false));
+      graph.addPlot(plots[j]);
+    }
+    final CountingRenderer renderer = new CountingRenderer();
+    final BufferedImage expected = render(renderer, graph);
+    assertEquals(3, renderer.mDrawn);
+    renderer.mDrawn = 0;
+    renderer.setLayerCaching(true);
+    Thread.currentThread().interrupt();
+    try {
+      // no plots are drawn once the thread is interrupted
+      final CountingRenderer cancelled = new CountingRenderer();
+      render(cancelled, graph);
+      assertEquals(0, cancelled.mDrawn);
+      // and images drawn while interrupted are not kept
+      render(renderer, graph);
+    } finally {
+      assertTrue(Thread.interrupted());
+    }
+    renderer.mDrawn = 0;
+    TestUtils.assertSameImage(expected, render(renderer, graph));
+    assertEquals(3, renderer.mDrawn);
+  }
+
+
+  /** Counts the text measured. */
+  private static final class MeasuringRenderer extends GraphicsRenderer {
+    int mMeasured = 0;
+
+    @Override
+    protected int getTextWidth(Object canvas, String text) {
+      mMeasured++;
+      return super.getTextWidth(canvas, text);
+    }
+  }
+
+
+  public void testCachedLayout() {
+    final Graph2D graph = new Graph2D();
+    graph.setKeyTitle("key");
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(wave(100, false));
+    plot.setTitle("wave");
+    graph.addPlot(plot);
+    final PointPlot2D other = new PointPlot2D(Edge.MAIN, Edge.ALTERNATE);
+    other.setData(wave(50, false));
+    graph.addPlot(other);
+    graph.setRange(Axis.X, 0, 100);
+    graph.setRange(Axis.Y, -4, 4);
+    graph.setRange(Axis.Y, Edge.ALTERNATE, 0, 1000);
+    final MeasuringRenderer renderer = new MeasuringRenderer();
+    TestUtils.assertSameImage(render(graph), render(renderer, graph));
+    assertTrue(renderer.mMeasured > 20);
+    // new data at the same range needs no text measured
+    renderer.mMeasured = 0;
+    plot.setData(wave(120, true));
+    TestUtils.assertSameImage(render(graph), render(renderer, graph));
+    assertEquals(0, renderer.mMeasured);
+    // a new range or plot title is measured again
+    graph.setRange(Axis.X, 0, 20);
+    TestUtils.assertSameImage(render(graph), render(renderer, graph));
+    assertTrue(renderer.mMeasured > 0);
+    plot.setTitle("a much longer title");
+    TestUtils.assertSameImage(render(graph), render(renderer, graph));
+    graph.setShowKey(false);
+    TestUtils.assertSameImage(render(graph), render(renderer, graph));
+  }
+
+
+  public void testVerticalText() {
+    final TextPlot2D plot = new TextPlot2D();
+    plot.setVertical(true);
+    plot.setUseFGColor(false);
+    plot.setData(new TextPoint2D[] {new TextPoint2D(1, 1, "up"), new TextPoint2D(2, 2, "going up"), new TextPoint2D(3, 1, "up")});
+    plot.setColor(0);
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    graph.setRange(Axis.X, 0, 4);
+    graph.setRange(Axis.Y, 0, 3);
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    final BufferedImage first = render(renderer, graph);
+    // text drawn from kept images looks the same
+    TestUtils.assertSameImage(first, render(renderer, graph));
+    TestUtils.assertSameImage(render(graph), render(renderer, graph));
+    plot.setColor(1);
+    final BufferedImage recolored = render(renderer, graph);
+    TestUtils.assertSameImage(render(graph), recolored);
+    boolean differs = false;
+    for (int y = 0; y < HEIGHT && !differs; y++) {
+      for (int x = 0; x < WIDTH && !differs; x++) {
+        differs = first.getRGB(x, y) != recolored.getRGB(x, y);
+      }
+    }
+    assertTrue(differs);
+  }
+
+
+  private static Graph2D denseGraph() {
+    final Graph2D graph = new Graph2D();
+    final PointPlot2D points = new PointPlot2D();
+    points.setData(wave(5000, true));
+    graph.addPlot(points);
+    final PointPlot2D lines = noisyPlot(20000);
+    lines.setLineWidth(2);
+    graph.addPlot(lines);
+    final PointPlot2D fill = new PointPlot2D();
+    fill.setData(wave(3000, false));
+    fill.setFill(FillStyle.COLOR);
+    graph.addPlot(fill);
+    final Random random = new Random(7);
+    final Box2D[] boxes = new Box2D[500];
+    for (int i = 0; i < boxes.length; i++) {
+      final float x = random.nextFloat() * 100;
+      final float y = random.nextFloat() * 8 - 4;
+      boxes[i] = new Box2D(x, y, x + random.nextFloat() * 3, y + random.nextFloat());
+    }
+    final BoxPlot2D boxPlot = new BoxPlot2D();
+    boxPlot.setData(boxes);
+    graph.addPlot(boxPlot);
+    final Circle2D[] circles = new Circle2D[500];
+    for (int i = 0; i < circles.length; i++) {
+      circles[i] = new Circle2D(random.nextFloat() * 100, random.nextFloat() * 8 - 4, 1 + random.nextInt(20));
+    }
+    final CirclePlot2D circlePlot = new CirclePlot2D();
+    circlePlot.setData(circles);
+    graph.addPlot(circlePlot);
+    final ScatterPoint2D[] scatter = new ScatterPoint2D[200];
+    for (int i = 0; i < scatter.length; i++) {
+      scatter[i] = new ScatterPoint2D(random.nextFloat() * 100, random.nextFloat() * 8 - 4, 1 + random.nextInt(30));
+    }
+    final ScatterPlot2D scatterPlot = new ScatterPlot2D();
+    scatterPlot.setData(scatter);
+    graph.addPlot(scatterPlot);
+    graph.setRange(Axis.X, 0, 100);
+    graph.setRange(Axis.Y, -4, 4);
+    return graph;
+  }
+
+
+  public void testPixelClip() {
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    final BufferedImage band = new BufferedImage(300, 50, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D g = band.createGraphics();
+    try {
+      g.setClip(10, 10, 280, 180);
+      assertEquals(new Rectangle(10, 10, 280, 180), renderer.getPixelClip(g));
+      // the clip is cut to the band the graph is drawn within
+      g.translate(0, -20);
+      g.setClip(0, 20, 300, 50);
+      renderer.drawGraph(null, g, 0, 0, 300, 200);
+      g.setClip(10, 10, 280, 180);
+      assertEquals(new Rectangle(10, 20, 280, 50), renderer.getPixelClip(g));
+      g.translate(0, -300);
+      assertNull(renderer.getPixelClip(g));
+      g.translate(0, 320);
+      g.scale(2, 2);
+      assertNull(renderer.getPixelClip(g));
+    } finally {
+      g.dispose();
+    }
+  }
+
+
+  public void testTiles() {
+    final Graph2D graph = denseGraph();
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    assertNull(renderer.getTilePool());
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      renderer.setTilePool(pool);
+      assertSame(pool, renderer.getTilePool());
+      final BufferedImage tiled = render(renderer, graph);
+      TestUtils.assertSameImage(render(graph), tiled);
+      // kept strip images are cleared before being drawn on again
+      TestUtils.assertSameImage(tiled, render(renderer, graph));
+      final GraphicsRenderer smooth = new GraphicsRenderer();
+      smooth.setAntialiasing(true);
+      renderer.setAntialiasing(true);
+      TestUtils.assertSameImage(render(smooth, graph), render(renderer, graph));
+      // vector output is not drawn from images
+      final SvgRenderer svg = new SvgRenderer();
+      final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      svg.drawGraph(graph, expected, WIDTH, HEIGHT, 5, null);
+      svg.setTilePool(pool);
+      final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+      svg.drawGraph(graph, actual, WIDTH, HEIGHT, 5, null);
+      assertTrue(Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+    } catch (final IOException e) {
+      fail(e.getMessage());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+
+  private static BufferedImage render(GraphicsRenderer renderer, Graph2D graph, Quality quality) {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final Graphics g = image.getGraphics();
+    try {
+      assertEquals(4, renderer.drawGraph(graph, g, 0, 0, WIDTH, HEIGHT, quality).length);
+    } finally {
+      g.dispose();
+    }
+    return image;
+  }
+
+
+  public void testQuality() {
+    final Graph2D graph = new Graph2D();
+    graph.setTitle("Title");
+    graph.setLabel(Axis.Y, Edge.MAIN, "y");
+    final PointPlot2D lines = noisyPlot(20000);
+    lines.setDecimate(false);
+    graph.addPlot(lines);
+    final PointPlot2D wave = new PointPlot2D();
+    wave.setData(wave(2000, false));
+    wave.setLines(true);
+    wave.setPoints(false);
+    graph.addPlot(wave);
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    assertEquals(Quality.PUBLICATION, renderer.getQuality());
+    renderer.setAntialiasing(true);
+    renderer.setTextAntialiasing(true);
+    final BufferedImage full = render(renderer, graph);
+    final GraphicsRenderer plain = new GraphicsRenderer();
+    final BufferedImage rough = render(plain, graph);
+    // a draft has no antialiasing and decimates every line, which does not change the picture
+    TestUtils.assertSameImage(rough, render(renderer, graph, Quality.DRAFT));
+    TestUtils.assertSameImage(rough, render(plain, graph, Quality.INTERACTIVE));
+    TestUtils.assertSameImage(full, render(renderer, graph, Quality.PUBLICATION));
+    assertEquals(Quality.PUBLICATION, renderer.getQuality());
+    renderer.setQuality(Quality.DRAFT);
+    assertEquals(Quality.DRAFT, renderer.getQuality());
+    TestUtils.assertSameImage(rough, render(renderer, graph));
+    final GraphicsRenderer copy = new GraphicsRenderer();
+    copy.setRendererConfig(renderer);
+    assertEquals(Quality.DRAFT, copy.getQuality());
+    try {
+      renderer.setQuality(null);
+      fail();
+    } catch (final NullPointerException e) {
+      // expected
+    }
+
+    // coarser curves and plainer points are drawn in draft
+    final Graph2D detail = new Graph2D();
+    final CurvePlot2D curve = new CurvePlot2D();
+    curve.setData(new Point2D[] {new Point2D(0, 0), new Point2D(1, 3), new Point2D(2, 1), new Point2D(3, 4), new Point2D(4, 2)});
+    curve.setType(CurvePlot2D.BSPLINE);
+    detail.addPlot(curve);
+    final PointPlot2D points = new PointPlot2D();
+    points.setData(new Point2D[] {new Point2D(0, 1), new Point2D(2, 2), new Point2D(4, 3)});
+    detail.addPlot(points);
+    assertTrue(differs(render(plain, detail), render(plain, detail, Quality.DRAFT)));
+    renderer.setQuality(Quality.PUBLICATION);
+    renderer.setAntialiasing(false);
+    renderer.setTextAntialiasing(false);
+    TestUtils.assertSameImage(render(plain, detail), render(renderer, detail));
+  }
+
+
+  private static boolean differs(BufferedImage a, BufferedImage b) {
+    for (int y = 0; y < a.getHeight(); y++) {
+      for (int x = 0; x < a.getWidth(); x++) {
+        if (a.getRGB(x, y) != b.getRGB(x, y)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(GraphicsRendererTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
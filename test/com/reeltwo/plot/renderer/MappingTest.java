@@ -1,5 +1,7 @@
 package com.reeltwo.plot.renderer;
 
+import com.reeltwo.plot.FloatSeries2D;
+
 import junit.framework.Test;
 
 import junit.framework.TestCase;
@@ -48,6 +50,54 @@ public class MappingTest extends TestCase {
     assertEquals(wpt, map.screenToWorld(spt), 0.0001f);
   }
 
+  public void testBulk() {
+    final float[] world = {-10.0f, -3.3f, 0.0f, 0.1f, 7.77f, 10.0f, 12.5f};
+    for (final Mapping map : new Mapping[] {new Mapping(mWl, mWr, 0, 640), new Mapping(mWl, mWr, 480, 0)}) {
+      final int[] screen = new int[world.length - 1];
+      map.worldToScreen(world, 1, world.length - 1, screen);
+      final float[] fscreen = new float[world.length];
+      map.worldToScreen(world, 0, world.length, fscreen);
+      for (int i = 0; i < screen.length; i++) {
+        assertEquals((int) map.worldToScreen(world[i + 1]), screen[i]);
+      }
+      for (int i = 0; i < fscreen.length; i++) {
+        assertEquals(map.worldToScreen(world[i]), fscreen[i]);
+      }
+    }
+  }
+
+  public void testRounding() {
+    final Mapping map = new Mapping(0.0f, 7.0f, 40.0f, 603.0f);
+    assertEquals(603.0f, map.worldToScreen(7.0f));
+    final float[] world = new float[1000];
+    for (int i = 0; i < world.length; i++) {
+      world[i] = i * 7.0f / world.length;
+    }
+    final int[] screen = new int[world.length];
+    map.worldToScreen(world, 0, world.length, screen);
+    for (int i = 0; i < world.length; i++) {
+      // as worked out before there were bulk transforms
+      final float expected = 40.0f + (world[i] - 0.0f) * (603.0f - 40.0f) / (7.0f - 0.0f);
+      assertEquals(expected, map.worldToScreen(world[i]));
+      assertEquals((int) expected, screen[i]);
+    }
+  }
+
+  public void testBulkLog() {
+    final Mapping map = new Mapping(0.1f, 1000.0f, 0, 500, true);
+    assertTrue(map.isLog());
+    assertFalse(new Mapping(mWl, mWr, mSl, mSr).isLog());
+    final float[] world = {0.1f, 0.5f, 1.0f, 33.0f, 999.0f};
+    final int[] screen = new int[world.length];
+    map.worldToScreen(world, 0, world.length, screen);
+    final int[] logged = new int[world.length];
+    map.logWorldToScreen(new FloatSeries2D(world, world).getLog10Xs(), 0, world.length, logged);
+    for (int i = 0; i < world.length; i++) {
+      assertEquals((int) map.worldToScreen(world[i]), screen[i]);
+      assertEquals(screen[i], logged[i]);
+    }
+  }
+
   public void testContructor() {
     try {
       new Mapping(0, 0, 1, 2);
@@ -0,0 +1,277 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Inflater;
+
+import com.reeltwo.plot.BoxPlot2D;
+import com.reeltwo.plot.FillablePlot2D.FillStyle;
+import com.reeltwo.plot.FloatSeries2D;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Point2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.TestUtils;
+import com.reeltwo.plot.patterns.BW8x8PatternGroup;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the PdfRenderer class.
+ *
+ * @author Richard Littin
+ */
+
+public class PdfRendererTest extends TestCase {
+
+  private static final int WIDTH = 300;
+  private static final int HEIGHT = 200;
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public PdfRendererTest(String name) {
+    super(name);
+  }
+
+
+  private static Graph2D graph() {
+    final Graph2D graph = TestUtils.sampleGraph("Fish (& chips)");
+    // pattern fills are written as PDF patterns
+    ((BoxPlot2D) graph.getPlots()[1]).setFill(FillStyle.PATTERN);
+    return graph;
+  }
+
+
+  private static String pdf(Graph2D graph, GraphicsRenderer config) throws IOException {
+    final PdfRenderer renderer = new PdfRenderer();
+    if (config != null) {
+      renderer.setRendererConfig(config);
+    }
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    renderer.drawGraph(graph, bos, WIDTH, HEIGHT, 5, null);
+    return bos.toString("ISO-8859-1");
+  }
+
+
+  /** Checks the cross reference table and returns the number of objects. */
+  private static int checkStructure(String pdf) {
+    assertTrue(pdf.startsWith("%PDF-1.4\n"));
+    assertTrue(pdf.endsWith("%%EOF\n"));
+    final Matcher start = Pattern.compile("startxref\n(\\d+)\n%%EOF\n$").matcher(pdf);
+    assertTrue(start.find());
+    final int xref = Integer.parseInt(start.group(1));
+    assertTrue(pdf.startsWith("xref\n0 ", xref));
+    final int size = Integer.parseInt(pdf.substring(xref + 7, pdf.indexOf('\n', xref + 7)));
+    final int table = pdf.indexOf('\n', xref + 7) + 1;
+    assertTrue(pdf.startsWith("0000000000 65535 f \n", table));
+    for (int i = 1; i < size; i++) {
+      final String entry = pdf.substring(table + 20 * i, table + 20 * (i + 1));
+      assertTrue(entry, entry.endsWith(" 00000 n \n"));
+      final int offset = Integer.parseInt(entry.substring(0, 10));
+      assertTrue(pdf.startsWith(i + " 0 obj\n", offset));
+    }
+    assertTrue(pdf.contains("trailer\n<</Size " + size + "/Root 1 0 R>>"));
+    return size;
+  }
+
+
+  /** Returns the uncompressed page content. */
+  private static String content(String pdf) throws Exception {
+    final Matcher length = Pattern.compile("\n5 0 obj\n(\\d+)\n").matcher(pdf);
+    assertTrue(length.find());
+    final int start = pdf.indexOf("stream\n", pdf.indexOf("\n4 0 obj\n")) + 7;
+    final byte[] data = pdf.substring(start, start + Integer.parseInt(length.group(1))).getBytes("ISO-8859-1");
+    assertTrue(pdf.startsWith("\nendstream", start + data.length));
+    final Inflater inflater = new Inflater();
+    inflater.setInput(data);
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final byte[] buf = new byte[65536];
+    while (!inflater.finished()) {
+      final int n = inflater.inflate(buf);
+      assertTrue(n > 0 || inflater.finished());
+      bos.write(buf, 0, n);
+    }
+    inflater.end();
+    return bos.toString("ISO-8859-1");
+  }
+
+
+  private static int count(String s, String part) {
+    int count = 0;
+    for (int i = s.indexOf(part); i != -1; i = s.indexOf(part, i + part.length())) {
+      count++;
+    }
+    return count;
+  }
+
+
+  public void testDocument() throws Exception {
+    final GraphicsRenderer config = new GraphicsRenderer();
+    config.setGraphBGColor(Color.WHITE, Color.GRAY);
+    config.setPatterns(new BW8x8PatternGroup().getPatterns());
+    final String pdf = pdf(graph(), config);
+    checkStructure(pdf);
+    assertTrue(pdf.contains("/MediaBox[0 0 300 200]"));
+    assertTrue(pdf.contains("/BaseFont/Helvetica/"));
+    // pattern fills and the graph background gradient
+    assertTrue(pdf.contains("/PatternType 1"));
+    assertTrue(pdf.contains("/Subtype/Image"));
+    assertTrue(pdf.contains("/PatternType 2"));
+    final String content = content(pdf);
+    assertTrue(content.startsWith("1 0 0 -1 0 200 cm\n"));
+    assertTrue(content, content.contains("(Fish \\(& chips\\))Tj"));
+    assertTrue(content.contains(" re W n\n"));
+    assertTrue(content.contains("/Pattern cs /P"));
+    assertTrue(content.contains(" c"));
+    assertEquals(count(content, "q"), count(content, "Q"));
+  }
+
+
+  public void testMarkers() throws Exception {
+    final Graph2D graph = new Graph2D();
+    graph.setBorder(false);
+    final Point2D[] points = new Point2D[1000];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Point2D(i % 37, i % 41);
+    }
+    for (int j = 0; j < 6; j++) {
+      final PointPlot2D plot = new PointPlot2D();
+      plot.setData(points);
+      graph.addPlot(plot);
+    }
+    final String pdf = pdf(graph, null);
+    checkStructure(pdf);
+    // each marker is defined once and drawn by reference
+    assertEquals(6, count(pdf, "/Subtype/Form"));
+    assertTrue(pdf.contains("0 -2 m 2 0 l 0 2 l -2 0 l h S"));
+    final String content = content(pdf);
+    assertEquals(6 * points.length, count(content, " Do Q"));
+    assertEquals(points.length, count(content, "/M0 Do Q"));
+  }
+
+
+  public void testTransparency() throws Exception {
+    final GraphicsRenderer config = new GraphicsRenderer(new Color[] {new Color(255, 0, 0, 128), new Color(0, 0, 255, 128)});
+    final Graph2D graph = new Graph2D();
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(new Point2D[] {new Point2D(0, 0), new Point2D(1, 1)});
+    plot.setLines(true);
+    plot.setColor(0);
+    graph.addPlot(plot);
+    final PointPlot2D plot2 = new PointPlot2D();
+    plot2.setData(new Point2D[] {new Point2D(0, 1), new Point2D(1, 0)});
+    plot2.setLines(true);
+    plot2.setColor(1);
+    graph.addPlot(plot2);
+    final String pdf = pdf(graph, config);
+    checkStructure(pdf);
+    // both colours share the one transparency setting
+    assertEquals(1, count(pdf, "/Type/ExtGState"));
+    assertTrue(pdf.contains("/CA 0.5/ca 0.5"));
+    assertEquals(2, count(content(pdf), "/G0 gs"));
+  }
+
+
+  public void testSameLayout() throws Exception {
+    final Graph2D graph = graph();
+    final Font font = new Font(Font.SERIF, Font.BOLD, 14);
+    final Graphics2D g = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB).createGraphics();
+    g.setFont(font);
+    final Mapping[] expected = new GraphicsRenderer().drawGraph(graph, g, 5, 5, WIDTH - 10, HEIGHT - 10);
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final Mapping[] actual = new PdfRenderer().drawGraph(graph, bos, WIDTH, HEIGHT, 5, font);
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i].worldToScreen(1.5f), actual[i].worldToScreen(1.5f), 0.0f);
+    }
+    assertTrue(bos.toString("ISO-8859-1").contains("/BaseFont/Times-Bold/"));
+  }
+
+
+  public void testGraphics() {
+    final Graph2D graph = graph();
+    TestUtils.assertSameImage(GraphicsRendererTest.render(graph), GraphicsRendererTest.render(new PdfRenderer(), graph));
+  }
+
+
+  /** Records how the document reaches the stream. */
+  private static final class CountingStream extends OutputStream {
+    long mBytes = 0;
+    int mWrites = 0;
+    int mLargest = 0;
+
+    @Override
+    public void write(int b) {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      mBytes += len;
+      mWrites++;
+      mLargest = Math.max(mLargest, len);
+    }
+  }
+
+
+  public void testStreaming() throws IOException {
+    final int size = 200000;
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      ys[i] = (i * 7919) % 997;
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(new FloatSeries2D(xs, ys));
+    plot.setLines(true);
+    plot.setPoints(false);
+    plot.setDecimate(false);
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    final CountingStream os = new CountingStream();
+    new PdfRenderer().drawGraph(graph, os, 4000, 1000, 5, null);
+    // written piece by piece rather than held until the end
+    assertTrue(String.valueOf(os.mBytes), os.mBytes > 100000);
+    assertTrue(os.mBytes + " in " + os.mWrites, os.mWrites > 10);
+    assertTrue(String.valueOf(os.mLargest), os.mLargest <= 32768);
+  }
+
+
+  public void testWriteError() {
+    final OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("disk full");
+      }
+    };
+    try {
+      new PdfRenderer().drawGraph(graph(), broken, WIDTH, HEIGHT, 5, null);
+      fail();
+    } catch (final IOException e) {
+      assertEquals("disk full", e.getMessage());
+    }
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(PdfRendererTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
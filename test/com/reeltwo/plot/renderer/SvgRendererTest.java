@@ -0,0 +1,221 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.reeltwo.plot.FloatSeries2D;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Point2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.TestUtils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the SvgRenderer class.
+ *
+ * @author Richard Littin
+ */
+
+public class SvgRendererTest extends TestCase {
+
+  private static final int WIDTH = 300;
+  private static final int HEIGHT = 200;
+  private static final Pattern PATH = Pattern.compile("(M-?\\d+(\\.\\d+)?( -?|-)\\d+(\\.\\d+)?([hvlmLAz]|[ -]?\\d+(\\.\\d+)?)*)+");
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public SvgRendererTest(String name) {
+    super(name);
+  }
+
+
+  private static Graph2D graph() {
+    // the title is escaped in the document
+    return TestUtils.sampleGraph("Fish & <chips>");
+  }
+
+
+  private static Document parse(byte[] svg) throws Exception {
+    return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(svg));
+  }
+
+
+  public void testDocument() throws Exception {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final Mapping[] mappings = new SvgRenderer().drawGraph(graph(), bos, WIDTH, HEIGHT, 5, null);
+    assertEquals(4, mappings.length);
+    final Document doc = parse(bos.toByteArray());
+    final Element svg = doc.getDocumentElement();
+    assertEquals("svg", svg.getTagName());
+    assertEquals("300", svg.getAttribute("width"));
+    assertEquals("200", svg.getAttribute("height"));
+    final NodeList texts = doc.getElementsByTagName("text");
+    boolean title = false;
+    for (int i = 0; i < texts.getLength(); i++) {
+      title |= "Fish & <chips>".equals(texts.item(i).getTextContent());
+    }
+    assertTrue(title);
+    assertTrue(doc.getElementsByTagName("circle").getLength() > 0);
+    assertTrue(doc.getElementsByTagName("clipPath").getLength() > 0);
+    final NodeList paths = doc.getElementsByTagName("path");
+    assertTrue(paths.getLength() > 0);
+    for (int i = 0; i < paths.getLength(); i++) {
+      final String d = ((Element) paths.item(i)).getAttribute("d");
+      assertTrue(d, PATH.matcher(d).matches());
+    }
+  }
+
+
+  public void testRelativePath() throws Exception {
+    final Graph2D graph = new Graph2D();
+    graph.setBorder(false);
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(new FloatSeries2D(new float[] {0, 1, 2, 3, 4}, new float[] {0, 0, 2, 2, 1}));
+    plot.setLines(true);
+    plot.setPoints(false);
+    graph.addPlot(plot);
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final Mapping[] mappings = new SvgRenderer().drawGraph(graph, bos, 401, 201, 0, null);
+    final int x0 = (int) mappings[0].worldToScreen(0);
+    final int dx = (int) mappings[0].worldToScreen(1) - x0;
+    final int y0 = (int) mappings[1].worldToScreen(0);
+    final int dy = y0 - (int) mappings[1].worldToScreen(2);
+    final String svg = bos.toString("UTF-8");
+    final String d = "M" + x0 + " " + y0 + "h" + dx + "l" + dx + "-" + dy + "h" + dx + "l" + dx + " " + (dy / 2);
+    assertTrue(svg, svg.contains("<path d=\"" + d + "\"/>"));
+  }
+
+
+  public void testMarkers() throws Exception {
+    final Graph2D graph = new Graph2D();
+    graph.setBorder(false);
+    final Point2D[] points = new Point2D[1000];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Point2D(i % 37, i % 41);
+    }
+    for (int j = 0; j < 6; j++) {
+      final PointPlot2D plot = new PointPlot2D();
+      plot.setData(points);
+      graph.addPlot(plot);
+    }
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    new SvgRenderer().drawGraph(graph, bos, WIDTH, HEIGHT, 0, null);
+    final Document doc = parse(bos.toByteArray());
+    final NodeList paths = doc.getElementsByTagName("path");
+    // one path for the background and one for each plot's markers
+    assertEquals(7, paths.getLength());
+    final String diamonds = ((Element) paths.item(1)).getAttribute("d");
+    assertEquals(points.length, diamonds.split("M").length - 1);
+    assertTrue(diamonds, diamonds.contains("l2 2-2 2-2-2z"));
+    assertTrue(((Element) paths.item(6)).getAttribute("d").contains("h4m-2-2v4m-2-4l4 4m0-4l-4 4"));
+  }
+
+
+  public void testSameLayout() throws Exception {
+    final Graph2D graph = graph();
+    final Font font = new Font(Font.SERIF, Font.BOLD, 14);
+    final Graphics2D g = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB).createGraphics();
+    g.setFont(font);
+    final Mapping[] expected = new GraphicsRenderer().drawGraph(graph, g, 5, 5, WIDTH - 10, HEIGHT - 10);
+    final Mapping[] actual = new SvgRenderer().drawGraph(graph, new ByteArrayOutputStream(), WIDTH, HEIGHT, 5, font);
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i].worldToScreen(1.5f), actual[i].worldToScreen(1.5f), 0.0f);
+    }
+  }
+
+
+  public void testGraphics() {
+    final Graph2D graph = graph();
+    TestUtils.assertSameImage(GraphicsRendererTest.render(graph), GraphicsRendererTest.render(new SvgRenderer(), graph));
+  }
+
+
+  /** Records how the document reaches the stream. */
+  private static final class CountingStream extends OutputStream {
+    long mBytes = 0;
+    int mWrites = 0;
+    int mLargest = 0;
+
+    @Override
+    public void write(int b) {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      mBytes += len;
+      mWrites++;
+      mLargest = Math.max(mLargest, len);
+    }
+  }
+
+
+  public void testStreaming() throws IOException {
+    final int size = 200000;
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      ys[i] = i % 97;
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(new FloatSeries2D(xs, ys));
+    plot.setLines(true);
+    plot.setPoints(false);
+    plot.setDecimate(false);
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    final CountingStream os = new CountingStream();
+    new SvgRenderer().drawGraph(graph, os, 4000, 1000, 5, null);
+    // written piece by piece rather than held until the end
+    assertTrue(String.valueOf(os.mBytes), os.mBytes > 500000);
+    assertTrue(os.mBytes + " in " + os.mWrites, os.mWrites > 10);
+    assertTrue(String.valueOf(os.mLargest), os.mLargest <= 32768);
+  }
+
+
+  public void testWriteError() {
+    final OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("disk full");
+      }
+    };
+    try {
+      new SvgRenderer().drawGraph(graph(), broken, WIDTH, HEIGHT, 5, null);
+      fail();
+    } catch (final IOException e) {
+      assertEquals("disk full", e.getMessage());
+    }
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(SvgRendererTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
@@ -0,0 +1,270 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Point2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.TestUtils;
+import com.reeltwo.plot.renderer.DisplayList;
+import com.reeltwo.plot.renderer.GraphicsRenderer;
+import com.reeltwo.plot.renderer.Mapping;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the ImageWriter class.
+ *
+ * @author Richard Littin
+ */
+
+public class ImageWriterTest extends TestCase {
+
+  private File mDir;
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public ImageWriterTest(String name) {
+    super(name);
+  }
+
+
+  @Override
+  public void setUp() throws IOException {
+    mDir = File.createTempFile("imagewriter", "");
+    assertTrue(mDir.delete());
+    assertTrue(mDir.mkdir());
+  }
+
+
+  @Override
+  public void tearDown() {
+    final File[] files = mDir.listFiles();
+    if (files != null) {
+      for (final File file : files) {
+        assertTrue(file.delete());
+      }
+    }
+    assertTrue(mDir.delete());
+  }
+
+
+  private static Graph2D graph(int n) {
+    final Point2D[] points = new Point2D[10 + n];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Point2D(i, (float) Math.sin(i * (n + 1) / 10.0));
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(points);
+    plot.setLines(true);
+    final Graph2D graph = new Graph2D();
+    graph.setTitle("graph " + n);
+    graph.addPlot(plot);
+    return graph;
+  }
+
+
+  public void testBatch() throws IOException, InterruptedException, ExecutionException {
+    final ImageWriter writer = new ImageWriter(new GraphicsRenderer());
+    writer.setMetaData("source", "batch");
+    final List<ImageWriter.Job> jobs = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      jobs.add(new ImageWriter.Job(graph(i), i % 2 == 0 ? 320 : 200, 240, new File(mDir, "batch" + i + ".png")));
+    }
+    final List<Future<Mapping[]>> futures = writer.toPNG(jobs, null, 3);
+    assertEquals(jobs.size(), futures.size());
+    for (int i = 0; i < jobs.size(); i++) {
+      final ImageWriter.Job job = jobs.get(i);
+      final Mapping[] mapping = futures.get(i).get();
+      assertNotNull(mapping);
+      final File single = new File(mDir, "single" + i + ".png");
+      final Mapping[] expected = writer.toImage(ImageWriter.ImageFormat.PNG, single, job.getGraph(), job.getWidth(), job.getHeight(), null);
+      assertEquals(expected.length, mapping.length);
+      for (int j = 0; j < expected.length; j++) {
+        assertEquals(expected[j].getScreenMin(), mapping[j].getScreenMin(), 0.0f);
+        assertEquals(expected[j].getScreenMax(), mapping[j].getScreenMax(), 0.0f);
+      }
+      TestUtils.assertSameImage(ImageIO.read(single), ImageIO.read(job.getFile()));
+      assertEquals("batch", ImageWriter.getPngTextMetaData(job.getFile()).get("source"));
+    }
+  }
+
+
+  public void testBatchFailure() throws InterruptedException {
+    final ImageWriter writer = new ImageWriter(new GraphicsRenderer());
+    final List<ImageWriter.Job> jobs = new ArrayList<>();
+    jobs.add(new ImageWriter.Job(graph(0), 100, 100, new File(new File(mDir, "missing"), "fail.png")));
+    jobs.add(new ImageWriter.Job(graph(1), 100, 100, new File(mDir, "ok.png")));
+    final List<Future<Mapping[]>> futures = writer.toPNG(jobs, null);
+    try {
+      futures.get(0).get();
+      fail();
+    } catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+    try {
+      assertNotNull(futures.get(1).get());
+    } catch (final ExecutionException e) {
+      fail(e.getMessage());
+    }
+    assertTrue(new File(mDir, "ok.png").isFile());
+  }
+
+
+  public void testStriped() throws IOException {
+    final ImageWriter writer = new ImageWriter(new GraphicsRenderer());
+    writer.setMetaData("source", "striped");
+    final Graph2D graph = graph(3);
+    final File whole = new File(mDir, "whole.png");
+    writer.toImage(ImageWriter.ImageFormat.PNG, whole, graph, 400, 301, null);
+    final BufferedImage expected = ImageIO.read(whole);
+    for (final int band : new int[] {1, 37, 301, 1000}) {
+      final File striped = new File(mDir, "striped" + band + ".png");
+      try (FileOutputStream os = new FileOutputStream(striped)) {
+        final Mapping[] mapping = writer.toPNG(os, graph, 400, 301, null, band);
+        assertEquals(4, mapping.length);
+      }
+      TestUtils.assertSameImage(expected, ImageIO.read(striped));
+      assertEquals("striped", ImageWriter.getPngTextMetaData(striped).get("source"));
+    }
+    // kept layers and strips are drawn only for each band
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    renderer.setLayerCaching(true);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      renderer.setTilePool(pool);
+      final ImageWriter banded = new ImageWriter(renderer);
+      for (final int band : new int[] {37, 301}) {
+        final File striped = new File(mDir, "banded" + band + ".png");
+        try (FileOutputStream os = new FileOutputStream(striped)) {
+          banded.toPNG(os, graph, 400, 301, null, band);
+        }
+        TestUtils.assertSameImage(expected, ImageIO.read(striped));
+      }
+    } finally {
+      pool.shutdown();
+    }
+    try {
+      writer.toPNG(new ByteArrayOutputStream(), graph, 400, 301, null, 0);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("band height must be greater than 0", e.getMessage());
+    }
+  }
+
+
+  public void testIndexedColor() throws IOException {
+    final ImageWriter writer = new ImageWriter(new GraphicsRenderer());
+    writer.setMetaData("source", "indexed");
+    final Graph2D graph = graph(5);
+    final File rgb = new File(mDir, "rgb.png");
+    writer.toImage(ImageWriter.ImageFormat.PNG, rgb, graph, 400, 300, null);
+    writer.setIndexedColor(true);
+    final File indexed = new File(mDir, "indexed.png");
+    writer.toImage(ImageWriter.ImageFormat.PNG, indexed, graph, 400, 300, null);
+    final BufferedImage image = ImageIO.read(indexed);
+    assertEquals(BufferedImage.TYPE_BYTE_INDEXED, image.getType());
+    TestUtils.assertSameImage(ImageIO.read(rgb), image);
+    assertTrue(indexed.length() < rgb.length());
+    assertEquals("indexed", ImageWriter.getPngTextMetaData(indexed).get("source"));
+  }
+
+
+  public void testSVG() throws Exception {
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    renderer.setBackground(Color.YELLOW);
+    final ImageWriter writer = new ImageWriter(renderer);
+    final File svg = new File(mDir, "graph.svg");
+    final Mapping[] mappings = writer.toImage(ImageWriter.ImageFormat.SVG, svg, graph(3), 400, 300, null);
+    assertEquals(4, mappings.length);
+    final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(svg);
+    assertEquals("400", doc.getDocumentElement().getAttribute("width"));
+    // the writer's renderer configuration is used
+    assertEquals("#ffff00", ((Element) doc.getElementsByTagName("g").item(0)).getAttribute("fill"));
+  }
+
+
+  public void testPDF() throws Exception {
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    renderer.setBackground(Color.YELLOW);
+    final ImageWriter writer = new ImageWriter(renderer);
+    final File pdf = new File(mDir, "graph.pdf");
+    final Mapping[] mappings = writer.toImage(ImageWriter.ImageFormat.PDF, pdf, graph(3), 400, 300, null);
+    assertEquals(4, mappings.length);
+    final String text = new String(Files.readAllBytes(pdf.toPath()), "ISO-8859-1");
+    assertTrue(text.startsWith("%PDF-"));
+    assertTrue(text.contains("/MediaBox[0 0 400 300]"));
+    assertTrue(text.endsWith("%%EOF\n"));
+  }
+
+
+  public void testRecord() throws Exception {
+    final ImageWriter writer = new ImageWriter(new GraphicsRenderer());
+    final Graph2D graph = graph(3);
+    final Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 11);
+    final DisplayList list = writer.record(graph, 400, 300, font);
+    for (final ImageWriter.ImageFormat format : ImageWriter.ImageFormat.values()) {
+      final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      writer.toImage(format, expected, graph, 400, 300, font);
+      final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+      assertEquals(4, writer.toImage(format, actual, list).length);
+      assertTrue(format.toString(), Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+    }
+  }
+
+
+  public void testBadJobs() {
+    try {
+      new ImageWriter.Job(null, 10, 10, new File("x.png"));
+      fail();
+    } catch (final NullPointerException e) {
+      assertEquals("null graph given.", e.getMessage());
+    }
+    try {
+      new ImageWriter.Job(new Graph2D(), 10, 10, null);
+      fail();
+    } catch (final NullPointerException e) {
+      assertEquals("null file given.", e.getMessage());
+    }
+    try {
+      new ImageWriter(new GraphicsRenderer()).toPNG(new ArrayList<ImageWriter.Job>(), null, 0);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("threads must be greater than 0", e.getMessage());
+    }
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(ImageWriterTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
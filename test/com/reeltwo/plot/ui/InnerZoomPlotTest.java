@@ -0,0 +1,248 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.Color;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import javax.swing.Action;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Edge;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Point2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.TestUtils;
+import com.reeltwo.plot.renderer.Mapping;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the InnerZoomPlot class.
+ *
+ * @author Richard Littin
+ */
+
+public class InnerZoomPlotTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public InnerZoomPlotTest(String name) {
+    super(name);
+  }
+
+
+  private static Graph2D graph() {
+    final Point2D[] points = new Point2D[50];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Point2D(i, (float) Math.sin(i / 5.0));
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(points);
+    plot.setLines(true);
+    plot.setPoints(false);
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    return graph;
+  }
+
+
+  private static void mouse(InnerZoomPlot plot, int id, int x, int y) {
+    final int modifiers = id == MouseEvent.MOUSE_MOVED ? 0 : InputEvent.BUTTON1_DOWN_MASK;
+    final int button = id == MouseEvent.MOUSE_MOVED ? MouseEvent.NOBUTTON : MouseEvent.BUTTON1;
+    plot.dispatchEvent(new MouseEvent(plot, id, System.currentTimeMillis(), modifiers, x, y, 1, false, button));
+  }
+
+
+  public void testZoomBox() {
+    final InnerZoomPlot plot = new InnerZoomPlot();
+    plot.setGraph(graph());
+    plot.setSize(300, 200);
+    TestUtils.paint(plot);
+    final Mapping[] mapping = plot.getMapping();
+    mouse(plot, MouseEvent.MOUSE_PRESSED, 100, 60);
+    mouse(plot, MouseEvent.MOUSE_DRAGGED, 180, 120);
+    final BufferedImage image = TestUtils.paint(plot);
+    assertEquals(Color.BLACK.getRGB(), image.getRGB(140, 60));
+    assertEquals(Color.BLACK.getRGB(), image.getRGB(100, 90));
+    // the graph is not drawn again while the box is dragged
+    assertSame(mapping, plot.getMapping());
+    final float lo = mapping[0].screenToWorld(100);
+    final float hi = mapping[0].screenToWorld(180);
+    mouse(plot, MouseEvent.MOUSE_RELEASED, 180, 120);
+    assertEquals(lo, plot.getGraph().getLo(Axis.X, Edge.MAIN), 0.0001f);
+    assertEquals(hi, plot.getGraph().getHi(Axis.X, Edge.MAIN), 0.0001f);
+    assertTrue(plot.isZoomed());
+  }
+
+
+  public void testCrosshair() {
+    final InnerZoomPlot plot = new InnerZoomPlot();
+    plot.setGraph(graph());
+    plot.setSize(300, 200);
+    final BufferedImage plain = TestUtils.paint(plot);
+    assertFalse(plot.isCrosshair());
+    mouse(plot, MouseEvent.MOUSE_MOVED, 150, 100);
+    assertEquals(plain.getRGB(150, 30), TestUtils.paint(plot).getRGB(150, 30));
+    final Mapping[] mapping = plot.getMapping();
+    plot.setCrosshair(true);
+    assertTrue(plot.isCrosshair());
+    final BufferedImage image = TestUtils.paint(plot);
+    assertEquals(Color.GRAY.getRGB(), image.getRGB(150, 30));
+    assertEquals(Color.GRAY.getRGB(), image.getRGB((int) mapping[0].getScreenMin() + 2, 100));
+    assertSame(mapping, plot.getMapping());
+    // nothing is drawn once the mouse leaves
+    mouse(plot, MouseEvent.MOUSE_EXITED, 150, 100);
+    assertEquals(plain.getRGB(150, 30), TestUtils.paint(plot).getRGB(150, 30));
+  }
+
+
+  public void testDataChangedInPlace() {
+    final Graph2D graph = graph();
+    final InnerZoomPlot plot = new InnerZoomPlot();
+    plot.setGraph(graph);
+    plot.setSize(300, 200);
+    final BufferedImage before = TestUtils.paint(plot);
+    final Mapping[] mapping = plot.getMapping();
+    // a point moved without telling the plot, then repainted
+    final Point2D point = (Point2D) graph.getPlots()[0].getData()[25];
+    point.setY(-point.getY());
+    plot.repaint();
+    final BufferedImage after = TestUtils.paint(plot);
+    assertNotSame(mapping, plot.getMapping());
+    assertFalse(Arrays.equals(((DataBufferInt) before.getRaster().getDataBuffer()).getData(), ((DataBufferInt) after.getRaster().getDataBuffer()).getData()));
+  }
+
+
+  public void testWheelZoom() {
+    final Graph2D graph = graph();
+    final InnerZoomPlot plot = new InnerZoomPlot();
+    plot.setGraph(graph);
+    plot.setSize(300, 200);
+    TestUtils.paint(plot);
+    final Mapping[] mapping = plot.getMapping();
+    final float lo = graph.getLo(Axis.X, Edge.MAIN);
+    final float hi = graph.getHi(Axis.X, Edge.MAIN);
+    plot.dispatchEvent(new MouseWheelEvent(plot, MouseEvent.MOUSE_WHEEL, System.currentTimeMillis(), 0, 150, 100, 0, false, MouseWheelEvent.WHEEL_UNIT_SCROLL, 1, -1));
+    // zoomed in about the mouse
+    assertEquals((hi - lo) / 1.25f, graph.getHi(Axis.X, Edge.MAIN) - graph.getLo(Axis.X, Edge.MAIN), 0.001f);
+    final Mapping[] moved = plot.getMapping();
+    assertNotSame(mapping, moved);
+    assertEquals(mapping[0].screenToWorld(150), moved[0].screenToWorld(150), 0.001f);
+    assertEquals(mapping[1].screenToWorld(100), moved[1].screenToWorld(100), 0.001f);
+    assertEquals(graph.getLo(Axis.X, Edge.MAIN), moved[0].getWorldMin(), 0f);
+    // the picture is moved rather than drawn again
+    TestUtils.paint(plot);
+    assertSame(moved, plot.getMapping());
+    // until the view stays still
+    plot.settle();
+    TestUtils.paint(plot);
+    assertNotSame(moved, plot.getMapping());
+    final InnerZoomPlot plain = new InnerZoomPlot();
+    plain.setGraph(graph);
+    plain.setSize(300, 200);
+    assertEquals(TestUtils.paint(plain).getRGB(150, 100), TestUtils.paint(plot).getRGB(150, 100));
+  }
+
+
+  public void testPan() {
+    final Graph2D graph = graph();
+    final InnerZoomPlot plot = new InnerZoomPlot();
+    plot.setGraph(graph);
+    plot.setSize(300, 200);
+    final BufferedImage before = TestUtils.paint(plot);
+    final Mapping[] mapping = plot.getMapping();
+    final float lo = graph.getLo(Axis.X, Edge.MAIN);
+    final float hi = graph.getHi(Axis.X, Edge.MAIN);
+    final int modifiers = InputEvent.BUTTON1_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK;
+    plot.dispatchEvent(new MouseEvent(plot, MouseEvent.MOUSE_PRESSED, System.currentTimeMillis(), modifiers, 100, 100, 1, false, MouseEvent.BUTTON1));
+    plot.dispatchEvent(new MouseEvent(plot, MouseEvent.MOUSE_DRAGGED, System.currentTimeMillis(), modifiers, 110, 100, 1, false, MouseEvent.BUTTON1));
+    plot.dispatchEvent(new MouseEvent(plot, MouseEvent.MOUSE_DRAGGED, System.currentTimeMillis(), modifiers, 120, 100, 1, false, MouseEvent.BUTTON1));
+    plot.dispatchEvent(new MouseEvent(plot, MouseEvent.MOUSE_RELEASED, System.currentTimeMillis(), modifiers, 120, 100, 1, false, MouseEvent.BUTTON1));
+    // moved left in the world by twenty pixels, without zooming
+    final float shift = mapping[0].screenToWorld(100) - mapping[0].screenToWorld(120);
+    assertEquals(lo + shift, graph.getLo(Axis.X, Edge.MAIN), 0.001f);
+    assertEquals(hi + shift, graph.getHi(Axis.X, Edge.MAIN), 0.001f);
+    assertEquals(mapping[1].getWorldMin(), graph.getLo(Axis.Y, Edge.MAIN), 0.001f);
+    assertEquals(mapping[1].getWorldMax(), graph.getHi(Axis.Y, Edge.MAIN), 0.001f);
+    // the data area of the picture has moved right
+    final BufferedImage moved = TestUtils.paint(plot);
+    final int y0 = (int) Math.min(mapping[1].getScreenMin(), mapping[1].getScreenMax()) + 2;
+    final int y1 = (int) Math.max(mapping[1].getScreenMin(), mapping[1].getScreenMax()) - 2;
+    final int x0 = (int) mapping[0].getScreenMin() + 2;
+    final int x1 = (int) mapping[0].getScreenMax() - 22;
+    for (int y = y0; y < y1; y++) {
+      for (int x = x0; x < x1; x++) {
+        assertEquals("pixel (" + x + ", " + y + ")", before.getRGB(x, y), moved.getRGB(x + 20, y));
+      }
+    }
+    plot.settle();
+    TestUtils.paint(plot);
+    assertNotSame(mapping, plot.getMapping());
+    assertEquals(graph.getLo(Axis.X, Edge.MAIN), plot.getMapping()[0].getWorldMin(), 0f);
+  }
+
+
+  public void testUndoGesture() {
+    final Graph2D graph = graph();
+    final InnerZoomPlot plot = new InnerZoomPlot();
+    plot.setGraph(graph);
+    plot.setSize(300, 200);
+    TestUtils.paint(plot);
+    final float lo = graph.getLo(Axis.X, Edge.MAIN);
+    final float hi = graph.getHi(Axis.X, Edge.MAIN);
+    final Action undo = plot.getUndoZoomAction();
+    // a run of wheel clicks is one zoom level, ended here by a click
+    for (int i = 0; i < 3; i++) {
+      plot.dispatchEvent(new MouseWheelEvent(plot, MouseEvent.MOUSE_WHEEL, System.currentTimeMillis(), 0, 150, 100, 0, false, MouseWheelEvent.WHEEL_UNIT_SCROLL, 1, -1));
+    }
+    mouse(plot, MouseEvent.MOUSE_PRESSED, 150, 100);
+    mouse(plot, MouseEvent.MOUSE_RELEASED, 150, 100);
+    assertTrue(undo.isEnabled());
+    final float wheelLo = graph.getLo(Axis.X, Edge.MAIN);
+    final float wheelHi = graph.getHi(Axis.X, Edge.MAIN);
+    assertTrue(wheelHi - wheelLo < hi - lo);
+    // a drag is one zoom level
+    final int modifiers = InputEvent.BUTTON1_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK;
+    plot.dispatchEvent(new MouseEvent(plot, MouseEvent.MOUSE_PRESSED, System.currentTimeMillis(), modifiers, 100, 100, 1, false, MouseEvent.BUTTON1));
+    plot.dispatchEvent(new MouseEvent(plot, MouseEvent.MOUSE_DRAGGED, System.currentTimeMillis(), modifiers, 110, 100, 1, false, MouseEvent.BUTTON1));
+    plot.dispatchEvent(new MouseEvent(plot, MouseEvent.MOUSE_DRAGGED, System.currentTimeMillis(), modifiers, 120, 100, 1, false, MouseEvent.BUTTON1));
+    plot.dispatchEvent(new MouseEvent(plot, MouseEvent.MOUSE_RELEASED, System.currentTimeMillis(), modifiers, 120, 100, 1, false, MouseEvent.BUTTON1));
+    assertTrue(graph.getLo(Axis.X, Edge.MAIN) < wheelLo);
+    // undo goes back to before each gesture
+    undo.actionPerformed(null);
+    assertEquals(wheelLo, graph.getLo(Axis.X, Edge.MAIN), 0f);
+    assertEquals(wheelHi, graph.getHi(Axis.X, Edge.MAIN), 0f);
+    assertTrue(undo.isEnabled());
+    undo.actionPerformed(null);
+    assertEquals(lo, graph.getLo(Axis.X, Edge.MAIN), 0f);
+    assertEquals(hi, graph.getHi(Axis.X, Edge.MAIN), 0f);
+    assertFalse(undo.isEnabled());
+    // wheel clicks not yet ended are undone together
+    plot.dispatchEvent(new MouseWheelEvent(plot, MouseEvent.MOUSE_WHEEL, System.currentTimeMillis(), 0, 150, 100, 0, false, MouseWheelEvent.WHEEL_UNIT_SCROLL, 1, -1));
+    undo.actionPerformed(null);
+    assertEquals(lo, graph.getLo(Axis.X, Edge.MAIN), 0f);
+    assertFalse(undo.isEnabled());
+    plot.settle();
+    assertFalse(undo.isEnabled());
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(InnerZoomPlotTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
@@ -0,0 +1,368 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Point2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.TestUtils;
+import com.reeltwo.plot.renderer.GraphicsRenderer;
+import com.reeltwo.plot.renderer.GraphicsRenderer.Quality;
+import com.reeltwo.plot.renderer.Mapping;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the PlotPanel class.
+ *
+ * @author Richard Littin
+ */
+
+public class PlotPanelTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public PlotPanelTest(String name) {
+    super(name);
+  }
+
+
+  /** Runs tasks only when asked to. */
+  private static final class ManualExecutor extends AbstractExecutorService {
+    final List<Runnable> mTasks = new ArrayList<>();
+    private boolean mShutdown = false;
+
+    @Override
+    public void execute(Runnable task) {
+      mTasks.add(task);
+    }
+
+    void runAll() throws Exception {
+      for (final Runnable task : mTasks) {
+        task.run();
+      }
+      mTasks.clear();
+      // let the finished pictures be published
+      SwingUtilities.invokeAndWait(new Runnable() {
+          @Override
+          public void run() {
+          }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+      mShutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      mShutdown = true;
+      return new ArrayList<>(mTasks);
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return mShutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return mShutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return mShutdown;
+    }
+  }
+
+
+  private static Graph2D graph() {
+    final Point2D[] points = new Point2D[50];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Point2D(i, (float) Math.sin(i / 5.0));
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(points);
+    plot.setLines(true);
+    final Graph2D graph = new Graph2D();
+    graph.setTitle("Title");
+    graph.addPlot(plot);
+    return graph;
+  }
+
+
+  public void testAsyncRendering() throws Exception {
+    final Graph2D graph = graph();
+    final PlotPanel plain = new PlotPanel();
+    plain.setGraph(graph);
+    final PlotPanel panel = new PlotPanel();
+    panel.setGraph(graph);
+    assertNull(panel.getAsyncRendering());
+    final ManualExecutor executor = new ManualExecutor();
+    panel.setAsyncRendering(executor);
+    assertSame(executor, panel.getAsyncRendering());
+
+    panel.setSize(300, 200);
+    assertEquals(-1, graph.getPlots()[0].getColor());
+    TestUtils.paint(panel);
+    assertEquals(1, executor.mTasks.size());
+    assertNull(panel.getMapping());
+    // plots are given their colors before the picture is started
+    assertEquals(0, graph.getPlots()[0].getColor());
+    // painting again does not start another picture
+    TestUtils.paint(panel);
+    assertEquals(1, executor.mTasks.size());
+    // a new size replaces the picture in progress
+    panel.setSize(320, 240);
+    TestUtils.paint(panel);
+    assertEquals(2, executor.mTasks.size());
+    executor.runAll();
+    final Mapping[] mapping = panel.getMapping();
+    assertNotNull(mapping);
+    assertEquals(4, mapping.length);
+    plain.setSize(320, 240);
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+    assertEquals(0, executor.mTasks.size());
+
+    // the last picture is shown until the new one is finished
+    graph.setRange(Axis.Y, -2, 2);
+    final BufferedImage stale = TestUtils.paint(panel);
+    assertEquals(1, executor.mTasks.size());
+    assertSame(mapping, panel.getMapping());
+    executor.runAll();
+    assertNotSame(mapping, panel.getMapping());
+    final BufferedImage fresh = TestUtils.paint(panel);
+    TestUtils.assertSameImage(TestUtils.paint(plain), fresh);
+    boolean differs = false;
+    for (int y = 0; y < fresh.getHeight() && !differs; y++) {
+      for (int x = 0; x < fresh.getWidth() && !differs; x++) {
+        differs = stale.getRGB(x, y) != fresh.getRGB(x, y);
+      }
+    }
+    assertTrue(differs);
+
+    panel.setAsyncRendering(null);
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+    assertNotNull(panel.getMapping());
+  }
+
+
+  public void testProgressiveRendering() throws Exception {
+    final Graph2D graph = graph();
+    ((PointPlot2D) graph.getPlots()[0]).setPoints(true);
+    final PlotPanel full = new PlotPanel();
+    full.setGraph(graph);
+    full.setSize(300, 200);
+    final PlotPanel draft = new PlotPanel();
+    draft.mGraphicsRenderer.setQuality(Quality.DRAFT);
+    draft.setGraph(graph);
+    draft.setSize(300, 200);
+    final PlotPanel panel = new PlotPanel();
+    // long enough that only the test makes the picture due
+    panel.setProgressiveRendering(Quality.DRAFT, 60000);
+    panel.setGraph(graph);
+    panel.setSize(300, 200);
+
+    // a new graph is drawn in draft first
+    TestUtils.assertSameImage(TestUtils.paint(draft), TestUtils.paint(panel));
+    TestUtils.assertSameImage(TestUtils.paint(draft), TestUtils.paint(panel));
+    // then in full once it has stayed the same
+    panel.mRefiner.refine();
+    TestUtils.assertSameImage(TestUtils.paint(full), TestUtils.paint(panel));
+    TestUtils.assertSameImage(TestUtils.paint(full), TestUtils.paint(panel));
+    // and in draft again when it changes
+    panel.setSize(300, 180);
+    draft.setSize(300, 180);
+    TestUtils.assertSameImage(TestUtils.paint(draft), TestUtils.paint(panel));
+    panel.setProgressiveRendering(null, 0);
+    full.setSize(300, 180);
+    TestUtils.assertSameImage(TestUtils.paint(full), TestUtils.paint(panel));
+  }
+
+
+  /** Counts the graphs drawn. */
+  private static final class CountingRenderer extends GraphicsRenderer {
+    int mDrawn = 0;
+
+    @Override
+    public Mapping[] drawGraph(Graph2D graph, Graphics g, int offsetX, int offsetY, int screenWidth, int screenHeight, Quality quality) {
+      mDrawn++;
+      return super.drawGraph(graph, g, offsetX, offsetY, screenWidth, screenHeight, quality);
+    }
+  }
+
+
+  public void testOverview() {
+    final Graph2D whole = graph();
+    final Graph2D view = graph();
+    view.setRange(Axis.X, 10, 20);
+    final CountingRenderer renderer = new CountingRenderer();
+    final Overview overview = new Overview();
+    final BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+    final Graphics g = image.getGraphics();
+    try {
+      overview.draw(renderer, g, whole, view, 10, 20, 120, 80, Quality.PUBLICATION);
+      assertEquals(1, renderer.mDrawn);
+      // the picture is reused while the graph stays the same
+      overview.draw(renderer, g, whole, view, 40, 50, 120, 80, Quality.PUBLICATION);
+      overview.draw(renderer, g, whole, null, 40, 50, 120, 80, Quality.PUBLICATION);
+      assertEquals(1, renderer.mDrawn);
+      // and drawn again when it changes
+      overview.draw(renderer, g, whole, view, 40, 50, 100, 80, Quality.PUBLICATION);
+      assertEquals(2, renderer.mDrawn);
+      overview.draw(renderer, g, whole, view, 40, 50, 100, 80, Quality.DRAFT);
+      assertEquals(3, renderer.mDrawn);
+      whole.setRange(Axis.Y, -3, 3);
+      overview.draw(renderer, g, whole, view, 40, 50, 100, 80, Quality.DRAFT);
+      assertEquals(4, renderer.mDrawn);
+      overview.clear();
+      overview.draw(renderer, g, whole, view, 40, 50, 100, 80, Quality.DRAFT);
+      assertEquals(5, renderer.mDrawn);
+    } finally {
+      g.dispose();
+    }
+    // the border and view box are drawn over the picture
+    assertEquals(Color.BLACK.getRGB(), image.getRGB(40, 90));
+    final Mapping[] mapping = new GraphicsRenderer().drawGraph(whole, new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB).getGraphics(), 0, 0, 100, 80, Quality.DRAFT);
+    assertEquals(Color.RED.getRGB(), image.getRGB(40 + (int) mapping[0].worldToScreen(10), 90));
+  }
+
+
+  /** Draws a red line down the left of the data area. */
+  private static final class LineOverlay implements Overlay {
+    int mPainted = 0;
+    Mapping[] mMapping = null;
+
+    @Override
+    public void paintOverlay(Graphics g, Mapping[] mapping) {
+      mPainted++;
+      mMapping = mapping;
+      final int x = (int) mapping[0].getScreenMin() + 1;
+      g.setColor(Color.RED);
+      g.drawLine(x, 0, x, 10);
+    }
+  }
+
+
+  public void testOverlay() {
+    final Graph2D graph = graph();
+    final PlotPanel plain = new PlotPanel();
+    plain.setGraph(graph);
+    plain.setSize(300, 200);
+    final PlotPanel panel = new PlotPanel();
+    panel.setGraph(graph);
+    panel.setSize(300, 200);
+    final LineOverlay overlay = new LineOverlay();
+    panel.addOverlay(overlay);
+    final BufferedImage image = TestUtils.paint(panel);
+    assertEquals(1, overlay.mPainted);
+    final Mapping[] mapping = panel.getMapping();
+    assertSame(mapping, overlay.mMapping);
+    final int x = (int) mapping[0].getScreenMin() + 1;
+    assertEquals(Color.RED.getRGB(), image.getRGB(x, 5));
+    // the graph is not drawn again for the overlay
+    panel.repaintOverlays();
+    TestUtils.assertSameImage(image, TestUtils.paint(panel));
+    assertEquals(2, overlay.mPainted);
+    assertSame(mapping, panel.getMapping());
+    // but is when it changes
+    graph.setTitle("Changed");
+    panel.repaintOverlays();
+    TestUtils.paint(panel);
+    final Mapping[] changed = panel.getMapping();
+    assertNotSame(mapping, changed);
+    // and for any other repaint, as data may have changed in place
+    panel.repaint();
+    TestUtils.paint(panel);
+    assertNotSame(changed, panel.getMapping());
+    panel.removeOverlay(overlay);
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+    assertEquals(4, overlay.mPainted);
+    try {
+      panel.addOverlay(null);
+      fail();
+    } catch (final NullPointerException e) {
+      // expected
+    }
+  }
+
+
+  public void testKeptImageSettings() throws Exception {
+    final Graph2D graph = graph();
+    final PlotPanel plain = new PlotPanel();
+    plain.setGraph(graph);
+    plain.setSize(300, 200);
+    final PlotPanel panel = new PlotPanel();
+    panel.setBufferGraphs(true);
+    panel.setGraph(graph);
+    panel.setSize(300, 200);
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+    // the kept image is drawn again when the renderer's settings change
+    plain.setAntialiasing(true);
+    panel.setAntialiasing(true);
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+    final Color[] colors = {Color.MAGENTA, Color.ORANGE};
+    plain.setColors(colors);
+    panel.setColors(colors);
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+    plain.setGraphShadowWidth(6);
+    panel.setGraphShadowWidth(6);
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+    final PlotPanel model = new PlotPanel();
+    model.setGraphBGColor(Color.YELLOW, Color.CYAN);
+    plain.setRendererConfig(model);
+    panel.setRendererConfig(model);
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+    // or the background of the panel changes
+    plain.setBackground(Color.PINK);
+    panel.setBackground(Color.PINK);
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+
+    // as are pictures drawn in the background
+    final ManualExecutor executor = new ManualExecutor();
+    panel.setBufferGraphs(false);
+    panel.setAsyncRendering(executor);
+    TestUtils.paint(panel);
+    executor.runAll();
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+    plain.setGraphBGColor(Color.GREEN, Color.WHITE);
+    panel.setGraphBGColor(Color.GREEN, Color.WHITE);
+    TestUtils.paint(panel);
+    assertEquals(1, executor.mTasks.size());
+    executor.runAll();
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+    plain.setBackground(Color.LIGHT_GRAY);
+    panel.setBackground(Color.LIGHT_GRAY);
+    TestUtils.paint(panel);
+    assertEquals(1, executor.mTasks.size());
+    executor.runAll();
+    TestUtils.assertSameImage(TestUtils.paint(plain), TestUtils.paint(panel));
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(PlotPanelTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
@@ -0,0 +1,229 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+import javax.imageio.ImageIO;
+
+import com.reeltwo.plot.ui.ImageWriter.PngFilter;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the PngEncoder class.
+ *
+ * @author Richard Littin
+ */
+
+public class PngEncoderTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public PngEncoderTest(String name) {
+    super(name);
+  }
+
+
+  private static byte[] encode(int[] pixels, int width, int height, int rowsPerCall, int level, PngFilter filter, int threads) throws IOException {
+    return encode(pixels, width, height, null, rowsPerCall, level, filter, threads);
+  }
+
+
+  private static byte[] encode(int[] pixels, int width, int height, int[] palette, int rowsPerCall, int level, PngFilter filter, int threads) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (PngEncoder encoder = new PngEncoder(bos, width, height, palette, Collections.<String, String>emptyMap(), level, filter, threads)) {
+      for (int y = 0; y < height; y += rowsPerCall) {
+        encoder.writeRows(pixels, y * width, width, Math.min(rowsPerCall, height - y));
+      }
+      encoder.finish();
+    }
+    return bos.toByteArray();
+  }
+
+
+  private static void checkRoundTrip(int[] pixels, int width, int height, int rowsPerCall, int level, PngFilter filter, int threads) throws IOException {
+    checkRoundTrip(pixels, width, height, null, rowsPerCall, level, filter, threads);
+  }
+
+
+  private static void checkRoundTrip(int[] pixels, int width, int height, int[] palette, int rowsPerCall, int level, PngFilter filter, int threads) throws IOException {
+    final BufferedImage image = ImageIO.read(new ByteArrayInputStream(encode(pixels, width, height, palette, rowsPerCall, level, filter, threads)));
+    assertEquals(width, image.getWidth());
+    assertEquals(height, image.getHeight());
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        assertEquals(pixels[y * width + x], image.getRGB(x, y) & 0xFFFFFF);
+      }
+    }
+  }
+
+
+  private static int[] pixels(int width, int height) {
+    final Random random = new Random(7);
+    final int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      // mix of smooth and noisy rows so every filter gets chosen
+      pixels[i] = (i / width) % 3 == 0 ? random.nextInt() & 0xFFFFFF : ((i % width) * 0x010203) & 0xFFFFFF;
+    }
+    return pixels;
+  }
+
+
+  public void testRoundTrip() throws IOException {
+    final int width = 97;
+    final int height = 61;
+    final int[] pixels = pixels(width, height);
+    for (final int rows : new int[] {1, 5, height}) {
+      checkRoundTrip(pixels, width, height, rows, Deflater.DEFAULT_COMPRESSION, PngFilter.ADAPTIVE, 1);
+    }
+    for (final PngFilter filter : PngFilter.values()) {
+      checkRoundTrip(pixels, width, height, 7, 1, filter, 1);
+    }
+  }
+
+
+  public void testParallel() throws IOException {
+    // several pieces, each preceded by a dictionary
+    final int width = 300;
+    final int height = 400;
+    final int[] pixels = pixels(width, height);
+    for (final int threads : new int[] {2, 4}) {
+      for (final int level : new int[] {0, 1, Deflater.DEFAULT_COMPRESSION, 9}) {
+        checkRoundTrip(pixels, width, height, 64, level, PngFilter.ADAPTIVE, threads);
+      }
+      checkRoundTrip(pixels, width, height, height, 6, PngFilter.PAETH, threads);
+    }
+    // output does not depend on how the work was spread between threads
+    final byte[] two = encode(pixels, width, height, 3, 6, PngFilter.ADAPTIVE, 2);
+    assertTrue(Arrays.equals(two, encode(pixels, width, height, height, 6, PngFilter.ADAPTIVE, 8)));
+    // and the dictionary keeps it close in size to a single stream
+    final byte[] one = encode(pixels, width, height, height, 6, PngFilter.ADAPTIVE, 1);
+    assertTrue(two.length < one.length * 1.02);
+  }
+
+
+  public void testSharedThreads() throws IOException {
+    // an image that fits in one piece is encoded on the calling thread
+    final int[] small = pixels(30, 20);
+    assertTrue(Arrays.equals(encode(small, 30, 20, 20, 6, PngFilter.ADAPTIVE, 1), encode(small, 30, 20, 20, 6, PngFilter.ADAPTIVE, 4)));
+    // and larger ones share one pool of threads
+    final int[] pixels = pixels(300, 400);
+    for (int i = 0; i < 5; i++) {
+      checkRoundTrip(pixels, 300, 400, 400, 6, PngFilter.ADAPTIVE, 4);
+    }
+    int workers = 0;
+    for (final Thread t : Thread.getAllStackTraces().keySet()) {
+      if ("PngEncoder".equals(t.getName())) {
+        workers++;
+      }
+    }
+    assertTrue(workers <= Runtime.getRuntime().availableProcessors());
+  }
+
+
+  public void testWideRows() throws IOException {
+    // rows longer than a piece
+    final int width = 50000;
+    final int height = 5;
+    checkRoundTrip(pixels(width, height), width, height, 2, 6, PngFilter.ADAPTIVE, 3);
+  }
+
+
+  public void testPalette() throws IOException {
+    final int width = 200;
+    final int height = 300;
+    final int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = ((i / width + i % width) % 40) * 0x050301;
+    }
+    final int[] palette = PngEncoder.palette(pixels, 0, width, width, height);
+    assertEquals(40, palette.length);
+    assertEquals(0, palette[0]);
+    assertEquals(0x050301, palette[1]);
+    for (final PngFilter filter : PngFilter.values()) {
+      checkRoundTrip(pixels, width, height, palette, 17, 6, filter, 1);
+    }
+    checkRoundTrip(pixels, width, height, palette, 17, 6, PngFilter.ADAPTIVE, 3);
+    assertTrue(encode(pixels, width, height, palette, height, 6, PngFilter.ADAPTIVE, 1).length < encode(pixels, width, height, height, 6, PngFilter.ADAPTIVE, 1).length);
+
+    // a sub-image of the pixels
+    assertEquals(1, PngEncoder.palette(pixels, 0, width, 1, 1).length);
+    assertEquals(2, PngEncoder.palette(pixels, width + 1, width, 2, 1).length);
+
+    assertNull(PngEncoder.palette(pixels(100, 100), 0, 100, 100, 100));
+    final int[] full = new int[256];
+    for (int i = 0; i < full.length; i++) {
+      full[i] = i * 0x010101;
+    }
+    assertEquals(256, PngEncoder.palette(full, 0, 16, 16, 16).length);
+    final int[] more = Arrays.copyOf(full, 257);
+    more[256] = 0x123456;
+    assertNull(PngEncoder.palette(more, 0, 257, 257, 1));
+  }
+
+
+  public void testNotInPalette() throws IOException {
+    try (PngEncoder encoder = new PngEncoder(new ByteArrayOutputStream(), 2, 1, new int[] {0xFFFFFF}, Collections.<String, String>emptyMap(), 6, PngFilter.ADAPTIVE, 1)) {
+      encoder.writeRows(new int[] {0xFFFFFF, 0x123456}, 0, 2, 1);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("Colour not in palette: 123456", e.getMessage());
+    }
+  }
+
+
+  public void testAdler32Combine() {
+    final byte[] data = new byte[100000];
+    new Random(3).nextBytes(data);
+    final Adler32 whole = new Adler32();
+    whole.update(data);
+    for (final int split : new int[] {0, 1, 65521, 70000, data.length}) {
+      final Adler32 first = new Adler32();
+      first.update(data, 0, split);
+      final Adler32 second = new Adler32();
+      second.update(data, split, data.length - split);
+      assertEquals(whole.getValue(), PngEncoder.adler32Combine(first.getValue(), second.getValue(), data.length - split));
+    }
+  }
+
+
+  public void testRowCount() throws IOException {
+    final PngEncoder encoder = new PngEncoder(new ByteArrayOutputStream(), 2, 2, Collections.<String, String>emptyMap(), 6, PngFilter.ADAPTIVE, 1);
+    encoder.writeRows(new int[4], 0, 2, 1);
+    try {
+      encoder.finish();
+      fail();
+    } catch (final IllegalStateException e) {
+      assertEquals("Expected 2 rows but got 1", e.getMessage());
+    }
+    try {
+      encoder.writeRows(new int[4], 0, 2, 2);
+      fail();
+    } catch (final IllegalStateException e) {
+      assertEquals("Too many rows: 3", e.getMessage());
+    }
+    encoder.close();
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(PngEncoderTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}